@@ -31,6 +31,7 @@ public enum BusinessCode {
     ERROR_VIDEO_GENERATION_FAILED(40006, "视频生成失败"),
     ERROR_TEMPLATE_NOT_FOUND(40007, "模板不存在"),
     ERROR_RECORD_STATUS_INVALID(40008, "记录状态不正确"),
+    ERROR_TEMPLATE_NOT_SUPPORTED(40019, "模板暂不支持生成"),
 
     // ========== 文件上传相关 ==========
     ERROR_FILE_UPLOAD_FAILED(40009, "文件上传失败"),
@@ -49,4 +49,112 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 任务结果检查线程池
+     * 异步等待的结果读取与 future 完成都在此执行，不占用视频处理线程
+     */
+    @Bean("taskAwaitExecutor")
+    public Executor taskAwaitExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("task-await-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 时间轮到期任务线程池
+     * 等待超时与兜底轮询（读取 Redis）到期后在此执行，时间轮线程只做派发；
+     * 队列满时拒绝，由时间轮稍后重新派发，不在时间轮线程上执行阻塞读取
+     */
+    @Bean("taskTimerExecutor")
+    public Executor taskTimerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("task-timer-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 回调补偿查询线程池
+     * 主动查询上游结果为阻塞 HTTP 调用，与等待检查线程池隔离；队列满时本轮跳过，下次扫描再查
+     */
+    @Bean("taskReconcileExecutor")
+    public Executor taskReconcileExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("task-reconcile-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 流程步骤线程池
+     * 模板流程按依赖关系并行执行步骤，步骤内等待算法结果为阻塞调用（最长等待超时），与视频处理线程池隔离。
+     * 线程池只在队列满时才扩容到最大线程数，因此核心线程数即并发上限：按视频处理线程数 × 并行步骤数设置，
+     * 不使用队列（SynchronousQueue），全部占满时由调用线程执行；空闲线程超时回收
+     */
+    @Bean("pipelineStepExecutor")
+    public Executor pipelineStepExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(128);
+        executor.setMaxPoolSize(128);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("pipeline-step-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 流程事件线程池
+     * 事件驱动流程的任务结果事件（写入步骤输出、推进流程、提交后续步骤）在此执行，
+     * 不与本地处理步骤（混音、拼接，耗时分钟级）共用线程；队列满时由结果到达的线程直接处理
+     */
+    @Bean("pipelineEventExecutor")
+    public Executor pipelineEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("pipeline-event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 上游提交派发线程池
+     * 排队任务拿到许可后在此提交上游，提交为同步 HTTP 调用，不占用回调写入线程
+     */
+    @Bean("admissionDispatchExecutor")
+    public Executor admissionDispatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(2000);
+        executor.setThreadNamePrefix("admission-dispatch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,9 +1,13 @@
 package org.example.newyear.config;
 
+import org.example.newyear.service.task.TaskCompletionNotifier;
+import org.example.newyear.util.TaskRedisKey;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -32,4 +36,17 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * 任务完成通知订阅
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory, TaskCompletionNotifier taskCompletionNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(taskCompletionNotifier,
+                new ChannelTopic(TaskRedisKey.TASK_COMPLETION_CHANNEL));
+        return container;
+    }
 }
\ No newline at end of file
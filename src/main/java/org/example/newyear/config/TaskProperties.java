@@ -0,0 +1,608 @@
+package org.example.newyear.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 算法任务等待/调度配置
+ *
+ * @author Claude
+ * @since 2026-02-10
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "task")
+public class TaskProperties {
+
+    /**
+     * 任务完成通知配置
+     */
+    private CompletionConfig completion = new CompletionConfig();
+
+    /**
+     * 自适应轮询配置
+     */
+    private PollConfig poll = new PollConfig();
+
+    /**
+     * 任务结果存储配置
+     */
+    private StoreConfig store = new StoreConfig();
+
+    /**
+     * 回调丢失补偿配置
+     */
+    private ReconcileConfig reconcile = new ReconcileConfig();
+
+    /**
+     * 任务截止时间与过期任务清理配置
+     */
+    private DeadlineConfig deadline = new DeadlineConfig();
+
+    /**
+     * 回调异步写入配置
+     */
+    private IngestConfig ingest = new IngestConfig();
+
+    /**
+     * 回调去重配置
+     */
+    private DedupConfig dedup = new DedupConfig();
+
+    /**
+     * 任务结果日志（MySQL）配置
+     */
+    private JournalConfig journal = new JournalConfig();
+
+    /**
+     * 模板流程执行配置
+     */
+    private PipelineConfig pipeline = new PipelineConfig();
+
+    /**
+     * 算法步骤结果缓存配置
+     */
+    private StepCacheConfig stepCache = new StepCacheConfig();
+
+    /**
+     * 模板素材地址缓存配置
+     */
+    private AssetConfig assets = new AssetConfig();
+
+    /**
+     * 上游提交准入配置
+     */
+    private AdmissionConfig admission = new AdmissionConfig();
+
+    /**
+     * 任务优先级配置
+     */
+    private PriorityConfig priority = new PriorityConfig();
+
+    /**
+     * 负载自适应降级配置
+     */
+    private DegradationConfig degradation = new DegradationConfig();
+
+    /**
+     * 待执行记录认领配置
+     */
+    private ClaimConfig claim = new ClaimConfig();
+
+    @Data
+    public static class CompletionConfig {
+        /**
+         * 是否启用推送模式（回调到达后通过 Redis Pub/Sub 唤醒等待方）
+         */
+        private Boolean pushEnabled = true;
+
+        /**
+         * 推送模式下的兜底轮询起始间隔（毫秒），防止通知丢失
+         */
+        private Long safetyPollIntervalMs = 10000L;
+
+        /**
+         * 关闭推送模式时的轮询起始间隔（毫秒），之后按 {@link PollConfig} 自适应调整
+         */
+        private Long pollIntervalMs = 500L;
+    }
+
+    @Data
+    public static class PollConfig {
+        /**
+         * 默认最小轮询间隔（毫秒），临近预计完成时间时收紧到此间隔
+         */
+        private Long minIntervalMs = 500L;
+
+        /**
+         * 默认最大轮询间隔（毫秒）
+         */
+        private Long maxIntervalMs = 30000L;
+
+        /**
+         * 抖动比例，实际间隔在 [1-ratio, 1+ratio] 倍之间随机，避免大量等待方同时读取
+         */
+        private Double jitterRatio = 0.2;
+
+        /**
+         * 按算法覆盖的配置，key 为 {@link org.example.newyear.entity.enums.AlgorithmEnum#getName()}
+         */
+        private Map<String, AlgorithmPollConfig> algorithms = new HashMap<>();
+    }
+
+    @Data
+    public static class AlgorithmPollConfig {
+        /**
+         * 最小轮询间隔（毫秒），为空时取默认值
+         */
+        private Long minIntervalMs;
+
+        /**
+         * 最大轮询间隔（毫秒），为空时取默认值
+         */
+        private Long maxIntervalMs;
+
+        /**
+         * 单个排队位置的典型耗时（毫秒），平台未返回预计耗时时按队列位置估算
+         */
+        private Long typicalDurationMs;
+    }
+
+    @Data
+    public static class StoreConfig {
+        /**
+         * 结果编码格式：smile / json，读取时自动识别，切换无需清理旧数据
+         */
+        private String codec = "smile";
+
+        /**
+         * 是否启用 LZ4 压缩
+         */
+        private Boolean compressEnabled = false;
+
+        /**
+         * 编码后不小于该大小（字节）才压缩
+         */
+        private Integer compressThresholdBytes = 1024;
+
+        /**
+         * 是否启用本地近端缓存（仅缓存终态结果）
+         */
+        private Boolean nearCacheEnabled = true;
+
+        /**
+         * 近端缓存最大条目数，超出时按最近最少使用淘汰
+         */
+        private Integer nearCacheCapacity = 10000;
+
+        /**
+         * 近端缓存条目存活时间（毫秒）
+         */
+        private Long nearCacheTtlMs = 600000L;
+
+        /**
+         * 任务 Hash 不存在时是否回读旧格式 key（activity2026:result/progress/raw-callback），
+         * 上线后旧数据过期（24 小时）即可关闭
+         */
+        private Boolean legacyReadEnabled = true;
+    }
+
+    @Data
+    public static class ReconcileConfig {
+        /**
+         * 是否启用主动查询补偿
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 扫描间隔（毫秒）
+         */
+        private Long scanIntervalMs = 5000L;
+
+        /**
+         * 超过预计完成时间多久仍无回调时开始查询（毫秒）
+         */
+        private Long graceMs = 5000L;
+
+        /**
+         * 无法估算预计完成时间时，开始等待后多久开始查询（毫秒）
+         */
+        private Long noEtaDelayMs = 120000L;
+
+        /**
+         * 查询仍未完成时的初始退避间隔（毫秒），之后翻倍
+         */
+        private Long initialBackoffMs = 5000L;
+
+        /**
+         * 最大退避间隔（毫秒）
+         */
+        private Long maxBackoffMs = 60000L;
+
+        /**
+         * 单次扫描最多发起的查询数
+         */
+        private Integer maxQueriesPerScan = 50;
+    }
+
+    @Data
+    public static class DeadlineConfig {
+        /**
+         * 是否启用过期任务清理（取消上游任务）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 清理间隔（毫秒）
+         */
+        private Long sweepIntervalMs = 10000L;
+
+        /**
+         * 单次清理的最大任务数
+         */
+        private Integer batchSize = 100;
+
+        /**
+         * 截止时间在等待超时之外额外保留的时间（毫秒），避免与等待方超时处理竞争
+         */
+        private Long graceMs = 60000L;
+
+        /**
+         * 取消上游任务失败后的重试间隔（毫秒），期间其他节点不会重复取消
+         */
+        private Long cancelRetryIntervalMs = 60000L;
+
+        /**
+         * 取消上游任务的最大尝试次数，仍失败时仅标记本地状态
+         */
+        private Integer cancelMaxAttempts = 5;
+    }
+
+    @Data
+    public static class IngestConfig {
+        /**
+         * 是否异步写入回调结果（关闭时在请求线程内同步写入）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 待写入队列容量，队列满时退化为请求线程内同步写入
+         */
+        private Integer queueCapacity = 10000;
+
+        /**
+         * 写入线程数
+         */
+        private Integer writerThreads = 2;
+
+        /**
+         * 单次管道写入的最大回调数
+         */
+        private Integer batchSize = 100;
+    }
+
+    @Data
+    public static class DedupConfig {
+        /**
+         * 是否对重复回调去重
+         */
+        private Boolean enabled = true;
+
+        /**
+         * Redis 去重标记保留时间（秒）
+         */
+        private Long markerTtlSeconds = 3600L;
+
+        /**
+         * 本地布隆过滤器大小（MB），向上取整到 5 的倍数
+         */
+        private Integer bloomSizeMb = 5;
+
+        /**
+         * 本地布隆过滤器重建间隔（毫秒），避免长期运行后误判率上升
+         */
+        private Long bloomResetMs = 3600000L;
+    }
+
+    @Data
+    public static class JournalConfig {
+        /**
+         * 是否将终态结果异步写入 MySQL，并在 Redis 未命中时回查
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 待写入队列容量，队列满时在调用线程内同步写入
+         */
+        private Integer queueCapacity = 10000;
+
+        /**
+         * 单次批量写入的最大条数
+         */
+        private Integer batchSize = 200;
+
+        /**
+         * 记录保留天数
+         */
+        private Integer retentionDays = 7;
+
+        /**
+         * 日志回查未命中的任务在本地记录的时间（毫秒），期间不再回查 MySQL
+         */
+        private Long missCacheTtlMs = 10000L;
+
+        /**
+         * 回查未命中记录的最大条目数
+         */
+        private Integer missCacheCapacity = 50000;
+    }
+
+    @Data
+    public static class PipelineConfig {
+        /**
+         * 是否记录步骤断点（task_execution），重试时跳过已完成的步骤
+         */
+        private Boolean checkpointEnabled = true;
+
+        /**
+         * 流程失败后是否自动重新排队（次数受记录的 max_retry 限制）
+         */
+        private Boolean autoRetryEnabled = true;
+
+        /**
+         * 步骤失败后等待被中断的并行步骤结束的最长时间（毫秒），之后流程才失败返回（重新排队）
+         */
+        private Long abortWaitMs = 30000L;
+
+        /**
+         * 是否以事件驱动方式执行流程（步骤之间不占用线程，由任务结果推进）
+         */
+        private Boolean continuationEnabled = true;
+
+        /**
+         * 运行中流程巡检间隔（毫秒）
+         */
+        private Long sweepIntervalMs = 30000L;
+
+        /**
+         * 流程无进展超过该时长（毫秒）后巡检补处理丢失的任务结果
+         */
+        private Long recoverAfterMs = 120000L;
+
+        /**
+         * 流程无进展超过该时长（毫秒）判定超时失败
+         */
+        private Long stallTimeoutMs = 3600000L;
+    }
+
+    @Data
+    public static class StepCacheConfig {
+        /**
+         * 是否启用算法步骤结果缓存（相同算法、参数与输入内容直接复用成功结果）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 缓存结果存活时间（秒），实际不超过结果中签名地址的剩余有效期减去 urlExpiryMarginSeconds
+         */
+        private Long ttlSeconds = 604800L;
+
+        /**
+         * 命中缓存后结果地址至少还需有效的时长（秒），供后续步骤下载使用
+         */
+        private Long urlExpiryMarginSeconds = 3600L;
+
+        /**
+         * 一次提交获取全部输入文件内容指纹（ETag）的总耗时上限（毫秒），超出则本次不使用缓存
+         */
+        private Integer fingerprintTimeoutMs = 1000;
+
+        /**
+         * 本地内容指纹缓存容量
+         */
+        private Integer fingerprintCacheCapacity = 10000;
+
+        /**
+         * 本地内容指纹缓存存活时间（毫秒）
+         */
+        private Long fingerprintCacheTtlMs = 3600000L;
+
+        /**
+         * 是否合并执行中的相同请求（后到的任务挂到首个任务上，不再提交上游）
+         */
+        private Boolean singleFlightEnabled = true;
+
+        /**
+         * 执行中登记的存活时间（秒），首个任务结果丢失时到期后重新提交
+         */
+        private Long inflightTtlSeconds = 1800L;
+    }
+
+    @Data
+    public static class AssetConfig {
+        /**
+         * 后台刷新检查间隔（毫秒）
+         */
+        private Long refreshIntervalMs = 600000L;
+
+        /**
+         * 签名剩余有效期不足该时长（毫秒）时重新签名，须大于单条记录的最长处理时间
+         */
+        private Long refreshAheadMs = 86400000L;
+
+        /**
+         * 提前刷新时长不超过签名有效期的该比例（签名有效期短于 refreshAheadMs 时生效）
+         */
+        private Double refreshAheadRatio = 0.5;
+    }
+
+    @Data
+    public static class AdmissionConfig {
+        /**
+         * 是否限制上游并发
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 许可最长持有时间（毫秒），任务结果丢失时到期后自动归还
+         */
+        private Long leaseMs = 3600000L;
+
+        /**
+         * 排队任务的派发检查间隔（毫秒）
+         */
+        private Long dispatchIntervalMs = 1000L;
+
+        /**
+         * 本节点排队任务上限，超出时直接拒绝提交
+         */
+        private Integer maxQueued = 2000;
+
+        /**
+         * 各算法的集群并发上限（key 为算法名称，如 wan_animate），未配置或不大于 0 时不限制，
+         * 可通过管理接口在运行时调整
+         */
+        private Map<String, Integer> limits = new HashMap<>();
+    }
+
+    @Data
+    public static class PriorityConfig {
+        /**
+         * 是否按记录区分优先级（关闭时全部按普通通道提交）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * VIP 用户ID
+         */
+        private List<String> vipUserIds = new ArrayList<>();
+
+        /**
+         * 记录的目标完成时长（毫秒，从创建时间算起）
+         */
+        private Long slaMs = 1800000L;
+
+        /**
+         * 距目标完成时长不足该时长（毫秒）时按临近超时通道提交
+         */
+        private Long nearSlaMs = 600000L;
+
+        /**
+         * 临近超时通道占本节点在途任务的比例上限（高峰期大部分记录都会临近超时，超出后按记录原本的通道提交）
+         */
+        private Double nearSlaMaxShare = 0.2;
+
+        /**
+         * 各通道对应的视觉平台请求头（key 为通道编码，如 vip），未配置的通道不设置 Group/Position
+         */
+        private Map<String, LaneConfig> lanes = new HashMap<>();
+
+        /**
+         * 是否对即将超时、仍在上游排队的任务调用插队接口
+         */
+        private Boolean jumpEnabled = true;
+
+        /**
+         * 插队检查间隔（毫秒）
+         */
+        private Long jumpScanIntervalMs = 30000L;
+
+        /**
+         * 距等待超时不足该时长（毫秒）时插队
+         */
+        private Long jumpAheadMs = 300000L;
+
+        /**
+         * 单次检查的任务数上限
+         */
+        private Integer jumpBatchSize = 100;
+    }
+
+    @Data
+    public static class LaneConfig {
+        /**
+         * 视觉平台 Group 请求头（队列分组）
+         */
+        private String group;
+
+        /**
+         * 视觉平台 Position 请求头（插入队列的位置，0 为队首），不配置时排在队尾
+         */
+        private Integer position;
+    }
+
+    @Data
+    public static class DegradationConfig {
+        /**
+         * 是否根据负载自动切换质量档位（关闭时始终使用高清档位）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 负载评估间隔（毫秒）
+         */
+        private Long evaluateIntervalMs = 10000L;
+
+        /**
+         * 耗时统计窗口（毫秒）
+         */
+        private Long windowMs = 300000L;
+
+        /**
+         * 窗口内样本数不足时不参与判断
+         */
+        private Integer minSamples = 20;
+
+        /**
+         * 上游排队耗时 P95 进入/退出降级的阈值（毫秒）
+         */
+        private Long queueWaitHighMs = 180000L;
+        private Long queueWaitLowMs = 60000L;
+
+        /**
+         * 积压（排队中的记录 + 本节点等待上游许可的任务）进入/退出降级的阈值
+         */
+        private Long backlogHigh = 500L;
+        private Long backlogLow = 100L;
+
+        /**
+         * 算法步骤耗时 P95 进入/退出降级的阈值（毫秒）
+         */
+        private Long stepP95HighMs = 900000L;
+        private Long stepP95LowMs = 420000L;
+
+        /**
+         * 降级后至少保持的时长（毫秒），期间即使负载回落也不恢复
+         */
+        private Long minHoldMs = 600000L;
+    }
+
+    @Data
+    public static class ClaimConfig {
+        /**
+         * 认领间隔（毫秒）
+         */
+        private Long intervalMs = 2000L;
+
+        /**
+         * 单次认领上限，实际数量不超过视频处理线程池的空闲线程数与在途记录余量
+         */
+        private Integer batchSize = 20;
+
+        /**
+         * 集群生成中（已认领、执行中）记录数上限，不大于 0 时不限制：事件驱动流程启动后即归还视频处理线程，线程池占用不反映在途记录数
+         */
+        private Integer maxInflight = 200;
+
+        /**
+         * 认领租约（毫秒），认领后超过该时长仍未开始处理（节点宕机等）的记录重新排队
+         */
+        private Long leaseMs = 300000L;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.newyear.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.example.newyear.service.task.codec.FormatDetectingTaskResultCodec;
+import org.example.newyear.service.task.codec.JacksonTaskResultCodec;
+import org.example.newyear.service.task.codec.Lz4TaskResultCodec;
+import org.example.newyear.service.task.codec.TaskResultCodec;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * 任务结果存储配置（编解码器、二进制 RedisTemplate）
+ *
+ * @author Claude
+ * @since 2026-02-10
+ */
+@Configuration
+public class TaskResultStoreConfig {
+
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_SMILE = "smile";
+
+    /**
+     * 任务结果编解码器
+     * 按 task.store.codec 写入，读取时自动识别 JSON / Smile / LZ4
+     */
+    @Bean
+    public TaskResultCodec taskResultCodec(ObjectMapper objectMapper,
+                                           Jackson2ObjectMapperBuilder objectMapperBuilder,
+                                           TaskProperties taskProperties) {
+        TaskProperties.StoreConfig config = taskProperties.getStore();
+
+        // Smile 沿用 Spring 的 Jackson 配置（时间模块、非空字段等），与 JSON 的字段表现一致
+        TaskResultCodec jsonCodec = new JacksonTaskResultCodec(objectMapper);
+        TaskResultCodec smileCodec = new JacksonTaskResultCodec(
+                objectMapperBuilder.factory(new SmileFactory()).build());
+
+        TaskResultCodec writeCodec = CODEC_JSON.equalsIgnoreCase(config.getCodec()) ? jsonCodec : smileCodec;
+        return new Lz4TaskResultCodec(
+                new FormatDetectingTaskResultCodec(writeCodec, jsonCodec, smileCodec),
+                Boolean.TRUE.equals(config.getCompressEnabled()),
+                config.getCompressThresholdBytes());
+    }
+
+    /**
+     * 二进制值 RedisTemplate（任务结果 Hash）
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> taskResultRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+}
@@ -11,10 +11,15 @@ import org.example.newyear.entity.Spring2026User;
 import org.example.newyear.exception.BusinessException;
 import org.example.newyear.mapper.Spring2026CreationRecordMapper;
 import org.example.newyear.mapper.Spring2026UserMapper;
+import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.service.UserService;
+import org.example.newyear.service.pipeline.DegradationController;
+import org.example.newyear.service.task.AlgorithmAdmission;
+import org.example.newyear.service.task.StepResultCache;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
 
 /**
  * 管理员控制器
@@ -31,6 +36,9 @@ public class AdminController {
     private final UserService userService;
     private final Spring2026CreationRecordMapper recordMapper;
     private final Spring2026UserMapper userMapper;
+    private final StepResultCache stepResultCache;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final DegradationController degradationController;
 
     /**
      * 下线作品（需要管理员权限）
@@ -144,4 +152,65 @@ public class AdminController {
 
         return Result.success();
     }
+
+    /**
+     * 查询算法步骤结果缓存统计（本节点，需要管理员权限）
+     *
+     * @return 命中、未命中、跳过与写入次数
+     */
+    @RequireAdmin
+    @GetMapping("/step-cache/stats")
+    public Result<StepResultCache.Stats> getStepCacheStats() {
+        return Result.success(stepResultCache.getStats());
+    }
+
+    /**
+     * 查询上游并发上限与在途、排队情况（排队数为本节点，需要管理员权限）
+     *
+     * @return 算法名称 → 上限、在途、排队
+     */
+    @RequireAdmin
+    @GetMapping("/admission/stats")
+    public Result<Map<String, AlgorithmAdmission.Stats>> getAdmissionStats() {
+        return Result.success(algorithmAdmission.getStats());
+    }
+
+    /**
+     * 调整算法上游并发上限（集群生效，需要管理员权限）
+     *
+     * @param request   HTTP请求
+     * @param algorithm 算法名称，如 wan_animate
+     * @param limit     并发上限（0 表示不限制），不传时恢复配置值
+     * @return 操作结果
+     */
+    @RequireAdmin
+    @PostMapping("/admission/limits")
+    public Result<Void> setAdmissionLimit(HttpServletRequest request,
+                                          @RequestParam String algorithm,
+                                          @RequestParam(required = false) Integer limit) {
+        String adminId = request.getHeader("X-User-UUID");
+        log.info("管理员调整上游并发上限: adminId={}, algorithm={}, limit={}", adminId, algorithm, limit);
+
+        AlgorithmEnum algorithmEnum = AlgorithmEnum.of(algorithm);
+        if (algorithmEnum == null) {
+            throw new IllegalArgumentException("未知的算法: " + algorithm);
+        }
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("limit 不能小于 0");
+        }
+        algorithmAdmission.setLimit(algorithmEnum, limit);
+
+        return Result.success();
+    }
+
+    /**
+     * 查询当前质量档位与负载评估（本节点，需要管理员权限）
+     *
+     * @return 档位、切换时间、排队耗时/积压/步骤耗时
+     */
+    @RequireAdmin
+    @GetMapping("/degradation/status")
+    public Result<DegradationController.Status> getDegradationStatus() {
+        return Result.success(degradationController.getStatus());
+    }
 }
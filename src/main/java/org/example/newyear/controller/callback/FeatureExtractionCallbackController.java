@@ -2,10 +2,8 @@ package org.example.newyear.controller.callback;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.newyear.dto.algorithm.audio.FeatureExtractionCallbackData;
 import org.example.newyear.dto.algorithm.audio.FeatureExtractionCallbackResponse;
-import org.example.newyear.entity.task.TaskResult;
-import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.service.callback.CallbackIngestionQueue;
 import org.example.newyear.service.callback.FeatureExtractionCallbackConverter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,7 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class FeatureExtractionCallbackController {
 
-    private final CallbackHandler callbackHandler;
+    private final CallbackIngestionQueue callbackIngestionQueue;
     private final FeatureExtractionCallbackConverter converter;
 
     /**
@@ -29,20 +27,11 @@ public class FeatureExtractionCallbackController {
     public ResponseEntity<String> handleCallback(
             @RequestBody FeatureExtractionCallbackResponse callback) {
 
-        log.info("收到特征提取回调, code={}, msg={}", callback.getCode(), callback.getMsg());
+        log.info("收到特征提取回调, code={}, msg={}, featureId={}", callback.getCode(), callback.getMsg(),
+                callback.getData() != null ? callback.getData().getFeatureId() : null);
 
         try {
-            TaskResult result = callbackHandler.handleCallback(callback, converter);
-
-            if (result.isSuccess()) {
-                // 使用泛型方法获取强类型结果（修复旧方法调用）
-                FeatureExtractionCallbackData data = result.getResult(FeatureExtractionCallbackData.class);
-                log.info("特征提取成功, taskId={}, featureId={}",
-                    result.getTaskId(), data.getFeatureId());
-            } else {
-                log.warn("特征提取失败, taskId={}, errorCode={}, errorMessage={}",
-                    result.getTaskId(), result.getErrorCode(), result.getErrorMessage());
-            }
+            callbackIngestionQueue.submit(callback, converter);
         } catch (Exception e) {
             log.error("处理回调异常", e);
         }
@@ -3,8 +3,7 @@ package org.example.newyear.controller.callback;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.newyear.dto.algorithm.audio.SongConversionCallbackResponse;
-import org.example.newyear.entity.task.TaskResult;
-import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.service.callback.CallbackIngestionQueue;
 import org.example.newyear.service.callback.SongConversionCallbackConverter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,7 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class SongConversionCallbackController {
 
-    private final CallbackHandler callbackHandler;
+    private final CallbackIngestionQueue callbackIngestionQueue;
     private final SongConversionCallbackConverter converter;
 
     @PostMapping("/song-conversion")
@@ -29,12 +28,7 @@ public class SongConversionCallbackController {
         log.info("收到歌曲转换回调, code={}, msg={}", callback.getCode(), callback.getMsg());
 
         try {
-            TaskResult result = callbackHandler.handleCallback(callback, converter);
-
-            if (!result.isSuccess()) {
-                log.warn("歌曲转换失败, taskId={}, errorCode={}, errorMessage={}",
-                        result.getTaskId(), result.getErrorCode(), result.getErrorMessage());
-            }
+            callbackIngestionQueue.submit(callback, converter);
         } catch (Exception e) {
             log.error("处理回调异常", e);
         }
@@ -5,8 +5,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.newyear.dto.algorithm.vision.VisionCallbackResponse;
 import org.example.newyear.entity.enums.AlgorithmEnum;
-import org.example.newyear.entity.task.TaskResult;
 import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.service.callback.CallbackIngestionQueue;
 import org.example.newyear.service.callback.VisionCallbackConverter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,6 +21,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class VisionCallbackController {
 
     private final CallbackHandler callbackHandler;
+    private final CallbackIngestionQueue callbackIngestionQueue;
     private final VisionCallbackConverter converter;
 
     @PostMapping("/result")
@@ -34,16 +35,9 @@ public class VisionCallbackController {
                 algorithm != null ? algorithm.getName() : callback.getAbility(),
                 callback.getTaskStatusDescription());
 
+        // 入队后立即响应，结果由写入线程批量存储
         try {
-            TaskResult result = callbackHandler.handleCallback(callback, converter);
-
-            if (!result.isSuccess()) {
-                log.warn("任务执行失败, taskId={}, algorithm={}, errorCode={}, errorMessage={}",
-                        result.getTaskId(),
-                        algorithm != null ? algorithm.getName() : "unknown",
-                        result.getErrorCode(),
-                        result.getErrorMessage());
-            }
+            callbackIngestionQueue.submit(callback, converter);
         } catch (Exception e) {
             log.error("处理回调异常, taskId={}", callback.getBusinessTaskId(), e);
         }
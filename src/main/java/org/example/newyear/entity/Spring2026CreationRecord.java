@@ -1,6 +1,7 @@
 package org.example.newyear.entity;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
@@ -59,8 +60,9 @@ public class Spring2026CreationRecord implements Serializable {
     private String userMaterials;
 
     /**
-     * 状态 0=排队 1=生成中 2=已完成 3=失败
+     * 状态 0=排队 1=生成中 2=已完成 3=失败（表字段 record_status）
      */
+    @TableField("record_status")
     private Integer status;
 
     /**
@@ -113,6 +115,16 @@ public class Spring2026CreationRecord implements Serializable {
      */
     private Integer maxRetry;
 
+    /**
+     * 认领批次标识（调度节点 + 批次），开始处理后保留用于排查
+     */
+    private String claimOwner;
+
+    /**
+     * 认领租约到期时间，开始处理后清空；到期仍未开始处理的记录重新排队
+     */
+    private LocalDateTime claimExpireTime;
+
     /**
      * 开始生成时间
      */
@@ -0,0 +1,64 @@
+package org.example.newyear.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 任务结果日志实体（终态结果的持久化副本）
+ *
+ * @author Claude
+ * @since 2026-02-12
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("spring_2026_task_journal")
+public class Spring2026TaskJournal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 自增id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 上游任务ID
+     */
+    private String taskId;
+
+    /**
+     * 算法类型
+     */
+    private String algorithm;
+
+    /**
+     * 任务状态: 2=成功 3=失败 4=超时 5=已取消
+     */
+    private Integer taskStatus;
+
+    /**
+     * 任务结果（TaskResultCodec 编码）
+     */
+    private byte[] result;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,34 @@
+package org.example.newyear.entity.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 视频生成质量档位
+ */
+@Getter
+@AllArgsConstructor
+public enum QualityProfile {
+
+    /**
+     * 按步骤配置的 resolution 提交（如人物替换 720p、唇形同步 hd），步骤未配置时使用算法默认值
+     */
+    HIGH("high", "高清"),
+
+    /**
+     * 高峰期降级：忽略步骤配置的 resolution，使用算法默认值（480P、不超分）
+     */
+    DEGRADED("degraded", "降级");
+
+    private final String code;
+    private final String description;
+
+    public static QualityProfile of(String code) {
+        for (QualityProfile profile : values()) {
+            if (profile.code.equals(code)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.newyear.entity.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 上游任务优先级通道
+ *
+ * level 越大越先派发（本地排队），提交时按通道映射为视觉平台的 Group/Position 请求头
+ */
+@Getter
+@AllArgsConstructor
+public enum TaskPriority {
+
+    NORMAL("normal", 0, "普通"),
+    RETRY("retry", 10, "失败重试"),
+    NEAR_SLA("near_sla", 20, "临近超时"),
+    VIP("vip", 30, "VIP用户");
+
+    private final String code;
+    private final int level;
+    private final String description;
+
+    public static TaskPriority of(String code) {
+        for (TaskPriority priority : values()) {
+            if (priority.code.equals(code)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+}
@@ -14,4 +14,19 @@ public enum VisionAbility {
     
     private final String code;
     private final String description;
+
+    /**
+     * 算法对应的视觉平台能力，非视觉算法返回 null
+     */
+    public static VisionAbility of(AlgorithmEnum algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        for (VisionAbility value : values()) {
+            if (AlgorithmEnum.fromVisionAbility(value.code) == algorithm) {
+                return value;
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
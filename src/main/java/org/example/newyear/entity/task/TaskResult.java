@@ -1,8 +1,11 @@
 package org.example.newyear.entity.task;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.util.JacksonUtils;
 
@@ -13,7 +16,9 @@ import java.util.Map;
  * 统一任务结果（存储到 Redis）
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
 public class TaskResult {
 
     /**
@@ -64,6 +69,7 @@ public class TaskResult {
     /**
      * 是否成功
      */
+    @JsonIgnore
     public boolean isSuccess() {
         return status == TaskResultStatus.SUCCESS;
     }
@@ -71,6 +77,7 @@ public class TaskResult {
     /**
      * 是否已完成（成功、失败、取消）
      */
+    @JsonIgnore
     public boolean isCompleted() {
         return status == TaskResultStatus.SUCCESS
                 || status == TaskResultStatus.FAILED
@@ -94,6 +101,7 @@ public class TaskResult {
     /**
      * 获取视频URL（通用）
      */
+    @JsonIgnore
     public String getVideoUrl() {
         String url = getData("videoUrl", String.class);
         if (url == null) url = getData("targetVideoUrl", String.class);
@@ -103,6 +111,7 @@ public class TaskResult {
     /**
      * 获取图片URL（通用）
      */
+    @JsonIgnore
     public String getImageUrl() {
         String url = getData("imageUrl", String.class);
         if (url == null) url = getData("targetImageUrl", String.class);
@@ -112,10 +121,11 @@ public class TaskResult {
     /**
      * 获取音频URL（通用）
      */
+    @JsonIgnore
     public String getAudioUrl() {
         String url = getData("audioUrl", String.class);
         if (url == null) url = getData("resultUrl", String.class);
         if (url == null) url = getData("allUrl", String.class);
         return url;
     }
-}
\ No newline at end of file
+}
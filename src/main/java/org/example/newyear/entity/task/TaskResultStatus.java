@@ -16,4 +16,27 @@ public enum TaskResultStatus {
     
     private final int code;
     private final String description;
-}
\ No newline at end of file
+
+    /**
+     * 状态阶段：待处理 0，处理中 1，终态 2。状态只允许向更高阶段推进
+     */
+    public int getStage() {
+        switch (this) {
+            case PENDING:
+                return 0;
+            case PROCESSING:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    public static TaskResultStatus of(int code) {
+        for (TaskResultStatus value : values()) {
+            if (value.code == code) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
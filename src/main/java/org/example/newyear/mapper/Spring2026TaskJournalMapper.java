@@ -0,0 +1,38 @@
+package org.example.newyear.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.newyear.entity.Spring2026TaskJournal;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 任务结果日志Mapper
+ *
+ * @author Claude
+ * @since 2026-02-12
+ */
+@Mapper
+public interface Spring2026TaskJournalMapper extends BaseMapper<Spring2026TaskJournal> {
+
+    /**
+     * 批量写入，已存在的任务保持不变（终态之间不互相覆盖）
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO spring_2026_task_journal (task_id, algorithm, task_status, result) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.taskId}, #{item.algorithm}, #{item.taskStatus}, #{item.result})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("list") List<Spring2026TaskJournal> journals);
+
+    /**
+     * 清理指定时间之前的记录（分批，避免大事务）
+     */
+    @Delete("DELETE FROM spring_2026_task_journal WHERE create_time < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -1,79 +1,189 @@
 package org.example.newyear.scheduler;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import lombok.RequiredArgsConstructor;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
 import org.example.newyear.dto.VideoCreateDTO;
 import org.example.newyear.entity.Spring2026CreationRecord;
 import org.example.newyear.mapper.Spring2026CreationRecordMapper;
 import org.example.newyear.service.VideoProcessingService;
 import org.example.newyear.util.JsonUtil;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
 /**
  * 视频任务调度器
- * 定时拉起待执行的视频生成任务
+ * 定时批量认领待执行的视频生成任务并拉起
+ *
+ * 认领为条件更新（status=0 → 1，写入认领批次与租约），多节点同时认领时每条记录只会被一个节点取到；
+ * 单次认领数量不超过视频处理线程池的空闲线程数（不在线程池队列中等待），且集群生成中的记录数不超过
+ * max-inflight（事件驱动流程启动后即归还线程，线程池占用不反映在途记录数）。
+ * 认领后租约到期仍未开始处理（节点宕机、线程池任务丢失）的记录重新排队；开始处理时按认领批次条件更新，
+ * 已被重新排队或其他节点认领的记录不会重复执行
  *
  * @author Claude
  * @since 2026-02-06
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class VideoTaskScheduler {
 
+    /**
+     * 本节点标识（认领批次前缀）
+     */
+    private static final String NODE = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+
     private final Spring2026CreationRecordMapper recordMapper;
     private final VideoProcessingService videoProcessingService;
+    private final Executor videoTaskExecutor;
+    private final TaskProperties.ClaimConfig config;
+
+    public VideoTaskScheduler(Spring2026CreationRecordMapper recordMapper,
+                              VideoProcessingService videoProcessingService,
+                              @Qualifier("videoTaskExecutor") Executor videoTaskExecutor,
+                              TaskProperties taskProperties) {
+        this.recordMapper = recordMapper;
+        this.videoProcessingService = videoProcessingService;
+        this.videoTaskExecutor = videoTaskExecutor;
+        this.config = taskProperties.getClaim();
+    }
 
     /**
-     * 定时拉起任务：每30秒执行一次
-     * 查询最旧的1个待执行任务（status=0）并执行
+     * 定时认领并拉起任务
      */
-    @Scheduled(fixedDelay = 30000, initialDelay = 10000)
+    @Scheduled(fixedDelayString = "${task.claim.interval-ms:2000}", initialDelay = 10000)
     public void scheduleVideoTasks() {
         try {
-            // 1. 查询最旧的1个待执行任务（status=0）
-            Spring2026CreationRecord record = recordMapper.selectOne(
-                new QueryWrapper<Spring2026CreationRecord>()
-                    .eq("status", 0)  // 待执行
-                    .orderByAsc("create_time")  // 按创建时间升序，取最旧的
-                    .last("LIMIT 1")
-            );
-
-            if (record == null) {
+            reclaimExpired();
+
+            int capacity = Math.min(freeCapacity(), inflightHeadroom());
+            if (capacity <= 0) {
+                log.debug("定时任务：视频处理线程池已满或在途记录已达上限，本次不认领");
+                return;
+            }
+
+            List<Spring2026CreationRecord> records = claim(capacity);
+            if (records.isEmpty()) {
                 log.debug("定时任务：暂无待执行的视频任务");
                 return;
             }
 
-            log.info("定时任务拉起视频任务: recordId={}, userId={}, templateId={}, createTime={}",
-                record.getRecordId(), record.getUserId(), record.getTemplateId(), record.getCreateTime());
+            log.info("定时任务认领视频任务: count={}, capacity={}", records.size(), capacity);
+            for (Spring2026CreationRecord record : records) {
+                dispatch(record);
+            }
+        } catch (Exception e) {
+            log.error("定时任务执行失败", e);
+        }
+    }
 
-            // 2. 从数据库记录中解析出所需参数
-            String recordId = record.getRecordId();
-            String userId = record.getUserId();
-            String templateId = record.getTemplateId();
-            String userMaterialsJson = record.getUserMaterials();
+    /**
+     * 按创建时间认领最旧的待执行记录
+     */
+    private List<Spring2026CreationRecord> claim(int limit) {
+        String owner = NODE + ":" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        LocalDateTime now = LocalDateTime.now();
 
-            // 3. 构建VideoCreateDTO
-            VideoCreateDTO dto = new VideoCreateDTO();
-            dto.setTemplateId(templateId);
+        int claimed = recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getStatus, 0)
+                .set(Spring2026CreationRecord::getStatus, 1)
+                .set(Spring2026CreationRecord::getClaimOwner, owner)
+                .set(Spring2026CreationRecord::getClaimExpireTime, now.plus(Duration.ofMillis(config.getLeaseMs())))
+                .last("ORDER BY create_time LIMIT " + limit));
+        if (claimed <= 0) {
+            return Collections.emptyList();
+        }
 
-            // 解析用户素材
-            VideoCreateDTO.MaterialsDTO materials = JsonUtil.fromJson(
-                userMaterialsJson,
-                VideoCreateDTO.MaterialsDTO.class
+        return recordMapper.selectList(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getClaimOwner, owner)
+                .orderByAsc(Spring2026CreationRecord::getCreateTime));
+    }
 
-            );
-            dto.setMaterials(materials);
+    /**
+     * 认领后租约到期仍未开始处理的记录重新排队
+     */
+    private void reclaimExpired() {
+        int released = recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getStatus, 1)
+                .lt(Spring2026CreationRecord::getClaimExpireTime, LocalDateTime.now())
+                .set(Spring2026CreationRecord::getStatus, 0)
+                .set(Spring2026CreationRecord::getClaimOwner, null)
+                .set(Spring2026CreationRecord::getClaimExpireTime, null));
+        if (released > 0) {
+            log.warn("认领租约到期仍未开始处理, 重新排队: count={}", released);
+        }
+    }
 
-            // 4. 调用视频处理服务（异步执行）
-            videoProcessingService.processVideoCreation(recordId, userId, dto);
+    /**
+     * 视频处理线程池的空闲线程数（当前线程数 - 执行中 - 排队中），不超过单次认领上限
+     *
+     * 线程池在队列满之前不会扩到核心线程数以上，按最大线程数计算时认领的记录会在队列中等待到租约到期
+     */
+    private int freeCapacity() {
+        if (!(videoTaskExecutor instanceof ThreadPoolTaskExecutor)) {
+            return config.getBatchSize();
+        }
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) videoTaskExecutor;
+        int queued = executor.getThreadPoolExecutor().getQueue().size();
+        int threads = Math.max(executor.getPoolSize(), executor.getCorePoolSize());
+        int free = threads - executor.getActiveCount() - queued;
+        return Math.max(0, Math.min(free, config.getBatchSize()));
+    }
 
-            log.info("定时任务成功提交视频处理: recordId={}", recordId);
+    /**
+     * 集群在途记录余量（max-inflight - 生成中的记录数）
+     */
+    private int inflightHeadroom() {
+        Integer maxInflight = config.getMaxInflight();
+        if (maxInflight == null || maxInflight <= 0) {
+            return config.getBatchSize();
+        }
+        Long inflight = recordMapper.selectCount(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getStatus, 1));
+        return (int) Math.max(0, maxInflight - (inflight != null ? inflight : 0L));
+    }
+
+    private void dispatch(Spring2026CreationRecord record) {
+        String recordId = record.getRecordId();
+        log.info("定时任务拉起视频任务: recordId={}, userId={}, templateId={}, createTime={}",
+                recordId, record.getUserId(), record.getTemplateId(), record.getCreateTime());
+        try {
+            // 从数据库记录中解析出所需参数
+            VideoCreateDTO dto = new VideoCreateDTO();
+            dto.setTemplateId(record.getTemplateId());
+            dto.setMaterials(JsonUtil.fromJson(record.getUserMaterials(), VideoCreateDTO.MaterialsDTO.class));
+
+            // 调用视频处理服务（异步执行）
+            videoProcessingService.processVideoCreation(recordId, record.getUserId(), dto, record.getClaimOwner());
 
+            log.info("定时任务成功提交视频处理: recordId={}", recordId);
         } catch (Exception e) {
-            log.error("定时任务执行失败", e);
+            // 素材无法解析，重新排队也无法执行
+            log.error("定时任务拉起视频任务失败: recordId={}", recordId, e);
+            Map<String, Object> errorMap = new HashMap<>();
+            errorMap.put("error_code", "INVALID_MATERIALS");
+            errorMap.put("error_message", "用户素材解析失败: " + e.getMessage());
+            errorMap.put("can_retry", false);
+            // 仅在记录仍是本次认领时写入，租约已到期被重新认领的记录不受影响
+            recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                    .eq(Spring2026CreationRecord::getRecordId, recordId)
+                    .eq(Spring2026CreationRecord::getStatus, 1)
+                    .eq(Spring2026CreationRecord::getClaimOwner, record.getClaimOwner())
+                    .set(Spring2026CreationRecord::getStatus, 3)
+                    .set(Spring2026CreationRecord::getClaimExpireTime, null)
+                    .set(Spring2026CreationRecord::getErrorInfo, JsonUtil.toJson(errorMap)));
         }
     }
 }
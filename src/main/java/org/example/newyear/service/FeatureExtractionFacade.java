@@ -8,7 +8,14 @@ import org.example.newyear.dto.algorithm.audio.FeatureExtractionRequestBuilder;
 import org.example.newyear.dto.algorithm.audio.FeatureExtractionSubmitResponse;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.service.algorithm.FeatureExtractionService;
+import org.example.newyear.service.task.AlgorithmAdmission;
+import org.example.newyear.service.task.CoalescedTaskSubmitter;
+import org.example.newyear.service.task.StepResultCache;
+import org.example.newyear.service.task.TaskSubmitHints;
+import org.example.newyear.service.task.TaskPriorities;
+import org.example.newyear.service.task.TaskTimeline;
 import org.example.newyear.service.task.TaskOrchestrator;
+import org.example.newyear.util.JsonUtil;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
@@ -16,11 +23,16 @@ import java.util.UUID;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class FeatureExtractionFacade {
+public class FeatureExtractionFacade implements CoalescedTaskSubmitter {
     
     private final FeatureExtractionService featureExtractionService;
     private final FeatureExtractionConfig config;
     private final TaskOrchestrator taskOrchestrator;
+    private final StepResultCache stepResultCache;
+    private final TaskTimeline taskTimeline;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final TaskPriorities taskPriorities;
+    private final TaskSubmitHints taskSubmitHints;
     
     /**
      * 提交特征提取任务（完整参数）
@@ -36,7 +48,68 @@ public class FeatureExtractionFacade {
         // 初始化任务状态
         taskOrchestrator.initTask(request.getBusinessTaskId(), AlgorithmEnum.VOICE_CONVERSION);
         
-        return featureExtractionService.submitAsync(request);
+        // 相同输入已有成功结果或正在执行时不提交，以缓存结果或执行中任务的结果完成任务
+        String taskId = request.getBusinessTaskId();
+        if (stepResultCache.replay(AlgorithmEnum.VOICE_CONVERSION, request, taskId)) {
+            FeatureExtractionSubmitResponse cached = new FeatureExtractionSubmitResponse();
+            cached.setCode(1);
+            cached.setMsg("复用相同请求的结果");
+            cached.setData(taskId);
+            return cached;
+        }
+
+        return admit(request);
+    }
+
+    @Override
+    public boolean supports(AlgorithmEnum algorithm) {
+        return algorithm == AlgorithmEnum.VOICE_CONVERSION;
+    }
+
+    /**
+     * 合并任务接替提交：以挂起任务自己的请求参数提交（不再查询缓存）
+     */
+    @Override
+    public boolean resubmit(AlgorithmEnum algorithm, String taskId, String requestJson) {
+        log.info("合并的特征提取任务接替提交, taskId={}", taskId);
+        FeatureExtractionSubmitResponse response = admit(JsonUtil.fromJson(requestJson, FeatureExtractionRequest.class));
+        return response != null && response.isSuccess();
+    }
+
+    /**
+     * 在途任务达到并发上限时排队，返回已受理响应
+     */
+    private FeatureExtractionSubmitResponse admit(FeatureExtractionRequest request) {
+        String taskId = request.getBusinessTaskId();
+        return algorithmAdmission.submit(AlgorithmEnum.VOICE_CONVERSION, taskId, taskPriorities.of(taskId).getLevel(),
+                () -> submitUpstream(request),
+                response -> response != null && response.isSuccess(),
+                () -> {
+                    FeatureExtractionSubmitResponse queued = new FeatureExtractionSubmitResponse();
+                    queued.setCode(1);
+                    queued.setMsg("已进入排队");
+                    queued.setData(taskId);
+                    return queued;
+                });
+    }
+    
+    private FeatureExtractionSubmitResponse submitUpstream(FeatureExtractionRequest request) {
+        String taskId = request.getBusinessTaskId();
+        long submitStart = System.currentTimeMillis();
+        FeatureExtractionSubmitResponse response;
+        try {
+            response = featureExtractionService.submitAsync(request);
+        } catch (RuntimeException e) {
+            stepResultCache.abandon(AlgorithmEnum.VOICE_CONVERSION, taskId, e.getMessage());
+            throw e;
+        }
+        if (response != null && response.isSuccess()) {
+            taskTimeline.submitted(taskId, AlgorithmEnum.VOICE_CONVERSION, submitStart);
+            taskSubmitHints.record(taskId, AlgorithmEnum.VOICE_CONVERSION);
+        } else {
+            stepResultCache.abandon(AlgorithmEnum.VOICE_CONVERSION, taskId, response != null ? response.getMsg() : null);
+        }
+        return response;
     }
     
     /**
@@ -2,6 +2,7 @@ package org.example.newyear.service;
 
 import org.example.newyear.dto.VideoCreateDTO;
 import org.example.newyear.entity.Spring2026Template;
+import org.example.newyear.service.pipeline.PipelineSource;
 
 /**
  * 模板流程处理器接口
@@ -20,4 +21,14 @@ public interface ITemplateProcessor {
      * @return 最终视频URL
      */
     String process(String recordId, Spring2026Template template, VideoCreateDTO dto);
+
+    /**
+     * 获取模板的流程定义，返回 null 表示只能通过 {@link #process} 同步执行
+     *
+     * @param template 模板信息
+     * @return 流程定义
+     */
+    default PipelineSource getPipelineSource(Spring2026Template template) {
+        return null;
+    }
 }
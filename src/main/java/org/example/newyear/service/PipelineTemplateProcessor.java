@@ -0,0 +1,45 @@
+package org.example.newyear.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.dto.VideoCreateDTO;
+import org.example.newyear.entity.Spring2026Template;
+import org.example.newyear.service.pipeline.PipelineEngine;
+import org.example.newyear.service.pipeline.PipelineSource;
+import org.springframework.stereotype.Service;
+
+/**
+ * 配置化模板流程处理器
+ *
+ * 按模板 task_config 中声明的步骤执行（格式见 resources/pipeline/template1to4.json），
+ * 新增模板只需配置 task_config，无需新增处理器
+ */
+@Slf4j
+@Service("pipelineTemplateProcessor")
+@RequiredArgsConstructor
+public class PipelineTemplateProcessor implements ITemplateProcessor {
+
+    private final PipelineEngine pipelineEngine;
+
+    @Override
+    public String process(String recordId, Spring2026Template template, VideoCreateDTO dto) {
+        log.info("开始处理配置化模板流程: recordId={}, templateId={}", recordId, template.getTemplateId());
+        try {
+            Object finalResultUrl = pipelineEngine.run(template.getTemplateId(), template.getTaskConfig(), recordId,
+                    pipelineEngine.variables(recordId, template, dto));
+
+            log.info("配置化模板流程处理完成: recordId={}, templateId={}, resultUrl={}",
+                    recordId, template.getTemplateId(), finalResultUrl);
+            return String.valueOf(finalResultUrl);
+
+        } catch (Exception e) {
+            log.error("配置化模板流程处理失败: recordId={}, templateId={}", recordId, template.getTemplateId(), e);
+            throw new RuntimeException("模板处理失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public PipelineSource getPipelineSource(Spring2026Template template) {
+        return PipelineSource.of(template.getTemplateId(), template.getTaskConfig());
+    }
+}
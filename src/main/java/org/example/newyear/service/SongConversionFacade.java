@@ -6,7 +6,14 @@ import org.example.newyear.config.SongConversionConfig;
 import org.example.newyear.dto.algorithm.audio.*;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.service.algorithm.SongConversionService;
+import org.example.newyear.service.task.AlgorithmAdmission;
+import org.example.newyear.service.task.CoalescedTaskSubmitter;
+import org.example.newyear.service.task.StepResultCache;
+import org.example.newyear.service.task.TaskSubmitHints;
+import org.example.newyear.service.task.TaskPriorities;
+import org.example.newyear.service.task.TaskTimeline;
 import org.example.newyear.service.task.TaskOrchestrator;
+import org.example.newyear.util.JsonUtil;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
@@ -14,11 +21,16 @@ import java.util.UUID;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class SongConversionFacade {
+public class SongConversionFacade implements CoalescedTaskSubmitter {
 
     private final SongConversionService songConversionService;
     private final SongConversionConfig config;
     private final TaskOrchestrator taskOrchestrator;
+    private final StepResultCache stepResultCache;
+    private final TaskTimeline taskTimeline;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final TaskPriorities taskPriorities;
+    private final TaskSubmitHints taskSubmitHints;
     
     /**
      * 提交歌曲转换任务（完整参数）
@@ -37,7 +49,7 @@ public class SongConversionFacade {
         // 初始化任务状态
         taskOrchestrator.initTask(request.getBusinessTaskId(), AlgorithmEnum.SONG_CONVERSION);
 
-        return songConversionService.submitAsync(request);
+        return submitAsync(request);
     }
     
     /**
@@ -61,7 +73,7 @@ public class SongConversionFacade {
             .businessTaskId(taskId)
             .build(config.getCallbackUrl(), config.getSource());
         
-        return songConversionService.submitAsync(request);
+        return submitAsync(request);
     }
     
     /**
@@ -87,7 +99,7 @@ public class SongConversionFacade {
             .pitch(pitch)
             .build(config.getCallbackUrl(), config.getSource());
         
-        return songConversionService.submitAsync(request);
+        return submitAsync(request);
     }
     
     /**
@@ -105,7 +117,73 @@ public class SongConversionFacade {
             .adaptivePitch()
             .build(config.getCallbackUrl(), config.getSource());
         
-        return songConversionService.submitAsync(request);
+        return submitAsync(request);
+    }
+    
+    /**
+     * 相同输入已有成功结果或正在执行时不提交，以缓存结果或执行中任务的结果完成任务；
+     * 在途任务达到并发上限时排队，返回已受理响应
+     */
+    private SongConversionSubmitResponse submitAsync(SongConversionRequest request) {
+        String taskId = request.getBusinessTaskId();
+        if (stepResultCache.replay(AlgorithmEnum.SONG_CONVERSION, request, taskId)) {
+            SongConversionSubmitResponse cached = new SongConversionSubmitResponse();
+            cached.setCode(1);
+            cached.setMsg("复用相同请求的结果");
+            return cached;
+        }
+
+        return admit(request);
+    }
+
+    @Override
+    public boolean supports(AlgorithmEnum algorithm) {
+        return algorithm == AlgorithmEnum.SONG_CONVERSION;
+    }
+
+    /**
+     * 合并任务接替提交：以挂起任务自己的请求参数提交（不再查询缓存）
+     */
+    @Override
+    public boolean resubmit(AlgorithmEnum algorithm, String taskId, String requestJson) {
+        log.info("合并的歌曲转换任务接替提交, taskId={}", taskId);
+        SongConversionSubmitResponse response = admit(JsonUtil.fromJson(requestJson, SongConversionRequest.class));
+        return response != null && response.isSuccess();
+    }
+
+    /**
+     * 在途任务达到并发上限时排队，返回已受理响应
+     */
+    private SongConversionSubmitResponse admit(SongConversionRequest request) {
+        String taskId = request.getBusinessTaskId();
+        return algorithmAdmission.submit(AlgorithmEnum.SONG_CONVERSION, taskId, taskPriorities.of(taskId).getLevel(),
+                () -> submitUpstream(request),
+                response -> response != null && response.isSuccess(),
+                () -> {
+                    SongConversionSubmitResponse queued = new SongConversionSubmitResponse();
+                    queued.setCode(1);
+                    queued.setMsg("已进入排队");
+                    return queued;
+                });
+    }
+
+    private SongConversionSubmitResponse submitUpstream(SongConversionRequest request) {
+        String taskId = request.getBusinessTaskId();
+        long submitStart = System.currentTimeMillis();
+        SongConversionSubmitResponse response;
+        try {
+            response = songConversionService.submitAsync(request);
+        } catch (RuntimeException e) {
+            stepResultCache.abandon(AlgorithmEnum.SONG_CONVERSION, taskId, e.getMessage());
+            throw e;
+        }
+        if (response != null && response.isSuccess()) {
+            taskTimeline.submitted(taskId, AlgorithmEnum.SONG_CONVERSION, submitStart);
+            taskSubmitHints.record(taskId, AlgorithmEnum.SONG_CONVERSION);
+        } else {
+            stepResultCache.abandon(AlgorithmEnum.SONG_CONVERSION, taskId, response != null ? response.getMsg() : null);
+        }
+        return response;
     }
     
     /**
@@ -0,0 +1,150 @@
+package org.example.newyear.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.service.oss.OssService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模板素材地址注册表
+ *
+ * 模板源视频、BGM 等素材不会变化，签名地址在启动时解析并缓存在内存，后台在签名过期前提前刷新，
+ * 流程执行时直接读取，不再每条记录都请求 OSS（存在性检查 + 签名）。
+ * 未登记的素材首次使用时同步解析并登记。
+ * 提前刷新的时长取 refresh-ahead-ms 与签名有效期 × refresh-ahead-ratio 的较小值，
+ * 签名有效期短于 refresh-ahead-ms 时仍只在有效期后段重新签名，不会每次使用都同步签名
+ */
+@Slf4j
+@Component
+public class TemplateAssetRegistry {
+
+    /**
+     * 签名地址中的过期时间参数（秒级时间戳）
+     */
+    private static final Pattern EXPIRES_PARAM = Pattern.compile("[?&]Expires=(\\d+)");
+
+    private final OssService ossService;
+    private final TaskProperties.AssetConfig config;
+
+    /**
+     * 素材 fileKey → 已签名地址（已登记、尚未解析时为 UNRESOLVED）
+     */
+    private final Map<String, SignedAsset> assets = new ConcurrentHashMap<>();
+
+    public TemplateAssetRegistry(OssService ossService, TaskProperties taskProperties) {
+        this.ossService = ossService;
+        this.config = taskProperties.getAssets();
+    }
+
+    /**
+     * 登记素材，由后台刷新解析
+     */
+    public void register(Collection<String> fileKeys) {
+        for (String fileKey : fileKeys) {
+            if (!assets.containsKey(fileKey)) {
+                assets.put(fileKey, SignedAsset.UNRESOLVED);
+                log.info("登记模板素材, fileKey={}", fileKey);
+            }
+        }
+    }
+
+    /**
+     * 获取素材访问地址（签名临近过期或尚未解析时同步解析）
+     */
+    public String getAccessUrl(String fileKey) {
+        SignedAsset asset = assets.get(fileKey);
+        if (asset != null && !asset.needsRefresh()) {
+            return asset.url;
+        }
+        return resolve(fileKey).url;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        refresh();
+    }
+
+    /**
+     * 刷新未解析或签名即将过期的素材
+     */
+    @Scheduled(fixedDelayString = "${task.assets.refresh-interval-ms:600000}",
+            initialDelayString = "${task.assets.refresh-interval-ms:600000}")
+    public void refresh() {
+        for (Map.Entry<String, SignedAsset> entry : assets.entrySet()) {
+            if (!entry.getValue().needsRefresh()) {
+                continue;
+            }
+            try {
+                resolve(entry.getKey());
+            } catch (Exception e) {
+                // 保留旧地址，使用时再同步解析
+                log.warn("刷新模板素材地址失败, fileKey={}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private SignedAsset resolve(String fileKey) {
+        long signedAt = System.currentTimeMillis();
+        String url = ossService.getAccessUrl(fileKey);
+        long expiresAt = expiresAt(url);
+        long refreshAheadMs = refreshAheadMs(expiresAt - signedAt);
+        SignedAsset asset = new SignedAsset(url, expiresAt, refreshAheadMs);
+        assets.put(fileKey, asset);
+        if (refreshAheadMs < config.getRefreshAheadMs()) {
+            log.debug("模板素材签名有效期短于 refresh-ahead-ms, 按有效期比例提前刷新, "
+                    + "fileKey={}, lifetimeMs={}, refreshAheadMs={}", fileKey, expiresAt - signedAt, refreshAheadMs);
+        }
+        log.info("模板素材地址已解析, fileKey={}, expiresAt={}", fileKey, asset.expiresAt);
+        return asset;
+    }
+
+    /**
+     * 提前刷新时长：不超过签名有效期 × refresh-ahead-ratio
+     */
+    private long refreshAheadMs(long lifetimeMs) {
+        if (lifetimeMs <= 0 || expiresNever(lifetimeMs)) {
+            return config.getRefreshAheadMs();
+        }
+        return Math.min(config.getRefreshAheadMs(), (long) (lifetimeMs * config.getRefreshAheadRatio()));
+    }
+
+    private static boolean expiresNever(long lifetimeMs) {
+        return lifetimeMs > Long.MAX_VALUE / 2;
+    }
+
+    /**
+     * 签名地址的过期时间（毫秒），公共读地址不过期
+     */
+    private static long expiresAt(String url) {
+        Matcher matcher = EXPIRES_PARAM.matcher(url);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) * 1000 : Long.MAX_VALUE;
+    }
+
+    private static class SignedAsset {
+
+        static final SignedAsset UNRESOLVED = new SignedAsset(null, 0L, 0L);
+
+        final String url;
+        final long expiresAt;
+        final long refreshAheadMs;
+
+        SignedAsset(String url, long expiresAt, long refreshAheadMs) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+            this.refreshAheadMs = refreshAheadMs;
+        }
+
+        boolean needsRefresh() {
+            return expiresAt - System.currentTimeMillis() < refreshAheadMs;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package org.example.newyear.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.common.BusinessCode;
+import org.example.newyear.config.TaskProperties;
 import org.example.newyear.dto.callback.*;
 import org.example.newyear.dto.VideoCreateDTO;
 import org.example.newyear.entity.Spring2026CreationRecord;
@@ -11,6 +14,11 @@ import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.entity.task.TaskResult;
 import org.example.newyear.exception.BusinessException;
 import org.example.newyear.mapper.Spring2026CreationRecordMapper;
+import org.example.newyear.service.pipeline.ContinuationPipelineRunner;
+import org.example.newyear.service.pipeline.PipelineEngine;
+import org.example.newyear.service.pipeline.PipelineOutcomeHandler;
+import org.example.newyear.service.pipeline.PipelineSource;
+import org.example.newyear.service.task.TaskDeadlineRegistry;
 import org.example.newyear.service.task.TaskOrchestrator;
 import org.example.newyear.util.JsonUtil;
 import org.example.newyear.util.KeyGeneratorUtils;
@@ -19,6 +27,7 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -34,13 +43,17 @@ import java.util.concurrent.TimeoutException;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class VideoProcessingService {
+public class VideoProcessingService implements PipelineOutcomeHandler {
 
     private final Spring2026CreationRecordMapper recordMapper;
     private final TemplateService templateService;
     private final ApplicationContext applicationContext;
     private final CallbackResultManager callbackResultManager;
     private final TaskOrchestrator taskOrchestrator;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+    private final PipelineEngine pipelineEngine;
+    private final ContinuationPipelineRunner continuationPipelineRunner;
+    private final TaskProperties taskProperties;
 
     // 存储等待回调的CountDownLatch（用于旧的等待方法）
     private final Map<String, CountDownLatch> callbackLatches = new ConcurrentHashMap<>();
@@ -51,39 +64,142 @@ public class VideoProcessingService {
 
     /**
      * 异步处理视频生成任务
+     *
+     * @param claimOwner 调度器认领时写入的认领批次，认领已失效（租约到期被重新排队、其他节点重新认领）时不处理
      */
     @Async("videoTaskExecutor")
-    public void processVideoCreation(String recordId, String userId, VideoCreateDTO dto) {
+    public void processVideoCreation(String recordId, String userId, VideoCreateDTO dto, String claimOwner) {
         log.info("开始处理视频生成任务: recordId={}, userId={}, templateId={}",
                 recordId, userId, dto.getTemplateId());
 
         try {
-            // 1. 更新状态：生成中
-            updateRecordStatus(recordId, 1, 0);
+            // 1. 更新状态：生成中（已开始处理，清除认领租约）
+            if (!markRecordStarted(recordId, claimOwner)) {
+                log.warn("认领已失效, 不再处理: recordId={}, claimOwner={}", recordId, claimOwner);
+                return;
+            }
 
             // 2. 获取模板信息
             Spring2026Template template = templateService.getTemplateById(dto.getTemplateId());
 
             // 3. 根据模板ID选择对应的处理器
-            ITemplateProcessor processor = getTemplateProcessor(template.getTemplateId());
+            ITemplateProcessor processor = getTemplateProcessor(template);
+
+            // 4. 流程化模板交给事件驱动执行器，结果在 onPipelineCompleted/onPipelineFailed 中处理
+            PipelineSource source = processor.getPipelineSource(template);
+            if (source != null && continuationPipelineRunner.isEnabled()) {
+                continuationPipelineRunner.start(recordId, claimOwner, source,
+                        pipelineEngine.variables(recordId, template, dto));
+                return;
+            }
 
-            // 4. 执行模板流程
+            // 5. 执行模板流程
             String finalVideoUrl = processor.process(recordId, template, dto);
 
-            // 5. 更新最终结果
-            updateRecordComplete(recordId, finalVideoUrl);
+            // 6. 更新最终结果
+            updateRecordComplete(recordId, claimOwner, finalVideoUrl);
             log.info("视频生成完成: recordId={}, url={}", recordId, finalVideoUrl);
 
+        } catch (BusinessException e) {
+            // 模板不存在或不支持生成，重试也无法执行
+            log.error("视频生成失败: recordId={}, templateId={}", recordId, dto.getTemplateId(), e);
+            updateRecordError(recordId, claimOwner, e.getMessage());
         } catch (Exception e) {
             log.error("视频生成失败: recordId={}", recordId, e);
-            updateRecordError(recordId, e.getMessage());
+            if (!requeueForRetry(recordId, claimOwner, e.getMessage())) {
+                updateRecordError(recordId, claimOwner, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onPipelineCompleted(String recordId, String owner, Object result) {
+        String finalVideoUrl = String.valueOf(result);
+        updateRecordComplete(recordId, owner, finalVideoUrl);
+        log.info("视频生成完成: recordId={}, url={}", recordId, finalVideoUrl);
+    }
+
+    @Override
+    public void onPipelineFailed(String recordId, String owner, String errorMessage) {
+        log.error("视频生成失败: recordId={}, error={}", recordId, errorMessage);
+        String message = "模板处理失败: " + errorMessage;
+        if (!requeueForRetry(recordId, owner, message)) {
+            updateRecordError(recordId, owner, message);
         }
     }
 
     /**
-     * 根据模板ID获取对应的处理器
+     * 失败记录重新排队（retry_count < max_retry 时），由调度器重新拉起，流程从第一个未完成的步骤继续
+     * 条件更新：记录仍是本次认领才重新排队，认领已失效时视为已处理（不再写入失败）
+     *
+     * @return 是否已重新排队（或认领已失效）
      */
-    private ITemplateProcessor getTemplateProcessor(String templateId) {
+    private boolean requeueForRetry(String recordId, String claimOwner, String errorMessage) {
+        if (!Boolean.TRUE.equals(taskProperties.getPipeline().getAutoRetryEnabled())) {
+            return false;
+        }
+        try {
+            Spring2026CreationRecord record = recordMapper.selectOne(
+                    new LambdaQueryWrapper<Spring2026CreationRecord>()
+                            .eq(Spring2026CreationRecord::getRecordId, recordId));
+            if (record == null) {
+                return false;
+            }
+            int retryCount = record.getRetryCount() != null ? record.getRetryCount() : 0;
+            int maxRetry = record.getMaxRetry() != null ? record.getMaxRetry() : 0;
+            if (retryCount >= maxRetry) {
+                return false;
+            }
+
+            Map<String, Object> errorMap = new HashMap<>();
+            errorMap.put("error_code", "PROCESSING_FAILED");
+            errorMap.put("error_message", errorMessage);
+            errorMap.put("can_retry", true);
+            int updated = recordMapper.update(null, claimed(recordId, claimOwner)
+                    .set(Spring2026CreationRecord::getStatus, 0)
+                    .set(Spring2026CreationRecord::getRetryCount, retryCount + 1)
+                    .set(Spring2026CreationRecord::getErrorInfo, JsonUtil.toJson(errorMap)));
+            if (updated == 0) {
+                log.warn("认领已失效, 不再重新排队: recordId={}, claimOwner={}", recordId, claimOwner);
+                return true;
+            }
+            log.warn("视频生成失败, 重新排队重试: recordId={}, retryCount={}, maxRetry={}",
+                    recordId, retryCount + 1, maxRetry);
+        } catch (Exception e) {
+            log.error("重新排队失败: recordId={}", recordId, e);
+            return false;
+        }
+
+        // 本次执行中仍在运行的上游任务交给过期清理取消，重试时重新提交未完成的步骤
+        try {
+            taskDeadlineRegistry.abandonRecord(recordId);
+        } catch (Exception e) {
+            log.warn("标记记录上游任务过期失败: recordId={}", recordId, e);
+        }
+        return true;
+    }
+
+    /**
+     * 校验模板可以生成视频（创建任务时调用，不支持的模板不落库、不扣配额）
+     */
+    public void checkTemplateSupported(Spring2026Template template) {
+        getTemplateProcessor(template);
+    }
+
+    /**
+     * 获取模板对应的处理器：配置了 task_config 流程的模板走流程引擎，否则按模板编号选择内置处理器。
+     * 模板5-8尚无内置流程，需配置 task_config 后才能生成
+     */
+    private ITemplateProcessor getTemplateProcessor(Spring2026Template template) {
+        try {
+            if (pipelineEngine.supports(template)) {
+                return applicationContext.getBean("pipelineTemplateProcessor", ITemplateProcessor.class);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(BusinessCode.ERROR_TEMPLATE_NOT_SUPPORTED, e.getMessage());
+        }
+
+        String templateId = template.getTemplateId();
         String templateNum = templateId.replace("tpl_", "");
 
         try {
@@ -91,10 +207,8 @@ public class VideoProcessingService {
 
             if (num >= 1 && num <= 4) {
                 return applicationContext.getBean("template1to4Processor", ITemplateProcessor.class);
-            } else if (num >= 5 && num <= 8) {
-                return applicationContext.getBean("template5to8Processor", ITemplateProcessor.class);
             } else {
-                throw new BusinessException(40007, "不支持的模板编号: " + num);
+                throw new BusinessException(BusinessCode.ERROR_TEMPLATE_NOT_SUPPORTED, "不支持的模板编号: " + num);
             }
         } catch (NumberFormatException e) {
             throw new BusinessException(40007, "无效的模板ID格式: " + templateId);
@@ -341,70 +455,66 @@ public class VideoProcessingService {
     }
 
     /**
-     * 更新记录完成
+     * 记录开始处理：清除认领租约（租约到期未开始处理的记录会被调度器重新排队）
+     * 条件更新：记录仍是本次认领（status=1 且认领批次一致）才开始，已被重新排队或其他节点认领时返回 false
      */
-    private void updateRecordComplete(String recordId, String resultUrl) {
-        recordMapper.updateById(
-                Spring2026CreationRecord.builder()
-                        .recordId(recordId)
-                        .status(2)
-                        .progress(100)
-                        .resultUrl(resultUrl)
-                        .build()
-        );
+    private boolean markRecordStarted(String recordId, String claimOwner) {
+        return recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, recordId)
+                .eq(Spring2026CreationRecord::getStatus, 1)
+                .eq(Spring2026CreationRecord::getClaimOwner, claimOwner)
+                .set(Spring2026CreationRecord::getProgress, 0)
+                .set(Spring2026CreationRecord::getStartTime, LocalDateTime.now())
+                .set(Spring2026CreationRecord::getClaimExpireTime, null)) > 0;
     }
 
     /**
-     * 更新记录错误
+     * 本次认领的记录（status=1 且认领批次一致），已被重新排队或其他节点认领的记录不会被本次执行的结果覆盖
      */
-    private void updateRecordError(String recordId, String errorMessage) {
-        Map<String, Object> errorMap = new HashMap<>();
-        errorMap.put("error_code", "PROCESSING_FAILED");
-        errorMap.put("error_message", errorMessage);
-        errorMap.put("can_retry", true);
+    private static LambdaUpdateWrapper<Spring2026CreationRecord> claimed(String recordId, String claimOwner) {
+        return new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, recordId)
+                .eq(Spring2026CreationRecord::getStatus, 1)
+                .eq(Spring2026CreationRecord::getClaimOwner, claimOwner);
+    }
 
-        recordMapper.updateById(
-                Spring2026CreationRecord.builder()
-                        .recordId(recordId)
-                        .status(3)
-                        .errorInfo(JsonUtil.toJson(errorMap))
-                        .build()
-        );
+    /**
+     * 更新记录完成（条件更新，认领已失效时忽略）
+     */
+    private void updateRecordComplete(String recordId, String claimOwner, String resultUrl) {
+        int updated = recordMapper.update(null, claimed(recordId, claimOwner)
+                .set(Spring2026CreationRecord::getStatus, 2)
+                .set(Spring2026CreationRecord::getProgress, 100)
+                .set(Spring2026CreationRecord::getResultUrl, resultUrl)
+                .set(Spring2026CreationRecord::getCompleteTime, LocalDateTime.now()));
+        if (updated == 0) {
+            log.warn("认领已失效, 忽略生成结果: recordId={}, claimOwner={}", recordId, claimOwner);
+        }
     }
 
     /**
-     * 更新任务执行详情
+     * 更新记录错误（条件更新，认领已失效时忽略）
      */
-    private void updateTaskExecution(String recordId, String stepName, String status, String resultUrl) {
-        Spring2026CreationRecord record = recordMapper.selectById(recordId);
-        if (record == null) {
+    private void updateRecordError(String recordId, String claimOwner, String errorMessage) {
+        Map<String, Object> errorMap = new HashMap<>();
+        errorMap.put("error_code", "PROCESSING_FAILED");
+        errorMap.put("error_message", errorMessage);
+        errorMap.put("can_retry", true);
+
+        int updated = recordMapper.update(null, claimed(recordId, claimOwner)
+                .set(Spring2026CreationRecord::getStatus, 3)
+                .set(Spring2026CreationRecord::getErrorInfo, JsonUtil.toJson(errorMap)));
+        if (updated == 0) {
+            log.warn("认领已失效, 忽略失败结果: recordId={}, claimOwner={}", recordId, claimOwner);
             return;
         }
 
-        Map<String, Object> execution;
+        // 记录已失败，名下仍在运行的上游任务交给过期清理取消，释放排队名额
         try {
-            if (record.getTaskExecution() != null) {
-                execution = JsonUtil.fromJson(record.getTaskExecution(), new TypeReference<Map<String, Object>>() {});
-            } else {
-                execution = new HashMap<>();
-                Map<String, Object> stepsMap = new HashMap<>();
-                execution.put("steps", stepsMap);
-            }
+            taskDeadlineRegistry.abandonRecord(recordId);
         } catch (Exception e) {
-            execution = new HashMap<>();
-            Map<String, Object> stepsMap = new HashMap<>();
-            execution.put("steps", stepsMap);
+            log.warn("标记记录上游任务过期失败: recordId={}", recordId, e);
         }
-
-        Map<String, Object> steps = (Map<String, Object>) execution.get("steps");
-        Map<String, Object> stepInfo = new HashMap<>();
-        stepInfo.put("status", status);
-        stepInfo.put("result_url", resultUrl);
-        stepInfo.put("end_time", System.currentTimeMillis());
-        steps.put(stepName, stepInfo);
-
-        record.setTaskExecution(JsonUtil.toJson(execution));
-        recordMapper.updateById(record);
     }
 
     public void notifyVideoProcessCallback(String faceSwap, VideoProcessCallbackDTO request) {
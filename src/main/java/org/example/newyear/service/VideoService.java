@@ -41,6 +41,9 @@ public class VideoService {
      */
     @Transactional
     public VideoCreateVO createVideo(String userId, VideoCreateDTO dto) {
+        // 0. 检查模板可以生成（不支持的模板不扣配额）
+        videoProcessingService.checkTemplateSupported(templateService.getTemplateById(dto.getTemplateId()));
+
         // 1. 检查并扣减配额
         boolean deducted = userService.checkAndDeductQuota(userId);
         if (!deducted) {
@@ -1,15 +1,25 @@
 package org.example.newyear.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
 import org.example.newyear.config.VisionConfig;
 import org.example.newyear.dto.algorithm.vision.*;
 import org.example.newyear.entity.algorithm.vision.ImageRatio;
 import org.example.newyear.entity.algorithm.vision.ImageSize;
 import org.example.newyear.entity.algorithm.vision.VideoResolution;
 import org.example.newyear.entity.algorithm.vision.WanAnimateTaskMode;
+import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.entity.enums.VisionAbility;
 import org.example.newyear.service.algorithm.VisionService;
+import org.example.newyear.service.task.AlgorithmAdmission;
+import org.example.newyear.service.task.CoalescedTaskSubmitter;
+import org.example.newyear.service.task.StepResultCache;
+import org.example.newyear.service.task.TaskPriorities;
+import org.example.newyear.service.task.TaskSubmitHints;
+import org.example.newyear.service.task.TaskTimeline;
+import org.example.newyear.util.JsonUtil;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -19,10 +29,15 @@ import java.util.UUID;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class VisionFacade {
+public class VisionFacade implements CoalescedTaskSubmitter {
 
     private final VisionService visionService;
     private final VisionConfig visionConfig;
+    private final TaskSubmitHints taskSubmitHints;
+    private final StepResultCache stepResultCache;
+    private final TaskTimeline taskTimeline;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final TaskPriorities taskPriorities;
 
     // ==================== WanAnimate 人物替换 ====================
 
@@ -31,7 +46,7 @@ public class VisionFacade {
         VisionRequestHeaders headers = buildHeaders(VisionAbility.WAN_ANIMATE, taskId);
         log.info("提交人物替换任务, taskId={}, taskMode={}, resolution={}",
                 taskId, request.getTaskMode(), request.getResolution());
-        return visionService.submitAsync(request, headers);
+        return submit(request, headers);
     }
 
     public AsyncSubmitResponse submitWanAnimate(String imageUrl, String videoUrl, String taskId) {
@@ -73,7 +88,7 @@ public class VisionFacade {
         VisionRequestHeaders headers = buildHeaders(VisionAbility.FLUX2_IMAGE_GEN, taskId);
         boolean isTextToImage = (request.getImages() == null || request.getImages().isEmpty());
         log.info("提交{}任务, taskId={}", isTextToImage ? "文生图" : "图生图", taskId);
-        return visionService.submitAsync(request, headers);
+        return submit(request, headers);
     }
 
     public AsyncSubmitResponse submitTextToImage(String prompt, int width, int height, int num, String taskId) {
@@ -128,7 +143,7 @@ public class VisionFacade {
         VisionRequestHeaders headers = buildHeaders(VisionAbility.WAN_VIDEO_FLF, taskId);
         String resolution = WanVideoResolution.of(request.getWidth(), request.getHeight()).getDescription();
         log.info("提交首尾帧任务, taskId={}, resolution={}", taskId, resolution);
-        return visionService.submitAsync(request, headers);
+        return submit(request, headers);
     }
 
     public AsyncSubmitResponse submitWanVideoFLF(String firstImageUrl, String lastImageUrl, String taskId) {
@@ -195,7 +210,7 @@ public class VisionFacade {
         validateLipsyncRequest(request);
         VisionRequestHeaders headers = buildHeaders(VisionAbility.LIPSYNC, taskId);
         log.info("提交口型同步任务, taskId={}", taskId);
-        return visionService.submitAsync(request, headers);
+        return submit(request, headers);
     }
 
     /**
@@ -299,13 +314,90 @@ public class VisionFacade {
 
     // ==================== 通用方法 ====================
 
+    /**
+     * 任务插队（仅对仍在上游排队的任务有效）
+     */
+    public JumpTaskResponse jumpTask(String taskId, VisionAbility ability) {
+        log.info("任务插队, taskId={}, ability={}", taskId, ability.getCode());
+        return visionService.jumpTask(taskId, ability.getCode());
+    }
+
     public String generateTaskId() {
         return UUID.randomUUID().toString().replace("-", "");
     }
 
     // ==================== 私有方法 ====================
 
+    /**
+     * 提交任务并记录平台返回的队列位置/预计耗时，供等待方调整轮询节奏；
+     * 相同输入已有成功结果或正在执行时不提交，以缓存结果或执行中任务的结果完成任务；
+     * 算法在途任务达到并发上限时排队，返回已受理响应
+     */
+    private AsyncSubmitResponse submit(Object request, VisionRequestHeaders headers) {
+        AlgorithmEnum algorithm = AlgorithmEnum.fromVisionAbility(headers.getAbility());
+        if (stepResultCache.replay(algorithm, request, headers.getTaskId())) {
+            AsyncSubmitResponse cached = new AsyncSubmitResponse();
+            cached.setCode(0);
+            cached.setMessage("复用相同请求的结果");
+            return cached;
+        }
+        return admit(request, headers, algorithm);
+    }
+
+    @Override
+    public boolean supports(AlgorithmEnum algorithm) {
+        return VisionAbility.of(algorithm) != null;
+    }
+
+    /**
+     * 合并任务接替提交：以挂起任务自己的请求参数提交（不再查询缓存）
+     */
+    @Override
+    public boolean resubmit(AlgorithmEnum algorithm, String taskId, String requestJson) {
+        log.info("合并任务接替提交, taskId={}, algorithm={}", taskId, algorithm.getName());
+        AsyncSubmitResponse response = admit(JsonUtil.fromJson(requestJson, JsonNode.class),
+                buildHeaders(VisionAbility.of(algorithm), taskId), algorithm);
+        return response != null && response.isSuccess();
+    }
+
+    /**
+     * 算法在途任务达到并发上限时排队，返回已受理响应
+     */
+    private AsyncSubmitResponse admit(Object request, VisionRequestHeaders headers, AlgorithmEnum algorithm) {
+        return algorithmAdmission.submit(algorithm, headers.getTaskId(), taskPriorities.of(headers.getTaskId()).getLevel(),
+                () -> submitUpstream(request, headers, algorithm),
+                response -> response != null && response.isSuccess(),
+                () -> {
+                    AsyncSubmitResponse queued = new AsyncSubmitResponse();
+                    queued.setCode(0);
+                    queued.setMessage("已进入排队");
+                    return queued;
+                });
+    }
+
+    private AsyncSubmitResponse submitUpstream(Object request, VisionRequestHeaders headers, AlgorithmEnum algorithm) {
+        long submitStart = System.currentTimeMillis();
+        AsyncSubmitResponse response;
+        try {
+            response = visionService.submitAsync(request, headers);
+        } catch (RuntimeException e) {
+            stepResultCache.abandon(algorithm, headers.getTaskId(), e.getMessage());
+            throw e;
+        }
+        if (response != null && response.isSuccess()) {
+            taskSubmitHints.record(headers.getTaskId(), algorithm, response.getData());
+            taskTimeline.submitted(headers.getTaskId(), algorithm, submitStart);
+        } else {
+            stepResultCache.abandon(algorithm, headers.getTaskId(), response != null ? response.getMessage() : null);
+        }
+        return response;
+    }
+
+    /**
+     * 构建请求头，按任务优先级通道设置 Group/Position
+     */
     private VisionRequestHeaders buildHeaders(VisionAbility ability, String taskId) {
+        TaskProperties.LaneConfig lane = taskPriorities.lane(taskPriorities.of(taskId));
         return VisionRequestHeaders.builder()
                 .ability(ability.getCode())
                 .taskId(taskId)
@@ -313,6 +405,8 @@ public class VisionFacade {
                 .progressCallbackUrl(visionConfig.getProgressCallbackUrl())
                 .tags(visionConfig.getTags())
                 .traceId(taskId)
+                .group(lane != null ? lane.getGroup() : null)
+                .position(lane != null ? lane.getPosition() : null)
                 .build();
     }
 
@@ -32,6 +32,13 @@ public interface VisionService {
      * @return 取消结果
      */
     CancelTaskResponse cancelTask(String taskId, String ability);
-}
-
 
+    /**
+     * 任务插队（移到上游队列队首，仅对排队中的任务有效）
+     *
+     * @param taskId  任务ID
+     * @param ability 原子能力名
+     * @return 插队结果
+     */
+    JumpTaskResponse jumpTask(String taskId, String ability);
+}
@@ -135,6 +135,44 @@ public class VisionServiceImpl implements VisionService {
         }
     }
 
+    @Override
+    public JumpTaskResponse jumpTask(String taskId, String ability) {
+        String url = BASE_URL + JUMP_PATH;
+
+        HttpHeaders httpHeaders = buildBasicHttpHeaders();
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.set("Ability", ability);
+
+        HashMap<String, Object> hashMap = new HashMap<>();
+        hashMap.put("taskId", taskId);
+
+        HttpEntity<Object> entity = new HttpEntity<>(
+                hashMap, httpHeaders
+        );
+
+        try {
+            log.debug("任务插队, taskId={}, ability={}", taskId, ability);
+
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url, HttpMethod.POST, entity, String.class
+            );
+
+            JumpTaskResponse result = objectMapper.readValue(
+                    response.getBody(), JumpTaskResponse.class
+            );
+
+            if (!result.isSuccess()) {
+                log.warn("任务插队失败, taskId={}, code={}, message={}",
+                        taskId, result.getCode(), result.getMessage());
+            }
+
+            return result;
+        } catch (Exception e) {
+            log.error("任务插队异常, taskId={}, ability={}", taskId, ability, e);
+            throw new RuntimeException("任务插队失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 构建基础请求头（App-Id, App-Secret）
      */
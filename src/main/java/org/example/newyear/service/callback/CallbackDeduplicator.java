@@ -0,0 +1,161 @@
+package org.example.newyear.service.callback;
+
+import cn.hutool.bloomfilter.BitMapBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调去重
+ *
+ * 按 (taskId, 算法, 原始状态) 去重：本地布隆过滤器判断"一定没见过"时直接放行，
+ * 由写入线程在批量管道中补写 Redis 标记（SET NX）并以其结果为准；
+ * 布隆过滤器命中（可能重复）时在请求线程内 SET NX 确认，重复回调在转换之前丢弃。
+ * Redis 不可用时放行，重复写入由存储层的状态前进规则兜底
+ */
+@Slf4j
+@Component
+public class CallbackDeduplicator {
+
+    private static final byte[] MARKER = "1".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * hutool BitMapBloomFilter 内部由 5 个过滤器平分总大小（整除到 MB），总大小须为 5 的倍数
+     */
+    private static final int BLOOM_FILTER_PARTS = 5;
+
+    private final StringRedisTemplate redisTemplate;
+    private final TaskProperties taskProperties;
+
+    /**
+     * 布隆过滤器写入非原子，并发下可能漏记（只会多一次 Redis 确认，不会误丢回调）
+     */
+    private volatile BitMapBloomFilter bloomFilter;
+
+    public CallbackDeduplicator(StringRedisTemplate redisTemplate, TaskProperties taskProperties) {
+        this.redisTemplate = redisTemplate;
+        this.taskProperties = taskProperties;
+        this.bloomFilter = newBloomFilter();
+    }
+
+    /**
+     * 获取去重 key，不需要去重（未启用或缺少 taskId、算法）时返回 null
+     */
+    public <T> String key(T callback, CallbackResultConverter<T> converter) {
+        if (!Boolean.TRUE.equals(taskProperties.getDedup().getEnabled())) {
+            return null;
+        }
+        String taskId = converter.getTaskId(callback);
+        AlgorithmEnum algorithm = converter.getAlgorithm(callback);
+        if (taskId == null || taskId.isEmpty() || algorithm == null) {
+            return null;
+        }
+        return TaskRedisKey.callbackDedupKey(taskId, algorithm, converter.getTaskStatus(callback));
+    }
+
+    /**
+     * 本节点是否可能处理过（布隆过滤器），未处理过时记入过滤器
+     */
+    public boolean seenLocally(String key) {
+        BitMapBloomFilter filter = bloomFilter;
+        if (filter.contains(key)) {
+            return true;
+        }
+        filter.add(key);
+        return false;
+    }
+
+    /**
+     * 写入去重标记
+     *
+     * @return 首次写入返回 true，标记已存在（重复回调）返回 false
+     */
+    public boolean tryMark(String key) {
+        try {
+            return !Boolean.FALSE.equals(redisTemplate.opsForValue().setIfAbsent(
+                    key, "1", taskProperties.getDedup().getMarkerTtlSeconds(), TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("写入回调去重标记失败, 按新回调处理, key={}", key, e);
+            return true;
+        }
+    }
+
+    /**
+     * 批量写入去重标记（一次管道往返）
+     *
+     * @return 与入参顺序对应的结果，含义同 {@link #tryMark}
+     */
+    public List<Boolean> tryMarkAll(List<String> keys) {
+        List<Boolean> marked = new ArrayList<>(keys.size());
+        List<Object> replies;
+        try {
+            Expiration expiration = Expiration.seconds(taskProperties.getDedup().getMarkerTtlSeconds());
+            replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), MARKER,
+                            expiration, RedisStringCommands.SetOption.SET_IF_ABSENT);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("批量写入回调去重标记失败, 按新回调处理, size={}", keys.size(), e);
+            replies = null;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            marked.add(replies == null || !Boolean.FALSE.equals(replies.get(i)));
+        }
+        return marked;
+    }
+
+    /**
+     * 删除去重标记（回调写入失败时调用，允许上游重试再次处理）
+     */
+    public void release(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("删除回调去重标记失败, size={}", keys.size(), e);
+        }
+    }
+
+    /**
+     * 定期重建布隆过滤器；重建后的首次重复回调仍会被 Redis 标记拦截
+     */
+    @Scheduled(fixedDelayString = "${task.dedup.bloom-reset-ms:3600000}",
+            initialDelayString = "${task.dedup.bloom-reset-ms:3600000}")
+    public void resetBloomFilter() {
+        bloomFilter = newBloomFilter();
+        log.info("回调去重布隆过滤器已重建");
+    }
+
+    /**
+     * 按配置大小创建布隆过滤器，向上取整到 5MB 的倍数（小于 5MB 时内部过滤器大小为 0，全部判为已见过）
+     */
+    private BitMapBloomFilter newBloomFilter() {
+        Integer configured = taskProperties.getDedup().getBloomSizeMb();
+        int sizeMb = configured == null || configured < BLOOM_FILTER_PARTS ? BLOOM_FILTER_PARTS : configured;
+        sizeMb = (sizeMb + BLOOM_FILTER_PARTS - 1) / BLOOM_FILTER_PARTS * BLOOM_FILTER_PARTS;
+        if (configured == null || sizeMb != configured) {
+            log.warn("布隆过滤器大小须为 {}MB 的倍数, 已调整, configured={}, actual={}",
+                    BLOOM_FILTER_PARTS, configured, sizeMb);
+        }
+        return new BitMapBloomFilter(sizeMb);
+    }
+}
@@ -4,9 +4,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.task.PendingTaskRegistry;
+import org.example.newyear.service.task.TaskCompletionListener;
+import org.example.newyear.service.task.TaskCompletionNotifier;
+import org.example.newyear.service.task.TaskDeadlineRegistry;
 import org.example.newyear.service.task.TaskResultStore;
+import org.example.newyear.service.task.TaskTimeline;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 统一回调处理服务
  */
@@ -16,31 +26,106 @@ import org.springframework.stereotype.Service;
 public class CallbackHandler {
 
     private final TaskResultStore taskResultStore;
+    private final TaskCompletionNotifier taskCompletionNotifier;
+    private final PendingTaskRegistry pendingTaskRegistry;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+    private final TaskTimeline taskTimeline;
+    private final ObjectProvider<TaskCompletionListener> taskCompletionListeners;
 
     /**
      * 处理回调并存储结果
      */
     public <T> TaskResult handleCallback(T callback, CallbackResultConverter<T> converter) {
         TaskResult result = converter.convert(callback);
-        AlgorithmEnum algorithm = converter.getAlgorithm(callback);
+        if (accept(result, converter.getAlgorithm(callback))) {
+            handleResult(result, result.getAlgorithm());
+        }
+        return result;
+    }
 
+    /**
+     * 校验转换后的回调结果是否可以存储，可以存储时补全算法类型
+     */
+    public boolean accept(TaskResult result, AlgorithmEnum algorithm) {
         if (result.getTaskId() == null || result.getTaskId().isEmpty()) {
             log.warn("回调数据缺少 taskId, 无法存储, algorithm={}",
                     algorithm != null ? algorithm.getName() : "unknown");
-            return result;
+            return false;
         }
 
         if (algorithm == null) {
             log.warn("无法识别算法类型, taskId={}", result.getTaskId());
-            return result;
+            return false;
         }
 
-        taskResultStore.save(result.getTaskId(), algorithm, result);
+        result.setAlgorithm(algorithm);
+        return true;
+    }
+
+    /**
+     * 存储结果并交付等待方（回调、补偿查询、过期取消共用）
+     *
+     * @return 结果被接受时返回 true，重复或过期的状态返回 false
+     */
+    public boolean handleResult(TaskResult result, AlgorithmEnum algorithm) {
+        if (!taskResultStore.save(result.getTaskId(), algorithm, result)) {
+            logStale(result, algorithm);
+            return false;
+        }
+        deliver(result, algorithm);
+        return true;
+    }
 
+    /**
+     * 批量存储结果并交付等待方（一次 Redis 往返），结果须已通过 {@link #accept} 校验
+     *
+     * @return 写入失败（逐条重试后仍失败）的结果，按入参顺序
+     */
+    public List<TaskResult> handleResults(List<TaskResult> results) {
+        List<Boolean> applied = taskResultStore.saveAll(results);
+        List<TaskResult> failed = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            TaskResult result = results.get(i);
+            if (applied.get(i) == null) {
+                failed.add(result);
+            } else if (applied.get(i)) {
+                deliver(result, result.getAlgorithm());
+            } else {
+                logStale(result, result.getAlgorithm());
+            }
+        }
+        return failed;
+    }
+
+    private void deliver(TaskResult result, AlgorithmEnum algorithm) {
+        // 终态结果立即交付等待方：本节点等待则直接完成，否则经 Redis 通知中继到等待节点
+        if (result.isCompleted()) {
+            taskTimeline.completed(result, algorithm);
+            taskDeadlineRegistry.remove(result.getTaskId(), algorithm);
+            if (!pendingTaskRegistry.complete(result.getTaskId(), algorithm, result)) {
+                taskCompletionNotifier.publish(result.getTaskId(), algorithm);
+            }
+            taskCompletionListeners.orderedStream().forEach(listener -> {
+                try {
+                    listener.onTaskCompleted(result, algorithm);
+                } catch (Exception e) {
+                    log.warn("任务终态事件处理失败, taskId={}, algorithm={}", result.getTaskId(), algorithm.getName(), e);
+                }
+            });
+        }
+
+        if (result.getStatus() == TaskResultStatus.FAILED) {
+            log.warn("任务执行失败, taskId={}, algorithm={}, errorCode={}, errorMessage={}",
+                    result.getTaskId(), algorithm.getName(), result.getErrorCode(), result.getErrorMessage());
+        }
         log.info("回调处理完成, taskId={}, algorithm={}, status={}",
                 result.getTaskId(), algorithm.getName(), result.getStatus());
+    }
 
-        return result;
+    private void logStale(TaskResult result, AlgorithmEnum algorithm) {
+        // 重复或乱序到达的回调（如终态之后的处理中回调），以已存储的状态为准
+        log.info("回调状态已过期, 忽略, taskId={}, algorithm={}, status={}",
+                result.getTaskId(), algorithm.getName(), result.getStatus());
     }
 
     /**
@@ -48,6 +133,7 @@ public class CallbackHandler {
      */
     public void handleProgress(String taskId, AlgorithmEnum algorithm, String progress) {
         taskResultStore.saveProgress(taskId, algorithm, progress);
+        taskTimeline.progressed(taskId, algorithm);
         log.debug("进度更新, taskId={}, algorithm={}, progress={}",
                 taskId, algorithm.getName(), progress);
     }
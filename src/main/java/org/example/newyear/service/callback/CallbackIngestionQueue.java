@@ -0,0 +1,276 @@
+package org.example.newyear.service.callback;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.task.TaskResult;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调异步写入队列
+ *
+ * 回调接口只做入队即返回，由少量写入线程批量取出、转换（含序列化），
+ * 再通过 {@link CallbackHandler#handleResults} 一次管道往返写入 Redis 并交付等待方。
+ * 队列有界，满时在请求线程内同步处理，回调不会丢弃；
+ * 批量写入失败的项逐条重试，仍失败的释放去重标记（上游重试可再次写入），
+ * 并由 {@link org.example.newyear.service.task.TaskReconciler} 的补偿查询兜底。
+ * 重复回调经 {@link CallbackDeduplicator} 在转换之前丢弃。
+ * 停止时写入线程在限定时间内处理队列，仍未处理的回调由停止线程同步写入（回调已向上游应答，不会重发）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CallbackIngestionQueue {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+
+    private final CallbackHandler callbackHandler;
+    private final CallbackDeduplicator callbackDeduplicator;
+    private final TaskProperties taskProperties;
+
+    private BlockingQueue<PendingCallback<?>> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        TaskProperties.IngestConfig config = taskProperties.getIngest();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            log.info("回调异步写入未启用, 回调在请求线程内同步处理");
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        running = true;
+        ThreadFactory threadFactory = new DefaultThreadFactory("callback-writer", true);
+        for (int i = 0; i < config.getWriterThreads(); i++) {
+            Thread writer = threadFactory.newThread(() -> drain(config.getBatchSize()));
+            writers.add(writer);
+            writer.start();
+        }
+        log.info("回调异步写入已启动, queueCapacity={}, writerThreads={}, batchSize={}",
+                config.getQueueCapacity(), config.getWriterThreads(), config.getBatchSize());
+    }
+
+    /**
+     * 提交回调，入队后立即返回；未启用或队列已满时同步处理
+     */
+    public <T> void submit(T callback, CallbackResultConverter<T> converter) {
+        String dedupKey = callbackDeduplicator.key(callback, converter);
+        boolean marked = false;
+        if (dedupKey != null && callbackDeduplicator.seenLocally(dedupKey)) {
+            // 本节点可能处理过（上游重试），入队前以 Redis 标记确认
+            if (!callbackDeduplicator.tryMark(dedupKey)) {
+                log.info("重复回调, 忽略, key={}", dedupKey);
+                return;
+            }
+            marked = true;
+        }
+
+        PendingCallback<T> pending = new PendingCallback<>(callback, converter, dedupKey, marked);
+        if (running && queue.offer(pending)) {
+            // 入队时恰好停止：停止线程可能已处理完队列，取回自行处理
+            if (!running && queue.remove(pending)) {
+                handleNow(pending);
+            }
+            return;
+        }
+        if (running) {
+            log.warn("回调写入队列已满, 在请求线程内同步处理, queueSize={}", queue.size());
+        }
+        handleNow(pending);
+    }
+
+    /**
+     * 当前排队中的回调数
+     */
+    public int size() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        // 停止接收新回调，写入线程处理完队列中剩余的回调后退出
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (Thread writer : writers) {
+            try {
+                writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // 写入线程未在限定时间内处理完的回调在此同步写入，失败的释放去重标记并等待补偿查询
+        int remaining = 0;
+        List<PendingCallback<?>> batch = new ArrayList<>();
+        int batchSize = taskProperties.getIngest().getBatchSize();
+        while (queue.drainTo(batch, batchSize) > 0) {
+            remaining += batch.size();
+            try {
+                write(batch);
+            } catch (Exception e) {
+                log.error("停止时写入剩余回调失败, size={}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("回调异步写入已停止, 停止时同步写入回调数={}", remaining);
+    }
+
+    // ======================== 私有方法 ========================
+
+    private <T> void handleNow(PendingCallback<T> pending) {
+        if (pending.needsMark() && !callbackDeduplicator.tryMark(pending.dedupKey)) {
+            log.info("重复回调, 忽略, key={}", pending.dedupKey);
+            return;
+        }
+        boolean handled = false;
+        try {
+            callbackHandler.handleCallback(pending.callback, pending.converter);
+            handled = true;
+        } finally {
+            // 转换或写入失败（含 Error）时释放标记，允许上游重试再次处理
+            if (!handled && pending.dedupKey != null) {
+                callbackDeduplicator.release(Collections.singletonList(pending.dedupKey));
+            }
+        }
+    }
+
+    private void drain(int batchSize) {
+        List<PendingCallback<?>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCallback<?> first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingCallback<?>> batch) {
+        // 补写去重标记（一次往返），丢弃其他节点已处理过的重复回调
+        List<String> unmarkedKeys = new ArrayList<>();
+        for (PendingCallback<?> pending : batch) {
+            if (pending.needsMark()) {
+                unmarkedKeys.add(pending.dedupKey);
+            }
+        }
+        List<Boolean> marks = unmarkedKeys.isEmpty()
+                ? Collections.<Boolean>emptyList()
+                : callbackDeduplicator.tryMarkAll(unmarkedKeys);
+
+        List<TaskResult> results = new ArrayList<>(batch.size());
+        Map<TaskResult, String> dedupKeys = new IdentityHashMap<>(batch.size());
+        // 处理失败的回调释放去重标记，允许上游重试再次写入
+        List<String> releaseKeys = new ArrayList<>();
+        int markIndex = 0;
+        for (PendingCallback<?> pending : batch) {
+            if (pending.needsMark() && !marks.get(markIndex++)) {
+                log.info("重复回调, 忽略, key={}", pending.dedupKey);
+                continue;
+            }
+            try {
+                TaskResult result = pending.convert(callbackHandler);
+                if (result != null) {
+                    results.add(result);
+                    dedupKeys.put(result, pending.dedupKey);
+                }
+            } catch (Exception e) {
+                log.error("回调转换异常, 丢弃该回调, key={}", pending.dedupKey, e);
+                if (pending.dedupKey != null) {
+                    releaseKeys.add(pending.dedupKey);
+                }
+            }
+        }
+
+        try {
+            if (!results.isEmpty()) {
+                List<TaskResult> failed;
+                try {
+                    failed = callbackHandler.handleResults(results);
+                } catch (Exception e) {
+                    log.error("回调结果批量写入失败, 等待补偿查询, size={}", results.size(), e);
+                    failed = results;
+                }
+                for (TaskResult result : failed) {
+                    log.error("回调结果写入失败, taskId={}, algorithm={}, status={}",
+                            result.getTaskId(), result.getAlgorithm().getName(), result.getStatus());
+                    String dedupKey = dedupKeys.get(result);
+                    if (dedupKey != null) {
+                        releaseKeys.add(dedupKey);
+                    }
+                }
+            }
+        } finally {
+            if (!releaseKeys.isEmpty()) {
+                callbackDeduplicator.release(releaseKeys);
+            }
+        }
+    }
+
+    /**
+     * 排队中的回调（延迟到写入线程再转换）
+     */
+    private static class PendingCallback<T> {
+        private final T callback;
+        private final CallbackResultConverter<T> converter;
+
+        /**
+         * 去重 key，不需要去重时为 null
+         */
+        private final String dedupKey;
+
+        /**
+         * 是否已写入 Redis 去重标记
+         */
+        private final boolean marked;
+
+        PendingCallback(T callback, CallbackResultConverter<T> converter, String dedupKey, boolean marked) {
+            this.callback = callback;
+            this.converter = converter;
+            this.dedupKey = dedupKey;
+            this.marked = marked;
+        }
+
+        boolean needsMark() {
+            return dedupKey != null && !marked;
+        }
+
+        /**
+         * 转换并校验，无法存储时返回 null
+         */
+        TaskResult convert(CallbackHandler callbackHandler) {
+            TaskResult result = converter.convert(callback);
+            return callbackHandler.accept(result, converter.getAlgorithm(callback)) ? result : null;
+        }
+    }
+}
@@ -17,4 +17,14 @@ public interface CallbackResultConverter<T> {
      * 获取算法类型
      */
     AlgorithmEnum getAlgorithm(T callback);
-}
\ No newline at end of file
+
+    /**
+     * 获取任务ID（不做转换，用于去重）
+     */
+    String getTaskId(T callback);
+
+    /**
+     * 获取回调中的原始状态值（不做转换，用于去重）
+     */
+    Integer getTaskStatus(T callback);
+}
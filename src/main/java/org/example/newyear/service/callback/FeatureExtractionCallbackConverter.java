@@ -26,15 +26,25 @@ public class FeatureExtractionCallbackConverter
         return AlgorithmEnum.VOICE_CONVERSION;
     }
     
+    @Override
+    public String getTaskId(FeatureExtractionCallbackResponse callback) {
+        // 回调数据中的 taskId 即提交时的 businessTaskId
+        return callback.getData() != null ? callback.getData().getTaskId() : null;
+    }
+
+    @Override
+    public Integer getTaskStatus(FeatureExtractionCallbackResponse callback) {
+        return callback.getCode();
+    }
+
     @Override
     public TaskResult convert(FeatureExtractionCallbackResponse callback) {
         TaskResultStatus status = callback.isSuccess()
             ? TaskResultStatus.SUCCESS 
             : TaskResultStatus.FAILED;
 
-        String taskId = null;
-
         FeatureExtractionCallbackData data = callback.getData();
+        String taskId = data != null ? data.getTaskId() : null;
 
         String rawCallback = serializeCallback(callback);
         
@@ -23,6 +23,16 @@ public class SongConversionCallbackConverter
         return AlgorithmEnum.SONG_CONVERSION;
     }
 
+    @Override
+    public String getTaskId(SongConversionCallbackResponse callback) {
+        return callback.getData() != null ? callback.getData().getTaskId() : null;
+    }
+
+    @Override
+    public Integer getTaskStatus(SongConversionCallbackResponse callback) {
+        return callback.getCode();
+    }
+
     @Override
     public TaskResult convert(SongConversionCallbackResponse callback) {
         TaskResultStatus status = callback.isSuccess()
@@ -27,6 +27,16 @@ public class VisionCallbackConverter
         return AlgorithmEnum.fromVisionAbility(callback.getAbility());
     }
 
+    @Override
+    public String getTaskId(VisionCallbackResponse<JsonNode> callback) {
+        return callback.getBusinessTaskId();
+    }
+
+    @Override
+    public Integer getTaskStatus(VisionCallbackResponse<JsonNode> callback) {
+        return callback.getTaskStatus();
+    }
+
     @Override
     public TaskResult convert(VisionCallbackResponse<JsonNode> callback) {
         AlgorithmEnum algorithm = getAlgorithm(callback);
@@ -0,0 +1,31 @@
+package org.example.newyear.service.pipeline;
+
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+
+import java.util.Map;
+
+/**
+ * 可拆分为"提交上游任务"和"处理任务结果"两段执行的步骤处理器
+ *
+ * 事件驱动执行（{@link ContinuationPipelineRunner}）时，提交后不占用线程等待，
+ * 任务结果到达（回调、补偿查询或过期取消）时再调用 {@link #complete} 得到步骤输出
+ */
+public interface AsyncStepHandler extends StepHandler {
+
+    /**
+     * 步骤对应的上游算法
+     */
+    AlgorithmEnum getAlgorithm(StepDefinition step);
+
+    /**
+     * 使用指定的 taskId 提交上游任务（不等待结果）
+     */
+    void submit(String taskId, StepDefinition step, Map<String, Object> inputs, StepContext context)
+            throws Exception;
+
+    /**
+     * 由任务终态结果得到步骤输出，任务失败或结果缺失时抛出异常
+     */
+    Object complete(StepDefinition step, TaskResult result) throws Exception;
+}
@@ -0,0 +1,735 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.service.task.TaskCompletionListener;
+import org.example.newyear.service.task.TaskOrchestrator;
+import org.example.newyear.service.task.TaskReconciler;
+import org.example.newyear.service.task.TaskRef;
+import org.example.newyear.service.task.TaskTimeline;
+import org.example.newyear.util.JsonUtil;
+import org.example.newyear.util.KeyGeneratorUtils;
+import org.example.newyear.util.TaskRedisKey;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件驱动的流程执行器（步骤之间不占用线程）
+ *
+ * 流程运行状态（定义、变量、各步骤状态与输出）保存在 Redis；算法步骤提交上游任务前先登记续接点
+ * （taskId → 流程步骤），任务结果经 {@link org.example.newyear.service.callback.CallbackHandler}
+ * 到达任意节点时在事件线程池写入步骤输出并推进流程，提交后续已就绪的步骤。本地处理步骤（混音、拼接）在步骤线程池执行。
+ *
+ * 同一记录的推进、步骤事件与断点写入在 Redis 推进锁内串行执行；锁被占用时设置待推进标记，
+ * 由持锁方释放前重新推进。步骤在锁内登记为已提交，上游提交（同步 HTTP）与本地步骤在释放锁后执行。
+ * 运行状态的写入都校验执行标识（run_id），重新启动后上一次执行迟到的步骤输出、失败不会写入新的执行，
+ * 流程结束后也不会重建运行状态。定期巡检长时间无进展的流程：补处理已有结果但未触发续接的任务，超时则流程失败
+ *
+ * 算法任务提交后交给 {@link TaskReconciler} 关注，超过预计完成时间仍无回调时主动查询上游；
+ * 巡检时仍无结果的任务在巡检节点重新关注（提交节点重启后关注丢失）
+ */
+@Slf4j
+@Component
+public class ContinuationPipelineRunner implements TaskCompletionListener {
+
+    private static final String FIELD_RUN_ID = "run_id";
+    private static final String FIELD_PIPELINE = "pipeline";
+    private static final String FIELD_OWNER = "owner";
+    private static final String FIELD_DEFINITION = "definition";
+    private static final String FIELD_VARIABLES = "variables";
+    private static final String FIELD_ERROR = "error";
+    private static final String STEP_FIELD_PREFIX = "step:";
+
+    /**
+     * 步骤状态：已提交 → 已出结果（待推进方发布事件）→ 已完成
+     */
+    private static final String STATUS_SUBMITTED = "submitted";
+    private static final String STATUS_DONE = "done";
+    private static final String STATUS_COMPLETED = "completed";
+
+    private static final long LOCK_TTL_MS = 60000;
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    /**
+     * 仅释放自己持有的锁
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n"
+                    + "  return redis.call('DEL', KEYS[1])\n"
+                    + "end\n"
+                    + "return 0",
+            Long.class);
+
+    /**
+     * 写入步骤状态并记录进展：仅当运行状态仍属于该执行时写入
+     * KEYS[1] 运行状态 KEYS[2] 运行中流程 ZSET；ARGV[1] run_id ARGV[2] 字段 ARGV[3] 值
+     * ARGV[4] 过期秒数 ARGV[5] recordId ARGV[6] 当前时间
+     */
+    static final RedisScript<Long> PUT_STEP_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'run_id') ~= ARGV[1] then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])\n"
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[4])\n"
+                    + "redis.call('ZADD', KEYS[2], ARGV[6], ARGV[5])\n"
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 登记流程失败（只保留第一个错误）：仅当运行状态仍属于该执行时写入
+     * KEYS[1] 运行状态；ARGV[1] run_id ARGV[2] 错误
+     */
+    static final RedisScript<Long> MARK_FAILED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'run_id') ~= ARGV[1] then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "return redis.call('HSETNX', KEYS[1], 'error', ARGV[2])",
+            Long.class);
+
+    /**
+     * 结束流程：删除该执行的运行状态并移出运行中流程，删除成功者负责结束处理
+     * KEYS[1] 运行状态 KEYS[2] 运行中流程 ZSET；ARGV[1] run_id ARGV[2] recordId
+     */
+    static final RedisScript<Long> END_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'run_id') ~= ARGV[1] then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('DEL', KEYS[1])\n"
+                    + "redis.call('ZREM', KEYS[2], ARGV[2])\n"
+                    + "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final PipelineEngine pipelineEngine;
+    private final StepEventPublisher stepEventPublisher;
+    private final StepCheckpointStore stepCheckpointStore;
+    private final TaskOrchestrator taskOrchestrator;
+    private final TaskReconciler taskReconciler;
+    private final TaskTimeline taskTimeline;
+    private final TaskProperties taskProperties;
+    private final Executor pipelineStepExecutor;
+    private final Executor pipelineEventExecutor;
+    private final ObjectProvider<PipelineOutcomeHandler> outcomeHandlers;
+
+    public ContinuationPipelineRunner(StringRedisTemplate redisTemplate,
+                                      PipelineEngine pipelineEngine,
+                                      StepEventPublisher stepEventPublisher,
+                                      StepCheckpointStore stepCheckpointStore,
+                                      TaskOrchestrator taskOrchestrator,
+                                      TaskReconciler taskReconciler,
+                                      TaskTimeline taskTimeline,
+                                      TaskProperties taskProperties,
+                                      @Qualifier("pipelineStepExecutor") Executor pipelineStepExecutor,
+                                      @Qualifier("pipelineEventExecutor") Executor pipelineEventExecutor,
+                                      ObjectProvider<PipelineOutcomeHandler> outcomeHandlers) {
+        this.redisTemplate = redisTemplate;
+        this.pipelineEngine = pipelineEngine;
+        this.stepEventPublisher = stepEventPublisher;
+        this.stepCheckpointStore = stepCheckpointStore;
+        this.taskOrchestrator = taskOrchestrator;
+        this.taskReconciler = taskReconciler;
+        this.taskTimeline = taskTimeline;
+        this.taskProperties = taskProperties;
+        this.pipelineStepExecutor = pipelineStepExecutor;
+        this.pipelineEventExecutor = pipelineEventExecutor;
+        this.outcomeHandlers = outcomeHandlers;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(taskProperties.getPipeline().getContinuationEnabled());
+    }
+
+    /**
+     * 启动流程（立即返回，流程由任务结果事件推进）
+     *
+     * 该记录已完成步骤的断点会恢复到运行状态中，不再重复执行
+     *
+     * @param owner 启动方标识（记录认领批次），流程结束时原样交给 {@link PipelineOutcomeHandler}
+     */
+    public void start(String recordId, String owner, PipelineSource source, Map<String, Object> variables) {
+        PipelineEngine.CompiledPipeline pipeline = pipelineEngine.compile(source.getKey(), source.getDefinition());
+        if (pipeline.dag == null) {
+            throw new IllegalArgumentException("流程配置缺少可执行步骤: " + source.getKey());
+        }
+
+        String runId = UUID.randomUUID().toString();
+        Map<String, String> state = new HashMap<>();
+        state.put(FIELD_RUN_ID, runId);
+        state.put(FIELD_PIPELINE, source.getKey());
+        state.put(FIELD_OWNER, owner);
+        state.put(FIELD_DEFINITION, source.getDefinition());
+        state.put(FIELD_VARIABLES, JsonUtil.toJson(variables));
+        // 先登记本次执行，上一次执行仍在运行的步骤之后写入的断点会被丢弃
+        stepCheckpointStore.begin(recordId, source.getKey(), runId);
+        Map<String, Object> restored = PipelineEngine.restorable(pipeline.dag,
+                stepCheckpointStore.load(recordId, source.getKey()));
+        for (Map.Entry<String, Object> entry : restored.entrySet()) {
+            StepState step = new StepState();
+            step.setStatus(STATUS_COMPLETED);
+            step.setOutput(entry.getValue());
+            state.put(STEP_FIELD_PREFIX + entry.getKey(), JsonUtil.toJson(step));
+        }
+
+        String runKey = TaskRedisKey.pipelineRunKey(recordId);
+        redisTemplate.delete(runKey);
+        redisTemplate.opsForHash().putAll(runKey, state);
+        touch(recordId);
+        log.info("流程已启动（事件驱动）, recordId={}, pipeline={}, runId={}, restoredSteps={}",
+                recordId, source.getKey(), runId, restored.keySet());
+
+        advance(recordId);
+    }
+
+    @Override
+    public void onTaskCompleted(TaskResult result, AlgorithmEnum algorithm) {
+        if (!isEnabled()) {
+            return;
+        }
+        taskReconciler.unwatch(TaskRef.of(result.getTaskId(), algorithm));
+        try {
+            pipelineEventExecutor.execute(() -> onTaskResult(result.getTaskId(), algorithm, result));
+        } catch (RejectedExecutionException e) {
+            onTaskResult(result.getTaskId(), algorithm, result);
+        }
+    }
+
+    /**
+     * 巡检长时间无进展的流程
+     */
+    @Scheduled(fixedDelayString = "${task.pipeline.sweep-interval-ms:30000}", initialDelay = 20000)
+    public void sweep() {
+        if (!isEnabled()) {
+            return;
+        }
+        TaskProperties.PipelineConfig config = taskProperties.getPipeline();
+        long now = System.currentTimeMillis();
+        Set<String> idle;
+        try {
+            idle = redisTemplate.opsForZSet().rangeByScore(TaskRedisKey.PIPELINE_ACTIVE_KEY,
+                    0, now - config.getRecoverAfterMs(), 0, SWEEP_BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("读取运行中流程失败", e);
+            return;
+        }
+        if (idle == null || idle.isEmpty()) {
+            return;
+        }
+
+        for (String recordId : idle) {
+            try {
+                recover(recordId, now, config.getStallTimeoutMs());
+            } catch (Exception e) {
+                log.warn("巡检流程失败, recordId={}", recordId, e);
+            }
+        }
+    }
+
+    // ======================== 结果事件 ========================
+
+    /**
+     * 任务终态：按续接点写入步骤输出并推进流程；续接点删除成功者处理，多节点重复事件只处理一次
+     */
+    private void onTaskResult(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        String continuationKey = TaskRedisKey.pipelineContinuationKey(taskId, algorithm);
+        String value = redisTemplate.opsForValue().get(continuationKey);
+        if (value == null || !Boolean.TRUE.equals(redisTemplate.delete(continuationKey))) {
+            return;
+        }
+        Continuation continuation = JsonUtil.fromJson(value, Continuation.class);
+        String recordId = continuation.getRecordId();
+
+        RunState run = load(recordId);
+        if (run == null || !run.runId.equals(continuation.getRunId())) {
+            log.info("流程已结束或已重新启动, 忽略任务结果, recordId={}, step={}, taskId={}",
+                    recordId, continuation.getStepId(), taskId);
+            return;
+        }
+        PipelineEngine.CompiledStep step = run.pipeline.steps.get(continuation.getStepId());
+        StepState state = run.steps.get(continuation.getStepId());
+        long costMs = state != null && state.getSubmittedAt() != null
+                ? System.currentTimeMillis() - state.getSubmittedAt()
+                : 0L;
+
+        try {
+            Object output = ((AsyncStepHandler) step.handler).complete(step.definition, result);
+            StepState done = new StepState();
+            done.setStatus(STATUS_DONE);
+            done.setTaskId(taskId);
+            done.setOutput(output);
+            done.setCostMs(costMs);
+            done.setTimeline(taskTimeline.phases(taskId, algorithm));
+            putStep(recordId, run.runId, continuation.getStepId(), done);
+        } catch (Exception e) {
+            markFailed(recordId, run.runId, continuation.getStepId(), e, costMs);
+        } finally {
+            taskOrchestrator.cleanupTask(taskId, algorithm);
+        }
+        advance(recordId);
+    }
+
+    private void recover(String recordId, long now, long stallTimeoutMs) {
+        RunState run = load(recordId);
+        if (run == null) {
+            redisTemplate.opsForZSet().remove(TaskRedisKey.PIPELINE_ACTIVE_KEY, recordId);
+            return;
+        }
+
+        // 已有终态结果但续接事件丢失（节点重启等）的任务，补处理；仍无结果的重新关注，回调丢失时查询上游
+        for (Map.Entry<String, StepState> entry : run.steps.entrySet()) {
+            StepState state = entry.getValue();
+            PipelineEngine.CompiledStep step = run.pipeline.steps.get(entry.getKey());
+            if (!STATUS_SUBMITTED.equals(state.getStatus()) || state.getTaskId() == null
+                    || !(step.handler instanceof AsyncStepHandler)) {
+                continue;
+            }
+            AlgorithmEnum algorithm = ((AsyncStepHandler) step.handler).getAlgorithm(step.definition);
+            TaskResult result = taskOrchestrator.checkTask(state.getTaskId(), algorithm);
+            if (result != null && result.isCompleted()) {
+                log.warn("补处理未触发续接的任务结果, recordId={}, step={}, taskId={}",
+                        recordId, entry.getKey(), state.getTaskId());
+                onTaskResult(state.getTaskId(), algorithm, result);
+            } else {
+                taskReconciler.watch(TaskRef.of(state.getTaskId(), algorithm));
+            }
+        }
+
+        Double lastProgress = redisTemplate.opsForZSet().score(TaskRedisKey.PIPELINE_ACTIVE_KEY, recordId);
+        if (lastProgress != null && now - lastProgress.longValue() > stallTimeoutMs) {
+            markFailed(recordId, run.runId, null, new RuntimeException("流程长时间无进展, 已超时"), 0L);
+        }
+        advance(recordId);
+    }
+
+    // ======================== 推进 ========================
+
+    /**
+     * 推进流程：发布已出结果步骤的事件、提交已就绪的步骤、处理结束
+     */
+    private void advance(String recordId) {
+        String pendingKey = TaskRedisKey.pipelinePendingKey(recordId);
+        while (true) {
+            String token = tryLock(recordId);
+            if (token == null) {
+                redisTemplate.opsForValue().set(pendingKey, "1", LOCK_TTL_MS, TimeUnit.MILLISECONDS);
+                // 持锁方可能已检查过待推进标记，再尝试一次
+                token = tryLock(recordId);
+                if (token == null) {
+                    return;
+                }
+            }
+            List<Launch> launches = Collections.emptyList();
+            try {
+                redisTemplate.delete(pendingKey);
+                launches = doAdvance(recordId);
+            } catch (Exception e) {
+                log.error("推进流程失败, recordId={}", recordId, e);
+            } finally {
+                unlock(recordId, token);
+            }
+            // 提交上游任务（同步 HTTP）不占用推进锁；提交失败时已标记流程失败，重新推进以结束流程
+            boolean failed = !execute(launches);
+            if (!failed && !Boolean.TRUE.equals(redisTemplate.hasKey(pendingKey))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 推进一次（持有推进锁）
+     *
+     * @return 已登记为已提交、待释放锁后执行的步骤
+     */
+    private List<Launch> doAdvance(String recordId) {
+        RunState run = load(recordId);
+        if (run == null) {
+            return Collections.emptyList();
+        }
+
+        if (run.error != null) {
+            finishFailed(run);
+            return Collections.emptyList();
+        }
+
+        // 发布已出结果步骤的完成事件（断点在此写入）
+        for (Map.Entry<String, StepState> entry : run.steps.entrySet()) {
+            StepState state = entry.getValue();
+            if (STATUS_DONE.equals(state.getStatus())) {
+                run.context.restore(Collections.singletonMap(entry.getKey(), state.getOutput()));
+                run.context.recordTimeline(entry.getKey(), state.getTimeline());
+                log.info("步骤完成, pipeline={}, recordId={}, step={}, costMs={}",
+                        run.pipelineKey, recordId, entry.getKey(), state.getCostMs());
+                stepEventPublisher.completed(run.pipelineKey, run.context, entry.getKey(), state.getOutput(),
+                        state.getCostMs() != null ? state.getCostMs() : 0L);
+                state.setStatus(STATUS_COMPLETED);
+                putStep(recordId, run.runId, entry.getKey(), state);
+            }
+        }
+
+        if (run.context.isCompleted(run.pipeline.resultStep) && allCompleted(run)) {
+            finishCompleted(run);
+            return Collections.emptyList();
+        }
+
+        List<Launch> launches = new ArrayList<>();
+        for (PipelineEngine.CompiledStep step : run.pipeline.steps.values()) {
+            String stepId = step.definition.getStepName();
+            if (run.steps.containsKey(stepId) || !ready(run, step)) {
+                continue;
+            }
+            Launch launch = prepare(run, step);
+            if (launch == null) {
+                discard(launches);
+                finishFailed(load(recordId));
+                return Collections.emptyList();
+            }
+            launches.add(launch);
+        }
+        return launches;
+    }
+
+    /**
+     * 登记步骤为已提交（持有推进锁），算法步骤同时登记续接点
+     *
+     * @return 待执行的步骤，输入解析失败时返回 null（已标记流程失败）
+     */
+    private Launch prepare(RunState run, PipelineEngine.CompiledStep step) {
+        String recordId = run.context.getRecordId();
+        String stepId = step.definition.getStepName();
+        log.info("步骤开始, pipeline={}, recordId={}, step={}", run.pipelineKey, recordId, stepId);
+        stepEventPublisher.started(run.pipelineKey, run.context, stepId);
+
+        StepState state = new StepState();
+        state.setStatus(STATUS_SUBMITTED);
+        state.setSubmittedAt(System.currentTimeMillis());
+        Map<String, Object> inputs;
+        try {
+            inputs = pipelineEngine.resolveInputs(run.pipeline, step.definition, run.context);
+        } catch (Exception e) {
+            markFailed(recordId, run.runId, stepId, e, 0L);
+            return null;
+        }
+
+        if (!(step.handler instanceof AsyncStepHandler)) {
+            putStep(recordId, run.runId, stepId, state);
+            return new Launch(run, step, inputs, state.getSubmittedAt(), null, null);
+        }
+
+        AlgorithmEnum algorithm = ((AsyncStepHandler) step.handler).getAlgorithm(step.definition);
+        String taskId = KeyGeneratorUtils.taskIdGen();
+        state.setTaskId(taskId);
+
+        // 先登记续接点再提交，避免结果先于登记到达
+        Continuation continuation = new Continuation();
+        continuation.setRunId(run.runId);
+        continuation.setRecordId(recordId);
+        continuation.setStepId(stepId);
+        redisTemplate.opsForValue().set(TaskRedisKey.pipelineContinuationKey(taskId, algorithm),
+                JsonUtil.toJson(continuation), TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        putStep(recordId, run.runId, stepId, state);
+        return new Launch(run, step, inputs, state.getSubmittedAt(), taskId, algorithm);
+    }
+
+    /**
+     * 执行已登记的步骤（不持有推进锁）：本地步骤交给步骤线程池，算法步骤提交上游
+     *
+     * @return 提交失败时返回 false（已标记流程失败，其余步骤不再提交）
+     */
+    private boolean execute(List<Launch> launches) {
+        for (int i = 0; i < launches.size(); i++) {
+            Launch launch = launches.get(i);
+            if (launch.taskId == null) {
+                // 本地处理步骤：在步骤线程池执行，完成后写入输出并推进
+                try {
+                    pipelineStepExecutor.execute(() -> runLocal(launch));
+                } catch (RejectedExecutionException e) {
+                    runLocal(launch);
+                }
+                continue;
+            }
+            try {
+                ((AsyncStepHandler) launch.step.handler).submit(launch.taskId, launch.step.definition, launch.inputs,
+                        launch.run.context);
+                taskReconciler.watch(TaskRef.of(launch.taskId, launch.algorithm));
+            } catch (Exception e) {
+                markFailed(launch.run.context.getRecordId(), launch.run.runId, launch.step.definition.getStepName(),
+                        e, System.currentTimeMillis() - launch.submittedAt);
+                discard(launches.subList(i, launches.size()));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除未提交步骤的续接点
+     */
+    private void discard(List<Launch> launches) {
+        for (Launch launch : launches) {
+            if (launch.taskId != null) {
+                redisTemplate.delete(TaskRedisKey.pipelineContinuationKey(launch.taskId, launch.algorithm));
+            }
+        }
+    }
+
+    private void runLocal(Launch launch) {
+        RunState run = launch.run;
+        String recordId = run.context.getRecordId();
+        String stepId = launch.step.definition.getStepName();
+        try {
+            Object output = launch.step.handler.execute(launch.step.definition, launch.inputs, run.context);
+            if (output == null) {
+                throw new IllegalStateException("步骤未返回输出: " + stepId);
+            }
+            StepState done = new StepState();
+            done.setStatus(STATUS_DONE);
+            done.setOutput(output);
+            done.setCostMs(System.currentTimeMillis() - launch.submittedAt);
+            done.setTimeline(run.context.getTimeline(stepId));
+            putStep(recordId, run.runId, stepId, done);
+        } catch (Exception e) {
+            markFailed(recordId, run.runId, stepId, e, System.currentTimeMillis() - launch.submittedAt);
+        }
+        advance(recordId);
+    }
+
+    private boolean ready(RunState run, PipelineEngine.CompiledStep step) {
+        for (String dependency : step.dependsOn) {
+            if (!run.context.isCompleted(dependency)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean allCompleted(RunState run) {
+        for (String stepId : run.pipeline.steps.keySet()) {
+            if (!run.context.isCompleted(stepId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ======================== 结束 ========================
+
+    private void finishCompleted(RunState run) {
+        String recordId = run.context.getRecordId();
+        Object result = run.context.getOutput(run.pipeline.resultStep);
+        if (!end(recordId, run.runId)) {
+            return;
+        }
+        log.info("流程执行完成（事件驱动）, pipeline={}, recordId={}, result={}", run.pipelineKey, recordId, result);
+        outcomeHandlers.orderedStream().forEach(handler -> handler.onPipelineCompleted(recordId, run.owner, result));
+    }
+
+    private void finishFailed(RunState run) {
+        if (run == null || run.error == null) {
+            return;
+        }
+        String recordId = run.context.getRecordId();
+        StepState error = run.error;
+        if (!end(recordId, run.runId)) {
+            return;
+        }
+        String message = String.valueOf(error.getOutput());
+        if (error.getStepId() != null) {
+            stepEventPublisher.failed(run.pipelineKey, run.context, error.getStepId(), new RuntimeException(message),
+                    error.getCostMs() != null ? error.getCostMs() : 0L);
+            message = "步骤执行失败: " + error.getStepId() + ", " + message;
+        }
+        log.error("流程执行失败（事件驱动）, pipeline={}, recordId={}, error={}", run.pipelineKey, recordId, message);
+        String errorMessage = message;
+        outcomeHandlers.orderedStream().forEach(handler -> handler.onPipelineFailed(recordId, run.owner, errorMessage));
+    }
+
+    /**
+     * 删除该执行的运行状态，删除成功者负责结束处理
+     */
+    private boolean end(String recordId, String runId) {
+        Long ended = redisTemplate.execute(END_SCRIPT,
+                Arrays.asList(TaskRedisKey.pipelineRunKey(recordId), TaskRedisKey.PIPELINE_ACTIVE_KEY),
+                runId, recordId);
+        return ended != null && ended > 0;
+    }
+
+    /**
+     * 标记流程失败（只保留第一个错误），由推进方发布失败事件并结束流程；执行已结束或已重新启动时忽略
+     */
+    private void markFailed(String recordId, String runId, String stepId, Exception e, long costMs) {
+        log.error("步骤失败, recordId={}, runId={}, step={}, costMs={}", recordId, runId, stepId, costMs, e);
+        StepState error = new StepState();
+        error.setStatus(FIELD_ERROR);
+        error.setStepId(stepId);
+        error.setOutput(e.getMessage());
+        error.setCostMs(costMs);
+        redisTemplate.execute(MARK_FAILED_SCRIPT, Collections.singletonList(TaskRedisKey.pipelineRunKey(recordId)),
+                runId, JsonUtil.toJson(error));
+    }
+
+    // ======================== 运行状态 ========================
+
+    /**
+     * 写入步骤状态并记录进展；执行已结束或已重新启动时忽略，不重建运行状态
+     */
+    private void putStep(String recordId, String runId, String stepId, StepState state) {
+        Long written = redisTemplate.execute(PUT_STEP_SCRIPT,
+                Arrays.asList(TaskRedisKey.pipelineRunKey(recordId), TaskRedisKey.PIPELINE_ACTIVE_KEY),
+                runId, STEP_FIELD_PREFIX + stepId, JsonUtil.toJson(state),
+                String.valueOf(TaskRedisKey.DEFAULT_EXPIRE_SECONDS), recordId,
+                String.valueOf(System.currentTimeMillis()));
+        if (written == null || written == 0) {
+            log.info("流程已结束或已重新启动, 忽略步骤状态, recordId={}, runId={}, step={}, status={}",
+                    recordId, runId, stepId, state.getStatus());
+        }
+    }
+
+    /**
+     * 记录进展时间并续期运行状态
+     */
+    private void touch(String recordId) {
+        redisTemplate.expire(TaskRedisKey.pipelineRunKey(recordId),
+                Duration.ofSeconds(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
+        redisTemplate.opsForZSet().add(TaskRedisKey.PIPELINE_ACTIVE_KEY, recordId, System.currentTimeMillis());
+    }
+
+    private RunState load(String recordId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(TaskRedisKey.pipelineRunKey(recordId));
+        if (entries == null || !entries.containsKey(FIELD_RUN_ID)) {
+            return null;
+        }
+
+        String pipelineKey = (String) entries.get(FIELD_PIPELINE);
+        PipelineEngine.CompiledPipeline pipeline = pipelineEngine.compile(pipelineKey,
+                (String) entries.get(FIELD_DEFINITION));
+        Map<String, Object> variables = JsonUtil.fromJson((String) entries.get(FIELD_VARIABLES),
+                new TypeReference<Map<String, Object>>() {
+                });
+
+        Map<String, StepState> steps = new LinkedHashMap<>();
+        Map<String, Object> completed = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = (String) entry.getKey();
+            if (!field.startsWith(STEP_FIELD_PREFIX)) {
+                continue;
+            }
+            String stepId = field.substring(STEP_FIELD_PREFIX.length());
+            StepState state = JsonUtil.fromJson((String) entry.getValue(), StepState.class);
+            steps.put(stepId, state);
+            if (STATUS_COMPLETED.equals(state.getStatus()) && state.getOutput() != null) {
+                completed.put(stepId, state.getOutput());
+            }
+        }
+
+        String runId = (String) entries.get(FIELD_RUN_ID);
+        StepContext context = new StepContext(recordId, runId, variables);
+        context.restore(completed);
+        String error = (String) entries.get(FIELD_ERROR);
+        return new RunState(runId, (String) entries.get(FIELD_OWNER), pipelineKey, pipeline, context, steps,
+                error != null ? JsonUtil.fromJson(error, StepState.class) : null);
+    }
+
+    private String tryLock(String recordId) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(TaskRedisKey.pipelineLockKey(recordId), token,
+                LOCK_TTL_MS, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    private void unlock(String recordId, String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(TaskRedisKey.pipelineLockKey(recordId)), token);
+    }
+
+    /**
+     * 流程运行状态快照
+     */
+    private static class RunState {
+        private final String runId;
+        private final String owner;
+        private final String pipelineKey;
+        private final PipelineEngine.CompiledPipeline pipeline;
+        private final StepContext context;
+        private final Map<String, StepState> steps;
+        private final StepState error;
+
+        RunState(String runId, String owner, String pipelineKey, PipelineEngine.CompiledPipeline pipeline,
+                 StepContext context, Map<String, StepState> steps, StepState error) {
+            this.runId = runId;
+            this.owner = owner;
+            this.pipelineKey = pipelineKey;
+            this.pipeline = pipeline;
+            this.context = context;
+            this.steps = steps;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 已登记、待执行的步骤（taskId 为空表示本地处理步骤）
+     */
+    private static class Launch {
+        private final RunState run;
+        private final PipelineEngine.CompiledStep step;
+        private final Map<String, Object> inputs;
+        private final long submittedAt;
+        private final String taskId;
+        private final AlgorithmEnum algorithm;
+
+        Launch(RunState run, PipelineEngine.CompiledStep step, Map<String, Object> inputs, long submittedAt,
+               String taskId, AlgorithmEnum algorithm) {
+            this.run = run;
+            this.step = step;
+            this.inputs = inputs;
+            this.submittedAt = submittedAt;
+            this.taskId = taskId;
+            this.algorithm = algorithm;
+        }
+    }
+
+    /**
+     * 步骤状态（error 字段复用：stepId 为失败步骤，output 为错误信息）
+     */
+    @Data
+    static class StepState {
+        private String status;
+        private String stepId;
+        private String taskId;
+        private Long submittedAt;
+        private Long costMs;
+        private Object output;
+        private Map<String, Object> timeline;
+    }
+
+    /**
+     * 续接点：上游任务所属的流程步骤
+     */
+    @Data
+    static class Continuation {
+        private String runId;
+        private String recordId;
+        private String stepId;
+    }
+}
@@ -0,0 +1,297 @@
+package org.example.newyear.service.pipeline;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.Spring2026CreationRecord;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.enums.QualityProfile;
+import org.example.newyear.mapper.Spring2026CreationRecordMapper;
+import org.example.newyear.service.task.AlgorithmAdmission;
+import org.example.newyear.service.task.TaskTimeline;
+import org.example.newyear.util.JsonUtil;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载自适应降级
+ *
+ * 定期评估三项负载指标：上游排队耗时 P95（算法步骤时间线的 queue 分段）、积压（排队中的记录 +
+ * 本节点等待上游许可的任务）、算法步骤耗时 P95。任一指标超过 high 阈值切换到降级档位（480P、不超分），
+ * 全部回落到 low 阈值以下且降级已保持 min-hold-ms 后恢复高清档位，两段阈值 + 最短保持时间避免来回切换。
+ *
+ * 档位按记录确定：首个算法步骤提交时取当前档位并登记（Redis，跨节点与重试沿用），同时写入记录扩展数据
+ */
+@Slf4j
+@Component
+public class DegradationController implements StepListener {
+
+    private static final String EXTRA_QUALITY_PROFILE = "quality_profile";
+
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final Spring2026CreationRecordMapper recordMapper;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final TaskProperties.DegradationConfig config;
+
+    private final SlidingWindow queueWaits = new SlidingWindow();
+    private final SlidingWindow stepDurations = new SlidingWindow();
+
+    private volatile QualityProfile current = QualityProfile.HIGH;
+    private volatile long switchedAt = System.currentTimeMillis();
+    private volatile Load lastLoad = new Load();
+
+    public DegradationController(Spring2026CreationRecordMapper recordMapper,
+                                 AlgorithmAdmission algorithmAdmission,
+                                 StringRedisTemplate redisTemplate,
+                                 MeterRegistry meterRegistry,
+                                 TaskProperties taskProperties) {
+        this.recordMapper = recordMapper;
+        this.algorithmAdmission = algorithmAdmission;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.config = taskProperties.getDegradation();
+        Gauge.builder("pipeline.quality.degraded", this, c -> c.current == QualityProfile.DEGRADED ? 1 : 0)
+                .description("当前是否处于降级档位")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    /**
+     * 记录的质量档位（首次调用时按当前负载确定并登记，之后沿用）
+     */
+    public QualityProfile profileFor(String recordId) {
+        if (!isEnabled() || recordId == null) {
+            return QualityProfile.HIGH;
+        }
+        QualityProfile profile = current;
+        String key = TaskRedisKey.recordQualityKey(recordId);
+        try {
+            Boolean first = redisTemplate.opsForValue().setIfAbsent(key, profile.getCode(),
+                    TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(first)) {
+                QualityProfile assigned = QualityProfile.of(redisTemplate.opsForValue().get(key));
+                return assigned != null ? assigned : profile;
+            }
+        } catch (Exception e) {
+            log.warn("登记记录质量档位失败, recordId={}, profile={}", recordId, profile.getCode(), e);
+            return profile;
+        }
+
+        saveProfile(recordId, profile);
+        log.info("确定记录质量档位, recordId={}, profile={}", recordId, profile.getCode());
+        return profile;
+    }
+
+    @Override
+    public void onStepCompleted(String pipeline, StepContext context, String stepId, Object output, long costMs) {
+        Map<String, Object> timeline = context.getTimeline(stepId);
+        if (timeline == null || AlgorithmEnum.of(String.valueOf(timeline.get("algorithm"))) == null) {
+            // 只统计上游算法步骤（本地音视频处理步骤的时间线同样带有 algorithm：audio_mix / video_concat）
+            return;
+        }
+        stepDurations.add(costMs);
+        Object queueMs = timeline.get(TaskTimeline.PHASE_QUEUE + "_ms");
+        if (queueMs instanceof Number) {
+            queueWaits.add(((Number) queueMs).longValue());
+        }
+    }
+
+    /**
+     * 评估负载并切换档位
+     */
+    @Scheduled(fixedDelayString = "${task.degradation.evaluate-interval-ms:10000}")
+    public void evaluate() {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Load load = new Load();
+        load.setQueueWaitP95Ms(queueWaits.p95(now - config.getWindowMs(), config.getMinSamples()));
+        load.setStepP95Ms(stepDurations.p95(now - config.getWindowMs(), config.getMinSamples()));
+        load.setBacklog(backlog());
+        lastLoad = load;
+
+        if (current == QualityProfile.HIGH && isHigh(load)) {
+            switchTo(QualityProfile.DEGRADED, load, now);
+        } else if (current == QualityProfile.DEGRADED && isLow(load)
+                && now - switchedAt >= config.getMinHoldMs()) {
+            switchTo(QualityProfile.HIGH, load, now);
+        }
+    }
+
+    /**
+     * 当前档位与最近一次评估的负载
+     */
+    public Status getStatus() {
+        Status status = new Status();
+        status.setProfile(current.getCode());
+        status.setSwitchedAt(switchedAt);
+        status.setLoad(lastLoad);
+        return status;
+    }
+
+    private boolean isHigh(Load load) {
+        return exceeds(load.getQueueWaitP95Ms(), config.getQueueWaitHighMs())
+                || exceeds(load.getBacklog(), config.getBacklogHigh())
+                || exceeds(load.getStepP95Ms(), config.getStepP95HighMs());
+    }
+
+    private boolean isLow(Load load) {
+        // 积压统计失败时不恢复；耗时样本不足（空闲）视为已回落
+        return load.getBacklog() != null
+                && !exceeds(load.getQueueWaitP95Ms(), config.getQueueWaitLowMs())
+                && !exceeds(load.getBacklog(), config.getBacklogLow())
+                && !exceeds(load.getStepP95Ms(), config.getStepP95LowMs());
+    }
+
+    private static boolean exceeds(Long value, Long threshold) {
+        return value != null && threshold != null && value > threshold;
+    }
+
+    private void switchTo(QualityProfile profile, Load load, long now) {
+        log.warn("切换质量档位, from={}, to={}, queueWaitP95Ms={}, backlog={}, stepP95Ms={}",
+                current.getCode(), profile.getCode(), load.getQueueWaitP95Ms(), load.getBacklog(), load.getStepP95Ms());
+        current = profile;
+        switchedAt = now;
+        Counter.builder("pipeline.quality.switch")
+                .description("质量档位切换次数")
+                .tag("profile", profile.getCode())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Long backlog() {
+        try {
+            Long pending = recordMapper.selectCount(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                    .eq(Spring2026CreationRecord::getStatus, 0));
+            return (pending != null ? pending : 0L) + algorithmAdmission.getQueuedCount();
+        } catch (Exception e) {
+            log.warn("统计积压任务失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 档位写入记录扩展数据（条件更新：扩展数据在读取后被其他写入修改时重新读取合并）
+     */
+    private void saveProfile(String recordId, QualityProfile profile) {
+        try {
+            for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+                Spring2026CreationRecord record = recordMapper.selectOne(
+                        new LambdaQueryWrapper<Spring2026CreationRecord>()
+                                .select(Spring2026CreationRecord::getExtraData)
+                                .eq(Spring2026CreationRecord::getRecordId, recordId));
+                if (record == null) {
+                    return;
+                }
+                String current = record.getExtraData();
+                Map<String, Object> extra = current != null && !current.isEmpty()
+                        ? JsonUtil.fromJson(current, new TypeReference<Map<String, Object>>() {
+                        })
+                        : null;
+                if (extra == null) {
+                    extra = new HashMap<>();
+                }
+                extra.put(EXTRA_QUALITY_PROFILE, profile.getCode());
+
+                LambdaUpdateWrapper<Spring2026CreationRecord> wrapper = new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                        .eq(Spring2026CreationRecord::getRecordId, recordId)
+                        .set(Spring2026CreationRecord::getExtraData, JsonUtil.toJson(extra));
+                if (current == null) {
+                    wrapper.isNull(Spring2026CreationRecord::getExtraData);
+                } else {
+                    wrapper.eq(Spring2026CreationRecord::getExtraData, current);
+                }
+                if (recordMapper.update(null, wrapper) > 0) {
+                    return;
+                }
+            }
+            log.warn("记录质量档位写入冲突, 放弃本次写入, recordId={}, profile={}, attempts={}",
+                    recordId, profile.getCode(), MAX_WRITE_ATTEMPTS);
+        } catch (Exception e) {
+            log.warn("记录质量档位写入失败, recordId={}, profile={}", recordId, profile.getCode(), e);
+        }
+    }
+
+    /**
+     * 按时间窗口保留的耗时样本
+     */
+    private static class SlidingWindow {
+
+        private static final int MAX_SAMPLES = 2000;
+
+        private final Deque<long[]> samples = new ArrayDeque<>();
+
+        synchronized void add(long value) {
+            samples.addLast(new long[]{System.currentTimeMillis(), value});
+            if (samples.size() > MAX_SAMPLES) {
+                samples.removeFirst();
+            }
+        }
+
+        /**
+         * 窗口内样本的 P95，样本不足时返回 null
+         */
+        synchronized Long p95(long since, int minSamples) {
+            Iterator<long[]> iterator = samples.iterator();
+            while (iterator.hasNext() && iterator.next()[0] < since) {
+                iterator.remove();
+            }
+            if (samples.size() < minSamples) {
+                return null;
+            }
+            long[] values = new long[samples.size()];
+            int i = 0;
+            for (long[] sample : samples) {
+                values[i++] = sample[1];
+            }
+            Arrays.sort(values);
+            return values[(int) Math.ceil(values.length * 0.95) - 1];
+        }
+    }
+
+    @Data
+    public static class Load {
+        /**
+         * 上游排队耗时 P95（毫秒），样本不足时为 null
+         */
+        private Long queueWaitP95Ms;
+        /**
+         * 排队中的记录 + 本节点等待上游许可的任务
+         */
+        private Long backlog;
+        /**
+         * 算法步骤耗时 P95（毫秒），样本不足时为 null
+         */
+        private Long stepP95Ms;
+    }
+
+    @Data
+    public static class Status {
+        private String profile;
+        private long switchedAt;
+        private Load load;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.newyear.service.pipeline;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流程定义（模板 task_config JSON）
+ *
+ * 示例见 resources/pipeline/template1to4.json
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PipelineDefinition {
+
+    /**
+     * 步骤列表（依赖只能引用前面声明的步骤）
+     */
+    private List<StepDefinition> steps = new ArrayList<>();
+
+    /**
+     * 输出最终视频URL的步骤，为空时取最后一个步骤
+     */
+    @JsonProperty("result_step")
+    private String resultStep;
+
+    /**
+     * 预计耗时（秒）
+     */
+    @JsonProperty("estimated_time_seconds")
+    private Integer estimatedTimeSeconds;
+}
@@ -0,0 +1,398 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.dto.VideoCreateDTO;
+import org.example.newyear.entity.Spring2026Template;
+import org.example.newyear.service.TemplateAssetRegistry;
+import org.example.newyear.util.JsonUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 声明式流程引擎
+ *
+ * 将模板 task_config（{@link PipelineDefinition}）编译为 {@link StepDag} 并按流程标识缓存，
+ * 配置内容不变时直接复用；步骤按类型交给 {@link StepHandler} 执行，由 {@link StepDagExecutor} 并行调度。
+ * 编译时校验步骤类型和引用，配置错误在执行任何算法任务之前暴露。
+ * 执行前从 {@link StepCheckpointStore} 恢复该记录已完成步骤的输出，重试时从第一个未完成的步骤继续
+ */
+@Slf4j
+@Component
+public class PipelineEngine {
+
+    /**
+     * 流程变量
+     */
+    public static final String VAR_USER_PHOTO_URL = "user_photo_url";
+    public static final String VAR_USER_PHOTO_URLS = "user_photo_urls";
+    public static final String VAR_USER_AUDIO_URL = "user_audio_url";
+    public static final String VAR_USER_AUDIO_URLS = "user_audio_urls";
+    public static final String VAR_TEMPLATE_VIDEO_URL = "template_video_url";
+    public static final String VAR_RECORD_ID = "record_id";
+
+    private static final Set<String> VARIABLES = new HashSet<>(Arrays.asList(
+            VAR_USER_PHOTO_URL, VAR_USER_PHOTO_URLS, VAR_USER_AUDIO_URL, VAR_USER_AUDIO_URLS,
+            VAR_TEMPLATE_VIDEO_URL, VAR_RECORD_ID));
+
+    private static final Pattern REFERENCE = Pattern.compile("\\{\\{\\s*([^{}]+?)\\s*}}");
+
+    private static final String OSS_PREFIX = "oss:";
+
+    private final StepDagExecutor stepDagExecutor;
+    private final TemplateAssetRegistry templateAssetRegistry;
+    private final StepCheckpointStore stepCheckpointStore;
+    private final Map<String, StepHandler> handlers = new HashMap<>();
+    private final Map<String, CompiledPipeline> compiled = new ConcurrentHashMap<>();
+
+    public PipelineEngine(StepDagExecutor stepDagExecutor, TemplateAssetRegistry templateAssetRegistry,
+                          StepCheckpointStore stepCheckpointStore, List<StepHandler> stepHandlers) {
+        this.stepDagExecutor = stepDagExecutor;
+        this.templateAssetRegistry = templateAssetRegistry;
+        this.stepCheckpointStore = stepCheckpointStore;
+        for (StepHandler handler : stepHandlers) {
+            for (String type : handler.getTypes()) {
+                StepHandler previous = handlers.put(type, handler);
+                if (previous != null) {
+                    throw new IllegalStateException("步骤类型重复注册: " + type);
+                }
+            }
+        }
+        log.info("流程引擎已初始化, stepTypes={}", handlers.keySet());
+    }
+
+    /**
+     * 模板是否配置了可执行的流程
+     */
+    public boolean supports(Spring2026Template template) {
+        String config = template.getTaskConfig();
+        if (config == null || config.trim().isEmpty()) {
+            return false;
+        }
+        return compile(template.getTemplateId(), config).dag != null;
+    }
+
+    /**
+     * 预编译流程（启动时调用，提前登记流程引用的模板素材）
+     */
+    public void prepare(String pipelineKey, String definitionJson) {
+        compile(pipelineKey, definitionJson);
+    }
+
+    /**
+     * 执行流程
+     *
+     * @param pipelineKey    流程标识（缓存键，一般为模板ID）
+     * @param definitionJson 流程定义JSON
+     * @param recordId       记录ID
+     * @param variables      流程变量
+     * @return 结果步骤的输出
+     */
+    public Object run(String pipelineKey, String definitionJson, String recordId, Map<String, Object> variables) {
+        CompiledPipeline pipeline = compile(pipelineKey, definitionJson);
+        if (pipeline.dag == null) {
+            throw new IllegalArgumentException("流程配置缺少可执行步骤: " + pipelineKey);
+        }
+        StepContext context = new StepContext(recordId, UUID.randomUUID().toString(), variables);
+        // 先登记本次执行，上一次执行仍在运行的步骤之后写入的断点会被丢弃
+        stepCheckpointStore.begin(recordId, pipelineKey, context.getRunId());
+        context.restore(restorable(pipeline.dag, stepCheckpointStore.load(recordId, pipelineKey)));
+        stepDagExecutor.execute(pipeline.dag, context);
+        return context.get(pipeline.resultStep, Object.class);
+    }
+
+    /**
+     * 根据用户素材和模板构建流程变量
+     */
+    public Map<String, Object> variables(String recordId, Spring2026Template template, VideoCreateDTO dto) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put(VAR_RECORD_ID, recordId);
+        if (template.getTemplateUrl() != null) {
+            variables.put(VAR_TEMPLATE_VIDEO_URL, template.getTemplateUrl());
+        }
+        VideoCreateDTO.MaterialsDTO materials = dto.getMaterials();
+        if (materials != null) {
+            putList(variables, VAR_USER_PHOTO_URL, VAR_USER_PHOTO_URLS, materials.getPhotos());
+            putList(variables, VAR_USER_AUDIO_URL, VAR_USER_AUDIO_URLS, materials.getAudios());
+        }
+        return variables;
+    }
+
+    // ======================== 编译 ========================
+
+    /**
+     * 编译流程定义（按流程标识缓存，配置内容变化时重新编译）
+     *
+     * 配置错误同样缓存，配置修正前直接抛出缓存的错误，不在每次请求时重复编译
+     */
+    CompiledPipeline compile(String pipelineKey, String definitionJson) {
+        CompiledPipeline cached = compiled.get(pipelineKey);
+        if (cached == null || !definitionJson.equals(cached.source)) {
+            try {
+                cached = doCompile(pipelineKey, definitionJson);
+            } catch (RuntimeException e) {
+                log.error("流程配置无效, pipeline={}", pipelineKey, e);
+                cached = CompiledPipeline.invalid(definitionJson, e);
+            }
+            compiled.put(pipelineKey, cached);
+        }
+        if (cached.error != null) {
+            throw new IllegalArgumentException("流程配置无效: " + pipelineKey + ", " + cached.error.getMessage(),
+                    cached.error);
+        }
+        return cached;
+    }
+
+    private CompiledPipeline doCompile(String pipelineKey, String definitionJson) {
+        PipelineDefinition definition = JsonUtil.fromJson(definitionJson, PipelineDefinition.class);
+        List<StepDefinition> steps = definition.getSteps();
+        if (steps == null || steps.isEmpty()) {
+            return CompiledPipeline.notExecutable(definitionJson);
+        }
+        for (StepDefinition step : steps) {
+            // 旧版 task_config（仅用于展示，步骤未声明 algorithm）不可执行
+            if (step.getAlgorithm() == null) {
+                return CompiledPipeline.notExecutable(definitionJson);
+            }
+        }
+
+        // 步骤名与输出名 → 步骤名
+        Map<String, String> aliases = new HashMap<>();
+        Map<String, CompiledStep> compiledSteps = new LinkedHashMap<>();
+        Set<String> assets = new LinkedHashSet<>();
+        StepDag.Builder builder = StepDag.builder(pipelineKey);
+        for (StepDefinition step : steps) {
+            String name = step.getStepName();
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("步骤缺少 step_name: " + pipelineKey);
+            }
+            StepHandler handler = handlers.get(step.getAlgorithm());
+            if (handler == null) {
+                throw new IllegalArgumentException("不支持的步骤类型: " + step.getAlgorithm() + ", step=" + name);
+            }
+
+            Set<String> dependsOn = new LinkedHashSet<>();
+            for (String reference : references(step.getInputMapping())) {
+                if (reference.startsWith(OSS_PREFIX)) {
+                    assets.add(reference.substring(OSS_PREFIX.length()));
+                    continue;
+                }
+                String upstream = aliases.get(reference);
+                if (upstream != null) {
+                    dependsOn.add(upstream);
+                } else if (!VARIABLES.contains(reference)) {
+                    throw new IllegalArgumentException("步骤 " + name + " 引用未定义: " + reference
+                            + "（只能引用流程变量或前面声明的步骤）");
+                }
+            }
+            if (step.getDependsOn() != null) {
+                for (String dependency : step.getDependsOn()) {
+                    dependsOn.add(aliases.containsKey(dependency) ? aliases.get(dependency) : dependency);
+                }
+            }
+
+            builder.step(name, context -> handler.execute(step, resolveInputs(step, aliases, context), context),
+                    dependsOn.toArray(new String[0]));
+            compiledSteps.put(name, new CompiledStep(step, handler, new ArrayList<>(dependsOn)));
+            register(aliases, name, name);
+            if (step.getOutputKey() != null && !step.getOutputKey().equals(name)) {
+                register(aliases, step.getOutputKey(), name);
+            }
+        }
+
+        String resultStep = definition.getResultStep() != null
+                ? aliases.get(definition.getResultStep())
+                : steps.get(steps.size() - 1).getStepName();
+        if (resultStep == null) {
+            throw new IllegalArgumentException("结果步骤未定义: " + definition.getResultStep());
+        }
+
+        StepDag dag = builder.build();
+        // 模板素材提前签名并定期刷新，执行时直接读取
+        templateAssetRegistry.register(assets);
+        log.info("流程编译完成, pipeline={}, steps={}, resultStep={}", pipelineKey, steps.size(), resultStep);
+        return new CompiledPipeline(definitionJson, dag, resultStep, compiledSteps, aliases);
+    }
+
+    private static void register(Map<String, String> aliases, String alias, String stepName) {
+        if (aliases.containsKey(alias) || VARIABLES.contains(alias)) {
+            throw new IllegalArgumentException("步骤名或输出名重复: " + alias);
+        }
+        aliases.put(alias, stepName);
+    }
+
+    private static Set<String> references(Object value) {
+        Set<String> references = new LinkedHashSet<>();
+        collectReferences(value, references);
+        return references;
+    }
+
+    private static void collectReferences(Object value, Set<String> references) {
+        if (value instanceof String) {
+            Matcher matcher = REFERENCE.matcher((String) value);
+            while (matcher.find()) {
+                references.add(matcher.group(1));
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                collectReferences(item, references);
+            }
+        } else if (value instanceof Map) {
+            for (Object item : ((Map<?, ?>) value).values()) {
+                collectReferences(item, references);
+            }
+        }
+    }
+
+    // ======================== 执行期解析 ========================
+
+    /**
+     * 解析步骤输入中的引用
+     */
+    Map<String, Object> resolveInputs(CompiledPipeline pipeline, StepDefinition step, StepContext context) {
+        return resolveInputs(step, pipeline.aliases, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> resolveInputs(StepDefinition step, Map<String, String> aliases, StepContext context) {
+        if (step.getInputMapping() == null) {
+            return Collections.emptyMap();
+        }
+        return (Map<String, Object>) resolve(step.getInputMapping(), aliases, context);
+    }
+
+    /**
+     * 替换引用：整个值就是一个引用时保留原始类型（如 URL 列表），否则按字符串拼接
+     */
+    private Object resolve(Object value, Map<String, String> aliases, StepContext context) {
+        if (value instanceof String) {
+            String text = (String) value;
+            Matcher matcher = REFERENCE.matcher(text);
+            if (matcher.matches()) {
+                return lookup(matcher.group(1), aliases, context);
+            }
+            StringBuffer resolved = new StringBuffer();
+            while (matcher.find()) {
+                Object replacement = lookup(matcher.group(1), aliases, context);
+                matcher.appendReplacement(resolved, Matcher.quoteReplacement(String.valueOf(replacement)));
+            }
+            matcher.appendTail(resolved);
+            return resolved.toString();
+        }
+        if (value instanceof List) {
+            List<Object> resolved = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                resolved.add(resolve(item, aliases, context));
+            }
+            return resolved;
+        }
+        if (value instanceof Map) {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                resolved.put(String.valueOf(entry.getKey()), resolve(entry.getValue(), aliases, context));
+            }
+            return resolved;
+        }
+        return value;
+    }
+
+    private Object lookup(String reference, Map<String, String> aliases, StepContext context) {
+        if (reference.startsWith(OSS_PREFIX)) {
+            return templateAssetRegistry.getAccessUrl(reference.substring(OSS_PREFIX.length()));
+        }
+        String stepName = aliases.get(reference);
+        return stepName != null ? context.getOutput(stepName) : context.getVariable(reference);
+    }
+
+    /**
+     * 只恢复当前流程中仍存在的步骤
+     */
+    static Map<String, Object> restorable(StepDag dag, Map<String, Object> completed) {
+        if (completed.isEmpty()) {
+            return completed;
+        }
+        Map<String, Object> restorable = new HashMap<>();
+        for (StepDag.Step step : dag.getSteps()) {
+            Object output = completed.get(step.getId());
+            if (output != null) {
+                restorable.put(step.getId(), output);
+            }
+        }
+        return restorable;
+    }
+
+    private static void putList(Map<String, Object> variables, String firstName, String listName,
+                                List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            variables.put(firstName, values.get(0));
+            variables.put(listName, values);
+        }
+    }
+
+    /**
+     * 编译结果（source 为编译时的配置内容，用于判断缓存是否过期；dag 为空表示配置不可执行，
+     * error 不为空表示配置错误）
+     */
+    static class CompiledPipeline {
+        final String source;
+        final StepDag dag;
+        final String resultStep;
+        final Map<String, CompiledStep> steps;
+        final Map<String, String> aliases;
+        final RuntimeException error;
+
+        CompiledPipeline(String source, StepDag dag, String resultStep,
+                         Map<String, CompiledStep> steps, Map<String, String> aliases) {
+            this(source, dag, resultStep, steps, aliases, null);
+        }
+
+        private CompiledPipeline(String source, StepDag dag, String resultStep,
+                                 Map<String, CompiledStep> steps, Map<String, String> aliases,
+                                 RuntimeException error) {
+            this.source = source;
+            this.dag = dag;
+            this.resultStep = resultStep;
+            this.steps = steps;
+            this.aliases = aliases;
+            this.error = error;
+        }
+
+        static CompiledPipeline notExecutable(String source) {
+            return new CompiledPipeline(source, null, null,
+                    Collections.<String, CompiledStep>emptyMap(), Collections.<String, String>emptyMap());
+        }
+
+        static CompiledPipeline invalid(String source, RuntimeException error) {
+            return new CompiledPipeline(source, null, null,
+                    Collections.<String, CompiledStep>emptyMap(), Collections.<String, String>emptyMap(), error);
+        }
+    }
+
+    /**
+     * 编译后的步骤（dependsOn 为显式声明与引用推导的全部依赖）
+     */
+    static class CompiledStep {
+        final StepDefinition definition;
+        final StepHandler handler;
+        final List<String> dependsOn;
+
+        CompiledStep(StepDefinition definition, StepHandler handler, List<String> dependsOn) {
+            this.definition = definition;
+            this.handler = handler;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
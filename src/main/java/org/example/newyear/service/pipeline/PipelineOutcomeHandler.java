@@ -0,0 +1,22 @@
+package org.example.newyear.service.pipeline;
+
+/**
+ * 流程结束处理（事件驱动执行时流程在任意节点结束，由实现方更新创作记录）
+ */
+public interface PipelineOutcomeHandler {
+
+    /**
+     * 流程执行成功
+     *
+     * @param owner  启动流程时传入的启动方标识
+     * @param result 结果步骤的输出
+     */
+    void onPipelineCompleted(String recordId, String owner, Object result);
+
+    /**
+     * 流程执行失败
+     *
+     * @param owner 启动流程时传入的启动方标识
+     */
+    void onPipelineFailed(String recordId, String owner, String errorMessage);
+}
@@ -0,0 +1,20 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.Value;
+
+/**
+ * 流程来源：流程标识（缓存键）+ 流程定义JSON
+ */
+@Value(staticConstructor = "of")
+public class PipelineSource {
+
+    /**
+     * 流程标识（模板ID或内置流程名）
+     */
+    String key;
+
+    /**
+     * 流程定义JSON（{@link PipelineDefinition}）
+     */
+    String definition;
+}
@@ -0,0 +1,16 @@
+package org.example.newyear.service.pipeline;
+
+/**
+ * 流程步骤执行逻辑
+ */
+@FunctionalInterface
+public interface StepAction {
+
+    /**
+     * 执行步骤
+     *
+     * @param context 流程上下文，可读取已完成依赖步骤的输出
+     * @return 步骤输出，供下游步骤读取
+     */
+    Object run(StepContext context) throws Exception;
+}
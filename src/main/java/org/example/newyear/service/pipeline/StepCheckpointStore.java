@@ -0,0 +1,234 @@
+package org.example.newyear.service.pipeline;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.Spring2026CreationRecord;
+import org.example.newyear.mapper.Spring2026CreationRecordMapper;
+import org.example.newyear.util.JsonUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 流程步骤断点（记录在创作记录的 task_execution 中）
+ *
+ * 每个步骤开始、完成、失败时写入步骤状态，完成时同时写入输出；记录重试时恢复已完成步骤的输出，
+ * 从第一个未完成的步骤继续执行，不再重复提交已完成的算法任务。
+ * 每次执行开始时登记执行标识（run_id），之后只接受该执行的写入，上一次执行仍在运行的步骤迟到的写入被丢弃；
+ * 写入为条件更新（task_execution 与读取时一致才更新，冲突时重读重试），多节点、多次执行之间不会相互覆盖。
+ * task_execution 格式：{"pipeline": "...", "run_id": "...", "current_step": "...", "steps": {"step": {"status", "output", "end_time", "timeline"}}}，
+ * timeline 为步骤耗时分段（算法步骤：submit_ms / queue_ms / execution_ms / delivery_ms；本地步骤：process_ms）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StepCheckpointStore implements StepListener {
+
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final String KEY_PIPELINE = "pipeline";
+    private static final String KEY_RUN_ID = "run_id";
+    private static final String KEY_CURRENT_STEP = "current_step";
+    private static final String KEY_STEPS = "steps";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_OUTPUT = "output";
+    private static final String KEY_START_TIME = "start_time";
+    private static final String KEY_END_TIME = "end_time";
+    private static final String KEY_COST_MS = "cost_ms";
+    private static final String KEY_ERROR = "error";
+    private static final String KEY_TIMELINE = "timeline";
+
+    /**
+     * 条件更新冲突时的最大尝试次数
+     */
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final Spring2026CreationRecordMapper recordMapper;
+    private final TaskProperties taskProperties;
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(taskProperties.getPipeline().getCheckpointEnabled());
+    }
+
+    /**
+     * 读取已完成步骤的输出（流程不一致时不恢复）
+     *
+     * @return 步骤ID → 输出
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> load(String recordId, String pipeline) {
+        if (!isEnabled()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> execution = parse(recordId, read(recordId));
+        if (!pipeline.equals(execution.get(KEY_PIPELINE))) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> completed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : steps(execution).entrySet()) {
+            if (!(entry.getValue() instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> step = (Map<String, Object>) entry.getValue();
+            if (STATUS_COMPLETED.equals(step.get(KEY_STATUS)) && step.get(KEY_OUTPUT) != null) {
+                completed.put(entry.getKey(), step.get(KEY_OUTPUT));
+            }
+        }
+        if (!completed.isEmpty()) {
+            log.info("恢复流程断点, recordId={}, pipeline={}, completedSteps={}", recordId, pipeline, completed.keySet());
+        }
+        return completed;
+    }
+
+    /**
+     * 登记本次执行（执行开始、恢复断点之前调用），之后其它执行的步骤写入被丢弃
+     */
+    public void begin(String recordId, String pipeline, String runId) {
+        if (!isEnabled() || recordId == null) {
+            return;
+        }
+        update(recordId, execution -> {
+            if (!pipeline.equals(execution.get(KEY_PIPELINE))) {
+                execution.clear();
+                execution.put(KEY_PIPELINE, pipeline);
+            }
+            execution.put(KEY_RUN_ID, runId);
+            return true;
+        });
+    }
+
+    @Override
+    public void onStepStarted(String pipeline, StepContext context, String stepId) {
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put(KEY_STATUS, STATUS_RUNNING);
+        step.put(KEY_START_TIME, System.currentTimeMillis());
+        write(pipeline, context, stepId, step);
+    }
+
+    @Override
+    public void onStepCompleted(String pipeline, StepContext context, String stepId, Object output, long costMs) {
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put(KEY_STATUS, STATUS_COMPLETED);
+        step.put(KEY_OUTPUT, output);
+        step.put(KEY_END_TIME, System.currentTimeMillis());
+        step.put(KEY_COST_MS, costMs);
+        putTimeline(context, stepId, step);
+        write(pipeline, context, stepId, step);
+    }
+
+    @Override
+    public void onStepFailed(String pipeline, StepContext context, String stepId, Throwable error, long costMs) {
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put(KEY_STATUS, STATUS_FAILED);
+        step.put(KEY_ERROR, error.getMessage());
+        step.put(KEY_END_TIME, System.currentTimeMillis());
+        step.put(KEY_COST_MS, costMs);
+        putTimeline(context, stepId, step);
+        write(pipeline, context, stepId, step);
+    }
+
+    // ======================== 私有方法 ========================
+
+    private static void putTimeline(StepContext context, String stepId, Map<String, Object> step) {
+        Map<String, Object> timeline = context.getTimeline(stepId);
+        if (timeline != null) {
+            step.put(KEY_TIMELINE, timeline);
+        }
+    }
+
+    /**
+     * 写入步骤状态（只接受当前登记的执行）
+     */
+    private void write(String pipeline, StepContext context, String stepId, Map<String, Object> step) {
+        if (!isEnabled() || context.getRecordId() == null) {
+            return;
+        }
+        update(context.getRecordId(), execution -> {
+            Object currentRunId = execution.get(KEY_RUN_ID);
+            if (context.getRunId() != null && currentRunId != null && !context.getRunId().equals(currentRunId)) {
+                log.info("记录已开始新的执行, 丢弃旧执行的步骤断点, recordId={}, step={}, runId={}, currentRunId={}",
+                        context.getRecordId(), stepId, context.getRunId(), currentRunId);
+                return false;
+            }
+            if (!pipeline.equals(execution.get(KEY_PIPELINE))) {
+                execution.clear();
+                execution.put(KEY_PIPELINE, pipeline);
+                if (context.getRunId() != null) {
+                    execution.put(KEY_RUN_ID, context.getRunId());
+                }
+            }
+            Map<String, Object> steps = steps(execution);
+            steps.put(stepId, step);
+            execution.put(KEY_STEPS, steps);
+            execution.put(KEY_CURRENT_STEP, stepId);
+            return true;
+        });
+    }
+
+    /**
+     * 条件读-改-写 task_execution：仅当内容与读取时一致才更新，冲突时重读重试
+     *
+     * @param mutation 修改读取到的内容，返回 false 时放弃写入
+     */
+    private void update(String recordId, Predicate<Map<String, Object>> mutation) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            Spring2026CreationRecord record = read(recordId);
+            if (record == null) {
+                return;
+            }
+            String current = record.getTaskExecution();
+            Map<String, Object> execution = parse(recordId, record);
+            if (!mutation.test(execution)) {
+                return;
+            }
+
+            LambdaUpdateWrapper<Spring2026CreationRecord> wrapper = new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                    .eq(Spring2026CreationRecord::getRecordId, recordId)
+                    .set(Spring2026CreationRecord::getTaskExecution, JsonUtil.toJson(execution));
+            if (current == null) {
+                wrapper.isNull(Spring2026CreationRecord::getTaskExecution);
+            } else {
+                wrapper.eq(Spring2026CreationRecord::getTaskExecution, current);
+            }
+            if (recordMapper.update(null, wrapper) > 0) {
+                return;
+            }
+        }
+        log.warn("步骤断点写入冲突, 放弃本次写入, recordId={}, attempts={}", recordId, MAX_WRITE_ATTEMPTS);
+    }
+
+    private Spring2026CreationRecord read(String recordId) {
+        return recordMapper.selectOne(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                .select(Spring2026CreationRecord::getTaskExecution)
+                .eq(Spring2026CreationRecord::getRecordId, recordId));
+    }
+
+    private Map<String, Object> parse(String recordId, Spring2026CreationRecord record) {
+        if (record == null || record.getTaskExecution() == null || record.getTaskExecution().isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return JsonUtil.fromJson(record.getTaskExecution(), new TypeReference<LinkedHashMap<String, Object>>() {
+            });
+        } catch (Exception e) {
+            log.warn("解析task_execution失败, 忽略已有断点, recordId={}", recordId, e);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> steps(Map<String, Object> execution) {
+        Object steps = execution.get(KEY_STEPS);
+        return steps instanceof Map ? (Map<String, Object>) steps : new LinkedHashMap<>();
+    }
+}
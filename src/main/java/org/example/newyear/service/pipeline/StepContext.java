@@ -0,0 +1,134 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流程上下文（一次流程执行内共享）
+ */
+public class StepContext {
+
+    /**
+     * 记录ID
+     */
+    @Getter
+    private final String recordId;
+
+    /**
+     * 本次执行标识（断点按执行标识写入，旧执行的迟到写入被丢弃），为空时不校验
+     */
+    @Getter
+    private final String runId;
+
+    /**
+     * 流程输入变量（用户素材等），执行期间只读
+     */
+    private final Map<String, Object> variables;
+
+    private final Map<String, Object> outputs = new ConcurrentHashMap<>();
+
+    /**
+     * 步骤耗时分段（写入步骤时间线）
+     */
+    private final Map<String, Map<String, Object>> timelines = new ConcurrentHashMap<>();
+
+    private volatile boolean aborted;
+
+    public StepContext(String recordId) {
+        this(recordId, Collections.<String, Object>emptyMap());
+    }
+
+    public StepContext(String recordId, Map<String, Object> variables) {
+        this(recordId, null, variables);
+    }
+
+    public StepContext(String recordId, String runId, Map<String, Object> variables) {
+        this.recordId = recordId;
+        this.runId = runId;
+        this.variables = Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * 获取输入变量，不存在时返回 null
+     */
+    public Object getVariable(String name) {
+        return variables.get(name);
+    }
+
+    /**
+     * 获取步骤输出，不存在时返回 null
+     */
+    public Object getOutput(String stepId) {
+        return outputs.get(stepId);
+    }
+
+    /**
+     * 获取步骤输出
+     */
+    public <T> T get(String stepId, Class<T> type) {
+        Object value = outputs.get(stepId);
+        if (value == null) {
+            throw new IllegalStateException("步骤输出不存在: " + stepId);
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * 获取全部步骤输出
+     */
+    public Map<String, Object> getOutputs() {
+        return Collections.unmodifiableMap(outputs);
+    }
+
+    /**
+     * 恢复已完成步骤的输出（断点续跑），恢复的步骤不再执行
+     */
+    public void restore(Map<String, Object> completed) {
+        for (Map.Entry<String, Object> entry : completed.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 记录步骤耗时分段（算法类型、提交/排队/执行等耗时），步骤完成时写入时间线
+     */
+    public void recordTimeline(String stepId, Map<String, Object> timeline) {
+        if (timeline != null) {
+            timelines.put(stepId, timeline);
+        }
+    }
+
+    /**
+     * 获取步骤耗时分段，不存在时返回 null
+     */
+    public Map<String, Object> getTimeline(String stepId) {
+        return timelines.get(stepId);
+    }
+
+    /**
+     * 步骤是否已有输出
+     */
+    public boolean isCompleted(String stepId) {
+        return outputs.containsKey(stepId);
+    }
+
+    void put(String stepId, Object output) {
+        if (output != null) {
+            outputs.put(stepId, output);
+        }
+    }
+
+    /**
+     * 流程是否已失败（已失败时尚未开始的步骤不再执行）
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    void abort() {
+        aborted = true;
+    }
+}
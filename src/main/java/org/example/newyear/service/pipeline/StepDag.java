@@ -0,0 +1,91 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流程步骤依赖图
+ *
+ * 步骤按声明顺序登记，依赖只能引用已声明的步骤，因此声明顺序即拓扑顺序，不会出现环
+ */
+public class StepDag {
+
+    @Getter
+    private final String name;
+
+    private final Map<String, Step> steps;
+
+    private StepDag(String name, Map<String, Step> steps) {
+        this.name = name;
+        this.steps = steps;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 按拓扑顺序返回全部步骤
+     */
+    public List<Step> getSteps() {
+        return new ArrayList<>(steps.values());
+    }
+
+    /**
+     * 流程步骤
+     */
+    @Getter
+    public static class Step {
+        private final String id;
+        private final List<String> dependsOn;
+        private final StepAction action;
+
+        Step(String id, List<String> dependsOn, StepAction action) {
+            this.id = id;
+            this.dependsOn = dependsOn;
+            this.action = action;
+        }
+    }
+
+    public static class Builder {
+        private final String name;
+        private final Map<String, Step> steps = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 登记步骤
+         *
+         * @param id        步骤ID（流程内唯一）
+         * @param action    执行逻辑
+         * @param dependsOn 依赖的步骤ID，必须已登记
+         */
+        public Builder step(String id, StepAction action, String... dependsOn) {
+            if (steps.containsKey(id)) {
+                throw new IllegalArgumentException("步骤ID重复: " + id);
+            }
+            for (String dependency : dependsOn) {
+                if (!steps.containsKey(dependency)) {
+                    throw new IllegalArgumentException("步骤 " + id + " 依赖的步骤未登记: " + dependency);
+                }
+            }
+            steps.put(id, new Step(id, Collections.unmodifiableList(Arrays.asList(dependsOn)), action));
+            return this;
+        }
+
+        public StepDag build() {
+            if (steps.isEmpty()) {
+                throw new IllegalArgumentException("流程没有步骤: " + name);
+            }
+            return new StepDag(name, new LinkedHashMap<>(steps));
+        }
+    }
+}
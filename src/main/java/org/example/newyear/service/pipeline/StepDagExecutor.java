@@ -0,0 +1,216 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流程步骤并行执行器
+ *
+ * 每个步骤在其依赖全部完成后立即提交到步骤线程池执行，没有依赖关系的步骤并行执行；
+ * 任一步骤失败时尚未开始的步骤不再执行，正在执行的并行步骤被中断（等待任务结果的步骤立即返回），
+ * 等它们全部结束（最多 abort-wait-ms）后流程才失败返回，避免记录重新排队后旧步骤仍在写入。
+ * 上下文中已有输出的步骤（断点续跑时恢复）直接跳过，步骤事件通知 {@link StepListener}
+ */
+@Slf4j
+@Component
+public class StepDagExecutor {
+
+    private final Executor pipelineStepExecutor;
+    private final StepEventPublisher stepEventPublisher;
+    private final TaskProperties taskProperties;
+
+    public StepDagExecutor(@Qualifier("pipelineStepExecutor") Executor pipelineStepExecutor,
+                           StepEventPublisher stepEventPublisher,
+                           TaskProperties taskProperties) {
+        this.pipelineStepExecutor = pipelineStepExecutor;
+        this.stepEventPublisher = stepEventPublisher;
+        this.taskProperties = taskProperties;
+    }
+
+    /**
+     * 执行流程并等待全部步骤完成
+     *
+     * @return 流程上下文（含各步骤输出）
+     */
+    public StepContext execute(StepDag dag, String recordId) {
+        return execute(dag, new StepContext(recordId));
+    }
+
+    /**
+     * 执行流程并等待全部步骤完成（指定输入变量）
+     *
+     * @return 流程上下文（含各步骤输出）
+     */
+    public StepContext execute(StepDag dag, String recordId, Map<String, Object> variables) {
+        return execute(dag, new StepContext(recordId, variables));
+    }
+
+    /**
+     * 使用指定上下文执行流程（上下文可预先恢复已完成步骤的输出）
+     *
+     * @return 流程上下文（含各步骤输出）
+     */
+    public StepContext execute(StepDag dag, StepContext context) {
+        String recordId = context.getRecordId();
+        long start = System.currentTimeMillis();
+
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        Map<String, CompletableFuture<Object>> futures = new HashMap<>();
+        Map<String, Thread> running = new HashMap<>();
+        for (StepDag.Step step : dag.getSteps()) {
+            CompletableFuture<Object> future = dependencies(step, futures)
+                    .thenApplyAsync(ignored -> runStep(dag, step, context, running), pipelineStepExecutor);
+            future.whenComplete((output, e) -> {
+                if (e != null && failure.completeExceptionally(e)) {
+                    abort(context, running);
+                }
+            });
+            futures.put(step.getId(), future);
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+        try {
+            CompletableFuture.anyOf(all, failure).get();
+        } catch (InterruptedException e) {
+            abort(context, running);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("流程执行被中断: " + dag.getName(), e);
+        } catch (ExecutionException e) {
+            awaitSettled(dag, recordId, all);
+            throw rethrow(unwrap(e.getCause()));
+        }
+
+        log.info("流程执行完成, pipeline={}, recordId={}, steps={}, costMs={}",
+                dag.getName(), recordId, futures.size(), System.currentTimeMillis() - start);
+        return context;
+    }
+
+    // ======================== 私有方法 ========================
+
+    private CompletableFuture<Void> dependencies(StepDag.Step step, Map<String, CompletableFuture<Object>> futures) {
+        List<String> dependsOn = step.getDependsOn();
+        if (dependsOn.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?>[] upstream = new CompletableFuture[dependsOn.size()];
+        for (int i = 0; i < dependsOn.size(); i++) {
+            upstream[i] = futures.get(dependsOn.get(i));
+        }
+        return CompletableFuture.allOf(upstream);
+    }
+
+    /**
+     * 流程失败：不再开始新步骤，中断正在执行的步骤
+     */
+    private static void abort(StepContext context, Map<String, Thread> running) {
+        context.abort();
+        synchronized (running) {
+            for (Thread thread : running.values()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 等待被中断的并行步骤结束（最多 abort-wait-ms）
+     */
+    private void awaitSettled(StepDag dag, String recordId, CompletableFuture<Void> all) {
+        try {
+            all.handle((ignored, e) -> null).get(taskProperties.getPipeline().getAbortWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("流程失败后仍有步骤未结束, 不再等待, pipeline={}, recordId={}", dag.getName(), recordId);
+        } catch (ExecutionException e) {
+            // handle 已吞掉步骤异常
+        }
+    }
+
+    private Object runStep(StepDag dag, StepDag.Step step, StepContext context, Map<String, Thread> running) {
+        if (context.isAborted()) {
+            throw new CancellationException("流程已失败, 跳过步骤: " + step.getId());
+        }
+        if (context.isCompleted(step.getId())) {
+            log.info("步骤已完成（断点恢复）, 跳过, pipeline={}, recordId={}, step={}",
+                    dag.getName(), context.getRecordId(), step.getId());
+            return context.getOutput(step.getId());
+        }
+
+        log.info("步骤开始, pipeline={}, recordId={}, step={}", dag.getName(), context.getRecordId(), step.getId());
+        stepEventPublisher.started(dag.getName(), context, step.getId());
+        long start = System.currentTimeMillis();
+        Object output;
+        synchronized (running) {
+            if (context.isAborted()) {
+                throw new CancellationException("流程已失败, 跳过步骤: " + step.getId());
+            }
+            running.put(step.getId(), Thread.currentThread());
+        }
+        try {
+            output = step.getAction().run(context);
+        } catch (Exception e) {
+            long costMs = System.currentTimeMillis() - start;
+            log.error("步骤失败, pipeline={}, recordId={}, step={}, costMs={}",
+                    dag.getName(), context.getRecordId(), step.getId(), costMs, e);
+            stepEventPublisher.failed(dag.getName(), context, step.getId(), e, costMs);
+            throw new StepFailedException(step.getId(), e);
+        } finally {
+            synchronized (running) {
+                running.remove(step.getId());
+                // 清除流程失败时的中断标记，线程归还线程池后不影响其它流程
+                Thread.interrupted();
+            }
+        }
+
+        long costMs = System.currentTimeMillis() - start;
+        context.put(step.getId(), output);
+        log.info("步骤完成, pipeline={}, recordId={}, step={}, costMs={}",
+                dag.getName(), context.getRecordId(), step.getId(), costMs);
+        stepEventPublisher.completed(dag.getName(), context, step.getId(), output, costMs);
+        return output;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        return new RuntimeException(e.getMessage(), e);
+    }
+
+    /**
+     * 步骤执行失败
+     */
+    public static class StepFailedException extends RuntimeException {
+
+        private final String stepId;
+
+        StepFailedException(String stepId, Throwable cause) {
+            super("步骤执行失败: " + stepId + ", " + cause.getMessage(), cause);
+            this.stepId = stepId;
+        }
+
+        public String getStepId() {
+            return stepId;
+        }
+    }
+}
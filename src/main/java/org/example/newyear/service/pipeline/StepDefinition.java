@@ -0,0 +1,67 @@
+package org.example.newyear.service.pipeline;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流程步骤定义
+ *
+ * 输入值中的 {{name}} 引用在执行时替换：流程变量（user_photo_url、user_audio_url 等）、
+ * 前序步骤的 step_name 或 output_key、{{oss:文件key}}（OSS 访问地址）。
+ * 引用前序步骤时自动加入依赖，depends_on 只需声明没有数据引用的依赖
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StepDefinition {
+
+    /**
+     * 步骤名称（流程内唯一）
+     */
+    @JsonProperty("step_name")
+    private String stepName;
+
+    /**
+     * 步骤类型：算法名（见 AlgorithmEnum）或本地处理（audio_mix、video_concat）
+     */
+    private String algorithm;
+
+    /**
+     * 步骤说明
+     */
+    private String description;
+
+    /**
+     * 输入参数
+     */
+    @JsonProperty("input_mapping")
+    private Map<String, Object> inputMapping = new LinkedHashMap<>();
+
+    /**
+     * 输出名称，供后续步骤引用
+     */
+    @JsonProperty("output_key")
+    private String outputKey;
+
+    /**
+     * 输出分辨率/质量档位（如 720p、hd），为空时使用算法默认值
+     */
+    private String resolution;
+
+    /**
+     * 等待超时（秒），为空时使用默认值
+     */
+    @JsonProperty("timeout_seconds")
+    private Integer timeoutSeconds;
+
+    /**
+     * 额外依赖的步骤
+     */
+    @JsonProperty("depends_on")
+    private List<String> dependsOn = new ArrayList<>();
+}
@@ -0,0 +1,45 @@
+package org.example.newyear.service.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 步骤事件分发：依次通知全部 {@link StepListener}，单个监听器失败不影响其他监听器和步骤结果
+ */
+@Slf4j
+@Component
+public class StepEventPublisher {
+
+    private final List<StepListener> listeners;
+
+    public StepEventPublisher(ObjectProvider<StepListener> listeners) {
+        this.listeners = listeners.orderedStream().collect(Collectors.toList());
+    }
+
+    public void started(String pipeline, StepContext context, String stepId) {
+        publish(listener -> listener.onStepStarted(pipeline, context, stepId));
+    }
+
+    public void completed(String pipeline, StepContext context, String stepId, Object output, long costMs) {
+        publish(listener -> listener.onStepCompleted(pipeline, context, stepId, output, costMs));
+    }
+
+    public void failed(String pipeline, StepContext context, String stepId, Throwable error, long costMs) {
+        publish(listener -> listener.onStepFailed(pipeline, context, stepId, error, costMs));
+    }
+
+    private void publish(Consumer<StepListener> event) {
+        for (StepListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (Exception e) {
+                log.warn("步骤事件处理失败, listener={}", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
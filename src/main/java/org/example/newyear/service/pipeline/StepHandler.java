@@ -0,0 +1,25 @@
+package org.example.newyear.service.pipeline;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流程步骤处理器（按步骤类型注册）
+ */
+public interface StepHandler {
+
+    /**
+     * 支持的步骤类型（{@link StepDefinition#getAlgorithm()}）
+     */
+    List<String> getTypes();
+
+    /**
+     * 执行步骤
+     *
+     * @param step    步骤定义
+     * @param inputs  已解析引用的输入参数
+     * @param context 流程上下文
+     * @return 步骤输出
+     */
+    Object execute(StepDefinition step, Map<String, Object> inputs, StepContext context) throws Exception;
+}
@@ -0,0 +1,27 @@
+package org.example.newyear.service.pipeline;
+
+/**
+ * 流程步骤事件监听器（注册为 Spring Bean 即生效）
+ *
+ * 回调在执行步骤的线程内同步调用，监听器抛出的异常只记录日志，不影响步骤结果
+ */
+public interface StepListener {
+
+    /**
+     * 步骤开始执行
+     */
+    default void onStepStarted(String pipeline, StepContext context, String stepId) {
+    }
+
+    /**
+     * 步骤执行成功
+     */
+    default void onStepCompleted(String pipeline, StepContext context, String stepId, Object output, long costMs) {
+    }
+
+    /**
+     * 步骤执行失败
+     */
+    default void onStepFailed(String pipeline, StepContext context, String stepId, Throwable error, long costMs) {
+    }
+}
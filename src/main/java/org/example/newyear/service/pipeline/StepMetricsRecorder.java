@@ -0,0 +1,70 @@
+package org.example.newyear.service.pipeline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流程步骤耗时直方图
+ *
+ * pipeline.step.duration：步骤总耗时，按流程（模板）、步骤、算法、结果区分；
+ * pipeline.step.phase：步骤耗时分段（见 {@link StepContext#getTimeline}），按流程、算法、分段区分
+ */
+@Component
+@RequiredArgsConstructor
+public class StepMetricsRecorder implements StepListener {
+
+    private static final String PHASE_SUFFIX = "_ms";
+
+    private static final String LOCAL = "local";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void onStepCompleted(String pipeline, StepContext context, String stepId, Object output, long costMs) {
+        record(pipeline, context, stepId, "success", costMs);
+    }
+
+    @Override
+    public void onStepFailed(String pipeline, StepContext context, String stepId, Throwable error, long costMs) {
+        record(pipeline, context, stepId, "failed", costMs);
+    }
+
+    private void record(String pipeline, StepContext context, String stepId, String outcome, long costMs) {
+        Map<String, Object> timeline = context.getTimeline(stepId);
+        String algorithm = timeline != null && timeline.get("algorithm") != null
+                ? timeline.get("algorithm").toString()
+                : LOCAL;
+
+        Timer.builder("pipeline.step.duration")
+                .description("流程步骤耗时")
+                .tag("pipeline", pipeline)
+                .tag("step", stepId)
+                .tag("algorithm", algorithm)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(costMs, TimeUnit.MILLISECONDS);
+
+        if (timeline == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : timeline.entrySet()) {
+            if (!entry.getKey().endsWith(PHASE_SUFFIX) || !(entry.getValue() instanceof Number)) {
+                continue;
+            }
+            Timer.builder("pipeline.step.phase")
+                    .description("流程步骤耗时分段")
+                    .tag("pipeline", pipeline)
+                    .tag("algorithm", algorithm)
+                    .tag("phase", entry.getKey().substring(0, entry.getKey().length() - PHASE_SUFFIX.length()))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(Math.max(((Number) entry.getValue()).longValue(), 0L), TimeUnit.MILLISECONDS);
+        }
+    }
+}
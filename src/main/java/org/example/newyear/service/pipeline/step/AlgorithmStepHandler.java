@@ -0,0 +1,259 @@
+package org.example.newyear.service.pipeline.step;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.dto.algorithm.audio.FeatureExtractionCallbackData;
+import org.example.newyear.dto.algorithm.audio.SongConversionCallbackData;
+import org.example.newyear.dto.algorithm.vision.Flux2ImageGenResultData;
+import org.example.newyear.dto.algorithm.vision.LipsyncResultData;
+import org.example.newyear.dto.algorithm.vision.WanAnimateResultData;
+import org.example.newyear.dto.algorithm.vision.WanVideoFLFResultData;
+import org.example.newyear.dto.algorithm.vision.WanVideoResolution;
+import org.example.newyear.entity.algorithm.vision.ImageRatio;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.enums.QualityProfile;
+import org.example.newyear.entity.enums.TaskPriority;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.service.FeatureExtractionFacade;
+import org.example.newyear.service.SongConversionFacade;
+import org.example.newyear.service.VisionFacade;
+import org.example.newyear.service.pipeline.AsyncStepHandler;
+import org.example.newyear.service.pipeline.DegradationController;
+import org.example.newyear.service.pipeline.StepContext;
+import org.example.newyear.service.pipeline.StepDefinition;
+import org.example.newyear.service.task.TaskOrchestrator;
+import org.example.newyear.service.task.TaskPriorities;
+import org.example.newyear.service.task.TaskTimeline;
+import org.example.newyear.util.KeyGeneratorUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 算法步骤处理器
+ *
+ * 生成 taskId → 提交算法任务 → 等待结果 → 校验输出 → 清理任务，输出为结果URL（人声转换为特征ID）。
+ * 视觉任务登记截止时间，超时或记录失败时由过期清理取消上游任务；提交前按记录登记优先级通道，
+ * 记录处于降级档位时按 480P、不超分提交
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlgorithmStepHandler implements AsyncStepHandler {
+
+    /**
+     * 默认超时时间（30分钟）
+     */
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final String RESOLUTION_720P = "720p";
+    private static final String RESOLUTION_HD = "hd";
+
+    private final SongConversionFacade songConversionFacade;
+    private final FeatureExtractionFacade featureExtractionFacade;
+    private final VisionFacade visionFacade;
+    private final TaskOrchestrator taskOrchestrator;
+    private final TaskTimeline taskTimeline;
+    private final TaskPriorities taskPriorities;
+    private final DegradationController degradationController;
+
+    @Override
+    public List<String> getTypes() {
+        return Arrays.asList(
+                AlgorithmEnum.SONG_CONVERSION.getName(),
+                AlgorithmEnum.VOICE_CONVERSION.getName(),
+                AlgorithmEnum.FLUX2_IMAGE_GEN.getName(),
+                AlgorithmEnum.WAN_ANIMATE.getName(),
+                AlgorithmEnum.LIPS_SYNC.getName(),
+                AlgorithmEnum.WAN_VIDEO_FLF.getName());
+    }
+
+    @Override
+    public AlgorithmEnum getAlgorithm(StepDefinition step) {
+        return AlgorithmEnum.of(step.getAlgorithm());
+    }
+
+    @Override
+    public Object execute(StepDefinition step, Map<String, Object> inputs, StepContext context) throws Exception {
+        AlgorithmEnum algorithm = getAlgorithm(step);
+        String taskId = KeyGeneratorUtils.taskIdGen();
+        submit(taskId, step, inputs, context);
+
+        // 未配置超时时沿用编排器默认等待超时
+        TaskResult result = step.getTimeoutSeconds() != null
+                ? taskOrchestrator.awaitTask(taskId, algorithm, Duration.ofSeconds(step.getTimeoutSeconds()))
+                : taskOrchestrator.awaitTask(taskId, algorithm);
+        Object output = complete(step, result);
+        context.recordTimeline(step.getStepName(), taskTimeline.phases(taskId, algorithm));
+
+        taskOrchestrator.cleanupTask(taskId, algorithm);
+        return output;
+    }
+
+    @Override
+    public void submit(String taskId, StepDefinition step, Map<String, Object> inputs, StepContext context) {
+        AlgorithmEnum algorithm = getAlgorithm(step);
+        TaskPriority priority = taskPriorities.resolve(context.getRecordId());
+        taskPriorities.assign(taskId, priority);
+        // 降级档位忽略步骤配置的 720p/hd，使用算法默认的 480P、不超分
+        String resolution = degradationController.profileFor(context.getRecordId()) == QualityProfile.DEGRADED
+                ? null
+                : step.getResolution();
+        log.info("提交算法任务, step={}, taskId={}, algorithm={}, priority={}, resolution={}",
+                step.getStepName(), taskId, algorithm.getName(), priority.getCode(), resolution);
+
+        switch (algorithm) {
+            case SONG_CONVERSION:
+                // 先登记截止时间与所属记录（上游不能取消，超时由清理任务标记取消）；
+                // SongConversionFacade 内部再次初始化的待处理状态不会回退已有状态
+                initTask(taskId, algorithm, step, context);
+                songConversionFacade.submit(
+                        required(inputs, "audioUrl"),
+                        required(inputs, "bgmUrl"),
+                        optional(inputs, "voiceUrl"),
+                        required(inputs, "modelCode"),
+                        taskId);
+                break;
+            case VOICE_CONVERSION:
+                // 同上，FeatureExtractionFacade 内部会调用 initTask
+                initTask(taskId, algorithm, step, context);
+                featureExtractionFacade.submit(required(inputs, "audioUrl"), taskId);
+                break;
+            case FLUX2_IMAGE_GEN:
+                initTask(taskId, algorithm, step, context);
+                String ratio = optional(inputs, "ratio");
+                visionFacade.submitImageToImageMulti(
+                        required(inputs, "prompt"),
+                        urls(inputs, "imageUrls"),
+                        ratio != null ? ImageRatio.of(ratio) : ImageRatio.RATIO_1_1,
+                        taskId);
+                break;
+            case WAN_ANIMATE:
+                initTask(taskId, algorithm, step, context);
+                if (RESOLUTION_720P.equalsIgnoreCase(resolution)) {
+                    visionFacade.submitWanAnimate720P(required(inputs, "imageUrl"), required(inputs, "videoUrl"), taskId);
+                } else {
+                    visionFacade.submitWanAnimate(required(inputs, "imageUrl"), required(inputs, "videoUrl"), taskId);
+                }
+                break;
+            case LIPS_SYNC:
+                initTask(taskId, algorithm, step, context);
+                if (RESOLUTION_HD.equalsIgnoreCase(resolution)) {
+                    visionFacade.submitLipsyncHD(required(inputs, "videoUrl"), required(inputs, "audioUrl"), taskId);
+                } else {
+                    visionFacade.submitLipsync(required(inputs, "videoUrl"), required(inputs, "audioUrl"), taskId);
+                }
+                break;
+            case WAN_VIDEO_FLF:
+                initTask(taskId, algorithm, step, context);
+                WanVideoResolution videoResolution = RESOLUTION_720P.equalsIgnoreCase(resolution)
+                        ? WanVideoResolution.P720
+                        : WanVideoResolution.P480;
+                visionFacade.submitWanVideoFLF(required(inputs, "firstImageUrl"), required(inputs, "lastImageUrl"),
+                        optional(inputs, "prompt"), videoResolution, taskId);
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的算法: " + step.getAlgorithm());
+        }
+    }
+
+    @Override
+    public Object complete(StepDefinition step, TaskResult result) {
+        AlgorithmEnum algorithm = getAlgorithm(step);
+        if (result == null || !result.isSuccess()) {
+            throw new RuntimeException(String.format("算法任务失败: algorithm=%s, status=%s, errorMessage=%s",
+                    algorithm.getName(),
+                    result != null ? result.getStatus() : null,
+                    result != null ? result.getErrorMessage() : null));
+        }
+
+        String output;
+        switch (algorithm) {
+            case SONG_CONVERSION:
+                SongConversionCallbackData song = result.getResult(SongConversionCallbackData.class);
+                output = requireOutput(song != null ? song.getResult() : null, "歌曲转换失败：未返回音频URL");
+                break;
+            case VOICE_CONVERSION:
+                FeatureExtractionCallbackData feature = result.getResult(FeatureExtractionCallbackData.class);
+                output = requireOutput(feature != null ? feature.getFeatureId() : null, "人声转换失败：未返回特征ID");
+                break;
+            case FLUX2_IMAGE_GEN:
+                Flux2ImageGenResultData image = result.getResult(Flux2ImageGenResultData.class);
+                List<String> targetImageUrls = image != null ? image.getTargetImageUrls() : null;
+                // 多图结果为空时尝试使用单图结果字段
+                output = targetImageUrls != null && !targetImageUrls.isEmpty()
+                        ? targetImageUrls.get(0)
+                        : requireOutput(image != null ? image.getTargetImageUrl() : null, "Flux2生图失败：未返回图片URL");
+                break;
+            case WAN_ANIMATE:
+                WanAnimateResultData animate = result.getResult(WanAnimateResultData.class);
+                output = requireOutput(animate != null ? animate.getTargetVideoUrl() : null,
+                        "WanAnimate人物替换失败：未返回视频URL");
+                break;
+            case LIPS_SYNC:
+                LipsyncResultData lipsync = result.getResult(LipsyncResultData.class);
+                output = requireOutput(lipsync != null ? lipsync.getVideoUrl() : null,
+                        "Lipsync唇形同步失败：未返回视频URL");
+                break;
+            case WAN_VIDEO_FLF:
+                WanVideoFLFResultData video = result.getResult(WanVideoFLFResultData.class);
+                output = requireOutput(video != null ? video.getTargetVideoUrl() : null,
+                        "首尾帧视频生成失败：未返回视频URL");
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的算法: " + step.getAlgorithm());
+        }
+
+        log.info("算法任务完成, step={}, taskId={}, algorithm={}, output={}",
+                step.getStepName(), result.getTaskId(), algorithm.getName(), output);
+        return output;
+    }
+
+    // ======================== 辅助方法 ========================
+
+    /**
+     * 登记截止时间，超时或记录失败时取消上游任务
+     */
+    private void initTask(String taskId, AlgorithmEnum algorithm, StepDefinition step, StepContext context) {
+        Duration timeout = step.getTimeoutSeconds() != null
+                ? Duration.ofSeconds(step.getTimeoutSeconds())
+                : DEFAULT_TIMEOUT;
+        taskOrchestrator.initTask(taskId, algorithm, context.getRecordId(), timeout);
+    }
+
+    static String required(Map<String, Object> inputs, String name) {
+        String value = optional(inputs, name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("缺少输入参数: " + name);
+        }
+        return value;
+    }
+
+    static String optional(Map<String, Object> inputs, String name) {
+        Object value = inputs.get(name);
+        return value != null ? value.toString() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> urls(Map<String, Object> inputs, String name) {
+        Object value = inputs.get(name);
+        if (value instanceof List) {
+            return (List<String>) value;
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("缺少输入参数: " + name);
+        }
+        return Collections.singletonList(value.toString());
+    }
+
+    private static String requireOutput(String value, String message) {
+        if (value == null || value.isEmpty()) {
+            throw new RuntimeException(message);
+        }
+        return value;
+    }
+}
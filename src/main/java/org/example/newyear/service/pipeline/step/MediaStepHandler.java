@@ -0,0 +1,65 @@
+package org.example.newyear.service.pipeline.step;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.service.pipeline.StepContext;
+import org.example.newyear.service.pipeline.StepDefinition;
+import org.example.newyear.service.pipeline.StepHandler;
+import org.example.newyear.util.VideoProcessorUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.newyear.service.pipeline.step.AlgorithmStepHandler.optional;
+import static org.example.newyear.service.pipeline.step.AlgorithmStepHandler.required;
+import static org.example.newyear.service.pipeline.step.AlgorithmStepHandler.urls;
+
+/**
+ * 本地音视频处理步骤（FFmpeg），结果上传到 OSS 后输出访问URL
+ *
+ * audio_mix：videoUrl + bgmUrl 混音；video_concat：按 videoUrls 顺序拼接，account 指定上传账户
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MediaStepHandler implements StepHandler {
+
+    public static final String AUDIO_MIX = "audio_mix";
+    public static final String VIDEO_CONCAT = "video_concat";
+
+    private final VideoProcessorUtil videoProcessorUtil;
+
+    @Override
+    public List<String> getTypes() {
+        return Arrays.asList(AUDIO_MIX, VIDEO_CONCAT);
+    }
+
+    @Override
+    public Object execute(StepDefinition step, Map<String, Object> inputs, StepContext context) throws Exception {
+        String recordId = context.getRecordId();
+        long start = System.currentTimeMillis();
+        String ossUrl;
+        if (AUDIO_MIX.equals(step.getAlgorithm())) {
+            ossUrl = videoProcessorUtil.mixAudioWithBgm(
+                    required(inputs, "videoUrl"), required(inputs, "bgmUrl"), recordId);
+            log.info("背景音乐混合完成并上传到OSS: step={}, ossUrl={}", step.getStepName(), ossUrl);
+        } else {
+            String account = optional(inputs, "account");
+            List<String> videoUrls = urls(inputs, "videoUrls");
+            ossUrl = account != null
+                    ? videoProcessorUtil.concatVideos(videoUrls, recordId, account)
+                    : videoProcessorUtil.concatVideos(videoUrls, recordId);
+            log.info("视频拼接完成并上传到OSS: step={}, account={}, ossUrl={}", step.getStepName(), account, ossUrl);
+        }
+
+        // 本地处理（FFmpeg + 上传 OSS）耗时，分项见 media.process / media.upload 指标
+        Map<String, Object> timeline = new LinkedHashMap<>();
+        timeline.put("algorithm", step.getAlgorithm());
+        timeline.put("process_ms", System.currentTimeMillis() - start);
+        context.recordTimeline(step.getStepName(), timeline);
+        return ossUrl;
+    }
+}
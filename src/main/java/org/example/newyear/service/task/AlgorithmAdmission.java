@@ -0,0 +1,475 @@
+package org.example.newyear.service.task;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 上游提交准入（按算法隔离的并发上限）
+ *
+ * 每个算法的在途任务数受集群范围的上限约束：许可存放在 Redis ZSET（成员为任务ID，分值为获取时间），
+ * 任务终态时归还，结果丢失的许可超过 lease-ms 后自动失效。
+ * 拿不到许可的提交在本节点按优先级排队，调用方立即得到"已受理"响应，许可归还或定时检查时依次派发；
+ * 排队后提交失败的任务以失败结果完成（经 {@link CallbackHandler} 交付）；排队只在本节点内存中，
+ * 节点停止时排队中的任务同样以失败结果完成，由流程按步骤失败处理，不会等到截止时间或流程停滞超时。
+ * 排队等待的时间不计入任务截止时间（派发时顺延）。
+ * 上限默认取配置，可通过管理接口在运行时调整（写入 Redis，各节点定时同步）
+ */
+@Slf4j
+@Component
+public class AlgorithmAdmission implements TaskCompletionListener {
+
+    /**
+     * 获取许可
+     *
+     * KEYS[1]: 许可 Key
+     * ARGV[1]: 任务ID
+     * ARGV[2]: 并发上限
+     * ARGV[3]: 当前时间（毫秒）
+     * ARGV[4]: 许可最长持有时间（毫秒）
+     * 返回：1 获取成功（或已持有），0 已达上限
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', tonumber(ARGV[3]) - tonumber(ARGV[4]))\n"
+                    + "if redis.call('ZSCORE', KEYS[1], ARGV[1]) then\n"
+                    + "  return 1\n"
+                    + "end\n"
+                    + "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[2]) then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])\n"
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4])\n"
+                    + "return 1",
+            Long.class);
+
+    private static final Comparator<Queued> DISPATCH_ORDER = Comparator
+            .comparingInt((Queued queued) -> -queued.priority)
+            .thenComparingLong(queued -> queued.seq);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CallbackHandler callbackHandler;
+    private final StepResultCache stepResultCache;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Executor dispatchExecutor;
+    private final TaskProperties.AdmissionConfig config;
+
+    private final Map<AlgorithmEnum, PriorityBlockingQueue<Queued>> queues = new EnumMap<>(AlgorithmEnum.class);
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 节点停止中，不再排队与派发
+     */
+    private volatile boolean closed;
+
+    /**
+     * 运行时调整的上限（从 Redis 同步）
+     */
+    private volatile Map<String, Integer> overrides = Collections.emptyMap();
+
+    /**
+     * 集群在途任务数（定时同步，用于指标与统计）
+     */
+    private final Map<AlgorithmEnum, Long> inflight = new ConcurrentHashMap<>();
+
+    public AlgorithmAdmission(StringRedisTemplate redisTemplate,
+                              CallbackHandler callbackHandler,
+                              StepResultCache stepResultCache,
+                              TaskDeadlineRegistry taskDeadlineRegistry,
+                              MeterRegistry meterRegistry,
+                              @Qualifier("admissionDispatchExecutor") Executor dispatchExecutor,
+                              TaskProperties taskProperties) {
+        this.redisTemplate = redisTemplate;
+        this.callbackHandler = callbackHandler;
+        this.stepResultCache = stepResultCache;
+        this.taskDeadlineRegistry = taskDeadlineRegistry;
+        this.meterRegistry = meterRegistry;
+        this.dispatchExecutor = dispatchExecutor;
+        this.config = taskProperties.getAdmission();
+        for (AlgorithmEnum algorithm : AlgorithmEnum.values()) {
+            PriorityBlockingQueue<Queued> queue = new PriorityBlockingQueue<>(16, DISPATCH_ORDER);
+            queues.put(algorithm, queue);
+            Gauge.builder("admission.queued", queue, PriorityBlockingQueue::size)
+                    .description("本节点排队等待提交上游的任务数")
+                    .tag("algorithm", algorithm.getName())
+                    .register(meterRegistry);
+            Gauge.builder("admission.inflight", inflight, m -> m.getOrDefault(algorithm, 0L))
+                    .description("集群在途上游任务数（持有许可）")
+                    .tag("algorithm", algorithm.getName())
+                    .register(meterRegistry);
+            Gauge.builder("admission.limit", this, a -> a.getLimit(algorithm))
+                    .description("上游并发上限，0 表示不限制")
+                    .tag("algorithm", algorithm.getName())
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    /**
+     * 准入后提交上游
+     *
+     * 有许可且本节点无排队时立即提交（提交失败归还许可），否则排队并返回 queued 构造的已受理响应
+     *
+     * @param algorithm 算法类型
+     * @param taskId    任务ID
+     * @param priority  优先级（{@link org.example.newyear.entity.enums.TaskPriority#getLevel}），数值越大越先派发
+     * @param submitter 实际提交（含提交失败的处理）
+     * @param accepted  上游是否接受
+     * @param queued    排队时返回给调用方的响应
+     */
+    public <R> R submit(AlgorithmEnum algorithm, String taskId, int priority,
+                        Supplier<R> submitter, Predicate<R> accepted, Supplier<R> queued) {
+        int limit = getLimit(algorithm);
+        if (!isEnabled() || limit <= 0) {
+            return submitter.get();
+        }
+
+        PriorityBlockingQueue<Queued> queue = queues.get(algorithm);
+        if (queue.isEmpty() && tryAcquire(algorithm, taskId, limit)) {
+            return submitNow(algorithm, taskId, submitter, accepted);
+        }
+
+        if (closed || queue.size() >= config.getMaxQueued()) {
+            String message = (closed ? "节点停止中, 不再接收排队任务: " : "上游任务排队已满: ") + algorithm.getName();
+            stepResultCache.abandon(algorithm, taskId, message);
+            counter("admission.rejected", algorithm).increment();
+            throw new RuntimeException(message);
+        }
+        queue.offer(new Queued(taskId, priority, sequence.incrementAndGet(), System.currentTimeMillis(),
+                () -> accepted.test(submitter.get())));
+        counter("admission.deferred", algorithm).increment();
+        log.info("上游并发已满, 任务排队, taskId={}, algorithm={}, priority={}, queued={}",
+                taskId, algorithm.getName(), priority, queue.size());
+        return queued.get();
+    }
+
+    @Override
+    public void onTaskCompleted(TaskResult result, AlgorithmEnum algorithm) {
+        if (!isEnabled()) {
+            return;
+        }
+        String taskId = result.getTaskId();
+        // 排队中被取消（过期清理等）的任务不再派发
+        PriorityBlockingQueue<Queued> queue = queues.get(algorithm);
+        queue.removeIf(queued -> queued.taskId.equals(taskId));
+        release(algorithm, taskId);
+        if (!queue.isEmpty()) {
+            dispatchExecutor.execute(() -> dispatch(algorithm));
+        }
+    }
+
+    /**
+     * 提升本节点排队任务的优先级
+     *
+     * @return 任务在本节点排队中（已是更高优先级时不调整）
+     */
+    public boolean promote(AlgorithmEnum algorithm, String taskId, int priority) {
+        PriorityBlockingQueue<Queued> queue = queues.get(algorithm);
+        for (Queued queued : queue) {
+            if (!queued.taskId.equals(taskId)) {
+                continue;
+            }
+            if (queued.priority < priority && queue.remove(queued)) {
+                queue.offer(new Queued(taskId, priority, queued.seq, queued.enqueuedAt, queued.submit));
+                log.info("提升排队任务优先级, taskId={}, algorithm={}, priority={}",
+                        taskId, algorithm.getName(), priority);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 定时同步运行时上限、在途数并派发排队任务（其他节点归还的许可只能由此发现）
+     */
+    @Scheduled(fixedDelayString = "${task.admission.dispatch-interval-ms:1000}")
+    public void tick() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(TaskRedisKey.ADMISSION_LIMITS_KEY);
+            Map<String, Integer> latest = new LinkedHashMap<>();
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                latest.put(entry.getKey().toString(), Integer.parseInt(entry.getValue().toString()));
+            }
+            overrides = latest;
+        } catch (Exception e) {
+            log.warn("同步上游并发上限失败", e);
+        }
+
+        long now = System.currentTimeMillis();
+        for (AlgorithmEnum algorithm : AlgorithmEnum.values()) {
+            if (getLimit(algorithm) <= 0) {
+                inflight.remove(algorithm);
+            } else {
+                try {
+                    Long count = redisTemplate.opsForZSet().count(TaskRedisKey.admissionPermitsKey(algorithm),
+                            now - config.getLeaseMs(), Double.POSITIVE_INFINITY);
+                    inflight.put(algorithm, count != null ? count : 0L);
+                } catch (Exception e) {
+                    log.debug("读取在途任务数失败, algorithm={}", algorithm.getName(), e);
+                }
+            }
+            if (!queues.get(algorithm).isEmpty()) {
+                dispatch(algorithm);
+            }
+        }
+    }
+
+    /**
+     * 节点停止：排队中的任务未提交上游，以失败结果完成（调用方已得到受理响应，否则只能等截止时间或流程停滞超时）
+     */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        int failed = 0;
+        for (Map.Entry<AlgorithmEnum, PriorityBlockingQueue<Queued>> entry : queues.entrySet()) {
+            PriorityBlockingQueue<Queued> queue = entry.getValue();
+            List<Queued> drained = new ArrayList<>();
+            synchronized (queue) {
+                queue.drainTo(drained);
+            }
+            for (Queued queued : drained) {
+                fail(entry.getKey(), queued.taskId, "节点停止, 排队任务未提交");
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            log.warn("节点停止, 排队中的任务以失败结果完成, count={}", failed);
+        }
+    }
+
+    /**
+     * 调整算法并发上限（集群生效），limit 为 null 时恢复配置值
+     */
+    public void setLimit(AlgorithmEnum algorithm, Integer limit) {
+        if (limit == null) {
+            redisTemplate.opsForHash().delete(TaskRedisKey.ADMISSION_LIMITS_KEY, algorithm.getName());
+        } else {
+            redisTemplate.opsForHash().put(TaskRedisKey.ADMISSION_LIMITS_KEY, algorithm.getName(),
+                    String.valueOf(limit));
+        }
+        Map<String, Integer> latest = new LinkedHashMap<>(overrides);
+        if (limit == null) {
+            latest.remove(algorithm.getName());
+        } else {
+            latest.put(algorithm.getName(), limit);
+        }
+        overrides = latest;
+        log.info("调整上游并发上限, algorithm={}, limit={}, effective={}",
+                algorithm.getName(), limit, getLimit(algorithm));
+        dispatchExecutor.execute(() -> dispatch(algorithm));
+    }
+
+    /**
+     * 算法当前生效的并发上限，0 表示不限制
+     */
+    public int getLimit(AlgorithmEnum algorithm) {
+        Integer limit = overrides.get(algorithm.getName());
+        if (limit == null) {
+            limit = config.getLimits().get(algorithm.getName());
+        }
+        return limit != null ? Math.max(limit, 0) : 0;
+    }
+
+    /**
+     * 各算法的上限、在途与排队情况（排队数为本节点）
+     */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (AlgorithmEnum algorithm : AlgorithmEnum.values()) {
+            Stats item = new Stats();
+            item.setLimit(getLimit(algorithm));
+            item.setInflight(inflight.getOrDefault(algorithm, 0L));
+            item.setQueued(queues.get(algorithm).size());
+            stats.put(algorithm.getName(), item);
+        }
+        return stats;
+    }
+
+    /**
+     * 本节点排队等待许可的任务总数
+     */
+    public int getQueuedCount() {
+        int queued = 0;
+        for (PriorityBlockingQueue<Queued> queue : queues.values()) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+
+    // ======================== 许可 ========================
+
+    private boolean tryAcquire(AlgorithmEnum algorithm, String taskId, int limit) {
+        try {
+            Long acquired = redisTemplate.execute(ACQUIRE_SCRIPT,
+                    Collections.singletonList(TaskRedisKey.admissionPermitsKey(algorithm)),
+                    taskId, String.valueOf(limit), String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(config.getLeaseMs()));
+            return acquired != null && acquired == 1L;
+        } catch (Exception e) {
+            // Redis 不可用时不阻塞提交
+            log.warn("获取上游提交许可失败, 直接提交, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+            return true;
+        }
+    }
+
+    private void release(AlgorithmEnum algorithm, String taskId) {
+        try {
+            redisTemplate.opsForZSet().remove(TaskRedisKey.admissionPermitsKey(algorithm), taskId);
+        } catch (Exception e) {
+            log.warn("归还上游提交许可失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+
+    private <R> R submitNow(AlgorithmEnum algorithm, String taskId, Supplier<R> submitter, Predicate<R> accepted) {
+        R response;
+        try {
+            response = submitter.get();
+        } catch (RuntimeException e) {
+            release(algorithm, taskId);
+            throw e;
+        }
+        if (!accepted.test(response)) {
+            release(algorithm, taskId);
+        }
+        return response;
+    }
+
+    // ======================== 派发 ========================
+
+    private void dispatch(AlgorithmEnum algorithm) {
+        PriorityBlockingQueue<Queued> queue = queues.get(algorithm);
+        synchronized (queue) {
+            int limit = getLimit(algorithm);
+            Queued head;
+            while (!closed && (head = queue.peek()) != null) {
+                if (limit > 0 && !tryAcquire(algorithm, head.taskId, limit)) {
+                    return;
+                }
+                if (!queue.remove(head)) {
+                    // 已被取消
+                    release(algorithm, head.taskId);
+                    continue;
+                }
+                Queued next = head;
+                Timer.builder("admission.wait")
+                        .description("任务排队等待上游许可的耗时")
+                        .tag("algorithm", algorithm.getName())
+                        .register(meterRegistry)
+                        .record(System.currentTimeMillis() - next.enqueuedAt, TimeUnit.MILLISECONDS);
+                dispatchExecutor.execute(() -> runQueued(algorithm, next));
+            }
+        }
+    }
+
+    private void runQueued(AlgorithmEnum algorithm, Queued queued) {
+        long waitMs = System.currentTimeMillis() - queued.enqueuedAt;
+        log.info("派发排队任务, taskId={}, algorithm={}, waitMs={}", queued.taskId, algorithm.getName(), waitMs);
+        // 截止时间在提交前登记，排队等待的时间不计入
+        taskDeadlineRegistry.postpone(queued.taskId, algorithm, waitMs);
+        String error;
+        try {
+            if (queued.submit.get()) {
+                return;
+            }
+            error = "上游拒绝提交";
+        } catch (Exception e) {
+            log.error("排队任务提交上游失败, taskId={}, algorithm={}", queued.taskId, algorithm.getName(), e);
+            error = e.getMessage();
+        }
+
+        fail(algorithm, queued.taskId, "排队任务提交失败: " + error);
+    }
+
+    /**
+     * 调用方已得到受理响应，以失败结果完成任务
+     */
+    private void fail(AlgorithmEnum algorithm, String taskId, String errorMessage) {
+        release(algorithm, taskId);
+        TaskResult failed = TaskResult.builder()
+                .taskId(taskId)
+                .algorithm(algorithm)
+                .status(TaskResultStatus.FAILED)
+                .errorMessage(errorMessage)
+                .callbackTime(LocalDateTime.now())
+                .build();
+        try {
+            callbackHandler.handleResult(failed, algorithm);
+        } catch (Exception e) {
+            log.error("交付排队任务失败结果失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+
+    private Counter counter(String name, AlgorithmEnum algorithm) {
+        return Counter.builder(name)
+                .tag("algorithm", algorithm.getName())
+                .register(meterRegistry);
+    }
+
+    private static class Queued {
+
+        final String taskId;
+        final int priority;
+        final long seq;
+        final long enqueuedAt;
+        final Supplier<Boolean> submit;
+
+        Queued(String taskId, int priority, long seq, long enqueuedAt, Supplier<Boolean> submit) {
+            this.taskId = taskId;
+            this.priority = priority;
+            this.seq = seq;
+            this.enqueuedAt = enqueuedAt;
+            this.submit = submit;
+        }
+    }
+
+    @Data
+    public static class Stats {
+        private int limit;
+        /**
+         * 集群在途任务数
+         */
+        private long inflight;
+        /**
+         * 本节点排队任务数
+         */
+        private int queued;
+    }
+}
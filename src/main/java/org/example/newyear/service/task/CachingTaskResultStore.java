@@ -0,0 +1,189 @@
+package org.example.newyear.service.task;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 带本地近端缓存的任务结果存储
+ *
+ * 终态结果不会再变化，写入或读取到终态时放入本地 LRU 缓存（有容量上限和存活时间），
+ * 之后的状态检查直接命中内存，不再访问 Redis 和解码。
+ * 非终态结果、原始回调和进度始终读取下层存储（{@link JournaledTaskResultStore}）。
+ * 缓存保存独立副本，命中时同样返回副本，调用方修改结果不会影响缓存
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingTaskResultStore implements TaskResultStore {
+
+    private final TaskResultStore delegate;
+    private final boolean enabled;
+    private final LRUCache<String, TaskResult> cache;
+
+    public CachingTaskResultStore(JournaledTaskResultStore delegate, TaskProperties taskProperties) {
+        TaskProperties.StoreConfig config = taskProperties.getStore();
+        this.delegate = delegate;
+        this.enabled = Boolean.TRUE.equals(config.getNearCacheEnabled());
+        this.cache = CacheUtil.newLRUCache(config.getNearCacheCapacity(), config.getNearCacheTtlMs());
+    }
+
+    @Override
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        boolean applied = delegate.save(taskId, algorithm, result);
+        cacheIfApplied(taskId, algorithm, result, applied);
+        return applied;
+    }
+
+    @Override
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout) {
+        boolean applied = delegate.save(taskId, algorithm, result, timeout);
+        cacheIfApplied(taskId, algorithm, result, applied);
+        return applied;
+    }
+
+    @Override
+    public List<Boolean> saveAll(List<TaskResult> results) {
+        List<Boolean> applied = delegate.saveAll(results);
+        for (int i = 0; i < results.size(); i++) {
+            TaskResult result = results.get(i);
+            cacheIfApplied(result.getTaskId(), result.getAlgorithm(), result, Boolean.TRUE.equals(applied.get(i)));
+        }
+        return applied;
+    }
+
+    @Override
+    public Optional<TaskResult> get(String taskId, AlgorithmEnum algorithm) {
+        if (!enabled) {
+            return delegate.get(taskId, algorithm);
+        }
+
+        String key = TaskRedisKey.taskMember(taskId, algorithm);
+        TaskResult cached = cache.get(key, false);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+
+        Optional<TaskResult> result = delegate.get(taskId, algorithm);
+        result.ifPresent(value -> cacheIfCompleted(key, value));
+        return result;
+    }
+
+    @Override
+    public Optional<String> getRawCallback(String taskId, AlgorithmEnum algorithm) {
+        return delegate.getRawCallback(taskId, algorithm);
+    }
+
+    @Override
+    public Map<TaskRef, TaskResult> getAll(Collection<TaskRef> refs) {
+        if (!enabled || refs == null || refs.isEmpty()) {
+            return delegate.getAll(refs);
+        }
+
+        // 先取本地缓存，只把未命中的任务交给 Redis 批量读取
+        Map<TaskRef, TaskResult> cached = new LinkedHashMap<>();
+        List<TaskRef> missed = new ArrayList<>();
+        for (TaskRef ref : refs) {
+            TaskResult result = cache.get(TaskRedisKey.taskMember(ref.getTaskId(), ref.getAlgorithm()), false);
+            if (result != null) {
+                cached.put(ref, copy(result));
+            } else {
+                missed.add(ref);
+            }
+        }
+
+        Map<TaskRef, TaskResult> loaded = missed.isEmpty() ? cached : delegate.getAll(missed);
+        Map<TaskRef, TaskResult> results = new LinkedHashMap<>();
+        for (TaskRef ref : refs) {
+            TaskResult result = cached.get(ref);
+            if (result == null && (result = loaded.get(ref)) != null) {
+                cacheIfCompleted(TaskRedisKey.taskMember(ref.getTaskId(), ref.getAlgorithm()), result);
+            }
+            if (result != null) {
+                results.put(ref, result);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void delete(String taskId, AlgorithmEnum algorithm) {
+        cache.remove(TaskRedisKey.taskMember(taskId, algorithm));
+        delegate.delete(taskId, algorithm);
+    }
+
+    @Override
+    public boolean exists(String taskId, AlgorithmEnum algorithm) {
+        if (enabled && cache.containsKey(TaskRedisKey.taskMember(taskId, algorithm))) {
+            return true;
+        }
+        return delegate.exists(taskId, algorithm);
+    }
+
+    @Override
+    public boolean updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status) {
+        boolean applied = delegate.updateStatus(taskId, algorithm, status);
+        if (applied) {
+            // 状态已变化，下次读取时重新加载
+            cache.remove(TaskRedisKey.taskMember(taskId, algorithm));
+        }
+        return applied;
+    }
+
+    @Override
+    public void saveProgress(String taskId, AlgorithmEnum algorithm, String progress) {
+        delegate.saveProgress(taskId, algorithm, progress);
+    }
+
+    @Override
+    public Optional<String> getProgress(String taskId, AlgorithmEnum algorithm) {
+        return delegate.getProgress(taskId, algorithm);
+    }
+
+    /**
+     * 当前缓存条目数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    // ======================== 私有方法 ========================
+
+    private void cacheIfApplied(String taskId, AlgorithmEnum algorithm, TaskResult result, boolean applied) {
+        if (applied && enabled && result.isCompleted()) {
+            // 与从 Redis 读取的结果保持一致：不含原始回调
+            cache.put(TaskRedisKey.taskMember(taskId, algorithm), copy(result));
+        }
+    }
+
+    private void cacheIfCompleted(String key, TaskResult result) {
+        if (result.isCompleted()) {
+            cache.put(key, copy(result));
+        }
+    }
+
+    /**
+     * 结果副本（数据节点深拷贝），与从 Redis 读取的结果保持一致：不含原始回调
+     */
+    private static TaskResult copy(TaskResult result) {
+        return result.toBuilder()
+                .data(result.getData() != null ? result.getData().deepCopy() : null)
+                .rawCallback(null)
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.newyear.service.task;
+
+import org.example.newyear.entity.enums.AlgorithmEnum;
+
+/**
+ * 合并任务的接替提交（注册为 Spring Bean 即生效，由提交该算法任务的门面实现）
+ *
+ * 合并到执行中相同请求的任务没有提交上游；首个任务被取消、超时或提交失败（与请求本身无关的原因）时，
+ * {@link StepResultCache} 取一个挂起的任务作为新的首个任务，以它自己的请求参数重新提交
+ */
+public interface CoalescedTaskSubmitter {
+
+    /**
+     * 是否负责该算法
+     */
+    boolean supports(AlgorithmEnum algorithm);
+
+    /**
+     * 提交上游（不再查询缓存、合并），提交失败时须按首个任务提交失败处理（{@link StepResultCache#abandon}）
+     *
+     * @param algorithm   算法类型
+     * @param taskId      挂起任务的任务ID
+     * @param requestJson 挂起任务的请求参数
+     * @return 已提交或已进入排队时返回 true
+     */
+    boolean resubmit(AlgorithmEnum algorithm, String taskId, String requestJson);
+}
@@ -0,0 +1,217 @@
+package org.example.newyear.service.task;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 带持久化日志的任务结果存储
+ *
+ * 写入 Redis 成功的终态结果异步记入 {@link TaskJournal}；
+ * 读取时 Redis 未命中或不可用则回查日志，查到后回填 Redis。
+ * 日志中也没有的任务（尚未完成）在本地记录一段时间，期间不再回查，轮询热路径不会每次访问 MySQL
+ */
+@Slf4j
+@Service
+public class JournaledTaskResultStore implements TaskResultStore {
+
+    private final TaskResultStore delegate;
+    private final TaskJournal taskJournal;
+
+    /**
+     * 日志回查未命中的任务（key: {algorithm}:{taskId}）
+     */
+    private final LRUCache<String, Boolean> journalMisses;
+
+    public JournaledTaskResultStore(RedisTaskResultStore delegate, TaskJournal taskJournal,
+                                    TaskProperties taskProperties) {
+        TaskProperties.JournalConfig config = taskProperties.getJournal();
+        this.delegate = delegate;
+        this.taskJournal = taskJournal;
+        this.journalMisses = CacheUtil.newLRUCache(config.getMissCacheCapacity(), config.getMissCacheTtlMs());
+    }
+
+    @Override
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        boolean applied = delegate.save(taskId, algorithm, result);
+        if (applied) {
+            append(taskId, algorithm, result);
+        }
+        return applied;
+    }
+
+    @Override
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout) {
+        boolean applied = delegate.save(taskId, algorithm, result, timeout);
+        if (applied) {
+            append(taskId, algorithm, result);
+        }
+        return applied;
+    }
+
+    @Override
+    public List<Boolean> saveAll(List<TaskResult> results) {
+        List<Boolean> applied = delegate.saveAll(results);
+        for (int i = 0; i < results.size(); i++) {
+            if (Boolean.TRUE.equals(applied.get(i))) {
+                TaskResult result = results.get(i);
+                append(result.getTaskId(), result.getAlgorithm(), result);
+            }
+        }
+        return applied;
+    }
+
+    @Override
+    public Optional<TaskResult> get(String taskId, AlgorithmEnum algorithm) {
+        Optional<TaskResult> result;
+        try {
+            result = delegate.get(taskId, algorithm);
+        } catch (RuntimeException e) {
+            if (!taskJournal.isEnabled()) {
+                throw e;
+            }
+            log.warn("读取 Redis 任务结果失败, 回查任务结果日志, taskId={}, algorithm={}",
+                    taskId, algorithm.getName(), e);
+            return taskJournal.find(taskId, algorithm);
+        }
+
+        if (result.isPresent() || !taskJournal.isEnabled()) {
+            return result;
+        }
+        result = findInJournal(taskId, algorithm);
+        result.ifPresent(value -> restore(taskId, algorithm, value));
+        return result;
+    }
+
+    @Override
+    public Optional<String> getRawCallback(String taskId, AlgorithmEnum algorithm) {
+        return delegate.getRawCallback(taskId, algorithm);
+    }
+
+    @Override
+    public Map<TaskRef, TaskResult> getAll(Collection<TaskRef> refs) {
+        Map<TaskRef, TaskResult> found = delegate.getAll(refs);
+        if (!taskJournal.isEnabled() || refs == null || found.size() == refs.size()) {
+            return found;
+        }
+
+        List<TaskRef> missed = new ArrayList<>();
+        for (TaskRef ref : refs) {
+            if (!found.containsKey(ref) && !journalMisses.containsKey(missKey(ref.getTaskId(), ref.getAlgorithm()))) {
+                missed.add(ref);
+            }
+        }
+        if (missed.isEmpty()) {
+            return found;
+        }
+        Map<TaskRef, TaskResult> recovered = taskJournal.findAll(missed);
+        for (TaskRef ref : missed) {
+            if (!recovered.containsKey(ref)) {
+                journalMisses.put(missKey(ref.getTaskId(), ref.getAlgorithm()), Boolean.TRUE);
+            }
+        }
+        if (recovered.isEmpty()) {
+            return found;
+        }
+
+        Map<TaskRef, TaskResult> results = new LinkedHashMap<>();
+        for (TaskRef ref : refs) {
+            TaskResult result = found.get(ref);
+            if (result == null && (result = recovered.get(ref)) != null) {
+                restore(ref.getTaskId(), ref.getAlgorithm(), result);
+            }
+            if (result != null) {
+                results.put(ref, result);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void delete(String taskId, AlgorithmEnum algorithm) {
+        delegate.delete(taskId, algorithm);
+        taskJournal.remove(taskId, algorithm);
+        journalMisses.remove(missKey(taskId, algorithm));
+    }
+
+    @Override
+    public boolean exists(String taskId, AlgorithmEnum algorithm) {
+        if (delegate.exists(taskId, algorithm)) {
+            return true;
+        }
+        return taskJournal.isEnabled() && findInJournal(taskId, algorithm).isPresent();
+    }
+
+    @Override
+    public boolean updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status) {
+        boolean applied = delegate.updateStatus(taskId, algorithm, status);
+        if (applied && status.getStage() >= TaskResultStatus.SUCCESS.getStage()) {
+            // 仅更新状态时结果体不变，记入日志的是更新后的完整结果
+            delegate.get(taskId, algorithm).ifPresent(result -> append(taskId, algorithm, result));
+        }
+        return applied;
+    }
+
+    @Override
+    public void saveProgress(String taskId, AlgorithmEnum algorithm, String progress) {
+        delegate.saveProgress(taskId, algorithm, progress);
+    }
+
+    @Override
+    public Optional<String> getProgress(String taskId, AlgorithmEnum algorithm) {
+        return delegate.getProgress(taskId, algorithm);
+    }
+
+    // ======================== 私有方法 ========================
+
+    private void append(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        journalMisses.remove(missKey(taskId, algorithm));
+        taskJournal.append(taskId, algorithm, result);
+    }
+
+    /**
+     * 回查日志，近期已确认不存在的任务直接返回空
+     */
+    private Optional<TaskResult> findInJournal(String taskId, AlgorithmEnum algorithm) {
+        String key = missKey(taskId, algorithm);
+        if (journalMisses.containsKey(key)) {
+            return Optional.empty();
+        }
+        Optional<TaskResult> result = taskJournal.find(taskId, algorithm);
+        if (!result.isPresent()) {
+            journalMisses.put(key, Boolean.TRUE);
+        }
+        return result;
+    }
+
+    private static String missKey(String taskId, AlgorithmEnum algorithm) {
+        return TaskRedisKey.taskMember(taskId, algorithm);
+    }
+
+    /**
+     * 从日志恢复的结果回填 Redis（失败不影响本次读取）
+     */
+    private void restore(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        try {
+            delegate.save(taskId, algorithm, result);
+            log.warn("Redis 中缺少任务结果, 已从任务结果日志恢复, taskId={}, algorithm={}, status={}",
+                    taskId, algorithm.getName(), result.getStatus());
+        } catch (RuntimeException e) {
+            log.warn("回填 Redis 任务结果失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.newyear.service.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本节点在途任务登记表
+ *
+ * 记录本 JVM 中正在等待的任务。回调落到本节点时直接完成等待方的 future，
+ * 省去写入 Redis 后再被轮询读回的往返；落到其他节点时由 {@link TaskCompletionNotifier} 中继。
+ * 同一任务可能有多个等待方（合并的请求、awaitAny 的各组），每个等待方登记自己的 future，
+ * 注销只移除自己的，最后一个等待方注销后才移除该任务
+ */
+@Slf4j
+@Component
+public class PendingTaskRegistry {
+
+    /**
+     * key: {algorithm}:{taskId}，value: 各等待方的 future（只在 compute 内修改）
+     */
+    private final Map<String, Set<CompletableFuture<TaskResult>>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 登记等待中的任务，每个等待方各自一个 future
+     */
+    public CompletableFuture<TaskResult> register(String taskId, AlgorithmEnum algorithm) {
+        CompletableFuture<TaskResult> future = new CompletableFuture<>();
+        pending.compute(key(taskId, algorithm), (k, waiters) -> {
+            Set<CompletableFuture<TaskResult>> registered = waiters != null ? waiters : new HashSet<>();
+            registered.add(future);
+            return registered;
+        });
+        return future;
+    }
+
+    /**
+     * 注销等待（只移除该等待方的 future）
+     */
+    public void unregister(String taskId, AlgorithmEnum algorithm, CompletableFuture<TaskResult> future) {
+        pending.computeIfPresent(key(taskId, algorithm), (k, waiters) -> {
+            waiters.remove(future);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+
+    /**
+     * 本节点是否有等待该任务的一方
+     */
+    public boolean isPending(String taskId, AlgorithmEnum algorithm) {
+        return pending.containsKey(key(taskId, algorithm));
+    }
+
+    /**
+     * 以终态结果完成本节点的等待方
+     *
+     * @return 本节点存在等待方时返回 true
+     */
+    public boolean complete(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        Set<CompletableFuture<TaskResult>> waiters = pending.remove(key(taskId, algorithm));
+        if (waiters == null) {
+            return false;
+        }
+        waiters.forEach(future -> future.complete(result));
+        log.debug("本节点直接完成等待任务, taskId={}, algorithm={}, status={}, waiters={}",
+                taskId, algorithm.getName(), result.getStatus(), waiters.size());
+        return true;
+    }
+
+    /**
+     * 在途任务数
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    private String key(String taskId, AlgorithmEnum algorithm) {
+        return TaskRedisKey.taskMember(taskId, algorithm);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.newyear.service.task;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newyear.config.TaskProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自适应轮询间隔策略
+ *
+ * 有预计完成时间（ETA）时：离 ETA 越近间隔越短（每次取剩余时间的一半，最短收紧到 minIntervalMs），
+ * 超过 ETA 后按已超时时长翻倍退避；没有 ETA 时从起始间隔开始指数退避。结果不超过按算法配置的
+ * maxIntervalMs 并加随机抖动
+ */
+@Component
+@RequiredArgsConstructor
+public class PollBackoffPolicy {
+
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final TaskProperties taskProperties;
+    private final TaskSubmitHints taskSubmitHints;
+
+    /**
+     * 计算下一次检查前的等待时间
+     *
+     * @param ref     任务
+     * @param attempt 已完成的检查次数（从 1 开始）
+     * @param startMs 起始间隔，没有 ETA 时作为退避的下限（推送模式下为兜底间隔）
+     * @return 等待时间（毫秒）
+     */
+    public long nextDelayMs(TaskRef ref, int attempt, long startMs) {
+        TaskProperties.PollConfig config = taskProperties.getPoll();
+        TaskProperties.AlgorithmPollConfig algorithmConfig = config.getAlgorithms().get(ref.getAlgorithm().getName());
+
+        long maxMs = resolve(algorithmConfig == null ? null : algorithmConfig.getMaxIntervalMs(), config.getMaxIntervalMs());
+        long minMs = Math.min(maxMs,
+                resolve(algorithmConfig == null ? null : algorithmConfig.getMinIntervalMs(), config.getMinIntervalMs()));
+
+        long delayMs;
+        long etaMs = estimateEta(ref, algorithmConfig);
+        if (etaMs > 0) {
+            // 临近 ETA 时收紧到最小间隔，不受兜底间隔限制
+            long remainingMs = etaMs - System.currentTimeMillis();
+            delayMs = remainingMs > 0
+                    ? clamp(remainingMs / 2, minMs, maxMs)
+                    : clamp(-remainingMs, minMs, maxMs);
+        } else {
+            long lowerMs = clamp(startMs, minMs, maxMs);
+            int shift = Math.min(Math.max(attempt - 1, 0), MAX_BACKOFF_SHIFT);
+            delayMs = clamp(lowerMs << shift, lowerMs, maxMs);
+        }
+        return jitter(delayMs, config.getJitterRatio());
+    }
+
+    /**
+     * 预计完成时间（毫秒时间戳），无法估算时返回 -1
+     */
+    public long estimateEta(TaskRef ref) {
+        return estimateEta(ref, taskProperties.getPoll().getAlgorithms().get(ref.getAlgorithm().getName()));
+    }
+
+    private long estimateEta(TaskRef ref, TaskProperties.AlgorithmPollConfig algorithmConfig) {
+        TaskSubmitHints.SubmitHint hint = taskSubmitHints.get(ref).orElse(null);
+        if (hint == null) {
+            return -1;
+        }
+        if (hint.getEstimatedDurationMs() != null && hint.getEstimatedDurationMs() > 0) {
+            return hint.getSubmitTime() + hint.getEstimatedDurationMs();
+        }
+        if (algorithmConfig != null && algorithmConfig.getTypicalDurationMs() != null) {
+            // 未返回队列位置（音频类平台）时按一个典型耗时估算
+            int position = hint.getQueuePosition() != null ? hint.getQueuePosition() : 0;
+            return hint.getSubmitTime() + algorithmConfig.getTypicalDurationMs() * (position + 1);
+        }
+        return -1;
+    }
+
+    private long jitter(long delayMs, Double ratio) {
+        if (ratio == null || ratio <= 0) {
+            return delayMs;
+        }
+        double factor = 1 - ratio + ThreadLocalRandom.current().nextDouble() * 2 * ratio;
+        return Math.max(1, (long) (delayMs * factor));
+    }
+
+    private static long resolve(Long value, Long defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -1,94 +1,426 @@
 package org.example.newyear.service.task;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.service.task.codec.TaskResultCodec;
 import org.example.newyear.util.TaskRedisKey;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.entity.task.TaskResult;
 import org.example.newyear.entity.task.TaskResultStatus;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * 基于 Redis 的任务结果存储
+ *
+ * 每个任务一个 Hash：stage/status 为状态，result 为 {@link TaskResultCodec} 编码的结果（数据、错误信息），
+ * progress 为进度，rawCallback 为原始回调（仅在需要时读取）。
+ * 写操作均为单个 Lua 脚本，一次往返完成，状态只允许向前推进（待处理 → 处理中 → 终态），
+ * 并发或乱序到达的回调不会覆盖更新的状态。
+ *
+ * 过渡期内 Hash 不存在时回读旧格式 key（结果字符串、进度、原始回调分开存放），删除时一并清理
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RedisTaskResultStore implements TaskResultStore {
 
-    private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_RESULT = "result";
+    private static final String FIELD_PROGRESS = "progress";
+    private static final String FIELD_RAW_CALLBACK = "rawCallback";
+
+    /**
+     * 保存结果：阶段不回退，终态之间不互相覆盖
+     * ARGV: stage, status, result, rawCallback(可为空), ttlMillis
+     */
+    private static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(
+            "local stage = tonumber(redis.call('HGET', KEYS[1], 'stage') or '-1')\n"
+                    + "local next = tonumber(ARGV[1])\n"
+                    + "if next < stage or (next == stage and next >= 2) then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('HSET', KEYS[1], 'stage', ARGV[1], 'status', ARGV[2], 'result', ARGV[3])\n"
+                    + "if ARGV[4] ~= '' then\n"
+                    + "  redis.call('HSET', KEYS[1], 'rawCallback', ARGV[4])\n"
+                    + "end\n"
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[5])\n"
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 仅更新状态：任务不存在或状态回退时不更新
+     * ARGV: stage, status
+     */
+    private static final RedisScript<Long> UPDATE_STATUS_SCRIPT = new DefaultRedisScript<>(
+            "local stage = redis.call('HGET', KEYS[1], 'stage')\n"
+                    + "if not stage then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "local next = tonumber(ARGV[1])\n"
+                    + "stage = tonumber(stage)\n"
+                    + "if next < stage or (next == stage and next >= 2) then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('HSET', KEYS[1], 'stage', ARGV[1], 'status', ARGV[2])\n"
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 更新进度：已到终态的任务不再更新；新建的 Hash 设置默认过期时间
+     * ARGV: progress, ttlMillis
+     */
+    private static final RedisScript<Long> SAVE_PROGRESS_SCRIPT = new DefaultRedisScript<>(
+            "local stage = redis.call('HGET', KEYS[1], 'stage')\n"
+                    + "if stage and tonumber(stage) >= 2 then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('HSET', KEYS[1], 'progress', ARGV[1])\n"
+                    + "if redis.call('PTTL', KEYS[1]) == -1 then\n"
+                    + "  redis.call('PEXPIRE', KEYS[1], ARGV[2])\n"
+                    + "end\n"
+                    + "return 1",
+            Long.class);
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RedisTemplate<String, byte[]> taskResultRedisTemplate;
+    private final TaskResultCodec taskResultCodec;
+    private final TaskProperties taskProperties;
 
     @Override
-    public void save(String taskId, AlgorithmEnum algorithm, TaskResult result) {
-        save(taskId, algorithm, result, Duration.ofSeconds(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        return save(taskId, algorithm, result, Duration.ofSeconds(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
     }
 
     @Override
-    public void save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout) {
-        String key = TaskRedisKey.resultKey(taskId, algorithm);
+    public boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout) {
+        String key = TaskRedisKey.taskKey(taskId, algorithm);
+        byte[][] args = saveArgs(result, timeout);
+        Long applied = taskResultRedisTemplate.execute(SAVE_SCRIPT, Collections.singletonList(key), (Object[]) args);
+        return afterSave(key, result, Long.valueOf(1L).equals(applied), args[2].length);
+    }
+
+    @Override
+    public List<Boolean> saveAll(List<TaskResult> results) {
+        List<Boolean> applied = new ArrayList<>(results.size());
+        if (results.isEmpty()) {
+            return applied;
+        }
+
+        Duration timeout = Duration.ofSeconds(TaskRedisKey.DEFAULT_EXPIRE_SECONDS);
+        List<byte[][]> keysAndArgs = new ArrayList<>(results.size());
+        for (TaskResult result : results) {
+            byte[][] args = saveArgs(result, timeout);
+            byte[][] row = new byte[args.length + 1][];
+            row[0] = bytes(TaskRedisKey.taskKey(result.getTaskId(), result.getAlgorithm()));
+            System.arraycopy(args, 0, row, 1, args.length);
+            keysAndArgs.add(row);
+        }
+
+        // 管道内逐条 EVALSHA（脚本启动时已预加载），一次往返完成整批写入
+        List<Object> replies;
+        try {
+            replies = executeSaveScripts(keysAndArgs);
+        } catch (RedisPipelineException e) {
+            // 部分命令失败（如脚本缓存被清空返回 NOSCRIPT），其余命令的结果仍然有效
+            replies = e.getPipelineResult();
+            log.warn("批量保存任务结果部分失败, 失败项逐条重试, size={}", results.size(), e);
+        } catch (RuntimeException e) {
+            replies = null;
+            log.warn("批量保存任务结果失败, 逐条重试, size={}", results.size(), e);
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            TaskResult result = results.get(i);
+            byte[][] row = keysAndArgs.get(i);
+            Object reply = replies != null && replies.size() == results.size() ? replies.get(i) : null;
+            if (reply == null || reply instanceof Throwable) {
+                applied.add(saveAgain(result, timeout));
+                continue;
+            }
+            applied.add(afterSave(new String(row[0], StandardCharsets.UTF_8), result,
+                    Long.valueOf(1L).equals(reply), row[3].length));
+        }
+        return applied;
+    }
+
+    /**
+     * 预加载保存脚本，批量保存时管道内直接 EVALSHA
+     */
+    @PostConstruct
+    public void loadScripts() {
+        byte[] script = bytes(SAVE_SCRIPT.getScriptAsString());
+        try {
+            taskResultRedisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(script));
+        } catch (Exception e) {
+            // 加载失败不影响启动，批量保存失败的项会逐条重试（逐条保存自动回退到 EVAL）
+            log.warn("预加载任务结果保存脚本失败", e);
+        }
+    }
+
+    private List<Object> executeSaveScripts(List<byte[][]> keysAndArgs) {
+        String sha = SAVE_SCRIPT.getSha1();
+        return taskResultRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[][] row : keysAndArgs) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, row);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量中失败的项逐条保存，仍失败时返回 null
+     */
+    private Boolean saveAgain(TaskResult result, Duration timeout) {
         try {
-            String json = objectMapper.writeValueAsString(result);
-            redisTemplate.opsForValue().set(key, json, timeout);
-            log.debug("保存任务结果, key={}, status={}", key, result.getStatus());
-        } catch (JsonProcessingException e) {
-            log.error("序列化任务结果失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+            return save(result.getTaskId(), result.getAlgorithm(), result, timeout);
+        } catch (RuntimeException e) {
+            log.error("保存任务结果失败, taskId={}, algorithm={}, status={}", result.getTaskId(),
+                    result.getAlgorithm().getName(), result.getStatus(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 保存脚本参数：stage, status, result, rawCallback, ttlMillis
+     */
+    private byte[][] saveArgs(TaskResult result, Duration timeout) {
+        byte[] value;
+        try {
+            value = taskResultCodec.encode(result.toBuilder().rawCallback(null).build());
+        } catch (IOException e) {
+            log.error("序列化任务结果失败, taskId={}, algorithm={}",
+                    result.getTaskId(), result.getAlgorithm() != null ? result.getAlgorithm().getName() : null, e);
             throw new RuntimeException("序列化任务结果失败", e);
         }
+
+        TaskResultStatus status = result.getStatus();
+        byte[] rawCallback = result.getRawCallback() == null
+                ? EMPTY
+                : result.getRawCallback().getBytes(StandardCharsets.UTF_8);
+        return new byte[][]{bytes(status.getStage()), bytes(status.getCode()), value, rawCallback,
+                bytes(timeout.toMillis())};
+    }
+
+    private boolean afterSave(String key, TaskResult result, boolean applied, int bytes) {
+        if (!applied) {
+            log.info("任务状态不可回退, 忽略本次写入, key={}, status={}", key, result.getStatus());
+            return false;
+        }
+        log.debug("保存任务结果, key={}, status={}, bytes={}", key, result.getStatus(), bytes);
+        return true;
     }
 
     @Override
     public Optional<TaskResult> get(String taskId, AlgorithmEnum algorithm) {
-        String key = TaskRedisKey.resultKey(taskId, algorithm);
-        String json = redisTemplate.opsForValue().get(key);
+        String key = TaskRedisKey.taskKey(taskId, algorithm);
+        HashOperations<String, String, byte[]> hashOps = taskResultRedisTemplate.opsForHash();
+        Optional<TaskResult> result = deserialize(key, hashOps.multiGet(key, Arrays.asList(FIELD_STATUS, FIELD_RESULT)));
+        if (result.isPresent() || !isLegacyReadEnabled()) {
+            return result;
+        }
+        String legacyKey = TaskRedisKey.resultKey(taskId, algorithm);
+        return deserializeLegacy(legacyKey, taskResultRedisTemplate.opsForValue().get(legacyKey));
+    }
 
-        if (json == null || json.isEmpty()) {
-            return Optional.empty();
+    @Override
+    public Optional<String> getRawCallback(String taskId, AlgorithmEnum algorithm) {
+        HashOperations<String, String, byte[]> hashOps = taskResultRedisTemplate.opsForHash();
+        byte[] value = hashOps.get(TaskRedisKey.taskKey(taskId, algorithm), FIELD_RAW_CALLBACK);
+        if (value == null && isLegacyReadEnabled()) {
+            value = legacyRawCallback(taskId, algorithm);
         }
+        return Optional.ofNullable(value).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
 
-        try {
-            TaskResult result = objectMapper.readValue(json, TaskResult.class);
-            return Optional.of(result);
-        } catch (JsonProcessingException e) {
-            log.error("反序列化任务结果失败, key={}", key, e);
-            return Optional.empty();
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<TaskRef, TaskResult> getAll(Collection<TaskRef> refs) {
+        Map<TaskRef, TaskResult> results = new LinkedHashMap<>();
+        if (refs == null || refs.isEmpty()) {
+            return results;
+        }
+
+        List<TaskRef> refList = new ArrayList<>(refs);
+        List<String> keys = new ArrayList<>(refList.size());
+        for (TaskRef ref : refList) {
+            keys.add(TaskRedisKey.taskKey(ref.getTaskId(), ref.getAlgorithm()));
         }
+
+        // 管道内逐个 HMGET，一次往返取回全部结果
+        byte[] statusField = bytes(FIELD_STATUS);
+        byte[] resultField = bytes(FIELD_RESULT);
+        List<Object> rows = taskResultRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hashCommands().hMGet(bytes(key), statusField, resultField);
+            }
+            return null;
+        });
+
+        List<TaskRef> missing = new ArrayList<>();
+        for (int i = 0; i < refList.size(); i++) {
+            String key = keys.get(i);
+            TaskRef ref = refList.get(i);
+            Optional<TaskResult> result = deserialize(key, (List<byte[]>) rows.get(i));
+            if (result.isPresent()) {
+                results.put(ref, result.get());
+            } else {
+                missing.add(ref);
+            }
+        }
+
+        if (!missing.isEmpty() && isLegacyReadEnabled()) {
+            List<String> legacyKeys = new ArrayList<>(missing.size());
+            for (TaskRef ref : missing) {
+                legacyKeys.add(TaskRedisKey.resultKey(ref.getTaskId(), ref.getAlgorithm()));
+            }
+            List<byte[]> values = taskResultRedisTemplate.opsForValue().multiGet(legacyKeys);
+            if (values != null) {
+                for (int i = 0; i < missing.size(); i++) {
+                    TaskRef ref = missing.get(i);
+                    deserializeLegacy(legacyKeys.get(i), values.get(i)).ifPresent(result -> results.put(ref, result));
+                }
+            }
+        }
+        return results;
     }
 
     @Override
     public void delete(String taskId, AlgorithmEnum algorithm) {
-        String key = TaskRedisKey.resultKey(taskId, algorithm);
-        redisTemplate.delete(key);
+        String key = TaskRedisKey.taskKey(taskId, algorithm);
+        taskResultRedisTemplate.delete(Arrays.asList(key,
+                TaskRedisKey.resultKey(taskId, algorithm),
+                TaskRedisKey.progressKey(taskId, algorithm),
+                TaskRedisKey.rawCallbackKey(taskId, algorithm)));
         log.debug("删除任务结果, key={}", key);
     }
 
     @Override
     public boolean exists(String taskId, AlgorithmEnum algorithm) {
-        String key = TaskRedisKey.resultKey(taskId, algorithm);
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        String key = TaskRedisKey.taskKey(taskId, algorithm);
+        if (Boolean.TRUE.equals(taskResultRedisTemplate.opsForHash().hasKey(key, FIELD_RESULT))) {
+            return true;
+        }
+        return isLegacyReadEnabled()
+                && Boolean.TRUE.equals(taskResultRedisTemplate.hasKey(TaskRedisKey.resultKey(taskId, algorithm)));
     }
 
     @Override
-    public void updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status) {
-        get(taskId, algorithm).ifPresent(result -> {
-            result.setStatus(status);
-            save(taskId, algorithm, result);
-        });
+    public boolean updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status) {
+        Long applied = taskResultRedisTemplate.execute(UPDATE_STATUS_SCRIPT,
+                Collections.singletonList(TaskRedisKey.taskKey(taskId, algorithm)),
+                bytes(status.getStage()), bytes(status.getCode()));
+        return Long.valueOf(1L).equals(applied);
     }
 
     @Override
     public void saveProgress(String taskId, AlgorithmEnum algorithm, String progress) {
-        String key = TaskRedisKey.progressKey(taskId, algorithm);
-        redisTemplate.opsForValue().set(key, progress,
-                Duration.ofSeconds(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
+        taskResultRedisTemplate.execute(SAVE_PROGRESS_SCRIPT,
+                Collections.singletonList(TaskRedisKey.taskKey(taskId, algorithm)),
+                bytes(progress), bytes(TaskRedisKey.DEFAULT_EXPIRE_SECONDS * 1000));
     }
 
     @Override
     public Optional<String> getProgress(String taskId, AlgorithmEnum algorithm) {
-        String key = TaskRedisKey.progressKey(taskId, algorithm);
-        return Optional.ofNullable(redisTemplate.opsForValue().get(key));
+        HashOperations<String, String, byte[]> hashOps = taskResultRedisTemplate.opsForHash();
+        byte[] value = hashOps.get(TaskRedisKey.taskKey(taskId, algorithm), FIELD_PROGRESS);
+        if (value == null && isLegacyReadEnabled()) {
+            value = taskResultRedisTemplate.opsForValue().get(TaskRedisKey.progressKey(taskId, algorithm));
+        }
+        return Optional.ofNullable(value).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码 [status, result] 两个字段，以 status 字段为准（仅更新状态时 result 中的状态不会同步修改）
+     */
+    private Optional<TaskResult> deserialize(String key, List<byte[]> fields) {
+        if (fields == null || fields.size() < 2 || fields.get(1) == null || fields.get(1).length == 0) {
+            return Optional.empty();
+        }
+
+        try {
+            TaskResult result = taskResultCodec.decode(fields.get(1));
+            if (fields.get(0) != null) {
+                TaskResultStatus status = TaskResultStatus.of(
+                        Integer.parseInt(new String(fields.get(0), StandardCharsets.UTF_8)));
+                if (status != null) {
+                    result.setStatus(status);
+                }
+            }
+            return Optional.of(result);
+        } catch (IOException | NumberFormatException e) {
+            log.error("反序列化任务结果失败, key={}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    private boolean isLegacyReadEnabled() {
+        return Boolean.TRUE.equals(taskProperties.getStore().getLegacyReadEnabled());
+    }
+
+    /**
+     * 解码旧格式结果（JSON 字符串或编码后的二进制，最早的 JSON 中包含原始回调，读取结果时去掉）
+     */
+    private Optional<TaskResult> deserializeLegacy(String key, byte[] value) {
+        if (value == null || value.length == 0) {
+            return Optional.empty();
+        }
+        try {
+            TaskResult result = taskResultCodec.decode(value);
+            result.setRawCallback(null);
+            log.debug("读取旧格式任务结果, key={}", key);
+            return Optional.of(result);
+        } catch (IOException e) {
+            log.error("反序列化旧格式任务结果失败, key={}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 旧格式原始回调：单独的 key，更早的数据在结果 JSON 内
+     */
+    private byte[] legacyRawCallback(String taskId, AlgorithmEnum algorithm) {
+        byte[] value = taskResultRedisTemplate.opsForValue().get(TaskRedisKey.rawCallbackKey(taskId, algorithm));
+        if (value != null) {
+            return value;
+        }
+        String key = TaskRedisKey.resultKey(taskId, algorithm);
+        byte[] legacy = taskResultRedisTemplate.opsForValue().get(key);
+        if (legacy == null || legacy.length == 0) {
+            return null;
+        }
+        try {
+            String rawCallback = taskResultCodec.decode(legacy).getRawCallback();
+            return rawCallback != null ? rawCallback.getBytes(StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            log.error("反序列化旧格式任务结果失败, key={}", key, e);
+            return null;
+        }
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
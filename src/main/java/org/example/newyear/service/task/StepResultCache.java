@@ -0,0 +1,607 @@
+package org.example.newyear.service.task;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.util.JsonUtil;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 算法步骤结果缓存（内容寻址）与相同请求合并
+ *
+ * 提交前按 (算法, 归一化请求参数, 输入文件内容指纹) 计算缓存指纹：请求中的 URL 替换为文件 ETag（签名参数不同、
+ * 内容相同的文件视为同一输入），去掉 taskId、回调地址等每次提交都不同的字段。
+ * 命中时不提交上游，直接以缓存的结果数据完成本次任务（经 {@link CallbackHandler} 交付，等待方与流程续接无感知）；
+ * 未命中时登记任务 → 指纹，任务成功后写入缓存。无法获取输入文件指纹时本次不使用缓存。
+ * 一次提交获取全部输入文件指纹的总耗时不超过 fingerprint-timeout-ms，超出时本次不使用缓存；
+ * 本地指纹缓存按完整地址（含签名、版本参数）记录，地址变化即重新获取。
+ * 缓存结果中的地址为上游签名地址，缓存存活时间不超过其中最早的签名过期时间（预留 url-expiry-margin-seconds）。
+ *
+ * 相同指纹的任务正在执行时（集群范围，Redis 登记执行中的首个任务），后到的任务挂到首个任务上不再提交（同时保存
+ * 自己的请求参数）。首个任务成功或上游判定失败时，以其结果完成所有挂起的任务；首个任务被取消、超时或提交失败
+ * （所属记录失败重试、截止时间到期、本地排队已满等与请求本身无关的原因）时不影响挂起的任务，
+ * 取第一个挂起的任务作为新的首个任务，由 {@link CoalescedTaskSubmitter} 以它自己的请求参数重新提交
+ */
+@Slf4j
+@Component
+public class StepResultCache implements TaskCompletionListener {
+
+    /**
+     * 每次提交都不同、不影响结果的请求字段
+     */
+    private static final Set<String> VOLATILE_FIELDS = new HashSet<>(Arrays.asList(
+            "businessTaskId", "callbackUrl", "businessMessage", "taskComplexity"));
+
+    /**
+     * V4 签名的签名时间格式（x-oss-date / X-Amz-Date）
+     */
+    private static final DateTimeFormatter SIGN_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    /**
+     * 登记执行中的首个任务，已有则挂到其后
+     *
+     * KEYS[1]: 执行中任务 Key
+     * KEYS[2]: 挂起任务列表 Key
+     * KEYS[3]: 本次任务请求参数 Key
+     * ARGV[1]: 本次任务ID
+     * ARGV[2]: 过期时间（秒）
+     * ARGV[3]: 本次任务请求参数（挂起时保存，接替提交时使用）
+     * 返回：执行中的首个任务ID（等于本次任务ID时由本次提交）
+     */
+    static final RedisScript<String> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local leader = redis.call('GET', KEYS[1])\n"
+                    + "if not leader then\n"
+                    + "  redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])\n"
+                    + "  return ARGV[1]\n"
+                    + "end\n"
+                    + "redis.call('SET', KEYS[3], ARGV[3], 'EX', ARGV[2])\n"
+                    + "redis.call('RPUSH', KEYS[2], ARGV[1])\n"
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[2])\n"
+                    + "return leader",
+            String.class);
+
+    /**
+     * 首个任务结束：清除登记并取出挂起的任务
+     *
+     * KEYS[1]: 执行中任务 Key
+     * KEYS[2]: 挂起任务列表 Key
+     * ARGV[1]: 首个任务ID
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n"
+                    + "  return {}\n"
+                    + "end\n"
+                    + "redis.call('DEL', KEYS[1])\n"
+                    + "local followers = redis.call('LRANGE', KEYS[2], 0, -1)\n"
+                    + "redis.call('DEL', KEYS[2])\n"
+                    + "return followers",
+            List.class);
+
+    /**
+     * 首个任务未成功结束：取第一个挂起的任务作为新的首个任务，没有挂起的任务时清除登记
+     *
+     * KEYS[1]: 执行中任务 Key
+     * KEYS[2]: 挂起任务列表 Key
+     * ARGV[1]: 首个任务ID
+     * ARGV[2]: 过期时间（秒）
+     * 返回：新的首个任务ID，没有时返回空
+     */
+    static final RedisScript<String> PROMOTE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n"
+                    + "  return false\n"
+                    + "end\n"
+                    + "local next = redis.call('LPOP', KEYS[2])\n"
+                    + "if not next then\n"
+                    + "  redis.call('DEL', KEYS[1])\n"
+                    + "  return false\n"
+                    + "end\n"
+                    + "redis.call('SET', KEYS[1], next, 'EX', ARGV[2])\n"
+                    + "return next",
+            String.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CallbackHandler callbackHandler;
+    private final ObjectProvider<CoalescedTaskSubmitter> submitters;
+    private final Executor taskReconcileExecutor;
+    private final TaskProperties.StepCacheConfig config;
+    private final LRUCache<String, String> fingerprints;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    public StepResultCache(StringRedisTemplate redisTemplate,
+                           CallbackHandler callbackHandler,
+                           ObjectProvider<CoalescedTaskSubmitter> submitters,
+                           @Qualifier("taskReconcileExecutor") Executor taskReconcileExecutor,
+                           TaskProperties taskProperties) {
+        this.redisTemplate = redisTemplate;
+        this.callbackHandler = callbackHandler;
+        this.submitters = submitters;
+        this.taskReconcileExecutor = taskReconcileExecutor;
+        this.config = taskProperties.getStepCache();
+        this.fingerprints = CacheUtil.newLRUCache(config.getFingerprintCacheCapacity(),
+                config.getFingerprintCacheTtlMs());
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    private boolean isSingleFlightEnabled() {
+        return Boolean.TRUE.equals(config.getSingleFlightEnabled());
+    }
+
+    /**
+     * 提交前查询缓存：命中时以缓存结果完成任务；相同请求执行中时挂到执行中的任务；
+     * 否则登记任务待结束后写入缓存，调用方提交上游（提交失败须调用 {@link #abandon}）
+     *
+     * @param algorithm 算法类型
+     * @param request   提交给上游的请求参数
+     * @param taskId    本次任务ID
+     * @return 命中缓存或已合并（无需提交上游）时返回 true
+     */
+    public boolean replay(AlgorithmEnum algorithm, Object request, String taskId) {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            String requestJson = JsonUtil.toJson(request);
+            String fingerprint = fingerprint(algorithm, requestJson);
+            if (fingerprint == null) {
+                bypasses.increment();
+                return false;
+            }
+
+            String cached = redisTemplate.opsForValue().get(TaskRedisKey.stepCacheKey(fingerprint, algorithm));
+            if (cached == null) {
+                misses.increment();
+                if (isSingleFlightEnabled()) {
+                    String leader = redisTemplate.execute(ACQUIRE_SCRIPT,
+                            Arrays.asList(TaskRedisKey.stepInflightKey(fingerprint, algorithm),
+                                    TaskRedisKey.stepInflightFollowersKey(fingerprint, algorithm),
+                                    TaskRedisKey.stepFollowerRequestKey(taskId, algorithm)),
+                            taskId, String.valueOf(config.getInflightTtlSeconds()), requestJson);
+                    if (leader != null && !leader.equals(taskId)) {
+                        coalesced.increment();
+                        log.info("相同请求执行中, 合并到执行中的任务, taskId={}, leaderTaskId={}, algorithm={}",
+                                taskId, leader, algorithm.getName());
+                        return true;
+                    }
+                }
+                redisTemplate.opsForValue().set(TaskRedisKey.stepCachePendingKey(taskId, algorithm), fingerprint,
+                        TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                return false;
+            }
+
+            hits.increment();
+            TaskResult result = TaskResult.builder()
+                    .taskId(taskId)
+                    .algorithm(algorithm)
+                    .status(TaskResultStatus.SUCCESS)
+                    .data(JsonUtil.fromJson(cached, JsonNode.class))
+                    .callbackTime(LocalDateTime.now())
+                    .build();
+            log.info("步骤结果缓存命中, 跳过提交, taskId={}, algorithm={}, fingerprint={}",
+                    taskId, algorithm.getName(), fingerprint);
+            callbackHandler.handleResult(result, algorithm);
+            return true;
+        } catch (Exception e) {
+            // 缓存不可用时照常提交
+            log.warn("查询步骤结果缓存失败, 照常提交, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+            bypasses.increment();
+            return false;
+        }
+    }
+
+    /**
+     * 上游提交失败：挂起的任务接替提交
+     */
+    public void abandon(AlgorithmEnum algorithm, String taskId, String errorMessage) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            String fingerprint = takePending(taskId, algorithm);
+            if (fingerprint == null) {
+                return;
+            }
+            log.info("首个任务提交失败, 挂起的任务接替提交, taskId={}, algorithm={}, error={}",
+                    taskId, algorithm.getName(), errorMessage);
+            promote(fingerprint, algorithm, taskId);
+        } catch (Exception e) {
+            log.warn("释放合并任务失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+
+    @Override
+    public void onTaskCompleted(TaskResult result, AlgorithmEnum algorithm) {
+        if (!isEnabled()) {
+            return;
+        }
+        String fingerprint = takePending(result.getTaskId(), algorithm);
+        if (fingerprint == null) {
+            return;
+        }
+        // 先写入缓存再释放执行中登记，释放后到达的相同请求直接命中
+        if (result.isSuccess() && result.getData() != null) {
+            long ttlSeconds = cacheTtlSeconds(result.getData());
+            if (ttlSeconds > 0) {
+                redisTemplate.opsForValue().set(TaskRedisKey.stepCacheKey(fingerprint, algorithm),
+                        JsonUtil.toJson(result.getData()), ttlSeconds, TimeUnit.SECONDS);
+                stores.increment();
+                log.debug("写入步骤结果缓存, taskId={}, algorithm={}, fingerprint={}, ttlSeconds={}",
+                        result.getTaskId(), algorithm.getName(), fingerprint, ttlSeconds);
+            } else {
+                log.debug("结果地址签名即将过期, 不写入步骤结果缓存, taskId={}, algorithm={}",
+                        result.getTaskId(), algorithm.getName());
+            }
+        }
+        if (result.isSuccess() || result.getStatus() == TaskResultStatus.FAILED) {
+            releaseFollowers(fingerprint, algorithm, result);
+            return;
+        }
+        // 取消、超时为首个任务自身的原因（所属记录失败、截止时间到期），挂起的任务接替提交
+        try {
+            taskReconcileExecutor.execute(() -> promote(fingerprint, algorithm, result.getTaskId()));
+        } catch (RejectedExecutionException e) {
+            promote(fingerprint, algorithm, result.getTaskId());
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        stats.setCoalesced(coalesced.sum());
+        stats.setBypasses(bypasses.sum());
+        stats.setStores(stores.sum());
+        long lookups = stats.getHits() + stats.getMisses();
+        stats.setHitRate(lookups > 0 ? (double) stats.getHits() / lookups : 0D);
+        return stats;
+    }
+
+    // ======================== 请求合并 ========================
+
+    private String takePending(String taskId, AlgorithmEnum algorithm) {
+        String pendingKey = TaskRedisKey.stepCachePendingKey(taskId, algorithm);
+        String fingerprint = redisTemplate.opsForValue().get(pendingKey);
+        if (fingerprint != null) {
+            redisTemplate.delete(pendingKey);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 取第一个挂起的任务作为新的首个任务并重新提交；无法提交时以失败完成该任务，继续由下一个挂起的任务接替
+     */
+    private void promote(String fingerprint, AlgorithmEnum algorithm, String leaderTaskId) {
+        if (!isSingleFlightEnabled()) {
+            return;
+        }
+        String next;
+        try {
+            next = redisTemplate.execute(PROMOTE_SCRIPT,
+                    Arrays.asList(TaskRedisKey.stepInflightKey(fingerprint, algorithm),
+                            TaskRedisKey.stepInflightFollowersKey(fingerprint, algorithm)),
+                    leaderTaskId, String.valueOf(config.getInflightTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("挂起任务接替失败, leaderTaskId={}, algorithm={}", leaderTaskId, algorithm.getName(), e);
+            return;
+        }
+        if (next == null) {
+            return;
+        }
+
+        // 新的首个任务结束时写入缓存并释放其余挂起的任务
+        redisTemplate.opsForValue().set(TaskRedisKey.stepCachePendingKey(next, algorithm), fingerprint,
+                TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        String requestKey = TaskRedisKey.stepFollowerRequestKey(next, algorithm);
+        String requestJson = redisTemplate.opsForValue().get(requestKey);
+        redisTemplate.delete(requestKey);
+        CoalescedTaskSubmitter submitter = submitter(algorithm);
+        log.info("首个任务未成功结束, 挂起的任务接替提交, leaderTaskId={}, taskId={}, algorithm={}",
+                leaderTaskId, next, algorithm.getName());
+
+        String error = null;
+        try {
+            if (requestJson == null || submitter == null) {
+                error = "合并的任务无法重新提交（请求参数已过期或算法不支持）";
+            } else if (!submitter.resubmit(algorithm, next, requestJson)) {
+                error = "合并的任务重新提交失败";
+            }
+        } catch (Exception e) {
+            error = "合并的任务重新提交失败: " + e.getMessage();
+        }
+        if (error == null) {
+            return;
+        }
+
+        log.warn("挂起任务接替提交失败, taskId={}, algorithm={}, error={}", next, algorithm.getName(), error);
+        // 提交失败时门面已调用 abandon 由下一个挂起的任务接替；未走到门面时在此接替
+        abandon(algorithm, next, error);
+        try {
+            callbackHandler.handleResult(TaskResult.builder()
+                    .taskId(next)
+                    .algorithm(algorithm)
+                    .status(TaskResultStatus.FAILED)
+                    .errorMessage(error)
+                    .callbackTime(LocalDateTime.now())
+                    .build(), algorithm);
+        } catch (Exception e) {
+            log.warn("完成合并的任务失败, taskId={}, algorithm={}", next, algorithm.getName(), e);
+        }
+    }
+
+    private CoalescedTaskSubmitter submitter(AlgorithmEnum algorithm) {
+        return submitters.orderedStream()
+                .filter(submitter -> submitter.supports(algorithm))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 以首个任务的结果完成挂起的任务
+     */
+    @SuppressWarnings("unchecked")
+    private void releaseFollowers(String fingerprint, AlgorithmEnum algorithm, TaskResult leaderResult) {
+        if (!isSingleFlightEnabled()) {
+            return;
+        }
+        List<String> followers = redisTemplate.execute(RELEASE_SCRIPT,
+                Arrays.asList(TaskRedisKey.stepInflightKey(fingerprint, algorithm),
+                        TaskRedisKey.stepInflightFollowersKey(fingerprint, algorithm)),
+                leaderResult.getTaskId());
+        if (followers == null || followers.isEmpty()) {
+            return;
+        }
+
+        log.info("首个任务结束, 完成合并的任务, leaderTaskId={}, algorithm={}, status={}, followers={}",
+                leaderResult.getTaskId(), algorithm.getName(), leaderResult.getStatus(), followers);
+        for (String follower : followers) {
+            redisTemplate.delete(TaskRedisKey.stepFollowerRequestKey(follower, algorithm));
+            TaskResult result = TaskResult.builder()
+                    .taskId(follower)
+                    .algorithm(algorithm)
+                    .status(leaderResult.getStatus())
+                    .errorCode(leaderResult.getErrorCode())
+                    .errorMessage(leaderResult.getErrorMessage())
+                    .data(leaderResult.getData())
+                    .callbackTime(LocalDateTime.now())
+                    .build();
+            try {
+                callbackHandler.handleResult(result, algorithm);
+            } catch (Exception e) {
+                log.warn("完成合并的任务失败, taskId={}, leaderTaskId={}, algorithm={}",
+                        follower, leaderResult.getTaskId(), algorithm.getName(), e);
+            }
+        }
+    }
+
+    // ======================== 指纹 ========================
+
+    /**
+     * 计算缓存指纹，输入文件指纹获取失败或超出总耗时上限时返回 null
+     */
+    private String fingerprint(AlgorithmEnum algorithm, String requestJson) {
+        JsonNode node = JsonUtil.fromJson(requestJson, JsonNode.class);
+        StringBuilder canonical = new StringBuilder(algorithm.getName()).append('|');
+        long deadline = System.currentTimeMillis() + config.getFingerprintTimeoutMs();
+        if (!canonicalize(node, canonical, deadline)) {
+            return null;
+        }
+        return DigestUtil.sha256Hex(canonical.toString());
+    }
+
+    /**
+     * 按字段名排序输出参数，URL 替换为文件内容指纹
+     */
+    private boolean canonicalize(JsonNode node, StringBuilder out, long deadline) {
+        if (node == null || node.isNull()) {
+            out.append("null");
+        } else if (node.isObject()) {
+            TreeMap<String, JsonNode> fields = new TreeMap<>();
+            Iterator<String> names = node.fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!VOLATILE_FIELDS.contains(name)) {
+                    fields.put(name, node.get(name));
+                }
+            }
+            out.append('{');
+            for (String name : fields.keySet()) {
+                out.append(name).append('=');
+                if (!canonicalize(fields.get(name), out, deadline)) {
+                    return false;
+                }
+                out.append(',');
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            out.append('[');
+            for (JsonNode element : node) {
+                if (!canonicalize(element, out, deadline)) {
+                    return false;
+                }
+                out.append(',');
+            }
+            out.append(']');
+        } else if (node.isTextual() && isUrl(node.asText())) {
+            String contentFingerprint = contentFingerprint(node.asText(), deadline);
+            if (contentFingerprint == null) {
+                return false;
+            }
+            out.append("etag:").append(contentFingerprint);
+        } else {
+            out.append(node.asText());
+        }
+        return true;
+    }
+
+    /**
+     * 文件内容指纹（ETag），按完整地址缓存在本地（同一路径的文件被覆盖后签名、版本参数不同，不会沿用旧的 ETag）
+     *
+     * @param deadline 本次提交获取指纹的截止时间
+     */
+    private String contentFingerprint(String url, long deadline) {
+        int queryIndex = url.indexOf('?');
+        String location = queryIndex >= 0 ? url.substring(0, queryIndex) : url;
+        String cached = fingerprints.get(url);
+        if (cached != null) {
+            return cached;
+        }
+        long remainingMs = deadline - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            log.debug("获取输入文件 ETag 超出耗时上限, 不使用步骤结果缓存, url={}", location);
+            return null;
+        }
+
+        // 签名地址只允许 GET，请求首字节读取响应头
+        try (HttpResponse response = HttpRequest.get(url)
+                .header("Range", "bytes=0-0")
+                .timeout((int) remainingMs)
+                .execute()) {
+            String etag = response.isOk() ? response.header("ETag") : null;
+            if (etag == null || etag.isEmpty()) {
+                log.debug("输入文件无 ETag, 不使用步骤结果缓存, url={}, status={}", location, response.getStatus());
+                return null;
+            }
+            String fingerprint = etag.replace("\"", "");
+            fingerprints.put(url, fingerprint);
+            return fingerprint;
+        } catch (Exception e) {
+            log.debug("获取输入文件 ETag 失败, 不使用步骤结果缓存, url={}", location, e);
+            return null;
+        }
+    }
+
+    // ======================== 结果地址有效期 ========================
+
+    /**
+     * 缓存存活时间（秒）：不超过结果中最早过期的签名地址的剩余有效期减去预留时长
+     *
+     * @return 剩余有效期不足预留时长时返回 0（不缓存）
+     */
+    private long cacheTtlSeconds(JsonNode data) {
+        long ttlSeconds = config.getTtlSeconds();
+        long expiresAt = earliestUrlExpiry(data);
+        if (expiresAt != Long.MAX_VALUE) {
+            long remainingSeconds = (expiresAt - System.currentTimeMillis()) / 1000;
+            ttlSeconds = Math.min(ttlSeconds, remainingSeconds - config.getUrlExpiryMarginSeconds());
+        }
+        return Math.max(ttlSeconds, 0L);
+    }
+
+    /**
+     * 结果中最早过期的签名地址的过期时间（毫秒），没有签名地址时返回 Long.MAX_VALUE
+     */
+    private static long earliestUrlExpiry(JsonNode node) {
+        if (node == null) {
+            return Long.MAX_VALUE;
+        }
+        if (node.isContainerNode()) {
+            long earliest = Long.MAX_VALUE;
+            Iterator<JsonNode> elements = node.elements();
+            while (elements.hasNext()) {
+                earliest = Math.min(earliest, earliestUrlExpiry(elements.next()));
+            }
+            return earliest;
+        }
+        return node.isTextual() && isUrl(node.asText()) ? urlExpiry(node.asText()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * 签名地址的过期时间（毫秒）：V1 签名为 Expires（秒级时间戳），V4 签名为签名时间（x-oss-date / X-Amz-Date）
+     * 加有效秒数（x-oss-expires / X-Amz-Expires）；不带签名参数时返回 Long.MAX_VALUE，签名参数无法解析时视为已过期
+     */
+    static long urlExpiry(String url) {
+        int queryIndex = url.indexOf('?');
+        if (queryIndex < 0) {
+            return Long.MAX_VALUE;
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : url.substring(queryIndex + 1).split("&")) {
+            int eqIndex = pair.indexOf('=');
+            if (eqIndex > 0) {
+                params.put(pair.substring(0, eqIndex).toLowerCase(Locale.ROOT), pair.substring(eqIndex + 1));
+            }
+        }
+        try {
+            String expires = params.get("expires");
+            if (expires != null) {
+                return Long.parseLong(expires) * 1000;
+            }
+            for (String prefix : new String[]{"x-oss-", "x-amz-"}) {
+                String seconds = params.get(prefix + "expires");
+                String date = params.get(prefix + "date");
+                if (seconds != null && date != null) {
+                    return LocalDateTime.parse(date, SIGN_DATE_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli()
+                            + Long.parseLong(seconds) * 1000;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("无法解析结果地址的签名有效期, 不写入步骤结果缓存, url={}", url.substring(0, queryIndex));
+            return 0L;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static boolean isUrl(String value) {
+        return value.startsWith("http://") || value.startsWith("https://");
+    }
+
+    @Data
+    public static class Stats {
+        private long hits;
+        private long misses;
+        /**
+         * 合并到执行中相同请求的提交
+         */
+        private long coalesced;
+        /**
+         * 未参与缓存的提交（输入文件无指纹或缓存不可用）
+         */
+        private long bypasses;
+        private long stores;
+        private double hitRate;
+    }
+}
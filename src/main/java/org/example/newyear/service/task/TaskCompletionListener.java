@@ -0,0 +1,15 @@
+package org.example.newyear.service.task;
+
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+
+/**
+ * 任务终态监听器（注册为 Spring Bean 即生效）
+ *
+ * 结果被接受并存储后，在接收回调的节点上调用（回调、补偿查询、过期取消均会触发），
+ * 在回调写入线程内同步执行，实现方应尽快返回，耗时处理自行转交线程池
+ */
+public interface TaskCompletionListener {
+
+    void onTaskCompleted(TaskResult result, AlgorithmEnum algorithm);
+}
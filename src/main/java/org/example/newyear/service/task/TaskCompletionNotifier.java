@@ -0,0 +1,80 @@
+package org.example.newyear.service.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * 任务完成通知（Redis Pub/Sub）
+ *
+ * 回调落到非等待节点时，写入结果后发布完成消息；
+ * 等待该任务的节点收到消息后读取一次结果并完成本地等待方
+ */
+@Slf4j
+@Component
+public class TaskCompletionNotifier implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final TaskResultStore taskResultStore;
+    private final PendingTaskRegistry pendingTaskRegistry;
+    private final Executor taskAwaitExecutor;
+
+    public TaskCompletionNotifier(StringRedisTemplate redisTemplate,
+                                  TaskResultStore taskResultStore,
+                                  PendingTaskRegistry pendingTaskRegistry,
+                                  @Qualifier("taskAwaitExecutor") Executor taskAwaitExecutor) {
+        this.redisTemplate = redisTemplate;
+        this.taskResultStore = taskResultStore;
+        this.pendingTaskRegistry = pendingTaskRegistry;
+        this.taskAwaitExecutor = taskAwaitExecutor;
+    }
+
+    /**
+     * 发布任务完成消息
+     */
+    public void publish(String taskId, AlgorithmEnum algorithm) {
+        String message = TaskRedisKey.taskMember(taskId, algorithm);
+        try {
+            redisTemplate.convertAndSend(TaskRedisKey.TASK_COMPLETION_CHANNEL, message);
+            log.debug("发布任务完成通知, message={}", message);
+        } catch (Exception e) {
+            // 通知失败不影响结果写入，等待方会在兜底轮询时读到结果
+            log.warn("发布任务完成通知失败, message={}", message, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator <= 0) {
+            log.warn("无法解析任务完成通知, message={}", body);
+            return;
+        }
+
+        AlgorithmEnum algorithm = AlgorithmEnum.of(body.substring(0, separator));
+        String taskId = body.substring(separator + 1);
+        if (algorithm == null || !pendingTaskRegistry.isPending(taskId, algorithm)) {
+            return;
+        }
+
+        // 监听线程不做 IO，读取结果交给任务检查线程池
+        taskAwaitExecutor.execute(() -> {
+            Optional<TaskResult> result = taskResultStore.get(taskId, algorithm);
+            if (result.isPresent() && result.get().isCompleted()) {
+                pendingTaskRegistry.complete(taskId, algorithm, result.get());
+                log.debug("收到任务完成通知, 唤醒等待方, message={}", body);
+            }
+        });
+    }
+}
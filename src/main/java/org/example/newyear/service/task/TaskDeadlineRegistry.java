@@ -0,0 +1,240 @@
+package org.example.newyear.service.task;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 上游任务截止时间登记表（Redis，跨节点共享）
+ *
+ * 提交可取消的上游任务时登记截止时间及所属记录；任务到达终态后移除。
+ * 记录失败时将其名下任务的截止时间提前到当前时间，由 {@link TaskDeadlineSweeper} 统一取消
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskDeadlineRegistry {
+
+    /**
+     * 登记截止时间，并加入记录下的任务集合
+     * KEYS: deadline zset, record set；ARGV: deadline, member, recordTtlSeconds
+     */
+    private static final RedisScript<Long> REGISTER_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])\n"
+                    + "redis.call('SADD', KEYS[2], ARGV[2])\n"
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[3])\n"
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 将记录下仍在登记表中的任务截止时间提前（XX：已移除的任务不会被重新加入）
+     * KEYS: deadline zset, record set；ARGV: now
+     */
+    private static final RedisScript<Long> ABANDON_SCRIPT = new DefaultRedisScript<>(
+            "local members = redis.call('SMEMBERS', KEYS[2])\n"
+                    + "local changed = 0\n"
+                    + "for _, member in ipairs(members) do\n"
+                    + "  changed = changed + redis.call('ZADD', KEYS[1], 'XX', 'CH', ARGV[1], member)\n"
+                    + "end\n"
+                    + "redis.call('DEL', KEYS[2])\n"
+                    + "return changed",
+            Long.class);
+
+    /**
+     * 取出已到期的任务并顺延到 leaseUntil（租约期间其他节点不会再取到），同时累加取消尝试次数；
+     * 取消成功后由 {@link #remove} 移除，失败则租约到期后重新取出重试
+     * KEYS: deadline zset, attempts hash；ARGV: now, limit, leaseUntil, attemptsTtlSeconds
+     * 返回：[member1, attempts1, member2, attempts2, ...]
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_EXPIRED_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n"
+                    + "local claimed = {}\n"
+                    + "for _, member in ipairs(due) do\n"
+                    + "  redis.call('ZADD', KEYS[1], 'XX', ARGV[3], member)\n"
+                    + "  local attempts = redis.call('HINCRBY', KEYS[2], member, 1)\n"
+                    + "  table.insert(claimed, member)\n"
+                    + "  table.insert(claimed, tostring(attempts))\n"
+                    + "end\n"
+                    + "if #due > 0 then\n"
+                    + "  redis.call('EXPIRE', KEYS[2], ARGV[4])\n"
+                    + "end\n"
+                    + "return claimed",
+            List.class);
+
+    /**
+     * 移除登记及取消尝试次数
+     * KEYS: deadline zset, attempts hash；ARGV: member
+     */
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HDEL', KEYS[2], ARGV[1])\n"
+                    + "return redis.call('ZREM', KEYS[1], ARGV[1])",
+            Long.class);
+
+    /**
+     * 顺延截止时间（只顺延尚未到期的登记：已到期、记录已放弃而提前到期的任务不受影响）
+     * KEYS: deadline zset；ARGV: member, delayMs, now
+     */
+    private static final RedisScript<Long> POSTPONE_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1])\n"
+                    + "if not score or tonumber(score) <= tonumber(ARGV[3]) then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('ZADD', KEYS[1], 'XX', tonumber(score) + tonumber(ARGV[2]), ARGV[1])\n"
+                    + "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final TaskProperties taskProperties;
+
+    /**
+     * 登记任务截止时间
+     *
+     * @param recordId 所属记录，可为空
+     * @param timeout  等待超时时间，截止时间 = 当前时间 + timeout + graceMs
+     */
+    public void register(String taskId, AlgorithmEnum algorithm, String recordId, Duration timeout) {
+        String member = TaskRedisKey.taskMember(taskId, algorithm);
+        long deadline = System.currentTimeMillis() + timeout.toMillis() + taskProperties.getDeadline().getGraceMs();
+        try {
+            if (recordId == null) {
+                redisTemplate.opsForZSet().add(TaskRedisKey.TASK_DEADLINE_KEY, member, deadline);
+            } else {
+                redisTemplate.execute(REGISTER_SCRIPT,
+                        Arrays.asList(TaskRedisKey.TASK_DEADLINE_KEY, TaskRedisKey.recordTasksKey(recordId)),
+                        String.valueOf(deadline), member, String.valueOf(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
+            }
+        } catch (Exception e) {
+            // 登记失败只影响过期清理，不影响任务本身
+            log.warn("登记任务截止时间失败, taskId={}, algorithm={}, recordId={}",
+                    taskId, algorithm.getName(), recordId, e);
+        }
+    }
+
+    /**
+     * 顺延任务截止时间（任务在本节点排队等待提交的时间不计入等待超时）
+     *
+     * @return 是否已顺延（未登记、已到期的任务不顺延）
+     */
+    public boolean postpone(String taskId, AlgorithmEnum algorithm, long delayMs) {
+        if (delayMs <= 0) {
+            return false;
+        }
+        try {
+            Long postponed = redisTemplate.execute(POSTPONE_SCRIPT,
+                    Collections.singletonList(TaskRedisKey.TASK_DEADLINE_KEY),
+                    TaskRedisKey.taskMember(taskId, algorithm), String.valueOf(delayMs),
+                    String.valueOf(System.currentTimeMillis()));
+            return postponed != null && postponed == 1L;
+        } catch (Exception e) {
+            log.warn("顺延任务截止时间失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 任务已结束，移除登记
+     */
+    public void remove(String taskId, AlgorithmEnum algorithm) {
+        redisTemplate.execute(REMOVE_SCRIPT,
+                Arrays.asList(TaskRedisKey.TASK_DEADLINE_KEY, TaskRedisKey.TASK_DEADLINE_ATTEMPTS_KEY),
+                TaskRedisKey.taskMember(taskId, algorithm));
+    }
+
+    /**
+     * 记录已失败/放弃，其名下未结束的任务立即到期
+     *
+     * @return 被提前到期的任务数
+     */
+    public long abandonRecord(String recordId) {
+        Long changed = redisTemplate.execute(ABANDON_SCRIPT,
+                Arrays.asList(TaskRedisKey.TASK_DEADLINE_KEY, TaskRedisKey.recordTasksKey(recordId)),
+                String.valueOf(System.currentTimeMillis()));
+        long count = changed != null ? changed : 0;
+        if (count > 0) {
+            log.info("记录已结束, 名下未完成的上游任务将被取消, recordId={}, tasks={}", recordId, count);
+        }
+        return count;
+    }
+
+    /**
+     * 取出已到期的任务，租约 leaseMs 内不会再被取出（取消成功后需调用 {@link #remove}）
+     *
+     * @return 任务 → 第几次尝试取消（从 1 开始）
+     */
+    @SuppressWarnings("unchecked")
+    public Map<TaskRef, Integer> claimExpired(int limit, long leaseMs) {
+        long now = System.currentTimeMillis();
+        List<String> replies = redisTemplate.execute(CLAIM_EXPIRED_SCRIPT,
+                Arrays.asList(TaskRedisKey.TASK_DEADLINE_KEY, TaskRedisKey.TASK_DEADLINE_ATTEMPTS_KEY),
+                String.valueOf(now), String.valueOf(limit), String.valueOf(now + leaseMs),
+                String.valueOf(TaskRedisKey.DEFAULT_EXPIRE_SECONDS));
+
+        Map<TaskRef, Integer> claimed = new LinkedHashMap<>();
+        if (replies == null) {
+            return claimed;
+        }
+        for (int i = 0; i + 1 < replies.size(); i += 2) {
+            List<TaskRef> refs = parse(Collections.singletonList(replies.get(i)));
+            if (!refs.isEmpty()) {
+                claimed.put(refs.get(0), Integer.valueOf(replies.get(i + 1)));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 查询即将到期（截止时间在 withinMs 内）的任务，不移除；已过期正在取消重试的任务除外
+     */
+    public List<TaskRef> approaching(long withinMs, int limit) {
+        long now = System.currentTimeMillis();
+        Set<String> members = redisTemplate.opsForZSet().rangeByScore(TaskRedisKey.TASK_DEADLINE_KEY,
+                now, now + withinMs, 0, limit);
+        if (members == null || members.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> candidates = new ArrayList<>(members);
+        List<Object> attempts = redisTemplate.opsForHash().multiGet(TaskRedisKey.TASK_DEADLINE_ATTEMPTS_KEY,
+                new ArrayList<>(candidates));
+        List<String> pending = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (attempts == null || attempts.get(i) == null) {
+                pending.add(candidates.get(i));
+            }
+        }
+        return parse(pending);
+    }
+
+    private List<TaskRef> parse(Collection<String> members) {
+        List<TaskRef> refs = new ArrayList<>();
+        if (members == null) {
+            return refs;
+        }
+        for (String member : members) {
+            int separator = member.indexOf(':');
+            AlgorithmEnum algorithm = separator > 0 ? AlgorithmEnum.of(member.substring(0, separator)) : null;
+            if (algorithm == null) {
+                log.warn("无法解析截止时间登记项, member={}", member);
+                continue;
+            }
+            refs.add(TaskRef.of(member.substring(separator + 1), algorithm));
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.newyear.service.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.dto.algorithm.vision.CancelTaskResponse;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.VisionFacade;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 过期任务清理
+ *
+ * 定期取出已过截止时间的上游任务（等待超时、所属记录失败或处理节点宕机），
+ * 调用上游取消接口释放排队名额，并将任务标记为 CANCELLED。
+ * 取消失败的任务保留在登记表中，按重试间隔重新取出，超过最大尝试次数后仅标记本地状态
+ */
+@Slf4j
+@Component
+public class TaskDeadlineSweeper {
+
+    private static final String CANCELLED_MESSAGE = "任务已过截止时间或所属记录已结束, 已取消上游任务";
+
+    private final TaskProperties taskProperties;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+    private final TaskResultStore taskResultStore;
+    private final VisionFacade visionFacade;
+    private final CallbackHandler callbackHandler;
+    private final Executor taskReconcileExecutor;
+
+    public TaskDeadlineSweeper(TaskProperties taskProperties,
+                               TaskDeadlineRegistry taskDeadlineRegistry,
+                               TaskResultStore taskResultStore,
+                               VisionFacade visionFacade,
+                               CallbackHandler callbackHandler,
+                               @Qualifier("taskReconcileExecutor") Executor taskReconcileExecutor) {
+        this.taskProperties = taskProperties;
+        this.taskDeadlineRegistry = taskDeadlineRegistry;
+        this.taskResultStore = taskResultStore;
+        this.visionFacade = visionFacade;
+        this.callbackHandler = callbackHandler;
+        this.taskReconcileExecutor = taskReconcileExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${task.deadline.sweep-interval-ms:10000}", initialDelay = 15000)
+    public void sweep() {
+        TaskProperties.DeadlineConfig config = taskProperties.getDeadline();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return;
+        }
+
+        Map<TaskRef, Integer> expired;
+        try {
+            expired = taskDeadlineRegistry.claimExpired(config.getBatchSize(), config.getCancelRetryIntervalMs());
+        } catch (Exception e) {
+            log.warn("读取过期任务失败", e);
+            return;
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        log.info("清理过期上游任务, count={}", expired.size());
+        for (Map.Entry<TaskRef, Integer> entry : expired.entrySet()) {
+            TaskRef ref = entry.getKey();
+            int attempt = entry.getValue();
+            try {
+                taskReconcileExecutor.execute(() -> cancel(ref, attempt));
+            } catch (RejectedExecutionException e) {
+                cancel(ref, attempt);
+            }
+        }
+    }
+
+    private void cancel(TaskRef ref, int attempt) {
+        boolean lastAttempt = attempt >= taskProperties.getDeadline().getCancelMaxAttempts();
+        try {
+            Optional<TaskResult> current = taskResultStore.get(ref.getTaskId(), ref.getAlgorithm());
+            if (current.isPresent() && current.get().isCompleted()) {
+                taskDeadlineRegistry.remove(ref.getTaskId(), ref.getAlgorithm());
+                return;
+            }
+
+            CancelTaskResponse response = cancelUpstream(ref);
+            // 音频类任务上游没有取消接口，直接标记
+            if (response != null && !response.isSuccess()) {
+                if (!lastAttempt) {
+                    log.warn("取消上游任务未成功, 稍后重试, taskId={}, algorithm={}, attempt={}, message={}",
+                            ref.getTaskId(), ref.getAlgorithm().getName(), attempt, response.getMessage());
+                    return;
+                }
+                log.warn("取消上游任务未成功, 已达最大尝试次数, 仅标记本地状态, taskId={}, algorithm={}, message={}",
+                        ref.getTaskId(), ref.getAlgorithm().getName(), response.getMessage());
+            }
+            markCancelled(ref);
+        } catch (Exception e) {
+            if (!lastAttempt) {
+                log.warn("取消过期任务失败, 稍后重试, taskId={}, algorithm={}, attempt={}",
+                        ref.getTaskId(), ref.getAlgorithm().getName(), attempt, e);
+                return;
+            }
+            log.warn("取消过期任务失败, 已达最大尝试次数, 仅标记本地状态, taskId={}, algorithm={}",
+                    ref.getTaskId(), ref.getAlgorithm().getName(), e);
+            try {
+                markCancelled(ref);
+            } catch (Exception markError) {
+                log.warn("标记任务取消失败, taskId={}, algorithm={}", ref.getTaskId(), ref.getAlgorithm().getName(), markError);
+            }
+        }
+    }
+
+    /**
+     * 标记任务取消并交付等待方，移除登记（任务已是终态时保存不生效，同样移除）
+     */
+    private void markCancelled(TaskRef ref) {
+        TaskResult cancelled = TaskResult.builder()
+                .taskId(ref.getTaskId())
+                .algorithm(ref.getAlgorithm())
+                .status(TaskResultStatus.CANCELLED)
+                .errorMessage(CANCELLED_MESSAGE)
+                .callbackTime(LocalDateTime.now())
+                .build();
+        callbackHandler.handleResult(cancelled, ref.getAlgorithm());
+        taskDeadlineRegistry.remove(ref.getTaskId(), ref.getAlgorithm());
+    }
+
+    private CancelTaskResponse cancelUpstream(TaskRef ref) {
+        switch (ref.getAlgorithm()) {
+            case WAN_ANIMATE:
+                return visionFacade.cancelWanAnimate(ref.getTaskId());
+            case FLUX2_IMAGE_GEN:
+                return visionFacade.cancelFlux2ImageGen(ref.getTaskId());
+            case LIPS_SYNC:
+                return visionFacade.cancelLipsync(ref.getTaskId());
+            case WAN_VIDEO_FLF:
+                return visionFacade.cancelWanVideoFLF(ref.getTaskId());
+            default:
+                // 音频类任务上游没有取消接口，仅标记状态
+                return null;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.newyear.service.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.Spring2026TaskJournal;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.mapper.Spring2026TaskJournalMapper;
+import org.example.newyear.service.task.codec.TaskResultCodec;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务结果日志（MySQL）
+ *
+ * 终态结果在 Redis 之外再保存一份，Redis 故障切换或淘汰后仍可读回，避免重跑耗时的算法任务。
+ * 写入为异步批量（单个写入线程按顺序执行），不增加回调链路耗时；队列满时在调用线程内同步写入
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskJournal {
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final Spring2026TaskJournalMapper taskJournalMapper;
+    private final TaskResultCodec taskResultCodec;
+    private final TaskProperties taskProperties;
+
+    private BlockingQueue<JournalOp> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        TaskProperties.JournalConfig config = taskProperties.getJournal();
+        if (!isEnabled()) {
+            log.info("任务结果日志未启用");
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        running = true;
+        writer = new DefaultThreadFactory("task-journal", true).newThread(() -> drain(config.getBatchSize()));
+        writer.start();
+        log.info("任务结果日志已启动, queueCapacity={}, batchSize={}", config.getQueueCapacity(), config.getBatchSize());
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(taskProperties.getJournal().getEnabled());
+    }
+
+    /**
+     * 记录终态结果（异步）
+     */
+    public void append(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+        if (!running || !result.isCompleted()) {
+            return;
+        }
+        JournalOp op = new JournalOp(taskId, algorithm, result);
+        if (!queue.offer(op)) {
+            log.warn("任务结果日志队列已满, 同步写入, taskId={}, algorithm={}", taskId, algorithm.getName());
+            execute(Collections.singletonList(op));
+        }
+    }
+
+    /**
+     * 删除记录（异步，与写入按提交顺序执行）
+     */
+    public void remove(String taskId, AlgorithmEnum algorithm) {
+        if (!running) {
+            return;
+        }
+        JournalOp op = new JournalOp(taskId, algorithm, null);
+        if (!queue.offer(op)) {
+            execute(Collections.singletonList(op));
+        }
+    }
+
+    /**
+     * 读取记录
+     */
+    public Optional<TaskResult> find(String taskId, AlgorithmEnum algorithm) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Spring2026TaskJournal journal = taskJournalMapper.selectOne(
+                new LambdaQueryWrapper<Spring2026TaskJournal>()
+                        .eq(Spring2026TaskJournal::getAlgorithm, algorithm.getName())
+                        .eq(Spring2026TaskJournal::getTaskId, taskId));
+        return Optional.ofNullable(journal).map(this::decode);
+    }
+
+    /**
+     * 批量读取记录（一次查询）
+     *
+     * @return 仅包含存在记录的任务
+     */
+    public Map<TaskRef, TaskResult> findAll(Collection<TaskRef> refs) {
+        Map<TaskRef, TaskResult> results = new LinkedHashMap<>();
+        if (!isEnabled() || refs.isEmpty()) {
+            return results;
+        }
+
+        Set<String> taskIds = new HashSet<>();
+        for (TaskRef ref : refs) {
+            taskIds.add(ref.getTaskId());
+        }
+        Map<String, Spring2026TaskJournal> journals = new HashMap<>();
+        for (Spring2026TaskJournal journal : taskJournalMapper.selectList(
+                new LambdaQueryWrapper<Spring2026TaskJournal>().in(Spring2026TaskJournal::getTaskId, taskIds))) {
+            journals.put(journal.getAlgorithm() + ":" + journal.getTaskId(), journal);
+        }
+
+        for (TaskRef ref : refs) {
+            Spring2026TaskJournal journal = journals.get(ref.getAlgorithm().getName() + ":" + ref.getTaskId());
+            if (journal != null) {
+                TaskResult result = decode(journal);
+                if (result != null) {
+                    results.put(ref, result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 清理过期记录
+     */
+    @Scheduled(cron = "0 30 4 * * ?")
+    public void purge() {
+        if (!isEnabled()) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(taskProperties.getJournal().getRetentionDays());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = taskJournalMapper.deleteBefore(before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted >= PURGE_BATCH_SIZE);
+        log.info("清理任务结果日志, before={}, deleted={}", before, total);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        // 停止接收新记录，写入线程写完队列中剩余的记录后退出
+        running = false;
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("任务结果日志已停止, 未写入记录数={}", queue.size());
+    }
+
+    // ======================== 私有方法 ========================
+
+    private void drain(int batchSize) {
+        List<JournalOp> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalOp first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                execute(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 按顺序执行：连续的写入合并为一条批量插入，删除逐条执行
+     */
+    private void execute(List<JournalOp> ops) {
+        List<Spring2026TaskJournal> inserts = new ArrayList<>();
+        for (JournalOp op : ops) {
+            if (op.result != null) {
+                Spring2026TaskJournal journal = encode(op);
+                if (journal != null) {
+                    inserts.add(journal);
+                }
+                continue;
+            }
+            flush(inserts);
+            try {
+                taskJournalMapper.delete(new LambdaQueryWrapper<Spring2026TaskJournal>()
+                        .eq(Spring2026TaskJournal::getAlgorithm, op.algorithm.getName())
+                        .eq(Spring2026TaskJournal::getTaskId, op.taskId));
+            } catch (Exception e) {
+                log.error("删除任务结果日志失败, taskId={}, algorithm={}", op.taskId, op.algorithm.getName(), e);
+            }
+        }
+        flush(inserts);
+    }
+
+    private void flush(List<Spring2026TaskJournal> inserts) {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        try {
+            taskJournalMapper.insertIgnoreBatch(inserts);
+            log.debug("写入任务结果日志, size={}", inserts.size());
+        } catch (Exception e) {
+            log.error("写入任务结果日志失败, size={}", inserts.size(), e);
+            for (Spring2026TaskJournal journal : inserts) {
+                log.error("任务结果日志丢失, taskId={}, algorithm={}, status={}",
+                        journal.getTaskId(), journal.getAlgorithm(), journal.getTaskStatus());
+            }
+        }
+        inserts.clear();
+    }
+
+    private Spring2026TaskJournal encode(JournalOp op) {
+        try {
+            return Spring2026TaskJournal.builder()
+                    .taskId(op.taskId)
+                    .algorithm(op.algorithm.getName())
+                    .taskStatus(op.result.getStatus().getCode())
+                    .result(taskResultCodec.encode(op.result.toBuilder().rawCallback(null).build()))
+                    .build();
+        } catch (IOException e) {
+            log.error("编码任务结果日志失败, taskId={}, algorithm={}", op.taskId, op.algorithm.getName(), e);
+            return null;
+        }
+    }
+
+    private TaskResult decode(Spring2026TaskJournal journal) {
+        try {
+            return taskResultCodec.decode(journal.getResult());
+        } catch (IOException e) {
+            log.error("解码任务结果日志失败, taskId={}, algorithm={}", journal.getTaskId(), journal.getAlgorithm(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 日志操作：result 不为空时为写入，否则为删除
+     */
+    private static class JournalOp {
+        private final String taskId;
+        private final AlgorithmEnum algorithm;
+        private final TaskResult result;
+
+        JournalOp(String taskId, AlgorithmEnum algorithm, TaskResult result) {
+            this.taskId = taskId;
+            this.algorithm = algorithm;
+            this.result = result;
+        }
+    }
+}
@@ -8,6 +8,9 @@ import org.example.newyear.entity.task.TaskResultStatus;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
@@ -21,6 +24,9 @@ public class TaskOrchestrator {
     
     private final TaskResultStore taskResultStore;
     private final TaskResultPoller taskResultPoller;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+
+    private static final Duration DEFAULT_BATCH_TIMEOUT = Duration.ofMinutes(30);
     
     /**
      * 初始化任务状态（提交任务后调用）
@@ -34,6 +40,18 @@ public class TaskOrchestrator {
         taskResultStore.save(taskId, algorithm, pending);
         log.debug("初始化任务状态, taskId={}, algorithm={}", taskId, algorithm.getName());
     }
+
+    /**
+     * 初始化任务状态并登记截止时间
+     * 超过截止时间仍未结束、或所属记录失败时，上游任务会被取消
+     *
+     * @param recordId 所属记录ID
+     * @param timeout  等待超时时间
+     */
+    public void initTask(String taskId, AlgorithmEnum algorithm, String recordId, Duration timeout) {
+        initTask(taskId, algorithm);
+        taskDeadlineRegistry.register(taskId, algorithm, recordId, timeout);
+    }
     
     /**
      * 等待单个任务完成
@@ -56,6 +74,75 @@ public class TaskOrchestrator {
         return taskResultPoller.waitForCompletion(taskId, algorithm);
     }
     
+    /**
+     * 异步等待单个任务完成
+     * 回调写入结果后由完成通知唤醒，超时由共享时间轮触发（以 TimeoutException 异常完成），
+     * 等待期间不占用任何业务线程
+     */
+    public CompletableFuture<TaskResult> awaitTaskAsync(String taskId, AlgorithmEnum algorithm, Duration timeout) {
+        return taskResultPoller.waitForCompletionAsync(taskId, algorithm, timeout);
+    }
+
+    /**
+     * 异步等待单个任务完成（默认超时）
+     */
+    public CompletableFuture<TaskResult> awaitTaskAsync(String taskId, AlgorithmEnum algorithm) {
+        return taskResultPoller.waitForCompletionAsync(taskId, algorithm);
+    }
+
+    /**
+     * 异步等待单个任务完成并转换为强类型结果
+     */
+    public <T> CompletableFuture<T> awaitTaskAsync(String taskId, AlgorithmEnum algorithm,
+                                                   Duration timeout, Class<T> type) {
+        return awaitTaskAsync(taskId, algorithm, timeout).thenApply(result -> result.getResult(type));
+    }
+
+    /**
+     * 等待全部任务完成
+     * 兜底轮询每轮只对未完成任务发起一次批量读取（MGET），而不是每个任务一次
+     *
+     * @return 按入参顺序排列的任务结果
+     */
+    public Map<TaskRef, TaskResult> awaitAll(Collection<TaskRef> refs, Duration timeout) throws TimeoutException {
+        return taskResultPoller.join(awaitAllAsync(refs, timeout));
+    }
+
+    /**
+     * 等待全部任务完成（默认30分钟超时）
+     */
+    public Map<TaskRef, TaskResult> awaitAll(Collection<TaskRef> refs) throws TimeoutException {
+        return awaitAll(refs, DEFAULT_BATCH_TIMEOUT);
+    }
+
+    /**
+     * 异步等待全部任务完成
+     */
+    public CompletableFuture<Map<TaskRef, TaskResult>> awaitAllAsync(Collection<TaskRef> refs, Duration timeout) {
+        return taskResultPoller.waitForAllAsync(refs, timeout);
+    }
+
+    /**
+     * 等待任一任务完成
+     */
+    public TaskResult awaitAny(Collection<TaskRef> refs, Duration timeout) throws TimeoutException {
+        return taskResultPoller.join(awaitAnyAsync(refs, timeout));
+    }
+
+    /**
+     * 等待任一任务完成（默认30分钟超时）
+     */
+    public TaskResult awaitAny(Collection<TaskRef> refs) throws TimeoutException {
+        return awaitAny(refs, DEFAULT_BATCH_TIMEOUT);
+    }
+
+    /**
+     * 异步等待任一任务完成
+     */
+    public CompletableFuture<TaskResult> awaitAnyAsync(Collection<TaskRef> refs, Duration timeout) {
+        return taskResultPoller.waitForAnyAsync(refs, timeout);
+    }
+
     /**
      * 等待任务完成并执行回调
      */
@@ -107,5 +194,6 @@ public class TaskOrchestrator {
      */
     public void cleanupTask(String taskId, AlgorithmEnum algorithm) {
         taskResultStore.delete(taskId, algorithm);
+        taskDeadlineRegistry.remove(taskId, algorithm);
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package org.example.newyear.service.task;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.Spring2026CreationRecord;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.enums.TaskPriority;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.mapper.Spring2026CreationRecordMapper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务优先级
+ *
+ * 按记录确定优先级通道（VIP > 临近超时 > 失败重试 > 普通），步骤提交前登记到任务上，
+ * 门面提交时读取：决定本地排队顺序（{@link AlgorithmAdmission}）与视觉平台 Group/Position 请求头。
+ * 高峰期大部分记录的已等待时间都会超过临近超时阈值，临近超时通道按本节点在途任务的比例限量，
+ * 超出后按记录原本的通道提交，避免各通道退化为同一个
+ */
+@Slf4j
+@Component
+public class TaskPriorities implements TaskCompletionListener {
+
+    /**
+     * 登记保留时长，覆盖从登记到提交（含本地排队）的时间
+     */
+    private static final long ASSIGNMENT_TTL_MS = TimeUnit.HOURS.toMillis(2);
+
+    private final Spring2026CreationRecordMapper recordMapper;
+    private final TaskProperties.PriorityConfig config;
+    private final TimedCache<String, TaskPriority> assignments;
+
+    public TaskPriorities(Spring2026CreationRecordMapper recordMapper, TaskProperties taskProperties) {
+        this.recordMapper = recordMapper;
+        this.config = taskProperties.getPriority();
+        this.assignments = CacheUtil.newTimedCache(ASSIGNMENT_TTL_MS);
+        this.assignments.schedulePrune(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    /**
+     * 确定记录当前的优先级通道（每次提交步骤时重新计算，记录临近超时后的步骤在限量内自动提升）
+     */
+    public TaskPriority resolve(String recordId) {
+        if (!isEnabled() || recordId == null) {
+            return TaskPriority.NORMAL;
+        }
+        Spring2026CreationRecord record;
+        try {
+            record = recordMapper.selectOne(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                    .eq(Spring2026CreationRecord::getRecordId, recordId));
+        } catch (Exception e) {
+            log.warn("查询记录失败, 按普通优先级提交, recordId={}", recordId, e);
+            return TaskPriority.NORMAL;
+        }
+        if (record == null) {
+            return TaskPriority.NORMAL;
+        }
+
+        if (record.getUserId() != null && config.getVipUserIds().contains(record.getUserId())) {
+            return TaskPriority.VIP;
+        }
+        if (record.getCreateTime() != null) {
+            long ageMs = Duration.between(record.getCreateTime(), LocalDateTime.now()).toMillis();
+            if (ageMs >= config.getSlaMs() - config.getNearSlaMs() && hasNearSlaCapacity()) {
+                return TaskPriority.NEAR_SLA;
+            }
+        }
+        if (record.getRetryCount() != null && record.getRetryCount() > 0) {
+            return TaskPriority.RETRY;
+        }
+        return TaskPriority.NORMAL;
+    }
+
+    /**
+     * 登记任务优先级（提交前调用，普通通道同样登记，用于统计各通道占比）
+     */
+    public void assign(String taskId, TaskPriority priority) {
+        if (priority != null) {
+            assignments.put(taskId, priority);
+        }
+    }
+
+    /**
+     * 任务优先级，未登记时为普通
+     */
+    public TaskPriority of(String taskId) {
+        TaskPriority priority = assignments.get(taskId, false);
+        return priority != null ? priority : TaskPriority.NORMAL;
+    }
+
+    /**
+     * 通道对应的视觉平台请求头，未配置时返回 null
+     */
+    public TaskProperties.LaneConfig lane(TaskPriority priority) {
+        return isEnabled() ? config.getLanes().get(priority.getCode()) : null;
+    }
+
+    /**
+     * 临近超时通道占本节点在途任务的比例未超过上限
+     */
+    private boolean hasNearSlaCapacity() {
+        Double maxShare = config.getNearSlaMaxShare();
+        if (maxShare == null || maxShare >= 1) {
+            return true;
+        }
+        int total = 0;
+        int nearSla = 0;
+        for (TaskPriority priority : assignments) {
+            total++;
+            if (priority == TaskPriority.NEAR_SLA) {
+                nearSla++;
+            }
+        }
+        return nearSla < maxShare * Math.max(total, 1);
+    }
+
+    @Override
+    public void onTaskCompleted(TaskResult result, AlgorithmEnum algorithm) {
+        assignments.remove(result.getTaskId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        assignments.cancelPruneSchedule();
+    }
+}
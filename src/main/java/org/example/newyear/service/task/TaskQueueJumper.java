@@ -0,0 +1,130 @@
+package org.example.newyear.service.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.dto.algorithm.vision.JumpTaskResponse;
+import org.example.newyear.entity.enums.TaskPriority;
+import org.example.newyear.entity.enums.VisionAbility;
+import org.example.newyear.service.VisionFacade;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 临近超时任务插队
+ *
+ * 定期查询即将到达等待超时的上游任务（截止时间登记表）：仍在本节点排队的提升为临近超时优先级，
+ * 已提交但仍在上游排队（未收到进度回调）的视觉任务调用插队接口，避免高峰期排到超时被取消。
+ * 每个任务只插队一次（Redis 标记，多节点不重复调用；插队未成功时删除标记，下次检查重试）
+ */
+@Slf4j
+@Component
+public class TaskQueueJumper {
+
+    private final TaskProperties taskProperties;
+    private final TaskDeadlineRegistry taskDeadlineRegistry;
+    private final TaskTimeline taskTimeline;
+    private final AlgorithmAdmission algorithmAdmission;
+    private final VisionFacade visionFacade;
+    private final StringRedisTemplate redisTemplate;
+    private final Executor taskReconcileExecutor;
+
+    public TaskQueueJumper(TaskProperties taskProperties,
+                           TaskDeadlineRegistry taskDeadlineRegistry,
+                           TaskTimeline taskTimeline,
+                           AlgorithmAdmission algorithmAdmission,
+                           VisionFacade visionFacade,
+                           StringRedisTemplate redisTemplate,
+                           @Qualifier("taskReconcileExecutor") Executor taskReconcileExecutor) {
+        this.taskProperties = taskProperties;
+        this.taskDeadlineRegistry = taskDeadlineRegistry;
+        this.taskTimeline = taskTimeline;
+        this.algorithmAdmission = algorithmAdmission;
+        this.visionFacade = visionFacade;
+        this.redisTemplate = redisTemplate;
+        this.taskReconcileExecutor = taskReconcileExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${task.priority.jump-scan-interval-ms:30000}", initialDelay = 20000)
+    public void scan() {
+        TaskProperties.PriorityConfig config = taskProperties.getPriority();
+        if (!Boolean.TRUE.equals(config.getEnabled()) || !Boolean.TRUE.equals(config.getJumpEnabled())) {
+            return;
+        }
+
+        // 截止时间 = 等待超时 + grace，距等待超时不足 jumpAheadMs 即截止时间在 (jumpAheadMs + grace) 内
+        List<TaskRef> approaching;
+        try {
+            approaching = taskDeadlineRegistry.approaching(
+                    config.getJumpAheadMs() + taskProperties.getDeadline().getGraceMs(),
+                    config.getJumpBatchSize());
+        } catch (Exception e) {
+            log.warn("读取临近超时任务失败", e);
+            return;
+        }
+
+        for (TaskRef ref : approaching) {
+            if (algorithmAdmission.promote(ref.getAlgorithm(), ref.getTaskId(), TaskPriority.NEAR_SLA.getLevel())) {
+                continue;
+            }
+            VisionAbility ability = VisionAbility.of(ref.getAlgorithm());
+            if (ability == null) {
+                // 音频类任务上游没有插队接口
+                continue;
+            }
+            try {
+                taskReconcileExecutor.execute(() -> jump(ref, ability));
+            } catch (RejectedExecutionException e) {
+                jump(ref, ability);
+            }
+        }
+    }
+
+    private void jump(TaskRef ref, VisionAbility ability) {
+        // 标记防止多节点同时插队，插队未成功时删除，下次检查重试
+        String marker = TaskRedisKey.taskJumpedKey(ref.getTaskId(), ref.getAlgorithm());
+        try {
+            if (!taskTimeline.isQueuedUpstream(ref.getTaskId(), ref.getAlgorithm())) {
+                return;
+            }
+            Boolean first = redisTemplate.opsForValue().setIfAbsent(marker, "1",
+                    TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(first)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("临近超时任务插队检查失败, taskId={}, algorithm={}", ref.getTaskId(), ref.getAlgorithm().getName(), e);
+            return;
+        }
+
+        boolean jumped;
+        try {
+            JumpTaskResponse response = visionFacade.jumpTask(ref.getTaskId(), ability);
+            jumped = response != null && response.isSuccess();
+            if (jumped) {
+                log.info("临近超时任务已插队, taskId={}, algorithm={}", ref.getTaskId(), ref.getAlgorithm().getName());
+            } else {
+                log.warn("临近超时任务插队未成功, 稍后重试, taskId={}, algorithm={}, message={}", ref.getTaskId(),
+                        ref.getAlgorithm().getName(), response != null ? response.getMessage() : null);
+            }
+        } catch (Exception e) {
+            jumped = false;
+            log.warn("临近超时任务插队失败, 稍后重试, taskId={}, algorithm={}",
+                    ref.getTaskId(), ref.getAlgorithm().getName(), e);
+        }
+        if (!jumped) {
+            try {
+                redisTemplate.delete(marker);
+            } catch (Exception e) {
+                log.warn("删除插队标记失败, taskId={}, algorithm={}", ref.getTaskId(), ref.getAlgorithm().getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.example.newyear.service.task;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.dto.algorithm.audio.SongConversionCallbackData;
+import org.example.newyear.dto.algorithm.audio.SongConversionCallbackResponse;
+import org.example.newyear.dto.algorithm.audio.SongConversionQueryData;
+import org.example.newyear.dto.algorithm.audio.SongConversionQueryResponse;
+import org.example.newyear.dto.algorithm.audio.SongConversionUrlData;
+import org.example.newyear.dto.algorithm.vision.AlgorithmResultBase;
+import org.example.newyear.dto.algorithm.vision.Flux2ImageGenResultData;
+import org.example.newyear.dto.algorithm.vision.LipsyncResultData;
+import org.example.newyear.dto.algorithm.vision.VisionCallbackResponse;
+import org.example.newyear.dto.algorithm.vision.WanAnimateResultData;
+import org.example.newyear.dto.algorithm.vision.WanVideoFLFResultData;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.enums.VisionAbility;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.service.algorithm.SongConversionService;
+import org.example.newyear.service.algorithm.VisionService;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.service.callback.SongConversionCallbackConverter;
+import org.example.newyear.service.callback.VisionCallbackConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 回调丢失补偿
+ *
+ * 本节点等待中的任务超过预计完成时间仍无回调时，主动查询上游结果接口（查询仍未完成则指数退避），
+ * 查到终态后按回调同样的路径写入 {@link TaskResultStore} 并唤醒等待方。
+ * 查询前先读取结果存储，结果已由其他节点写入时直接停止关注，不再查询上游。
+ * 特征提取（voice_conversion）上游没有查询接口，不做补偿
+ */
+@Slf4j
+@Component
+public class TaskReconciler {
+
+    private final TaskProperties taskProperties;
+    private final TaskResultStore taskResultStore;
+    private final PollBackoffPolicy pollBackoffPolicy;
+    private final VisionService visionService;
+    private final SongConversionService songConversionService;
+    private final CallbackHandler callbackHandler;
+    private final VisionCallbackConverter visionCallbackConverter;
+    private final SongConversionCallbackConverter songConversionCallbackConverter;
+    private final ObjectMapper objectMapper;
+    private final Executor taskReconcileExecutor;
+
+    private final Map<TaskRef, Watch> watches = new ConcurrentHashMap<>();
+
+    public TaskReconciler(TaskProperties taskProperties,
+                          TaskResultStore taskResultStore,
+                          PollBackoffPolicy pollBackoffPolicy,
+                          VisionService visionService,
+                          SongConversionService songConversionService,
+                          CallbackHandler callbackHandler,
+                          VisionCallbackConverter visionCallbackConverter,
+                          SongConversionCallbackConverter songConversionCallbackConverter,
+                          ObjectMapper objectMapper,
+                          @Qualifier("taskReconcileExecutor") Executor taskReconcileExecutor) {
+        this.taskProperties = taskProperties;
+        this.taskResultStore = taskResultStore;
+        this.pollBackoffPolicy = pollBackoffPolicy;
+        this.visionService = visionService;
+        this.songConversionService = songConversionService;
+        this.callbackHandler = callbackHandler;
+        this.visionCallbackConverter = visionCallbackConverter;
+        this.songConversionCallbackConverter = songConversionCallbackConverter;
+        this.objectMapper = objectMapper;
+        this.taskReconcileExecutor = taskReconcileExecutor;
+    }
+
+    /**
+     * 开始关注任务（等待开始、事件驱动流程提交算法步骤时调用；已关注时忽略）
+     */
+    public void watch(TaskRef ref) {
+        if (isSupported(ref.getAlgorithm())) {
+            watches.putIfAbsent(ref, new Watch(ref));
+        }
+    }
+
+    /**
+     * 停止关注任务（等待结束时调用）
+     */
+    public void unwatch(TaskRef ref) {
+        watches.remove(ref);
+    }
+
+    /**
+     * 扫描到期任务并提交查询
+     */
+    @Scheduled(fixedDelayString = "${task.reconcile.scan-interval-ms:5000}", initialDelay = 10000)
+    public void scan() {
+        TaskProperties.ReconcileConfig config = taskProperties.getReconcile();
+        if (!Boolean.TRUE.equals(config.getEnabled()) || watches.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int budget = config.getMaxQueriesPerScan();
+        for (Watch watch : watches.values()) {
+            if (budget <= 0) {
+                break;
+            }
+            if (now < dueTime(watch, config) || now < watch.nextQueryAt
+                    || !watch.querying.compareAndSet(false, true)) {
+                continue;
+            }
+            budget--;
+            try {
+                taskReconcileExecutor.execute(() -> query(watch, config));
+            } catch (RejectedExecutionException e) {
+                watch.querying.set(false);
+                log.warn("补偿查询线程池已满, 下次扫描再查, pending={}", watches.size());
+                break;
+            }
+        }
+    }
+
+    // ======================== 私有方法 ========================
+
+    /**
+     * 开始查询的时间：预计完成时间 + 宽限；无法估算时为开始等待后固定延迟
+     */
+    private long dueTime(Watch watch, TaskProperties.ReconcileConfig config) {
+        long eta = pollBackoffPolicy.estimateEta(watch.ref);
+        return eta > 0 ? eta + config.getGraceMs() : watch.startTime + config.getNoEtaDelayMs();
+    }
+
+    private void query(Watch watch, TaskProperties.ReconcileConfig config) {
+        TaskRef ref = watch.ref;
+        boolean delivered = false;
+        try {
+            delivered = isCompleted(ref) || reconcile(ref);
+        } catch (Exception e) {
+            log.warn("补偿查询失败, taskId={}, algorithm={}", ref.getTaskId(), ref.getAlgorithm().getName(), e);
+        }
+
+        if (delivered) {
+            watches.remove(ref, watch);
+        } else {
+            int shift = Math.min(watch.attempts++, 16);
+            long backoffMs = Math.min(config.getInitialBackoffMs() << shift, config.getMaxBackoffMs());
+            watch.nextQueryAt = System.currentTimeMillis() + backoffMs;
+        }
+        watch.querying.set(false);
+    }
+
+    /**
+     * 查询上游结果，查到终态时按回调路径写入
+     *
+     * @return 已交付终态结果时返回 true
+     */
+    private boolean reconcile(TaskRef ref) {
+        switch (ref.getAlgorithm()) {
+            case WAN_ANIMATE:
+                return reconcileVision(ref, VisionAbility.WAN_ANIMATE, WanAnimateResultData.class);
+            case FLUX2_IMAGE_GEN:
+                return reconcileVision(ref, VisionAbility.FLUX2_IMAGE_GEN, Flux2ImageGenResultData.class);
+            case LIPS_SYNC:
+                return reconcileVision(ref, VisionAbility.LIPSYNC, LipsyncResultData.class);
+            case WAN_VIDEO_FLF:
+                return reconcileVision(ref, VisionAbility.WAN_VIDEO_FLF, WanVideoFLFResultData.class);
+            case SONG_CONVERSION:
+                return reconcileSongConversion(ref);
+            default:
+                return false;
+        }
+    }
+
+    private <T extends AlgorithmResultBase> boolean reconcileVision(
+            TaskRef ref, VisionAbility ability, Class<T> dataType) {
+        VisionCallbackResponse<T> response = visionService.queryResult(ref.getTaskId(), ability.getCode(), dataType);
+        if (response == null || !response.isSuccess()
+                || !(response.isTaskSuccess() || response.isTaskFailed() || response.isTaskCancelled())) {
+            return false;
+        }
+
+        VisionCallbackResponse<JsonNode> callback = objectMapper.convertValue(
+                response, new TypeReference<VisionCallbackResponse<JsonNode>>() {});
+        if (callback.getBusinessTaskId() == null) {
+            callback.setBusinessTaskId(ref.getTaskId());
+        }
+        if (callback.getAbility() == null) {
+            callback.setAbility(ability.getCode());
+        }
+
+        log.warn("回调未到达, 补偿查询得到终态, taskId={}, algorithm={}, taskStatus={}",
+                ref.getTaskId(), ref.getAlgorithm().getName(), callback.getTaskStatus());
+        callbackHandler.handleCallback(callback, visionCallbackConverter);
+        return true;
+    }
+
+    private boolean reconcileSongConversion(TaskRef ref) {
+        SongConversionQueryResponse response = songConversionService.queryResult(ref.getTaskId());
+        if (response == null || !response.isSuccess()) {
+            return false;
+        }
+        SongConversionQueryData data = response.parseData(objectMapper);
+        if (data == null || !(data.isSuccess() || data.isFailed())) {
+            return false;
+        }
+
+        // 转换为回调结构，结果字段与回调一致（完整音频地址）
+        SongConversionCallbackData callbackData = new SongConversionCallbackData();
+        callbackData.setTaskId(ref.getTaskId());
+        SongConversionCallbackResponse callback = new SongConversionCallbackResponse();
+        if (data.isSuccess()) {
+            SongConversionUrlData urlData = data.parseUrl(objectMapper);
+            callbackData.setResult(urlData != null ? urlData.getAllUrl() : null);
+            callback.setCode(1);
+        } else {
+            callback.setCode(data.getStatus());
+        }
+        callback.setMsg(response.getMsg());
+        callback.setData(callbackData);
+
+        log.warn("回调未到达, 补偿查询得到终态, taskId={}, algorithm={}, status={}",
+                ref.getTaskId(), ref.getAlgorithm().getName(), data.getStatus());
+        callbackHandler.handleCallback(callback, songConversionCallbackConverter);
+        return true;
+    }
+
+    /**
+     * 结果存储中已有终态（回调到达其他节点、其他节点已补偿）
+     */
+    private boolean isCompleted(TaskRef ref) {
+        return taskResultStore.get(ref.getTaskId(), ref.getAlgorithm())
+                .map(TaskResult::isCompleted)
+                .orElse(false);
+    }
+
+    private boolean isSupported(AlgorithmEnum algorithm) {
+        return algorithm != null && algorithm != AlgorithmEnum.VOICE_CONVERSION;
+    }
+
+    /**
+     * 关注中的任务
+     */
+    private static class Watch {
+        private final TaskRef ref;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicBoolean querying = new AtomicBoolean();
+        private volatile long nextQueryAt;
+        private volatile int attempts;
+
+        Watch(TaskRef ref) {
+            this.ref = ref;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.newyear.service.task;
+
+import lombok.Value;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+
+/**
+ * 任务引用（taskId + 算法类型），用于批量查询与等待
+ */
+@Value(staticConstructor = "of")
+public class TaskRef {
+
+    /**
+     * 任务ID
+     */
+    String taskId;
+
+    /**
+     * 算法类型
+     */
+    AlgorithmEnum algorithm;
+}
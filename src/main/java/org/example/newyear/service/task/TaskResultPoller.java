@@ -1,60 +1,77 @@
 package org.example.newyear.service.task;
 
-import lombok.RequiredArgsConstructor;
+import io.netty.util.Timeout;
 import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.config.TaskProperties;
 import org.example.newyear.entity.enums.AlgorithmEnum;
 import org.example.newyear.entity.task.TaskResult;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 /**
  * 任务结果轮询器
+ *
+ * 等待逻辑统一为异步实现：本地登记/完成通知唤醒 + 时间轮兜底轮询/超时，
+ * 阻塞方法只是在异步结果上等待
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class TaskResultPoller {
 
     private final TaskResultStore taskResultStore;
+    private final PendingTaskRegistry pendingTaskRegistry;
+    private final TaskProperties taskProperties;
+    private final TaskTimer taskTimer;
+    private final PollBackoffPolicy pollBackoffPolicy;
+    private final TaskSubmitHints taskSubmitHints;
+    private final TaskReconciler taskReconciler;
+    private final Executor taskAwaitExecutor;
 
-    private static final long DEFAULT_POLL_INTERVAL_MS = 500;
     private static final long DEFAULT_TIMEOUT_SECONDS = 1800;
 
+    public TaskResultPoller(TaskResultStore taskResultStore,
+                            PendingTaskRegistry pendingTaskRegistry,
+                            TaskProperties taskProperties,
+                            TaskTimer taskTimer,
+                            PollBackoffPolicy pollBackoffPolicy,
+                            TaskSubmitHints taskSubmitHints,
+                            TaskReconciler taskReconciler,
+                            @Qualifier("taskAwaitExecutor") Executor taskAwaitExecutor) {
+        this.taskResultStore = taskResultStore;
+        this.pendingTaskRegistry = pendingTaskRegistry;
+        this.taskProperties = taskProperties;
+        this.taskTimer = taskTimer;
+        this.pollBackoffPolicy = pollBackoffPolicy;
+        this.taskSubmitHints = taskSubmitHints;
+        this.taskReconciler = taskReconciler;
+        this.taskAwaitExecutor = taskAwaitExecutor;
+    }
+
     /**
      * 等待任务完成（阻塞方式）
+     * 推送模式下阻塞在完成通知上，仅以较长间隔兜底轮询；轮询间隔按提交时的预计耗时自适应调整
      */
     public TaskResult waitForCompletion(String taskId, AlgorithmEnum algorithm, Duration timeout)
             throws TimeoutException {
 
-        long startTime = System.currentTimeMillis();
-        long timeoutMs = timeout.toMillis();
-
         log.debug("开始等待任务完成, taskId={}, algorithm={}, timeout={}ms",
-                taskId, algorithm.getName(), timeoutMs);
-
-        while (System.currentTimeMillis() - startTime < timeoutMs) {
-            Optional<TaskResult> result = taskResultStore.get(taskId, algorithm);
-
-            if (result.isPresent() && result.get().isCompleted()) {
-                log.debug("任务完成, taskId={}, algorithm={}, status={}",
-                        taskId, algorithm.getName(), result.get().getStatus());
-                return result.get();
-            }
-
-            try {
-                Thread.sleep(DEFAULT_POLL_INTERVAL_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("等待任务结果被中断", e);
-            }
-        }
+                taskId, algorithm.getName(), timeout.toMillis());
 
-        throw new TimeoutException(String.format(
-                "等待任务结果超时, taskId=%s, algorithm=%s", taskId, algorithm.getName()));
+        return join(waitForCompletionAsync(taskId, algorithm, timeout));
     }
 
     /**
@@ -67,17 +84,18 @@ public class TaskResultPoller {
 
     /**
      * 异步等待任务完成
+     * 不占用调用线程，超时时以 TimeoutException 异常完成
      */
     public CompletableFuture<TaskResult> waitForCompletionAsync(
             String taskId, AlgorithmEnum algorithm, Duration timeout) {
+        return watch(TaskRef.of(taskId, algorithm), timeout, null);
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return waitForCompletion(taskId, algorithm, timeout);
-            } catch (TimeoutException e) {
-                throw new RuntimeException(e);
-            }
-        });
+    /**
+     * 异步等待任务完成（默认超时）
+     */
+    public CompletableFuture<TaskResult> waitForCompletionAsync(String taskId, AlgorithmEnum algorithm) {
+        return waitForCompletionAsync(taskId, algorithm, Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS));
     }
 
     /**
@@ -106,31 +124,225 @@ public class TaskResultPoller {
     }
 
     /**
-     * 带自定义间隔的等待
+     * 带自定义间隔的等待（固定间隔，不做自适应调整）
      */
     public TaskResult waitWithInterval(String taskId, AlgorithmEnum algorithm,
                                        Duration timeout, Duration pollInterval) throws TimeoutException {
+        return join(watch(TaskRef.of(taskId, algorithm), timeout, pollInterval.toMillis()));
+    }
 
-        long startTime = System.currentTimeMillis();
-        long timeoutMs = timeout.toMillis();
-        long intervalMs = pollInterval.toMillis();
+    /**
+     * 异步等待全部任务完成
+     * 兜底轮询对所有未完成任务只发起一次批量读取；任一任务超时则以 TimeoutException 异常完成
+     *
+     * @return 按入参顺序排列的任务结果
+     */
+    public CompletableFuture<Map<TaskRef, TaskResult>> waitForAllAsync(Collection<TaskRef> refs, Duration timeout) {
+        GroupWaiter waiter = start(refs, timeout, null);
+        return CompletableFuture.allOf(waiter.futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<TaskRef, TaskResult> results = new LinkedHashMap<>();
+                    waiter.futures.forEach((ref, future) -> results.put(ref, future.join()));
+                    return results;
+                });
+    }
 
-        while (System.currentTimeMillis() - startTime < timeoutMs) {
-            Optional<TaskResult> result = taskResultStore.get(taskId, algorithm);
+    /**
+     * 异步等待任一任务完成，其余任务不再等待
+     */
+    public CompletableFuture<TaskResult> waitForAnyAsync(Collection<TaskRef> refs, Duration timeout) {
+        GroupWaiter waiter = start(refs, timeout, null);
+        return CompletableFuture.anyOf(waiter.futures.values().toArray(new CompletableFuture[0]))
+                .whenComplete((result, error) -> waiter.stop())
+                .thenApply(result -> (TaskResult) result);
+    }
 
-            if (result.isPresent() && result.get().isCompleted()) {
-                return result.get();
+    /**
+     * 阻塞等待异步结果，超时异常原样抛出
+     */
+    public <T> T join(CompletableFuture<T> future) throws TimeoutException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) e.getCause();
+            }
+            throw new RuntimeException("等待任务结果失败", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待任务结果被中断", e);
+        }
+    }
+
+    // ======================== 私有方法 ========================
+
+    private long startIntervalMs() {
+        TaskProperties.CompletionConfig config = taskProperties.getCompletion();
+        return Boolean.TRUE.equals(config.getPushEnabled())
+                ? config.getSafetyPollIntervalMs()
+                : config.getPollIntervalMs();
+    }
+
+    /**
+     * @param fixedIntervalMs 固定轮询间隔，为空时由 {@link PollBackoffPolicy} 自适应计算
+     */
+    private CompletableFuture<TaskResult> watch(TaskRef ref, Duration timeout, Long fixedIntervalMs) {
+        return start(Collections.singletonList(ref), timeout, fixedIntervalMs).futures.get(ref);
+    }
+
+    private GroupWaiter start(Collection<TaskRef> refs, Duration timeout, Long fixedIntervalMs) {
+        if (refs == null || refs.isEmpty()) {
+            throw new IllegalArgumentException("refs 不能为空");
+        }
+        boolean pushEnabled = Boolean.TRUE.equals(taskProperties.getCompletion().getPushEnabled());
+        GroupWaiter waiter = new GroupWaiter(refs, fixedIntervalMs, pushEnabled);
+        waiter.start(timeout.toMillis());
+        return waiter;
+    }
+
+    /**
+     * 一组任务的异步等待（单任务等待即只有一个成员的组）
+     *
+     * 回调落到本节点时由 {@link PendingTaskRegistry} 直接交付结果；
+     * 落到其他节点时由完成通知中继；兜底轮询对未完成任务批量读取一次（首次在 taskAwaitExecutor，
+     * 之后由时间轮派发到 taskTimerExecutor），时间轮线程只负责投递，不做任何 IO。下次检查时间取组内各任务自适应间隔的最小值
+     */
+    private class GroupWaiter {
+
+        private final Map<TaskRef, CompletableFuture<TaskResult>> futures = new LinkedHashMap<>();
+        private final Map<TaskRef, CompletableFuture<TaskResult>> pending = new ConcurrentHashMap<>();
+        private final Long fixedIntervalMs;
+        private final boolean pushEnabled;
+
+        private int attempt;
+
+        private volatile boolean stopped;
+        private volatile Timeout deadlineTimeout;
+        private volatile Timeout pollTimeout;
+
+        GroupWaiter(Collection<TaskRef> refs, Long fixedIntervalMs, boolean pushEnabled) {
+            for (TaskRef ref : refs) {
+                futures.put(ref, new CompletableFuture<>());
+            }
+            this.fixedIntervalMs = fixedIntervalMs;
+            this.pushEnabled = pushEnabled;
+        }
+
+        void start(long timeoutMs) {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .whenComplete((v, error) -> stop());
+            deadlineTimeout = taskTimer.schedule(this::expire, timeoutMs);
+            // 超过预计完成时间仍无回调时，由补偿组件主动查询上游
+            futures.keySet().forEach(taskReconciler::watch);
+            if (pushEnabled) {
+                futures.forEach((ref, future) -> {
+                    CompletableFuture<TaskResult> registered =
+                            pendingTaskRegistry.register(ref.getTaskId(), ref.getAlgorithm());
+                    pending.put(ref, registered);
+                    // 回调线程只完成登记的 future，后续阶段切换到检查线程池执行
+                    registered.whenCompleteAsync((result, error) -> {
+                        if (result != null) {
+                            future.complete(result);
+                        }
+                    }, taskAwaitExecutor);
+                });
+            }
+            taskAwaitExecutor.execute(this::check);
+        }
+
+        private void check() {
+            if (stopped) {
+                return;
+            }
+            List<TaskRef> waiting = new ArrayList<>();
+            futures.forEach((ref, future) -> {
+                if (!future.isDone()) {
+                    waiting.add(ref);
+                }
+            });
+            if (waiting.isEmpty()) {
+                return;
             }
 
             try {
-                Thread.sleep(intervalMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("等待任务结果被中断", e);
+                Map<TaskRef, TaskResult> results = taskResultStore.getAll(waiting);
+                results.forEach((ref, result) -> {
+                    if (result.isCompleted()) {
+                        log.debug("任务完成, taskId={}, algorithm={}, status={}",
+                                ref.getTaskId(), ref.getAlgorithm().getName(), result.getStatus());
+                        futures.get(ref).complete(result);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("读取任务结果失败, 等待下次检查, tasks={}", waiting, e);
+            }
+
+            attempt++;
+            if (!stopped && hasWaiting(waiting)) {
+                schedulePoll(nextDelayMs(waiting));
             }
         }
 
-        throw new TimeoutException(String.format(
-                "等待任务结果超时, taskId=%s, algorithm=%s", taskId, algorithm.getName()));
+        /**
+         * 是否仍有未完成的任务
+         */
+        private boolean hasWaiting(List<TaskRef> waiting) {
+            for (TaskRef ref : waiting) {
+                if (!futures.get(ref).isDone()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long nextDelayMs(List<TaskRef> waiting) {
+            if (fixedIntervalMs != null) {
+                return fixedIntervalMs;
+            }
+            long startMs = startIntervalMs();
+            long delayMs = Long.MAX_VALUE;
+            for (TaskRef ref : waiting) {
+                if (!futures.get(ref).isDone()) {
+                    delayMs = Math.min(delayMs, pollBackoffPolicy.nextDelayMs(ref, attempt, startMs));
+                }
+            }
+            return delayMs;
+        }
+
+        private void schedulePoll(long delayMs) {
+            Timeout previous = pollTimeout;
+            if (previous != null) {
+                previous.cancel();
+            }
+            pollTimeout = taskTimer.schedule(this::check, delayMs);
+        }
+
+        private void expire() {
+            futures.forEach((ref, future) -> future.completeExceptionally(new TimeoutException(String.format(
+                    "等待任务结果超时, taskId=%s, algorithm=%s", ref.getTaskId(), ref.getAlgorithm().getName()))));
+        }
+
+        void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            if (deadlineTimeout != null) {
+                deadlineTimeout.cancel();
+            }
+            if (pollTimeout != null) {
+                pollTimeout.cancel();
+            }
+            pending.forEach((ref, registered) ->
+                    pendingTaskRegistry.unregister(ref.getTaskId(), ref.getAlgorithm(), registered));
+            futures.keySet().forEach(taskReconciler::unwatch);
+            // 已拿到结果的任务不再需要提交提示；未完成的保留，供后续等待方继续使用
+            futures.forEach((ref, future) -> {
+                if (future.isDone() && !future.isCompletedExceptionally()) {
+                    taskSubmitHints.remove(ref);
+                }
+            });
+        }
     }
 }
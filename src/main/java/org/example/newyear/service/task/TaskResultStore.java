@@ -5,25 +5,50 @@ import org.example.newyear.entity.task.TaskResult;
 import org.example.newyear.entity.task.TaskResultStatus;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TaskResultStore {
 
     /**
      * 保存任务结果
+     * 状态只能向前推进（待处理 → 处理中 → 终态），已到终态的任务不会被覆盖
+     *
+     * @return 写入被接受时返回 true，状态回退被拒绝时返回 false
      */
-    void save(String taskId, AlgorithmEnum algorithm, TaskResult result);
+    boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result);
 
     /**
      * 保存任务结果（指定过期时间）
      */
-    void save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout);
+    boolean save(String taskId, AlgorithmEnum algorithm, TaskResult result, Duration timeout);
 
     /**
-     * 获取任务结果
+     * 批量保存任务结果（一次往返），规则同 {@link #save}
+     *
+     * @return 与入参顺序对应的写入结果，写入失败（Redis 异常，逐条重试后仍失败）的为 null
+     */
+    List<Boolean> saveAll(List<TaskResult> results);
+
+    /**
+     * 获取任务结果（不含 rawCallback）
      */
     Optional<TaskResult> get(String taskId, AlgorithmEnum algorithm);
 
+    /**
+     * 获取原始回调JSON（结果中不含 rawCallback，需要调试时单独读取）
+     */
+    Optional<String> getRawCallback(String taskId, AlgorithmEnum algorithm);
+
+    /**
+     * 批量获取任务结果（一次往返）
+     *
+     * @return 仅包含存在结果的任务，按入参顺序
+     */
+    Map<TaskRef, TaskResult> getAll(Collection<TaskRef> refs);
+
     /**
      * 删除任务结果
      */
@@ -35,9 +60,11 @@ public interface TaskResultStore {
     boolean exists(String taskId, AlgorithmEnum algorithm);
 
     /**
-     * 更新任务状态
+     * 更新任务状态（原子操作，规则同 {@link #save}）
+     *
+     * @return 任务存在且状态被推进时返回 true
      */
-    void updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status);
+    boolean updateStatus(String taskId, AlgorithmEnum algorithm, TaskResultStatus status);
 
     /**
      * 保存任务进度
@@ -0,0 +1,99 @@
+package org.example.newyear.service.task;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.dto.algorithm.vision.AsyncSubmitData;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务提交提示（队列位置、预计耗时）
+ *
+ * 提交与等待在同一节点发生，保存在本地内存即可；条目超过2小时自动清理
+ */
+@Slf4j
+@Component
+public class TaskSubmitHints {
+
+    private static final long HINT_TTL_MS = TimeUnit.HOURS.toMillis(2);
+
+    private final TimedCache<String, SubmitHint> hints = CacheUtil.newTimedCache(HINT_TTL_MS);
+
+    public TaskSubmitHints() {
+        hints.schedulePrune(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    /**
+     * 记录提交返回的队列信息
+     */
+    public void record(String taskId, AlgorithmEnum algorithm, AsyncSubmitData data) {
+        if (taskId == null || algorithm == null || data == null) {
+            return;
+        }
+        SubmitHint hint = new SubmitHint();
+        hint.setSubmitTime(System.currentTimeMillis());
+        hint.setQueuePosition(data.getQueuePosition());
+        hint.setEstimatedDurationMs(data.getEstimatedDurationMs());
+        put(taskId, algorithm, hint);
+    }
+
+    /**
+     * 记录提交时间（音频类平台提交响应不含队列信息，按算法典型耗时估算 ETA）
+     */
+    public void record(String taskId, AlgorithmEnum algorithm) {
+        if (taskId == null || algorithm == null) {
+            return;
+        }
+        SubmitHint hint = new SubmitHint();
+        hint.setSubmitTime(System.currentTimeMillis());
+        put(taskId, algorithm, hint);
+    }
+
+    private void put(String taskId, AlgorithmEnum algorithm, SubmitHint hint) {
+        hints.put(TaskRedisKey.taskMember(taskId, algorithm), hint);
+        log.debug("记录任务提交提示, taskId={}, algorithm={}, queuePosition={}, estimatedDurationMs={}",
+                taskId, algorithm.getName(), hint.getQueuePosition(), hint.getEstimatedDurationMs());
+    }
+
+    public Optional<SubmitHint> get(TaskRef ref) {
+        return Optional.ofNullable(hints.get(key(ref), false));
+    }
+
+    public void remove(TaskRef ref) {
+        hints.remove(key(ref));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hints.cancelPruneSchedule();
+    }
+
+    private String key(TaskRef ref) {
+        return TaskRedisKey.taskMember(ref.getTaskId(), ref.getAlgorithm());
+    }
+
+    @Data
+    public static class SubmitHint {
+        /**
+         * 提交时间（毫秒时间戳）
+         */
+        private long submitTime;
+
+        /**
+         * 提交时的队列位置
+         */
+        private Integer queuePosition;
+
+        /**
+         * 平台预计耗时（毫秒）
+         */
+        private Long estimatedDurationMs;
+    }
+}
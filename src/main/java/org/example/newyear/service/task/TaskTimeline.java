@@ -0,0 +1,186 @@
+package org.example.newyear.service.task;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.util.TaskRedisKey;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游任务耗时分段
+ *
+ * 提交、首个进度回调、终态回调的时间记录在 Redis（提交与回调可能在不同节点），终态时按算法输出耗时直方图：
+ * submit（提交接口耗时）、queue（提交 → 首个进度回调，上游排队）、execution（首个进度回调 → 终态回调）。
+ * 步骤完成时通过 {@link #phases} 读取分段写入记录的步骤时间线，delivery 为终态回调到达至步骤完成的耗时
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskTimeline {
+
+    public static final String PHASE_SUBMIT = "submit";
+    public static final String PHASE_QUEUE = "queue";
+    public static final String PHASE_EXECUTION = "execution";
+    public static final String PHASE_DELIVERY = "delivery";
+
+    private static final String FIELD_SUBMIT_START = "submit_start";
+    private static final String FIELD_SUBMITTED = "submitted";
+    private static final String FIELD_FIRST_PROGRESS = "first_progress";
+    private static final String FIELD_COMPLETED = "completed";
+
+    private static final List<Object> FIELDS = Arrays.<Object>asList(
+            FIELD_SUBMIT_START, FIELD_SUBMITTED, FIELD_FIRST_PROGRESS, FIELD_COMPLETED);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 记录提交完成（提交接口返回后调用）
+     *
+     * @param submitStartMs 开始调用提交接口的时间
+     */
+    public void submitted(String taskId, AlgorithmEnum algorithm, long submitStartMs) {
+        long now = System.currentTimeMillis();
+        record(algorithm, PHASE_SUBMIT, now - submitStartMs);
+        try {
+            String key = TaskRedisKey.taskTimelineKey(taskId, algorithm);
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put(FIELD_SUBMIT_START, String.valueOf(submitStartMs));
+            fields.put(FIELD_SUBMITTED, String.valueOf(now));
+            redisTemplate.opsForHash().putAll(key, fields);
+            redisTemplate.expire(key, TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.debug("记录任务提交时间失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+
+    /**
+     * 记录进度回调（只保留第一次）
+     */
+    public void progressed(String taskId, AlgorithmEnum algorithm) {
+        try {
+            String key = TaskRedisKey.taskTimelineKey(taskId, algorithm);
+            Boolean first = redisTemplate.opsForHash().putIfAbsent(key,
+                    FIELD_FIRST_PROGRESS, String.valueOf(System.currentTimeMillis()));
+            if (Boolean.TRUE.equals(first)) {
+                // 未经 submitted 的任务（提交记录失败、其他节点提交）进度回调先到时由这里创建 key
+                redisTemplate.expire(key, TaskRedisKey.DEFAULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.debug("记录任务进度时间失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+    }
+
+    /**
+     * 记录终态回调并输出排队、执行耗时
+     */
+    public void completed(TaskResult result, AlgorithmEnum algorithm) {
+        long now = System.currentTimeMillis();
+        String key = TaskRedisKey.taskTimelineKey(result.getTaskId(), algorithm);
+        Map<String, Long> times;
+        try {
+            times = timestamps(key);
+            if (times.get(FIELD_SUBMITTED) == null) {
+                // 未经提交（结果缓存、合并的请求）
+                return;
+            }
+            redisTemplate.opsForHash().put(key, FIELD_COMPLETED, String.valueOf(now));
+        } catch (Exception e) {
+            log.debug("记录任务完成时间失败, taskId={}, algorithm={}", result.getTaskId(), algorithm.getName(), e);
+            return;
+        }
+
+        long submitted = times.get(FIELD_SUBMITTED);
+        Long firstProgress = times.get(FIELD_FIRST_PROGRESS);
+        if (firstProgress != null) {
+            record(algorithm, PHASE_QUEUE, firstProgress - submitted);
+            record(algorithm, PHASE_EXECUTION, now - firstProgress);
+        } else {
+            record(algorithm, PHASE_EXECUTION, now - submitted);
+        }
+        Timer.builder("algorithm.task.duration")
+                .description("上游任务从提交到终态回调的耗时")
+                .tag("algorithm", algorithm.getName())
+                .tag("status", String.valueOf(result.getStatus()))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(now - submitted, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 读取任务耗时分段（毫秒），用于写入步骤时间线
+     *
+     * @return submit_ms / queue_ms / execution_ms / delivery_ms，缺少的时间点对应分段不输出
+     */
+    public Map<String, Object> phases(String taskId, AlgorithmEnum algorithm) {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        phases.put("algorithm", algorithm.getName());
+        phases.put("task_id", taskId);
+        try {
+            Map<String, Long> times = timestamps(TaskRedisKey.taskTimelineKey(taskId, algorithm));
+            Long submitStart = times.get(FIELD_SUBMIT_START);
+            Long submitted = times.get(FIELD_SUBMITTED);
+            Long firstProgress = times.get(FIELD_FIRST_PROGRESS);
+            Long completed = times.get(FIELD_COMPLETED);
+            if (submitStart != null && submitted != null) {
+                phases.put(PHASE_SUBMIT + "_ms", submitted - submitStart);
+            }
+            if (submitted != null && firstProgress != null) {
+                phases.put(PHASE_QUEUE + "_ms", firstProgress - submitted);
+            }
+            Long executionStart = firstProgress != null ? firstProgress : submitted;
+            if (executionStart != null && completed != null) {
+                phases.put(PHASE_EXECUTION + "_ms", completed - executionStart);
+            }
+            if (completed != null) {
+                phases.put(PHASE_DELIVERY + "_ms", System.currentTimeMillis() - completed);
+            }
+        } catch (Exception e) {
+            log.debug("读取任务耗时分段失败, taskId={}, algorithm={}", taskId, algorithm.getName(), e);
+        }
+        return phases;
+    }
+
+    /**
+     * 任务已提交上游且尚未收到进度回调（仍在上游排队）
+     */
+    public boolean isQueuedUpstream(String taskId, AlgorithmEnum algorithm) {
+        Map<String, Long> times = timestamps(TaskRedisKey.taskTimelineKey(taskId, algorithm));
+        return times.get(FIELD_SUBMITTED) != null
+                && times.get(FIELD_FIRST_PROGRESS) == null
+                && times.get(FIELD_COMPLETED) == null;
+    }
+
+    private Map<String, Long> timestamps(String key) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(key, FIELDS);
+        Map<String, Long> timestamps = new LinkedHashMap<>();
+        for (int i = 0; i < FIELDS.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            if (value != null) {
+                timestamps.put((String) FIELDS.get(i), Long.parseLong(value.toString()));
+            }
+        }
+        return timestamps;
+    }
+
+    private void record(AlgorithmEnum algorithm, String phase, long millis) {
+        Timer.builder("algorithm.task.phase")
+                .description("上游任务分段耗时（提交、排队、执行）")
+                .tag("algorithm", algorithm.getName())
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(millis, 0)));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.newyear.service.task;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享时间轮
+ *
+ * 所有异步等待的超时与兜底轮询都挂在同一个时间轮上，
+ * 上千个在途任务只占用一个调度线程。到期任务交给 taskTimerExecutor 执行，
+ * 线程池已满时延迟重新派发，时间轮线程不执行任务本身，不会被阻塞读取拖慢其他到期任务
+ */
+@Slf4j
+@Component
+public class TaskTimer {
+
+    /**
+     * 刻度（毫秒）
+     */
+    private static final long TICK_DURATION_MS = 100;
+
+    /**
+     * 每轮槽位数
+     */
+    private static final int TICKS_PER_WHEEL = 512;
+
+    /**
+     * 线程池已满时重新派发的延迟（毫秒）
+     */
+    private static final long RETRY_DELAY_MS = 500;
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("task-timer", true),
+            TICK_DURATION_MS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    private final Executor taskTimerExecutor;
+
+    public TaskTimer(@Qualifier("taskTimerExecutor") Executor taskTimerExecutor) {
+        this.taskTimerExecutor = taskTimerExecutor;
+    }
+
+    /**
+     * 延迟执行（在 taskTimerExecutor 中执行）
+     * 返回的 Timeout 只能取消首次派发，线程池已满后重新派发的任务仍会执行，任务需自行判断是否已无需执行
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        return timer.newTimeout(timeout -> dispatch(task), Math.max(delayMs, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 当前挂起的定时任务数
+     */
+    public long pendingTimeouts() {
+        return timer.pendingTimeouts();
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            taskTimerExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("时间轮到期任务线程池已满, {}ms 后重新派发", RETRY_DELAY_MS);
+            try {
+                timer.newTimeout(timeout -> dispatch(task), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException stopped) {
+                log.debug("任务时间轮已停止, 丢弃到期任务");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int unprocessed = timer.stop().size();
+        log.info("任务时间轮已停止, 未执行任务数={}", unprocessed);
+    }
+}
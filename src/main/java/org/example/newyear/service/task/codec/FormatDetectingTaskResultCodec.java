@@ -0,0 +1,43 @@
+package org.example.newyear.service.task.codec;
+
+import org.example.newyear.entity.task.TaskResult;
+
+import java.io.IOException;
+
+/**
+ * 按配置格式写入、按数据头识别格式读取的编解码器
+ *
+ * 切换编码格式或滚动发布期间，Redis 中新旧格式的结果可以同时被读取
+ */
+public class FormatDetectingTaskResultCodec implements TaskResultCodec {
+
+    /**
+     * Smile 数据头 ":)\n"
+     */
+    private static final byte SMILE_FIRST_BYTE = ':';
+
+    private final TaskResultCodec writeCodec;
+    private final TaskResultCodec jsonCodec;
+    private final TaskResultCodec smileCodec;
+
+    public FormatDetectingTaskResultCodec(TaskResultCodec writeCodec,
+                                          TaskResultCodec jsonCodec,
+                                          TaskResultCodec smileCodec) {
+        this.writeCodec = writeCodec;
+        this.jsonCodec = jsonCodec;
+        this.smileCodec = smileCodec;
+    }
+
+    @Override
+    public byte[] encode(TaskResult result) throws IOException {
+        return writeCodec.encode(result);
+    }
+
+    @Override
+    public TaskResult decode(byte[] bytes) throws IOException {
+        if (bytes.length > 0 && bytes[0] == SMILE_FIRST_BYTE) {
+            return smileCodec.decode(bytes);
+        }
+        return jsonCodec.decode(bytes);
+    }
+}
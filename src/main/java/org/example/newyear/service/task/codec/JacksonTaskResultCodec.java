@@ -0,0 +1,28 @@
+package org.example.newyear.service.task.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.newyear.entity.task.TaskResult;
+
+import java.io.IOException;
+
+/**
+ * 基于 Jackson 的编解码器，底层格式由 ObjectMapper 的 JsonFactory 决定（JSON / Smile）
+ */
+public class JacksonTaskResultCodec implements TaskResultCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonTaskResultCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(TaskResult result) throws IOException {
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    @Override
+    public TaskResult decode(byte[] bytes) throws IOException {
+        return objectMapper.readValue(bytes, TaskResult.class);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.newyear.service.task.codec;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.example.newyear.entity.task.TaskResult;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * LZ4 压缩装饰器
+ *
+ * 编码结果不小于阈值时才压缩（LZ4 Frame 格式），解码时按帧头识别，未压缩的数据原样交给下层
+ */
+public class Lz4TaskResultCodec implements TaskResultCodec {
+
+    /**
+     * LZ4 Frame 魔数 0x184D2204（小端）
+     */
+    private static final byte[] FRAME_MAGIC = {0x04, 0x22, 0x4D, 0x18};
+
+    private final TaskResultCodec delegate;
+    private final boolean compressEnabled;
+    private final int thresholdBytes;
+
+    public Lz4TaskResultCodec(TaskResultCodec delegate, boolean compressEnabled, int thresholdBytes) {
+        this.delegate = delegate;
+        this.compressEnabled = compressEnabled;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public byte[] encode(TaskResult result) throws IOException {
+        byte[] bytes = delegate.encode(result);
+        if (!compressEnabled || bytes.length < thresholdBytes) {
+            return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+        try (OutputStream lz4 = new LZ4FrameOutputStream(out)) {
+            lz4.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public TaskResult decode(byte[] bytes) throws IOException {
+        if (!isCompressed(bytes)) {
+            return delegate.decode(bytes);
+        }
+        try (InputStream lz4 = new LZ4FrameInputStream(new ByteArrayInputStream(bytes))) {
+            return delegate.decode(StreamUtils.copyToByteArray(lz4));
+        }
+    }
+
+    private static boolean isCompressed(byte[] bytes) {
+        if (bytes.length < FRAME_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < FRAME_MAGIC.length; i++) {
+            if (bytes[i] != FRAME_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
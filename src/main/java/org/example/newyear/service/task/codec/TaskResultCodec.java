@@ -0,0 +1,21 @@
+package org.example.newyear.service.task.codec;
+
+import org.example.newyear.entity.task.TaskResult;
+
+import java.io.IOException;
+
+/**
+ * 任务结果编解码器（Redis 存储格式）
+ */
+public interface TaskResultCodec {
+
+    /**
+     * 编码任务结果
+     */
+    byte[] encode(TaskResult result) throws IOException;
+
+    /**
+     * 解码任务结果
+     */
+    TaskResult decode(byte[] bytes) throws IOException;
+}
@@ -8,47 +8,305 @@ import org.example.newyear.entity.enums.AlgorithmEnum;
 public class TaskRedisKey {
     
     /**
-     * 任务结果前缀
-     * 完整 key: task:result:{taskId}
+     * 任务结果前缀（旧格式，结果整体存为字符串）
+     * 完整 key: activity2026:result:{algorithm}:{taskId}
+     *
+     * @deprecated 已改为任务 Hash，仅用于过渡期兼容读取，旧数据过期后随 task.store.legacy-read-enabled 一起删除
      */
+    @Deprecated
     public static final String TASK_RESULT_PREFIX = "activity2026:result:";
-    
+
     /**
-     * 任务进度前缀
-     * 完整 key: task:progress:{taskId}
+     * 任务进度前缀（旧格式）
+     * 完整 key: activity2026:progress:{algorithm}:{taskId}
+     *
+     * @deprecated 同 {@link #TASK_RESULT_PREFIX}
      */
+    @Deprecated
     public static final String TASK_PROGRESS_PREFIX = "activity2026:progress:";
-    
+
+    /**
+     * 原始回调前缀（旧格式）
+     * 完整 key: activity2026:raw-callback:{algorithm}:{taskId}
+     *
+     * @deprecated 同 {@link #TASK_RESULT_PREFIX}
+     */
+    @Deprecated
+    public static final String TASK_RAW_CALLBACK_PREFIX = "activity2026:raw-callback:";
+
+    /**
+     * 任务 Hash 前缀（状态、结果、进度、原始回调存放在同一个 Hash 的不同字段）
+     * 完整 key: activity2026:task:{algorithm}:{taskId}
+     */
+    public static final String TASK_HASH_PREFIX = "activity2026:task:";
+
+    /**
+     * 任务截止时间 ZSET（member: {algorithm}:{taskId}，score: 截止时间毫秒）
+     */
+    public static final String TASK_DEADLINE_KEY = "activity2026:deadline:tasks";
+
+    /**
+     * 过期任务取消尝试次数 Hash（field: {algorithm}:{taskId}）
+     */
+    public static final String TASK_DEADLINE_ATTEMPTS_KEY = "activity2026:deadline:attempts";
+
+    /**
+     * 记录下的上游任务 SET 前缀
+     * 完整 key: activity2026:record-tasks:{recordId}
+     */
+    public static final String RECORD_TASKS_PREFIX = "activity2026:record-tasks:";
+
+    /**
+     * 回调去重标记前缀
+     * 完整 key: activity2026:callback-dedup:{algorithm}:{taskId}:{status}
+     */
+    public static final String CALLBACK_DEDUP_PREFIX = "activity2026:callback-dedup:";
+
+    /**
+     * 任务完成通知频道
+     * 消息体: {algorithm}:{taskId}
+     */
+    public static final String TASK_COMPLETION_CHANNEL = "activity2026:channel:task-completed";
+
+    /**
+     * 流程运行状态 Hash 前缀（流程定义、变量、各步骤输出与已提交的任务）
+     * 完整 key: activity2026:pipeline:run:{recordId}
+     */
+    public static final String PIPELINE_RUN_PREFIX = "activity2026:pipeline:run:";
+
+    /**
+     * 流程续接点前缀（上游任务 → 所属流程步骤）
+     * 完整 key: activity2026:pipeline:continuation:{algorithm}:{taskId}
+     */
+    public static final String PIPELINE_CONTINUATION_PREFIX = "activity2026:pipeline:continuation:";
+
+    /**
+     * 流程推进锁前缀
+     * 完整 key: activity2026:pipeline:lock:{recordId}
+     */
+    public static final String PIPELINE_LOCK_PREFIX = "activity2026:pipeline:lock:";
+
+    /**
+     * 流程待推进标记前缀（推进锁被占用时设置，持锁方释放前重新推进）
+     * 完整 key: activity2026:pipeline:pending:{recordId}
+     */
+    public static final String PIPELINE_PENDING_PREFIX = "activity2026:pipeline:pending:";
+
+    /**
+     * 运行中流程 ZSET（member: recordId，score: 最近一次进展时间毫秒）
+     */
+    public static final String PIPELINE_ACTIVE_KEY = "activity2026:pipeline:active";
+
+    /**
+     * 算法步骤结果缓存前缀（成功结果数据）
+     * 完整 key: activity2026:step-cache:{algorithm}:{fingerprint}
+     */
+    public static final String STEP_CACHE_PREFIX = "activity2026:step-cache:";
+
+    /**
+     * 待写入步骤结果缓存的任务前缀（任务 → 缓存指纹）
+     * 完整 key: activity2026:step-cache:pending:{algorithm}:{taskId}
+     */
+    public static final String STEP_CACHE_PENDING_PREFIX = "activity2026:step-cache:pending:";
+
+    /**
+     * 执行中的算法请求前缀（首个任务ID）
+     * 完整 key: activity2026:step-cache:inflight:{algorithm}:{fingerprint}
+     */
+    public static final String STEP_INFLIGHT_PREFIX = "activity2026:step-cache:inflight:";
+
+    /**
+     * 合并到执行中请求的任务列表前缀
+     * 完整 key: activity2026:step-cache:followers:{algorithm}:{fingerprint}
+     */
+    public static final String STEP_INFLIGHT_FOLLOWERS_PREFIX = "activity2026:step-cache:followers:";
+
+    /**
+     * 合并任务自己的请求参数前缀（首个任务未成功结束时接替提交）
+     * 完整 key: activity2026:step-cache:follower-request:{algorithm}:{taskId}
+     */
+    public static final String STEP_FOLLOWER_REQUEST_PREFIX = "activity2026:step-cache:follower-request:";
+
+    /**
+     * 任务耗时分段前缀（提交、首个进度、终态回调时间）
+     * 完整 key: activity2026:task:timeline:{algorithm}:{taskId}
+     */
+    public static final String TASK_TIMELINE_PREFIX = "activity2026:task:timeline:";
+
+    /**
+     * 上游提交许可前缀（ZSET，成员为持有许可的任务ID，分值为获取时间）
+     * 完整 key: activity2026:admission:permits:{algorithm}
+     */
+    public static final String ADMISSION_PERMITS_PREFIX = "activity2026:admission:permits:";
+
+    /**
+     * 运行时调整的上游并发上限（Hash，字段为算法名称）
+     */
+    public static final String ADMISSION_LIMITS_KEY = "activity2026:admission:limits";
+
+    /**
+     * 已插队任务标记前缀（每个任务只插队一次）
+     * 完整 key: activity2026:task:jumped:{algorithm}:{taskId}
+     */
+    public static final String TASK_JUMPED_PREFIX = "activity2026:task:jumped:";
+
+    /**
+     * 记录质量档位前缀（记录首个算法步骤提交时确定，后续步骤与重试沿用）
+     * 完整 key: activity2026:record:quality:{recordId}
+     */
+    public static final String RECORD_QUALITY_PREFIX = "activity2026:record:quality:";
+
     /**
      * 默认过期时间（秒）- 24小时
      */
     public static final long DEFAULT_EXPIRE_SECONDS = 24 * 60 * 60;
 
     /**
-     * 获取任务结果 Key
+     * 获取任务结果 Key（旧格式）
+     *
+     * @deprecated 同 {@link #TASK_RESULT_PREFIX}
      */
+    @Deprecated
     public static String resultKey(String taskId, AlgorithmEnum algorithm) {
         return TASK_RESULT_PREFIX + algorithm.getName() + ":" + taskId;
     }
 
     /**
-     * 获取任务结果 Key（字符串形式）
+     * 获取任务进度 Key（旧格式）
+     *
+     * @deprecated 同 {@link #TASK_RESULT_PREFIX}
      */
-    public static String resultKey(String taskId, String algorithmName) {
-        return TASK_RESULT_PREFIX + algorithmName + ":" + taskId;
+    @Deprecated
+    public static String progressKey(String taskId, AlgorithmEnum algorithm) {
+        return TASK_PROGRESS_PREFIX + algorithm.getName() + ":" + taskId;
     }
 
     /**
-     * 获取任务进度 Key
+     * 获取原始回调 Key（旧格式）
+     *
+     * @deprecated 同 {@link #TASK_RESULT_PREFIX}
      */
-    public static String progressKey(String taskId, AlgorithmEnum algorithm) {
-        return TASK_PROGRESS_PREFIX + algorithm.getName() + ":" + taskId;
+    @Deprecated
+    public static String rawCallbackKey(String taskId, AlgorithmEnum algorithm) {
+        return TASK_RAW_CALLBACK_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取任务 Hash Key
+     */
+    public static String taskKey(String taskId, AlgorithmEnum algorithm) {
+        return TASK_HASH_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取记录下的上游任务 Key
+     */
+    public static String recordTasksKey(String recordId) {
+        return RECORD_TASKS_PREFIX + recordId;
+    }
+
+    /**
+     * 获取任务标识：{algorithm}:{taskId}（集合成员、完成通知消息体、本地登记 key 共用）
+     */
+    public static String taskMember(String taskId, AlgorithmEnum algorithm) {
+        return algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取回调去重标记 Key
+     */
+    public static String callbackDedupKey(String taskId, AlgorithmEnum algorithm, Integer status) {
+        return CALLBACK_DEDUP_PREFIX + algorithm.getName() + ":" + taskId + ":" + status;
+    }
+
+    /**
+     * 获取流程运行状态 Key
+     */
+    public static String pipelineRunKey(String recordId) {
+        return PIPELINE_RUN_PREFIX + recordId;
+    }
+
+    /**
+     * 获取流程续接点 Key
+     */
+    public static String pipelineContinuationKey(String taskId, AlgorithmEnum algorithm) {
+        return PIPELINE_CONTINUATION_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取流程推进锁 Key
+     */
+    public static String pipelineLockKey(String recordId) {
+        return PIPELINE_LOCK_PREFIX + recordId;
+    }
+
+    /**
+     * 获取流程待推进标记 Key
+     */
+    public static String pipelinePendingKey(String recordId) {
+        return PIPELINE_PENDING_PREFIX + recordId;
+    }
+
+    /**
+     * 获取步骤结果缓存 Key
+     */
+    public static String stepCacheKey(String fingerprint, AlgorithmEnum algorithm) {
+        return STEP_CACHE_PREFIX + algorithm.getName() + ":" + fingerprint;
+    }
+
+    /**
+     * 获取待写入步骤结果缓存的任务 Key
+     */
+    public static String stepCachePendingKey(String taskId, AlgorithmEnum algorithm) {
+        return STEP_CACHE_PENDING_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取执行中算法请求 Key
+     */
+    public static String stepInflightKey(String fingerprint, AlgorithmEnum algorithm) {
+        return STEP_INFLIGHT_PREFIX + algorithm.getName() + ":" + fingerprint;
+    }
+
+    /**
+     * 获取合并到执行中请求的任务列表 Key
+     */
+    public static String stepInflightFollowersKey(String fingerprint, AlgorithmEnum algorithm) {
+        return STEP_INFLIGHT_FOLLOWERS_PREFIX + algorithm.getName() + ":" + fingerprint;
+    }
+
+    /**
+     * 获取合并任务请求参数 Key
+     */
+    public static String stepFollowerRequestKey(String taskId, AlgorithmEnum algorithm) {
+        return STEP_FOLLOWER_REQUEST_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取任务耗时分段 Key
+     */
+    public static String taskTimelineKey(String taskId, AlgorithmEnum algorithm) {
+        return TASK_TIMELINE_PREFIX + algorithm.getName() + ":" + taskId;
+    }
+
+    /**
+     * 获取上游提交许可 Key
+     */
+    public static String admissionPermitsKey(AlgorithmEnum algorithm) {
+        return ADMISSION_PERMITS_PREFIX + algorithm.getName();
+    }
+
+    /**
+     * 获取已插队任务标记 Key
+     */
+    public static String taskJumpedKey(String taskId, AlgorithmEnum algorithm) {
+        return TASK_JUMPED_PREFIX + algorithm.getName() + ":" + taskId;
     }
 
     /**
-     * 获取任务进度 Key（字符串形式）
+     * 获取记录质量档位 Key
      */
-    public static String progressKey(String taskId, String algorithmName) {
-        return TASK_PROGRESS_PREFIX + algorithmName + ":" + taskId;
+    public static String recordQualityKey(String recordId) {
+        return RECORD_QUALITY_PREFIX + recordId;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package org.example.newyear.util;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.javacv.*;
@@ -18,6 +20,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 视频处理工具类（基于JavaCV）
@@ -32,6 +35,7 @@ import java.util.concurrent.Executors;
 public class VideoProcessorUtil {
 
     private final OssService ossService;
+    private final MeterRegistry meterRegistry;
     private final ExecutorService executorService = Executors.newFixedThreadPool(5);
 
     /**
@@ -108,6 +112,7 @@ public class VideoProcessorUtil {
         Files.createDirectories(Paths.get(localOutputPath).getParent());
 
         try {
+            long processStart = System.currentTimeMillis();
             // 方案：使用FFmpeg的concat demuxer
             List<String> concatList = new ArrayList<>();
             for (String url : videoUrls) {
@@ -144,6 +149,7 @@ public class VideoProcessorUtil {
             // 删除临时文件
             Files.deleteIfExists(listFile);
 
+            recordDuration("media.process", "operation", "video_concat", processStart);
             log.info("视频拼接完成: localPath={}", localOutputPath);
 
             // 上传到OSS（指定账号类型）
@@ -351,6 +357,7 @@ public class VideoProcessorUtil {
         Files.createDirectories(Paths.get(localOutputPath).getParent());
 
         try {
+            long processStart = System.currentTimeMillis();
             FFmpegFrameGrabber videoGrabber = new FFmpegFrameGrabber(videoUrl);
             FFmpegFrameGrabber bgmGrabber = new FFmpegFrameGrabber(bgmUrl);
 
@@ -396,6 +403,7 @@ public class VideoProcessorUtil {
             videoGrabber.stop();
             bgmGrabber.stop();
 
+            recordDuration("media.process", "operation", "audio_mix", processStart);
             log.info("背景音乐混合完成: localPath={}", localOutputPath);
 
             // 上传到OSS
@@ -458,6 +466,17 @@ public class VideoProcessorUtil {
         return uploadLocalFileToOss(localFilePath, recordId, category, fileName, "default");
     }
 
+    /**
+     * 记录本地处理耗时（FFmpeg 处理、上传 OSS）
+     */
+    private void recordDuration(String name, String tagKey, String tagValue, long startMs) {
+        Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.currentTimeMillis() - startMs, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * 上传本地文件到OSS（指定OSS账号）
      *
@@ -489,7 +508,9 @@ public class VideoProcessorUtil {
             FileMultipartFile fileAdapter = new FileMultipartFile(localFile);
 
             // 上传到OSS（指定账号类型）
+            long uploadStart = System.currentTimeMillis();
             OssUploadResult uploadResult = ossService.upload(fileAdapter, ossPath, accountType);
+            recordDuration("media.upload", "category", category, uploadStart);
 
             log.info("OSS上传成功[{}]: fileKey={}, accessUrl={}",
                     accountType, uploadResult.getFileKey(), uploadResult.getAccessUrl());
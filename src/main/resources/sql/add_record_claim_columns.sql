@@ -0,0 +1,10 @@
+-- =============================================
+-- 创作记录添加认领租约字段（多节点批量认领待执行记录）
+-- =============================================
+
+USE `spring_2026_festival`;
+
+ALTER TABLE `spring_2026_creation_record`
+  ADD COLUMN `claim_owner` varchar(64) DEFAULT NULL COMMENT '认领批次标识' AFTER `max_retry`,
+  ADD COLUMN `claim_expire_time` timestamp NULL DEFAULT NULL COMMENT '认领租约到期时间(开始处理后清空)' AFTER `claim_owner`,
+  ADD KEY `idx_claim_expire_time` (`claim_expire_time`);
@@ -0,0 +1,20 @@
+-- =============================================
+-- 添加任务结果日志表（Redis 结果的持久化副本）
+-- =============================================
+
+USE `spring_2026_festival`;
+
+-- 创建任务结果日志表（可重复执行）
+CREATE TABLE IF NOT EXISTS `spring_2026_task_journal` (
+  `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT,
+  `task_id` varchar(128) NOT NULL COMMENT '上游任务ID',
+  `algorithm` varchar(32) NOT NULL COMMENT '算法类型',
+  `task_status` tinyint(4) NOT NULL COMMENT '任务状态: 2=成功 3=失败 4=超时 5=已取消',
+  `result` mediumblob COMMENT '任务结果(TaskResultCodec 编码)',
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_algorithm_task` (`algorithm`, `task_id`),
+  KEY `idx_task_id` (`task_id`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='任务结果日志表';
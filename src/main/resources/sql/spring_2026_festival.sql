@@ -64,6 +64,8 @@ CREATE TABLE `spring_2026_creation_record` (
                                                `audit_info` text COMMENT '审核信息(JSON)',
                                                `retry_count` int(11) DEFAULT '0' COMMENT '重试次数',
                                                `max_retry` int(11) DEFAULT '3' COMMENT '最大重试次数',
+                                               `claim_owner` varchar(64) DEFAULT NULL COMMENT '认领批次标识',
+                                               `claim_expire_time` timestamp NULL DEFAULT NULL COMMENT '认领租约到期时间(开始处理后清空)',
                                                `start_time` timestamp NULL DEFAULT NULL COMMENT '开始生成时间',
                                                `complete_time` timestamp NULL DEFAULT NULL COMMENT '完成时间',
                                                `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -75,6 +77,7 @@ CREATE TABLE `spring_2026_creation_record` (
                                                KEY `idx_user_status` (`user_id`, `record_status`),
                                                KEY `idx_template_id` (`template_id`),
                                                KEY `idx_status` (`record_status`),
+                                               KEY `idx_claim_expire_time` (`claim_expire_time`),
                                                KEY `idx_create_time` (`create_time` DESC)
 ) DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户创作记录表';
 
@@ -0,0 +1,177 @@
+package org.example.newyear.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.task.codec.JacksonTaskResultCodec;
+import org.example.newyear.service.task.codec.Lz4TaskResultCodec;
+import org.example.newyear.service.task.codec.TaskResultCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务结果编解码基准：对比原 JSON 字符串与 JSON / Smile / Smile+LZ4 的耗时与字节数（encode 的 encodedBytes 辅助计数）
+ *
+ * legacy-json 按原结果存储的写法生成：应用 ObjectMapper（spring.jackson 配置）紧凑输出、含 rawCallback；
+ * json-raw 为新 JSON 编码保留 rawCallback，用于区分拆出 rawCallback 与更换编码各自减少的字节数
+ *
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=org.example.newyear.benchmark.TaskResultCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskResultCodecBenchmark {
+
+    @Param({"legacy-json", "json-raw", "json", "smile", "smile-lz4"})
+    private String codec;
+
+    private ObjectMapper jsonMapper;
+    private TaskResultCodec taskResultCodec;
+    private TaskResult result;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        // 与 application.yml 的 spring.jackson 配置一致
+        jsonMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .timeZone(TimeZone.getTimeZone("Asia/Shanghai"))
+                .simpleDateFormat("yyyy-MM-dd HH:mm:ss")
+                .build();
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .factory(new SmileFactory())
+                .build();
+
+        TaskResult withRawCallback = sampleResult(jsonMapper);
+        switch (codec) {
+            case "json-raw":
+            case "json":
+                taskResultCodec = new JacksonTaskResultCodec(jsonMapper);
+                break;
+            case "smile":
+                taskResultCodec = new JacksonTaskResultCodec(smileMapper);
+                break;
+            case "smile-lz4":
+                taskResultCodec = new Lz4TaskResultCodec(new JacksonTaskResultCodec(smileMapper), true, 0);
+                break;
+            default:
+                taskResultCodec = null;
+        }
+
+        // 原实现整体写入 rawCallback，新实现单独存放，轮询读取的值不再包含它
+        result = taskResultCodec == null || "json-raw".equals(codec)
+                ? withRawCallback
+                : withRawCallback.toBuilder().rawCallback(null).build();
+        encoded = doEncode();
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) throws IOException {
+        byte[] bytes = doEncode();
+        size.encodedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public TaskResult decode() throws IOException {
+        if (taskResultCodec == null) {
+            return jsonMapper.readValue(new String(encoded, StandardCharsets.UTF_8), TaskResult.class);
+        }
+        return taskResultCodec.decode(encoded);
+    }
+
+    private byte[] doEncode() throws IOException {
+        if (taskResultCodec == null) {
+            return jsonMapper.writeValueAsString(result).getBytes(StandardCharsets.UTF_8);
+        }
+        return taskResultCodec.encode(result);
+    }
+
+    /**
+     * 编码后字节数，随 encode 结果一起输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encodedBytes = 0;
+        }
+    }
+
+    /**
+     * 典型的人物替换成功回调
+     */
+    private static TaskResult sampleResult(ObjectMapper mapper) throws IOException {
+        ObjectNode data = mapper.createObjectNode();
+        data.put("code", 200);
+        data.put("message", "success");
+        data.put("targetVideoUrl",
+                "https://activity2026.oss-cn-hangzhou.aliyuncs.com/result/wan_animate/3f2a9c7e5b8d4e1f9a6c2b7d8e0f1a3c.mp4"
+                        + "?Expires=1767225600&OSSAccessKeyId=LTAI5tExampleKeyId&Signature=q8Zx1example%2BSignature%3D");
+        data.put("duration", 10.04);
+        data.put("width", 832);
+        data.put("height", 480);
+        data.put("costMs", 182345);
+
+        ObjectNode callback = mapper.createObjectNode();
+        callback.put("code", 0);
+        callback.put("message", "ok");
+        callback.put("ability", "Dreamface-WanAnimate-Image2Video-V1");
+        callback.put("taskStatus", 3);
+        callback.put("businessTaskId", "activity2026:3f2a9c7e5b8d4e1f9a6c2b7d8e0f1a3c");
+        callback.put("businessMessage", "{\"recordId\":\"1890012345678901234\",\"step\":\"wan_animate\"}");
+        callback.set("data", data);
+
+        return TaskResult.builder()
+                .taskId("activity2026:3f2a9c7e5b8d4e1f9a6c2b7d8e0f1a3c")
+                .algorithm(AlgorithmEnum.WAN_ANIMATE)
+                .status(TaskResultStatus.SUCCESS)
+                .errorCode(200)
+                .errorMessage("success")
+                .data(data)
+                .businessMessage("{\"recordId\":\"1890012345678901234\",\"step\":\"wan_animate\"}")
+                .callbackTime(LocalDateTime.now())
+                .rawCallback(mapper.writeValueAsString(callback))
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskResultCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
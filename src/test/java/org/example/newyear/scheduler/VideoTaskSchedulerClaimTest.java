@@ -0,0 +1,257 @@
+package org.example.newyear.scheduler;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.dto.VideoCreateDTO;
+import org.example.newyear.entity.Spring2026CreationRecord;
+import org.example.newyear.service.CallbackResultManager;
+import org.example.newyear.service.TemplateService;
+import org.example.newyear.service.VideoProcessingService;
+import org.example.newyear.service.pipeline.ContinuationPipelineRunner;
+import org.example.newyear.service.pipeline.PipelineEngine;
+import org.example.newyear.service.task.TaskDeadlineRegistry;
+import org.example.newyear.service.task.TaskOrchestrator;
+import org.example.newyear.support.MySqlContainerSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 记录认领：按创建时间批量认领、多节点认领不重叠、租约到期重新排队、在途记录上限，
+ * 以及认领失效（重新排队、其他节点认领）后原节点不再开始处理、不再写入结果
+ */
+class VideoTaskSchedulerClaimTest extends MySqlContainerSupport {
+
+    private TaskProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TaskProperties();
+        properties.getClaim().setBatchSize(2);
+    }
+
+    @Test
+    void claimsOldestPendingRecordsAndDispatchesWithClaimOwner() {
+        insertPending("rec_1", 30);
+        insertPending("rec_2", 20);
+        insertPending("rec_3", 10);
+        VideoProcessingService processing = mock(VideoProcessingService.class);
+
+        scheduler(processing).scheduleVideoTasks();
+
+        List<String> dispatched = dispatched(processing, 2);
+        assertThat(dispatched).containsExactly("rec_1", "rec_2");
+        Spring2026CreationRecord claimed = find("rec_1");
+        assertThat(claimed.getStatus()).isEqualTo(1);
+        assertThat(claimed.getClaimOwner()).isNotNull();
+        assertThat(claimed.getClaimExpireTime()).isAfter(LocalDateTime.now());
+        verify(processing).processVideoCreation(eq("rec_1"), eq("u1"), any(), eq(claimed.getClaimOwner()));
+        assertThat(find("rec_3").getStatus()).isZero();
+    }
+
+    @Test
+    void concurrentNodesClaimDisjointRecords() {
+        properties.getClaim().setBatchSize(20);
+        for (int i = 0; i < 30; i++) {
+            insertPending("rec_" + i, 60 - i);
+        }
+        VideoProcessingService first = mock(VideoProcessingService.class);
+        VideoProcessingService second = mock(VideoProcessingService.class);
+        VideoTaskScheduler nodeA = scheduler(first);
+        VideoTaskScheduler nodeB = scheduler(second);
+
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(nodeA::scheduleVideoTasks),
+                CompletableFuture.runAsync(nodeB::scheduleVideoTasks)).join();
+
+        List<String> all = new ArrayList<>(captured(first));
+        all.addAll(captured(second));
+        Set<String> unique = new HashSet<>(all);
+        assertThat(unique).hasSameSizeAs(all);
+        assertThat(all).hasSizeGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void expiredLeaseIsRequeuedAndClaimedAgain() {
+        insertPending("rec_1", 10);
+        VideoProcessingService first = mock(VideoProcessingService.class);
+        scheduler(first).scheduleVideoTasks();
+        String firstOwner = find("rec_1").getClaimOwner();
+
+        // 认领后租约到期仍未开始处理
+        recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, "rec_1")
+                .set(Spring2026CreationRecord::getClaimExpireTime, LocalDateTime.now().minusSeconds(1)));
+        VideoProcessingService second = mock(VideoProcessingService.class);
+        scheduler(second).scheduleVideoTasks();
+
+        Spring2026CreationRecord reclaimed = find("rec_1");
+        assertThat(reclaimed.getStatus()).isEqualTo(1);
+        assertThat(reclaimed.getClaimOwner()).isNotEqualTo(firstOwner);
+        verify(second).processVideoCreation(eq("rec_1"), eq("u1"), any(), eq(reclaimed.getClaimOwner()));
+    }
+
+    @Test
+    void startedRecordIsNotRequeued() {
+        insertPending("rec_1", 10);
+        scheduler(mock(VideoProcessingService.class)).scheduleVideoTasks();
+        // 开始处理后清除租约
+        recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, "rec_1")
+                .set(Spring2026CreationRecord::getClaimExpireTime, null));
+
+        VideoProcessingService second = mock(VideoProcessingService.class);
+        scheduler(second).scheduleVideoTasks();
+
+        verify(second, never()).processVideoCreation(anyString(), anyString(), any(), anyString());
+        assertThat(find("rec_1").getStatus()).isEqualTo(1);
+    }
+
+    @Test
+    void inflightLimitBoundsClaim() {
+        properties.getClaim().setBatchSize(20);
+        properties.getClaim().setMaxInflight(3);
+        for (int i = 0; i < 5; i++) {
+            insertPending("rec_" + i, 10 - i);
+        }
+        recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .in(Spring2026CreationRecord::getRecordId, "rec_0", "rec_1")
+                .set(Spring2026CreationRecord::getStatus, 1));
+        VideoProcessingService processing = mock(VideoProcessingService.class);
+
+        scheduler(processing).scheduleVideoTasks();
+
+        assertThat(dispatched(processing, 1)).containsExactly("rec_2");
+    }
+
+    @Test
+    void staleClaimIsNotStarted() {
+        insertPending("rec_1", 10);
+        scheduler(mock(VideoProcessingService.class)).scheduleVideoTasks();
+        String owner = find("rec_1").getClaimOwner();
+        TemplateService templateService = mock(TemplateService.class);
+        VideoProcessingService processing = processing(templateService);
+        VideoCreateDTO dto = new VideoCreateDTO();
+        dto.setTemplateId("tpl_1");
+
+        processing.processVideoCreation("rec_1", "u1", dto, "stale-owner");
+
+        verify(templateService, never()).getTemplateById(anyString());
+        Spring2026CreationRecord untouched = find("rec_1");
+        assertThat(untouched.getStartTime()).isNull();
+        assertThat(untouched.getClaimExpireTime()).isNotNull();
+
+        processing.processVideoCreation("rec_1", "u1", dto, owner);
+
+        verify(templateService).getTemplateById("tpl_1");
+        assertThat(find("rec_1").getStartTime()).isNotNull();
+    }
+
+    @Test
+    void completedRecordFreesInflightHeadroom() {
+        properties.getClaim().setMaxInflight(1);
+        insertPending("rec_1", 20);
+        insertPending("rec_2", 10);
+        scheduler(mock(VideoProcessingService.class)).scheduleVideoTasks();
+        String owner = find("rec_1").getClaimOwner();
+
+        VideoProcessingService blocked = mock(VideoProcessingService.class);
+        scheduler(blocked).scheduleVideoTasks();
+        verify(blocked, never()).processVideoCreation(anyString(), anyString(), any(), anyString());
+
+        processing(mock(TemplateService.class)).onPipelineCompleted("rec_1", owner, "https://oss/result.mp4");
+
+        Spring2026CreationRecord completed = find("rec_1");
+        assertThat(completed.getStatus()).isEqualTo(2);
+        assertThat(completed.getResultUrl()).isEqualTo("https://oss/result.mp4");
+        assertThat(completed.getCompleteTime()).isNotNull();
+        VideoProcessingService next = mock(VideoProcessingService.class);
+        scheduler(next).scheduleVideoTasks();
+        assertThat(dispatched(next, 1)).containsExactly("rec_2");
+    }
+
+    @Test
+    void staleRunDoesNotOverwriteReclaimedRecord() {
+        insertPending("rec_1", 10);
+        scheduler(mock(VideoProcessingService.class)).scheduleVideoTasks();
+        String staleOwner = find("rec_1").getClaimOwner();
+        // 上一次执行失败后重新排队，被再次认领
+        recordMapper.update(null, new LambdaUpdateWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, "rec_1")
+                .set(Spring2026CreationRecord::getStatus, 0));
+        scheduler(mock(VideoProcessingService.class)).scheduleVideoTasks();
+        String owner = find("rec_1").getClaimOwner();
+        assertThat(owner).isNotEqualTo(staleOwner);
+        VideoProcessingService processing = processing(mock(TemplateService.class));
+
+        processing.onPipelineCompleted("rec_1", staleOwner, "https://oss/stale.mp4");
+        processing.onPipelineFailed("rec_1", staleOwner, "上游任务失败");
+
+        Spring2026CreationRecord reclaimed = find("rec_1");
+        assertThat(reclaimed.getStatus()).isEqualTo(1);
+        assertThat(reclaimed.getClaimOwner()).isEqualTo(owner);
+        assertThat(reclaimed.getResultUrl()).isNull();
+        assertThat(reclaimed.getRetryCount()).isZero();
+    }
+
+    // ======================== 辅助方法 ========================
+
+    private VideoProcessingService processing(TemplateService templateService) {
+        return new VideoProcessingService(recordMapper, templateService,
+                mock(ApplicationContext.class), mock(CallbackResultManager.class), mock(TaskOrchestrator.class),
+                mock(TaskDeadlineRegistry.class), mock(PipelineEngine.class), mock(ContinuationPipelineRunner.class),
+                properties);
+    }
+
+    private VideoTaskScheduler scheduler(VideoProcessingService processing) {
+        return new VideoTaskScheduler(recordMapper, processing, Runnable::run, properties);
+    }
+
+    private static void insertPending(String recordId, int minutesAgo) {
+        recordMapper.insert(Spring2026CreationRecord.builder()
+                .recordId(recordId)
+                .userId("u1")
+                .templateId("tpl_1")
+                .userMaterials("{}")
+                .status(0)
+                .createTime(LocalDateTime.now().minusMinutes(minutesAgo))
+                .build());
+    }
+
+    private static Spring2026CreationRecord find(String recordId) {
+        return recordMapper.selectOne(new LambdaQueryWrapper<Spring2026CreationRecord>()
+                .eq(Spring2026CreationRecord::getRecordId, recordId));
+    }
+
+    private static List<String> dispatched(VideoProcessingService processing, int count) {
+        ArgumentCaptor<String> recordIds = ArgumentCaptor.forClass(String.class);
+        verify(processing, times(count)).processVideoCreation(recordIds.capture(), anyString(), any(), anyString());
+        return recordIds.getAllValues();
+    }
+
+    private static List<String> captured(VideoProcessingService processing) {
+        ArgumentCaptor<String> recordIds = ArgumentCaptor.forClass(String.class);
+        verify(processing, atLeast(0))
+                .processVideoCreation(recordIds.capture(), anyString(), any(), anyString());
+        return recordIds.getAllValues();
+    }
+}
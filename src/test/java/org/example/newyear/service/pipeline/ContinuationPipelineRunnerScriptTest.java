@@ -0,0 +1,111 @@
+package org.example.newyear.service.pipeline;
+
+import org.example.newyear.support.RedisContainerSupport;
+import org.example.newyear.util.TaskRedisKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 事件驱动流程运行状态脚本：写入只作用于当前执行，重新启动与结束后旧执行的写入被丢弃
+ */
+class ContinuationPipelineRunnerScriptTest extends RedisContainerSupport {
+
+    private static final String RECORD_ID = "rec_1";
+    private static final String RUN_KEY = TaskRedisKey.pipelineRunKey(RECORD_ID);
+
+    @BeforeEach
+    void startRun() {
+        startRun("run-1");
+    }
+
+    @Test
+    void putStepWritesCurrentRunAndRecordsProgress() {
+        assertThat(putStep("run-1", "step:a", "{\"status\":\"done\"}", 1000L)).isEqualTo(1L);
+
+        assertThat(redisTemplate.opsForHash().get(RUN_KEY, "step:a")).isEqualTo("{\"status\":\"done\"}");
+        assertThat(redisTemplate.opsForZSet().score(TaskRedisKey.PIPELINE_ACTIVE_KEY, RECORD_ID)).isEqualTo(1000d);
+        assertThat(redisTemplate.getExpire(RUN_KEY)).isPositive();
+    }
+
+    @Test
+    void putStepFromPreviousRunIsDroppedAfterRestart() {
+        startRun("run-2");
+
+        assertThat(putStep("run-1", "step:a", "{\"status\":\"done\"}", 1000L)).isEqualTo(0L);
+
+        assertThat(redisTemplate.opsForHash().hasKey(RUN_KEY, "step:a")).isFalse();
+        assertThat(redisTemplate.opsForHash().get(RUN_KEY, "run_id")).isEqualTo("run-2");
+    }
+
+    @Test
+    void endedRunIsNotRecreated() {
+        redisTemplate.opsForZSet().add(TaskRedisKey.PIPELINE_ACTIVE_KEY, RECORD_ID, 1);
+        assertThat(end("run-1")).isEqualTo(1L);
+        assertThat(end("run-1")).isEqualTo(0L);
+
+        assertThat(putStep("run-1", "step:a", "{\"status\":\"done\"}", 2000L)).isEqualTo(0L);
+        assertThat(markFailed("run-1", "{\"output\":\"late\"}")).isEqualTo(0L);
+
+        assertThat(redisTemplate.hasKey(RUN_KEY)).isFalse();
+        assertThat(redisTemplate.opsForZSet().score(TaskRedisKey.PIPELINE_ACTIVE_KEY, RECORD_ID)).isNull();
+    }
+
+    @Test
+    void endFromPreviousRunKeepsNewRun() {
+        startRun("run-2");
+        redisTemplate.opsForZSet().add(TaskRedisKey.PIPELINE_ACTIVE_KEY, RECORD_ID, 1);
+
+        assertThat(end("run-1")).isEqualTo(0L);
+
+        assertThat(redisTemplate.opsForHash().get(RUN_KEY, "run_id")).isEqualTo("run-2");
+        assertThat(redisTemplate.opsForZSet().score(TaskRedisKey.PIPELINE_ACTIVE_KEY, RECORD_ID)).isNotNull();
+    }
+
+    @Test
+    void markFailedKeepsFirstErrorOfCurrentRun() {
+        assertThat(markFailed("run-1", "{\"output\":\"first\"}")).isEqualTo(1L);
+        assertThat(markFailed("run-1", "{\"output\":\"second\"}")).isEqualTo(0L);
+
+        assertThat(redisTemplate.opsForHash().get(RUN_KEY, "error")).isEqualTo("{\"output\":\"first\"}");
+    }
+
+    @Test
+    void markFailedFromPreviousRunIsDropped() {
+        startRun("run-2");
+
+        assertThat(markFailed("run-1", "{\"output\":\"stale\"}")).isEqualTo(0L);
+
+        assertThat(redisTemplate.opsForHash().hasKey(RUN_KEY, "error")).isFalse();
+    }
+
+    private void startRun(String runId) {
+        Map<String, String> state = new HashMap<>();
+        state.put("run_id", runId);
+        state.put("pipeline", "tpl_001");
+        redisTemplate.delete(RUN_KEY);
+        redisTemplate.opsForHash().putAll(RUN_KEY, state);
+    }
+
+    private Long putStep(String runId, String field, String value, long now) {
+        return redisTemplate.execute(ContinuationPipelineRunner.PUT_STEP_SCRIPT,
+                Arrays.asList(RUN_KEY, TaskRedisKey.PIPELINE_ACTIVE_KEY),
+                runId, field, value, "3600", RECORD_ID, String.valueOf(now));
+    }
+
+    private Long markFailed(String runId, String error) {
+        return redisTemplate.execute(ContinuationPipelineRunner.MARK_FAILED_SCRIPT,
+                Collections.singletonList(RUN_KEY), runId, error);
+    }
+
+    private Long end(String runId) {
+        return redisTemplate.execute(ContinuationPipelineRunner.END_SCRIPT,
+                Arrays.asList(RUN_KEY, TaskRedisKey.PIPELINE_ACTIVE_KEY), runId, RECORD_ID);
+    }
+}
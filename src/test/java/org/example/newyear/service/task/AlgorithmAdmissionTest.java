@@ -0,0 +1,203 @@
+package org.example.newyear.service.task;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.support.RedisContainerSupport;
+import org.example.newyear.util.TaskRedisKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 上游提交准入：许可获取与归还、排队派发、节点停止时排队任务以失败结果完成
+ */
+class AlgorithmAdmissionTest extends RedisContainerSupport {
+
+    private static final AlgorithmEnum ALGORITHM = AlgorithmEnum.WAN_ANIMATE;
+    private static final String PERMITS = TaskRedisKey.admissionPermitsKey(ALGORITHM);
+    private static final String QUEUED = "queued";
+
+    private CallbackHandler callbackHandler;
+    private StepResultCache stepResultCache;
+    private TaskDeadlineRegistry deadlineRegistry;
+    private AlgorithmAdmission admission;
+
+    /**
+     * 实际提交过的任务
+     */
+    private final List<String> submitted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        submitted.clear();
+        callbackHandler = mock(CallbackHandler.class);
+        stepResultCache = mock(StepResultCache.class);
+        TaskProperties properties = new TaskProperties();
+        properties.getAdmission().getLimits().put(ALGORITHM.getName(), 1);
+        properties.getAdmission().setMaxQueued(2);
+        deadlineRegistry = new TaskDeadlineRegistry(redisTemplate, properties);
+        admission = new AlgorithmAdmission(redisTemplate, callbackHandler, stepResultCache, deadlineRegistry,
+                new SimpleMeterRegistry(), Runnable::run, properties);
+    }
+
+    @Test
+    void submitsWithinLimitAndQueuesBeyondIt() {
+        assertThat(submit("t1", "ok")).isEqualTo("ok");
+        assertThat(submit("t2", "ok")).isEqualTo(QUEUED);
+
+        assertThat(submitted).containsExactly("t1");
+        assertThat(redisTemplate.opsForZSet().range(PERMITS, 0, -1)).containsExactly("t1");
+        assertThat(admission.getQueuedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void completionReleasesPermitAndDispatchesQueuedTask() {
+        submit("t1", "ok");
+        submit("t2", "ok");
+
+        admission.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+
+        assertThat(submitted).containsExactly("t1", "t2");
+        assertThat(redisTemplate.opsForZSet().range(PERMITS, 0, -1)).containsExactly("t2");
+        assertThat(admission.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void higherPriorityIsDispatchedFirst() {
+        submit("t1", 0, "ok");
+        submit("t2", 0, "ok");
+        submit("t3", 2, "ok");
+
+        admission.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+
+        assertThat(submitted).containsExactly("t1", "t3");
+    }
+
+    @Test
+    void rejectedOrThrownSubmitReleasesPermit() {
+        assertThat(submit("t1", "rejected")).isEqualTo("rejected");
+        assertThat(redisTemplate.opsForZSet().zCard(PERMITS)).isZero();
+
+        assertThatThrownBy(() -> admission.submit(ALGORITHM, "t2", 0,
+                () -> {
+                    throw new IllegalStateException("上游不可用");
+                },
+                "ok"::equals, () -> QUEUED))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(redisTemplate.opsForZSet().zCard(PERMITS)).isZero();
+
+        assertThat(submit("t3", "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void queuedSubmitFailureCompletesTaskAsFailedAndReleasesPermit() {
+        submit("t1", "ok");
+        submit("t2", "rejected");
+
+        admission.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+
+        TaskResult failed = delivered();
+        assertThat(failed.getTaskId()).isEqualTo("t2");
+        assertThat(failed.getStatus()).isEqualTo(TaskResultStatus.FAILED);
+        assertThat(redisTemplate.opsForZSet().zCard(PERMITS)).isZero();
+    }
+
+    @Test
+    void fullQueueRejectsAndAbandonsCoalescedRequest() {
+        submit("t1", "ok");
+        submit("t2", "ok");
+        submit("t3", "ok");
+
+        assertThatThrownBy(() -> submit("t4", "ok")).hasMessageContaining("排队已满");
+        verify(stepResultCache).abandon(eq(ALGORITHM), eq("t4"), anyString());
+    }
+
+    @Test
+    void dispatchPostponesDeadlineByQueueWait() throws InterruptedException {
+        submit("t1", "ok");
+        deadlineRegistry.register("t2", ALGORITHM, "rec_1", Duration.ofMinutes(10));
+        submit("t2", "ok");
+        Double registered = deadline("t2");
+
+        Thread.sleep(50);
+        admission.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+
+        assertThat(deadline("t2")).isGreaterThanOrEqualTo(registered + 50);
+    }
+
+    @Test
+    void expiredDeadlineIsNotPostponed() {
+        deadlineRegistry.register("t1", ALGORITHM, "rec_1", Duration.ofMinutes(10));
+        deadlineRegistry.abandonRecord("rec_1");
+        Double abandoned = deadline("t1");
+
+        assertThat(deadlineRegistry.postpone("t1", ALGORITHM, 60000)).isFalse();
+        assertThat(deadline("t1")).isEqualTo(abandoned);
+    }
+
+    @Test
+    void shutdownFailsQueuedTasksAndStopsQueueing() {
+        submit("t1", "ok");
+        submit("t2", "ok");
+
+        admission.shutdown();
+
+        TaskResult failed = delivered();
+        assertThat(failed.getTaskId()).isEqualTo("t2");
+        assertThat(failed.getStatus()).isEqualTo(TaskResultStatus.FAILED);
+        assertThat(admission.getQueuedCount()).isZero();
+
+        assertThatThrownBy(() -> submit("t3", "ok")).hasMessageContaining("节点停止");
+        admission.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+        assertThat(submitted).containsExactly("t1");
+    }
+
+    // ======================== 辅助方法 ========================
+
+    private String submit(String taskId, String response) {
+        return submit(taskId, 0, response);
+    }
+
+    private String submit(String taskId, int priority, String response) {
+        return admission.submit(ALGORITHM, taskId, priority,
+                () -> {
+                    submitted.add(taskId);
+                    return response;
+                },
+                "ok"::equals, () -> QUEUED);
+    }
+
+    private Double deadline(String taskId) {
+        return redisTemplate.opsForZSet().score(TaskRedisKey.TASK_DEADLINE_KEY,
+                TaskRedisKey.taskMember(taskId, ALGORITHM));
+    }
+
+    private static TaskResult result(String taskId, TaskResultStatus status) {
+        return TaskResult.builder()
+                .taskId(taskId)
+                .algorithm(ALGORITHM)
+                .status(status)
+                .build();
+    }
+
+    private TaskResult delivered() {
+        ArgumentCaptor<TaskResult> captor = ArgumentCaptor.forClass(TaskResult.class);
+        verify(callbackHandler).handleResult(captor.capture(), eq(ALGORITHM));
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.newyear.service.task;
+
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在途任务登记：同一任务的多个等待方各自登记，一方注销不影响其他等待方的推送完成
+ */
+class PendingTaskRegistryTest {
+
+    private static final AlgorithmEnum ALGORITHM = AlgorithmEnum.WAN_ANIMATE;
+
+    private final PendingTaskRegistry registry = new PendingTaskRegistry();
+
+    @Test
+    void unregisteringOneWaiterKeepsOthersPending() {
+        CompletableFuture<TaskResult> first = registry.register("t1", ALGORITHM);
+        CompletableFuture<TaskResult> second = registry.register("t1", ALGORITHM);
+
+        registry.unregister("t1", ALGORITHM, first);
+
+        assertThat(registry.isPending("t1", ALGORITHM)).isTrue();
+        assertThat(registry.complete("t1", ALGORITHM, result("t1"))).isTrue();
+        assertThat(second).isCompletedWithValueMatching(result -> "t1".equals(result.getTaskId()));
+        assertThat(first).isNotDone();
+    }
+
+    @Test
+    void lastWaiterUnregisteringRemovesTask() {
+        CompletableFuture<TaskResult> first = registry.register("t1", ALGORITHM);
+        CompletableFuture<TaskResult> second = registry.register("t1", ALGORITHM);
+
+        registry.unregister("t1", ALGORITHM, first);
+        registry.unregister("t1", ALGORITHM, second);
+
+        assertThat(registry.isPending("t1", ALGORITHM)).isFalse();
+        assertThat(registry.size()).isZero();
+        assertThat(registry.complete("t1", ALGORITHM, result("t1"))).isFalse();
+    }
+
+    @Test
+    void completeDeliversToEveryWaiter() {
+        CompletableFuture<TaskResult> first = registry.register("t1", ALGORITHM);
+        CompletableFuture<TaskResult> second = registry.register("t1", ALGORITHM);
+
+        registry.complete("t1", ALGORITHM, result("t1"));
+
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(registry.isPending("t1", ALGORITHM)).isFalse();
+    }
+
+    private static TaskResult result(String taskId) {
+        return TaskResult.builder()
+                .taskId(taskId)
+                .algorithm(ALGORITHM)
+                .status(TaskResultStatus.SUCCESS)
+                .build();
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.newyear.service.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.support.RedisContainerSupport;
+import org.example.newyear.util.JsonUtil;
+import org.example.newyear.util.TaskRedisKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 相同请求合并：登记/释放/接替脚本，以及首个任务未成功结束时挂起任务接替提交而不是跟着失败
+ */
+class StepResultCacheSingleFlightTest extends RedisContainerSupport {
+
+    private static final AlgorithmEnum ALGORITHM = AlgorithmEnum.FLUX2_IMAGE_GEN;
+    private static final String INFLIGHT = "activity2026:step-cache:inflight:flux2_image_gen:fp";
+    private static final String FOLLOWERS = "activity2026:step-cache:followers:flux2_image_gen:fp";
+
+    private CallbackHandler callbackHandler;
+    private CoalescedTaskSubmitter submitter;
+    private StepResultCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        callbackHandler = mock(CallbackHandler.class);
+        submitter = mock(CoalescedTaskSubmitter.class);
+        when(submitter.supports(ALGORITHM)).thenReturn(true);
+        ObjectProvider<CoalescedTaskSubmitter> submitters = mock(ObjectProvider.class);
+        when(submitters.orderedStream()).thenAnswer(invocation -> Stream.of(submitter));
+        cache = new StepResultCache(redisTemplate, callbackHandler, submitters, Runnable::run, new TaskProperties());
+    }
+
+    // ======================== 脚本 ========================
+
+    @Test
+    void acquireRegistersFirstTaskAndQueuesFollowersWithTheirRequests() {
+        assertThat(acquire("t1", "{\"r\":1}")).isEqualTo("t1");
+        assertThat(acquire("t2", "{\"r\":2}")).isEqualTo("t1");
+        assertThat(acquire("t3", "{\"r\":3}")).isEqualTo("t1");
+
+        assertThat(redisTemplate.opsForValue().get(INFLIGHT)).isEqualTo("t1");
+        assertThat(redisTemplate.opsForList().range(FOLLOWERS, 0, -1)).containsExactly("t2", "t3");
+        assertThat(redisTemplate.opsForValue().get(TaskRedisKey.stepFollowerRequestKey("t2", ALGORITHM)))
+                .isEqualTo("{\"r\":2}");
+        assertThat(redisTemplate.hasKey(TaskRedisKey.stepFollowerRequestKey("t1", ALGORITHM))).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releaseReturnsFollowersOnlyForCurrentLeader() {
+        acquire("t1", "{}");
+        acquire("t2", "{}");
+
+        List<String> stale = redisTemplate.execute(StepResultCache.RELEASE_SCRIPT, keys(), "t0");
+        assertThat(stale).isEmpty();
+        assertThat(redisTemplate.opsForValue().get(INFLIGHT)).isEqualTo("t1");
+
+        List<String> followers = redisTemplate.execute(StepResultCache.RELEASE_SCRIPT, keys(), "t1");
+        assertThat(followers).containsExactly("t2");
+        assertThat(redisTemplate.hasKey(INFLIGHT)).isFalse();
+        assertThat(redisTemplate.hasKey(FOLLOWERS)).isFalse();
+    }
+
+    @Test
+    void promoteHandsLeadershipToFirstFollower() {
+        acquire("t1", "{}");
+        acquire("t2", "{}");
+        acquire("t3", "{}");
+
+        assertThat(promote("t0")).isNull();
+        assertThat(promote("t1")).isEqualTo("t2");
+        assertThat(redisTemplate.opsForValue().get(INFLIGHT)).isEqualTo("t2");
+        assertThat(redisTemplate.opsForList().range(FOLLOWERS, 0, -1)).containsExactly("t3");
+
+        assertThat(promote("t2")).isEqualTo("t3");
+        assertThat(promote("t3")).isNull();
+        assertThat(redisTemplate.hasKey(INFLIGHT)).isFalse();
+    }
+
+    // ======================== 首个任务结束 ========================
+
+    @Test
+    void successfulLeaderCompletesFollowers() {
+        assertThat(cache.replay(ALGORITHM, request("t1"), "t1")).isFalse();
+        assertThat(cache.replay(ALGORITHM, request("t2"), "t2")).isTrue();
+
+        cache.onTaskCompleted(result("t1", TaskResultStatus.SUCCESS), ALGORITHM);
+
+        TaskResult follower = delivered();
+        assertThat(follower.getTaskId()).isEqualTo("t2");
+        assertThat(follower.getStatus()).isEqualTo(TaskResultStatus.SUCCESS);
+        verify(submitter, never()).resubmit(any(), anyString(), anyString());
+    }
+
+    @Test
+    void upstreamFailureFansOutToFollowers() {
+        cache.replay(ALGORITHM, request("t1"), "t1");
+        cache.replay(ALGORITHM, request("t2"), "t2");
+
+        cache.onTaskCompleted(result("t1", TaskResultStatus.FAILED), ALGORITHM);
+
+        TaskResult follower = delivered();
+        assertThat(follower.getTaskId()).isEqualTo("t2");
+        assertThat(follower.getStatus()).isEqualTo(TaskResultStatus.FAILED);
+        verify(submitter, never()).resubmit(any(), anyString(), anyString());
+    }
+
+    @Test
+    void cancelledLeaderPromotesFollowerInsteadOfFailingIt() {
+        cache.replay(ALGORITHM, request("t1"), "t1");
+        cache.replay(ALGORITHM, request("t2"), "t2");
+        cache.replay(ALGORITHM, request("t3"), "t3");
+        when(submitter.resubmit(eq(ALGORITHM), eq("t2"), anyString())).thenReturn(true);
+
+        cache.onTaskCompleted(result("t1", TaskResultStatus.CANCELLED), ALGORITHM);
+
+        verify(submitter).resubmit(ALGORITHM, "t2", JsonUtil.toJson(request("t2")));
+        verify(callbackHandler, never()).handleResult(any(), any());
+        assertThat(currentLeader()).isEqualTo("t2");
+        assertThat(currentFollowers()).containsExactly("t3");
+
+        // 新的首个任务成功后完成其余挂起的任务
+        cache.onTaskCompleted(result("t2", TaskResultStatus.SUCCESS), ALGORITHM);
+        TaskResult follower = delivered();
+        assertThat(follower.getTaskId()).isEqualTo("t3");
+        assertThat(follower.getStatus()).isEqualTo(TaskResultStatus.SUCCESS);
+    }
+
+    @Test
+    void failedResubmitFailsThatFollowerAndPromotesNext() {
+        cache.replay(ALGORITHM, request("t1"), "t1");
+        cache.replay(ALGORITHM, request("t2"), "t2");
+        cache.replay(ALGORITHM, request("t3"), "t3");
+        when(submitter.resubmit(eq(ALGORITHM), eq("t2"), anyString())).thenReturn(false);
+        when(submitter.resubmit(eq(ALGORITHM), eq("t3"), anyString())).thenReturn(true);
+
+        cache.abandon(ALGORITHM, "t1", "上游任务排队已满");
+
+        verify(submitter).resubmit(eq(ALGORITHM), eq("t3"), anyString());
+        TaskResult failed = delivered();
+        assertThat(failed.getTaskId()).isEqualTo("t2");
+        assertThat(failed.getStatus()).isEqualTo(TaskResultStatus.FAILED);
+        assertThat(currentLeader()).isEqualTo("t3");
+    }
+
+    // ======================== 辅助方法 ========================
+
+    private String acquire(String taskId, String requestJson) {
+        return redisTemplate.execute(StepResultCache.ACQUIRE_SCRIPT,
+                Arrays.asList(INFLIGHT, FOLLOWERS, TaskRedisKey.stepFollowerRequestKey(taskId, ALGORITHM)),
+                taskId, "1800", requestJson);
+    }
+
+    private String promote(String leader) {
+        return redisTemplate.execute(StepResultCache.PROMOTE_SCRIPT, keys(), leader, "1800");
+    }
+
+    /**
+     * 按请求合并登记的首个任务（指纹由请求计算，按前缀查找）
+     */
+    private String currentLeader() {
+        Set<String> keys = redisTemplate.keys(TaskRedisKey.STEP_INFLIGHT_PREFIX + ALGORITHM.getName() + ":*");
+        assertThat(keys).hasSize(1);
+        return redisTemplate.opsForValue().get(keys.iterator().next());
+    }
+
+    private List<String> currentFollowers() {
+        Set<String> keys = redisTemplate.keys(TaskRedisKey.STEP_INFLIGHT_FOLLOWERS_PREFIX + ALGORITHM.getName() + ":*");
+        assertThat(keys).hasSize(1);
+        return redisTemplate.opsForList().range(keys.iterator().next(), 0, -1);
+    }
+
+    private static List<String> keys() {
+        return Arrays.asList(INFLIGHT, FOLLOWERS);
+    }
+
+    /**
+     * 不含 URL 的请求（指纹不依赖输入文件 ETag），businessTaskId 不参与指纹
+     */
+    private static Map<String, Object> request(String taskId) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("businessTaskId", taskId);
+        request.put("prompt", "spring festival");
+        request.put("ratio", "1:1");
+        return request;
+    }
+
+    private static TaskResult result(String taskId, TaskResultStatus status) {
+        return TaskResult.builder()
+                .taskId(taskId)
+                .algorithm(ALGORITHM)
+                .status(status)
+                .data(status == TaskResultStatus.SUCCESS
+                        ? JsonUtil.fromJson("{\"url\":\"https://oss/result.png\"}", JsonNode.class)
+                        : null)
+                .errorMessage(status == TaskResultStatus.SUCCESS ? null : status.name())
+                .build();
+    }
+
+    private TaskResult delivered() {
+        ArgumentCaptor<TaskResult> captor = ArgumentCaptor.forClass(TaskResult.class);
+        verify(callbackHandler, atLeastOnce()).handleResult(captor.capture(), eq(ALGORITHM));
+        List<TaskResult> results = captor.getAllValues();
+        assertThat(results).hasSize(1);
+        return results.get(0);
+    }
+}
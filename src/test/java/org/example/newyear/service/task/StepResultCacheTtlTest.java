@@ -0,0 +1,112 @@
+package org.example.newyear.service.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.newyear.config.TaskProperties;
+import org.example.newyear.entity.enums.AlgorithmEnum;
+import org.example.newyear.entity.task.TaskResult;
+import org.example.newyear.entity.task.TaskResultStatus;
+import org.example.newyear.service.callback.CallbackHandler;
+import org.example.newyear.support.RedisContainerSupport;
+import org.example.newyear.util.JsonUtil;
+import org.example.newyear.util.TaskRedisKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 步骤结果缓存存活时间：不超过结果中签名地址的剩余有效期，即将过期的结果不缓存
+ */
+class StepResultCacheTtlTest extends RedisContainerSupport {
+
+    private static final AlgorithmEnum ALGORITHM = AlgorithmEnum.FLUX2_IMAGE_GEN;
+
+    private StepResultCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cache = new StepResultCache(redisTemplate, mock(CallbackHandler.class), mock(ObjectProvider.class),
+                Runnable::run, new TaskProperties());
+    }
+
+    @Test
+    void ttlIsCappedAtSignedUrlExpiry() {
+        long expires = System.currentTimeMillis() / 1000 + 7200;
+
+        complete("https://oss/result.png?Expires=" + expires + "&OSSAccessKeyId=ak&Signature=sig");
+
+        // 剩余 2 小时，预留 1 小时
+        assertThat(cachedTtlSeconds()).isBetween(3500L, 3600L);
+    }
+
+    @Test
+    void resultExpiringWithinMarginIsNotCached() {
+        long expires = System.currentTimeMillis() / 1000 + 1800;
+
+        complete("https://oss/result.png?Expires=" + expires + "&OSSAccessKeyId=ak&Signature=sig");
+
+        assertThat(cacheKeys()).isEmpty();
+    }
+
+    @Test
+    void unsignedResultUsesConfiguredTtl() {
+        complete("https://oss/result.png");
+
+        assertThat(cachedTtlSeconds()).isGreaterThan(604000L);
+    }
+
+    @Test
+    void parsesV4SignatureExpiry() {
+        long signedAt = LocalDateTime.of(2026, 10, 17, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        assertThat(StepResultCache.urlExpiry(
+                "https://oss/a.png?x-oss-date=20261017T000000Z&x-oss-expires=3600&x-oss-signature=sig"))
+                .isEqualTo(signedAt + 3600000L);
+        assertThat(StepResultCache.urlExpiry(
+                "https://s3/a.png?X-Amz-Date=20261017T000000Z&X-Amz-Expires=600&X-Amz-Signature=sig"))
+                .isEqualTo(signedAt + 600000L);
+        assertThat(StepResultCache.urlExpiry("https://oss/a.png?Expires=abc")).isZero();
+        assertThat(StepResultCache.urlExpiry("https://oss/a.png")).isEqualTo(Long.MAX_VALUE);
+    }
+
+    // ======================== 辅助方法 ========================
+
+    /**
+     * 未命中缓存后以给定结果地址成功完成（请求不含 URL，指纹不依赖输入文件 ETag）
+     */
+    private void complete(String resultUrl) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("businessTaskId", "t1");
+        request.put("prompt", "spring festival");
+        assertThat(cache.replay(ALGORITHM, request, "t1")).isFalse();
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("url", resultUrl);
+        cache.onTaskCompleted(TaskResult.builder()
+                .taskId("t1")
+                .algorithm(ALGORITHM)
+                .status(TaskResultStatus.SUCCESS)
+                .data(JsonUtil.fromJson(JsonUtil.toJson(data), JsonNode.class))
+                .build(), ALGORITHM);
+    }
+
+    private Set<String> cacheKeys() {
+        return redisTemplate.keys(TaskRedisKey.STEP_CACHE_PREFIX + ALGORITHM.getName() + ":*");
+    }
+
+    private long cachedTtlSeconds() {
+        Set<String> keys = cacheKeys();
+        assertThat(keys).hasSize(1);
+        return redisTemplate.getExpire(keys.iterator().next(), TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.newyear.support;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.example.newyear.mapper.Spring2026CreationRecordMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * MySQL 测试基类：每个测试类启动一个 MySQL 容器并执行建表脚本，每个测试前清空创作记录表（无 Docker 环境时跳过）
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MySqlContainerSupport {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>(DockerImageName.parse("mysql:8.0"))
+            .withDatabaseName("aiGcData")
+            .withInitScript("sql/spring_2026_festival.sql");
+
+    protected static JdbcTemplate jdbcTemplate;
+
+    protected static Spring2026CreationRecordMapper recordMapper;
+
+    @BeforeAll
+    static void connect() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(configuration);
+        factoryBean.setGlobalConfig(new GlobalConfig().setBanner(false));
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(Spring2026CreationRecordMapper.class);
+        recordMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(Spring2026CreationRecordMapper.class);
+    }
+
+    @BeforeEach
+    void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE spring_2026_creation_record");
+    }
+}